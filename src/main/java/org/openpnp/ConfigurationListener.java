@@ -52,4 +52,22 @@ public interface ConfigurationListener {
         @Override
         public void configurationComplete(Configuration configuration) throws Exception {}
     }
+
+    /**
+     * Marker for listeners that only touch their own state and do not need to be called on the
+     * thread that loads the Configuration, which is typically the Swing thread. Configuration runs
+     * these on a worker pool alongside the other listeners of the same phase. Every listener of a
+     * phase, concurrent or not, finishes before the next phase starts, so a Concurrent listener
+     * can still rely on configurationLoaded having been called on everything before its
+     * configurationComplete is called.
+     * 
+     * Use this for slow, self contained initialization such as loading images from disk. State
+     * that the UI reads or binds to must still be published on the Swing thread, for instance
+     * with SwingUtilities.invokeLater().
+     */
+    public interface Concurrent extends ConfigurationListener {
+    }
+
+    public static class ConcurrentAdapter extends Adapter implements Concurrent {
+    }
 }
@@ -96,6 +96,7 @@ import org.openpnp.util.MovableUtils;
 import org.openpnp.util.UiUtils;
 
 import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.FutureCallback;
 
 @SuppressWarnings("serial")
 public class JobPanel extends JPanel {
@@ -599,6 +600,31 @@ public class JobPanel extends JPanel {
         }
     }
 
+    /**
+     * Save the current Job to its file on the configuration writer thread so that large jobs
+     * don't block the UI. Errors are reported the same way as saveJob().
+     */
+    private void saveJobInBackground() {
+        File file = getJob().getFile();
+        try {
+            configuration.saveJobInBackground(getJob(), file, new FutureCallback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
+                    SwingUtilities.invokeLater(() -> addRecentJob(file));
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    SwingUtilities.invokeLater(() -> MessageBoxes.errorBox(frame,
+                            "Job Save Error", t.getMessage()));
+                }
+            });
+        }
+        catch (Exception e) {
+            MessageBoxes.errorBox(frame, "Job Save Error", e.getMessage());
+        }
+    }
+
     private boolean saveJobAs() {
         FileDialog fileDialog = new FileDialog(frame, "Save Job As...", FileDialog.SAVE);
         fileDialog.setFilenameFilter(new FilenameFilter() {
@@ -716,9 +742,7 @@ public class JobPanel extends JPanel {
             Board importedBoard = boardImporter.importBoard((Frame) getTopLevelAncestor());
             if (importedBoard != null) {
                 Board existingBoard = getSelectedBoardLocation().getBoard();
-                for (Placement placement : importedBoard.getPlacements()) {
-                    existingBoard.addPlacement(placement);
-                }
+                existingBoard.addPlacements(importedBoard.getPlacements());
                 for (BoardPad pad : importedBoard.getSolderPastePads()) {
                     // TODO: This is a temporary hack until we redesign the
                     // importer
@@ -727,8 +751,8 @@ public class JobPanel extends JPanel {
                     // try to get it closer to what the user expects to see.
                     pad.setLocation(pad.getLocation()
                             .convertToUnits(getSelectedBoardLocation().getLocation().getUnits()));
-                    existingBoard.addSolderPastePad(pad);
                 }
+                existingBoard.addSolderPastePads(importedBoard.getSolderPastePads());
                 jobPlacementsPanel.setBoardLocation(getSelectedBoardLocation());
                 jobPastePanel.setBoardLocation(getSelectedBoardLocation());
             }
@@ -805,7 +829,12 @@ public class JobPanel extends JPanel {
 
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            saveJob();
+            if (getJob().getFile() == null) {
+                saveJobAs();
+            }
+            else {
+                saveJobInBackground();
+            }
         }
     };
 
@@ -30,20 +30,24 @@ import java.beans.PropertyChangeListener;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.prefs.Preferences;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JSlider;
 import javax.swing.JTabbedPane;
 import javax.swing.SwingConstants;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 
 import org.openpnp.ConfigurationListener;
+import org.openpnp.gui.support.ContinuousJog;
 import org.openpnp.gui.support.Icons;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Length;
@@ -86,6 +90,7 @@ public class JogControlsPanel extends JPanel {
         this.configuration = configuration;
 
         createUi();
+        keyReleaseTimer.setRepeats(false);
 
         configuration.addListener(configurationListener);
     }
@@ -196,6 +201,52 @@ public class JogControlsPanel extends JPanel {
         });
     }
 
+    /**
+     * The global hotkeys call the jog actions without an event, and keep calling them for as long
+     * as the key is held down, so with continuous jog on a key press steps once and then, if the
+     * key is still held after a moment, jogs continuously until it is released. Buttons only fire
+     * once they are released, so they always step.
+     */
+    private void jog(ActionEvent e, int x, int y, int z, int c) {
+        if (e != null || !continuousJogCheckBox.isSelected()) {
+            jog(x, y, z, c);
+            return;
+        }
+        if (keyReleaseTimer.isRunning()) {
+            // Some platforms send a release before every repeated press, so a press that
+            // quickly follows a release just carries on.
+            keyReleaseTimer.stop();
+        }
+        double jogVelocity = getJogIncrement() * continuousJogRate;
+        Location velocity = new Location(configuration.getSystemUnits(), x * jogVelocity,
+                y * jogVelocity, z * jogVelocity, c * jogVelocity);
+        if (continuousJog.isActive(velocity)) {
+            return;
+        }
+        if (!continuousJog.isActive()) {
+            jog(x, y, z, c);
+        }
+        continuousJog.start(machineControlsPanel.getSelectedTool(), velocity,
+                continuousJogDelayMilliseconds);
+    }
+
+    /**
+     * Called when a jog hotkey is released, to stop a continuous jog.
+     */
+    public void jogKeyReleased() {
+        if (continuousJog.isActive()) {
+            keyReleaseTimer.restart();
+        }
+    }
+
+    public ContinuousJog getContinuousJog() {
+        return continuousJog;
+    }
+
+    public boolean isContinuousJogEnabled() {
+        return continuousJogCheckBox.isSelected();
+    }
+
     private void park(boolean xy, boolean z, boolean c) {
         UiUtils.submitUiMachineTask(() -> {
             HeadMountable tool = machineControlsPanel.getSelectedTool();
@@ -366,6 +417,16 @@ public class JogControlsPanel extends JPanel {
         JButton btnDiscard = new JButton(discardAction);
         panelSpecial.add(btnDiscard);
 
+        continuousJogCheckBox = new JCheckBox("Continuous Jog");
+        continuousJogCheckBox.setToolTipText(
+                "Jog for as long as a jog key is held, or the camera view is dragged.");
+        continuousJogCheckBox.setSelected(
+                prefs.getBoolean(PREF_CONTINUOUS_JOG, PREF_CONTINUOUS_JOG_DEF));
+        continuousJogCheckBox.addActionListener(e -> {
+            prefs.putBoolean(PREF_CONTINUOUS_JOG, continuousJogCheckBox.isSelected());
+        });
+        panelSpecial.add(continuousJogCheckBox);
+
         panelActuators = new JPanel();
         tabbedPane_1.addTab("Actuators", null, panelActuators, null);
         panelActuators.setLayout(new FlowLayout(FlowLayout.LEFT, 5, 5));
@@ -416,7 +477,7 @@ public class JogControlsPanel extends JPanel {
     public Action yPlusAction = new AbstractAction("Y+", Icons.arrowUp) {
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            jog(0, 1, 0, 0);
+            jog(arg0, 0, 1, 0, 0);
         }
     };
 
@@ -424,7 +485,7 @@ public class JogControlsPanel extends JPanel {
     public Action yMinusAction = new AbstractAction("Y-", Icons.arrowDown) {
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            jog(0, -1, 0, 0);
+            jog(arg0, 0, -1, 0, 0);
         }
     };
 
@@ -432,7 +493,7 @@ public class JogControlsPanel extends JPanel {
     public Action xPlusAction = new AbstractAction("X+", Icons.arrowRight) {
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            jog(1, 0, 0, 0);
+            jog(arg0, 1, 0, 0, 0);
         }
     };
 
@@ -440,7 +501,7 @@ public class JogControlsPanel extends JPanel {
     public Action xMinusAction = new AbstractAction("X-", Icons.arrowLeft) {
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            jog(-1, 0, 0, 0);
+            jog(arg0, -1, 0, 0, 0);
         }
     };
 
@@ -448,7 +509,7 @@ public class JogControlsPanel extends JPanel {
     public Action zPlusAction = new AbstractAction("Z+", Icons.arrowUp) {
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            jog(0, 0, 1, 0);
+            jog(arg0, 0, 0, 1, 0);
         }
     };
 
@@ -456,7 +517,7 @@ public class JogControlsPanel extends JPanel {
     public Action zMinusAction = new AbstractAction("Z-", Icons.arrowDown) {
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            jog(0, 0, -1, 0);
+            jog(arg0, 0, 0, -1, 0);
         }
     };
 
@@ -464,7 +525,7 @@ public class JogControlsPanel extends JPanel {
     public Action cPlusAction = new AbstractAction("C+", Icons.rotateCounterclockwise) {
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            jog(0, 0, 0, 1);
+            jog(arg0, 0, 0, 0, 1);
         }
     };
 
@@ -472,7 +533,7 @@ public class JogControlsPanel extends JPanel {
     public Action cMinusAction = new AbstractAction("C-", Icons.rotateClockwise) {
         @Override
         public void actionPerformed(ActionEvent arg0) {
-            jog(0, 0, 0, -1);
+            jog(arg0, 0, 0, 0, -1);
         }
     };
 
@@ -620,4 +681,24 @@ public class JogControlsPanel extends JPanel {
 
     private Map<Actuator, JButton> actuatorButtons = new HashMap<>();
     private JSlider speedSlider;
+    private JCheckBox continuousJogCheckBox;
+
+    private static final String PREF_CONTINUOUS_JOG = "JogControlsPanel.continuousJog";
+    private static final boolean PREF_CONTINUOUS_JOG_DEF = true;
+    private Preferences prefs = Preferences.userNodeForPackage(JogControlsPanel.class);
+
+    private final ContinuousJog continuousJog = new ContinuousJog();
+
+    /**
+     * Continuous jog velocity per second, as a multiple of the jog increment, so the distance
+     * slider sets the jog speed too.
+     */
+    private final double continuousJogRate = 10;
+
+    /**
+     * How long a jog key has to be held before continuous jogging starts.
+     */
+    private final long continuousJogDelayMilliseconds = 300;
+
+    private final Timer keyReleaseTimer = new Timer(30, e -> continuousJog.stop());
 }
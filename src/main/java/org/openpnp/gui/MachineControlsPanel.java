@@ -326,8 +326,10 @@ public class MachineControlsPanel extends JPanel {
     private MachineListener machineListener = new MachineListener.Adapter() {
         @Override
         public void machineHeadActivity(Machine machine, Head head) {
-            EventQueue.invokeLater(() -> updateDros());
-            EventQueue.invokeLater(() -> comboBoxHeadMountable.repaint());
+            EventQueue.invokeLater(() -> {
+                updateDros();
+                comboBoxHeadMountable.repaint();
+            });
         }
 
         @Override
@@ -363,7 +363,15 @@ public class MainFrame extends JFrame {
             @Override
             protected void dispatchEvent(AWTEvent event) {
                 if (event instanceof KeyEvent) {
-                    KeyStroke ks = KeyStroke.getKeyStrokeForEvent((KeyEvent) event);
+                    KeyEvent keyEvent = (KeyEvent) event;
+                    if (keyEvent.getID() == KeyEvent.KEY_RELEASED && machineControlsPanel != null
+                            && (keyEvent.getKeyCode() == KeyEvent.VK_CONTROL
+                                    || hotkeyActionMap.containsKey(
+                                            KeyStroke.getKeyStroke(keyEvent.getKeyCode(), mask)))) {
+                        // Stop a continuous jog when its key, or the modifier, is released.
+                        machineControlsPanel.getJogControlsPanel().jogKeyReleased();
+                    }
+                    KeyStroke ks = KeyStroke.getKeyStrokeForEvent(keyEvent);
                     Action action = hotkeyActionMap.get(ks);
                     if (action != null && action.isEnabled()) {
                         action.actionPerformed(null);
@@ -679,7 +687,8 @@ public class MainFrame extends JFrame {
 
         }
 
-        // Save the configuration
+        // Save the configuration. This also waits for background Job saves, so one that failed
+        // leaves the Job dirty and is caught by checkForModifications() below.
         try {
             configuration.save();
         }
@@ -698,6 +707,13 @@ public class MainFrame extends JFrame {
         if (!jobPanel.checkForModifications()) {
             return false;
         }
+        // The writer thread is a daemon, make sure nothing is still queued on it before exit.
+        try {
+            configuration.flush();
+        }
+        catch (InterruptedException e) {
+            e.printStackTrace();
+        }
         // Attempt to stop the machine on quit
         try {
             configuration.getMachine().setEnabled(false);
@@ -45,6 +45,7 @@ import org.openpnp.model.Board;
 import org.openpnp.model.BoardLocation;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Job;
+import org.openpnp.util.MatPool;
 import org.pmw.tinylog.Logger;
 
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -402,6 +403,12 @@ public class SubmitDiagnosticsDialog extends JDialog {
                 Runtime.getRuntime().freeMemory() / 1024.0 / 1024.0));
         sb.append(String.format("Memory Max: %.2f\n",
                 Runtime.getRuntime().maxMemory() / 1024.0 / 1024.0));
+        sb.append(String.format("Native Image Memory Live: %.2f\n",
+                MatPool.get().getLiveBytes() / 1024.0 / 1024.0));
+        sb.append(String.format("Native Image Memory Pooled: %.2f\n",
+                MatPool.get().getPooledBytes() / 1024.0 / 1024.0));
+        sb.append(String.format("Native Images Not Returned: %d\n",
+                MatPool.get().getDroppedCount()));
         sb.append(String.format("OpenPnp Version: %s", Main.getVersion()));
         return sb.toString();
     }
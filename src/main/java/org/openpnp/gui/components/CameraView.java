@@ -60,11 +60,14 @@ import javax.swing.JPopupMenu;
 import javax.swing.SwingUtilities;
 
 import org.openpnp.CameraListener;
+import org.openpnp.gui.JogControlsPanel;
 import org.openpnp.gui.MainFrame;
 import org.openpnp.gui.components.reticle.Reticle;
+import org.openpnp.gui.support.ContinuousJog;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Location;
 import org.openpnp.spi.Camera;
+import org.openpnp.spi.HeadMountable;
 import org.openpnp.spi.Nozzle;
 import org.openpnp.util.MovableUtils;
 import org.openpnp.util.UiUtils;
@@ -1148,6 +1151,27 @@ public class CameraView extends JComponent implements CameraListener {
     }
 
     private void moveToClick(MouseEvent e) {
+        // Add the offsets to the Camera's position.
+        Location location = camera.getLocation().add(getClickOffsets(e));
+        // And move there.
+        UiUtils.submitUiMachineTask(() -> {
+            if (camera.getHead() == null) {
+                // move the nozzle to the camera
+                Nozzle nozzle = MainFrame.get().getMachineControls().getSelectedNozzle();
+                MovableUtils.moveToLocationAtSafeZ(nozzle, location);
+            }
+            else {
+                // move the camera to the location
+                MovableUtils.moveToLocationAtSafeZ(camera, location);
+            }
+        });
+    }
+
+    /**
+     * The distance from the center of the image to the mouse position, in the units of the
+     * camera's units per pixel.
+     */
+    private Location getClickOffsets(MouseEvent e) {
         int x = e.getX();
         int y = e.getY();
 
@@ -1169,21 +1193,7 @@ public class CameraView extends JComponent implements CameraListener {
 
         // Create a location in the Camera's units per pixel's units
         // and with the values of the offsets.
-        Location offsets = camera.getUnitsPerPixel().derive(offsetX, offsetY, 0.0, 0.0);
-        // Add the offsets to the Camera's position.
-        Location location = camera.getLocation().add(offsets);
-        // And move there.
-        UiUtils.submitUiMachineTask(() -> {
-            if (camera.getHead() == null) {
-                // move the nozzle to the camera
-                Nozzle nozzle = MainFrame.get().getMachineControls().getSelectedNozzle();
-                MovableUtils.moveToLocationAtSafeZ(nozzle, location);
-            }
-            else {
-                // move the camera to the location
-                MovableUtils.moveToLocationAtSafeZ(camera, location);
-            }
-        });
+        return camera.getUnitsPerPixel().derive(offsetX, offsetY, 0.0, 0.0);
     }
 
     private void beginSelection(MouseEvent e) {
@@ -1272,22 +1282,53 @@ public class CameraView extends JComponent implements CameraListener {
         selectionActiveHandle = null;
     }
     
+    /**
+     * With continuous jog on, dragging jogs the camera, or the selected nozzle for a camera that
+     * isn't on a head, towards the mouse for as long as the button is held, faster the further
+     * the mouse is from the center. Otherwise the move is made to where the mouse is released.
+     */
     private void dragJoggingBegin(MouseEvent e) {
         this.dragJogging = true;
         this.dragJoggingTarget = e;
         repaint();
+        JogControlsPanel jogControls = MainFrame.get().getMachineControls().getJogControlsPanel();
+        if (jogControls.isContinuousJogEnabled()) {
+            HeadMountable tool = camera.getHead() == null
+                    ? MainFrame.get().getMachineControls().getSelectedNozzle()
+                    : camera;
+            jogControls.getContinuousJog().start(tool, getDragJogVelocity(e), 0);
+        }
     }
     
     private void dragJoggingContinue(MouseEvent e) {
         this.dragJoggingTarget = e;
         repaint();
+        ContinuousJog continuousJog =
+                MainFrame.get().getMachineControls().getJogControlsPanel().getContinuousJog();
+        if (continuousJog.isActive()) {
+            continuousJog.update(getDragJogVelocity(e));
+        }
     }
     
     private void dragJoggingEnd(MouseEvent e) {
         this.dragJogging = false;
         this.dragJoggingTarget = null;
         repaint();
-        moveToClick(e);
+        JogControlsPanel jogControls = MainFrame.get().getMachineControls().getJogControlsPanel();
+        if (jogControls.isContinuousJogEnabled()) {
+            jogControls.getContinuousJog().stop();
+        }
+        else {
+            moveToClick(e);
+        }
+    }
+
+    /**
+     * The drag jog velocity, per second, covers the distance from the center of the image to the
+     * mouse in one second.
+     */
+    private Location getDragJogVelocity(MouseEvent e) {
+        return getClickOffsets(e);
     }
     
     private boolean isDragJogging() {
@@ -25,11 +25,12 @@ import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FilenameFilter;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -53,8 +54,6 @@ import org.openpnp.model.Board.Side;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
-import org.openpnp.model.Package;
-import org.openpnp.model.Part;
 import org.openpnp.model.Placement;
 
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -88,10 +87,13 @@ public class DipTraceImporter implements BoardImporter {
         return board;
     }
 
-    private static List<Placement> parseFile(File file, boolean createMissingParts)
+    /**
+     * Parse the placements of the file. If parts is not null the part of each placement is
+     * resolved through it, otherwise the placements have no part.
+     */
+    private static List<Placement> parseFile(InputStream in, PartResolver parts)
             throws Exception {
-        BufferedReader reader =
-                new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
         ArrayList<Placement> placements = new ArrayList<>();
         String line;
         int lineCount = 0;
@@ -124,23 +126,8 @@ public class DipTraceImporter implements BoardImporter {
             Placement placement = new Placement(placementId);
             placement.setLocation(new Location(LengthUnit.Millimeters, placementX, placementY, 0,
                     placementRotation));
-            Configuration cfg = Configuration.get();
-            if (cfg != null && createMissingParts) {
-                String partId = pkgName + "-" + partValue;
-                Part part = cfg.getPart(partId);
-                if (part == null) {
-                    part = new Part(partId);
-                    Package pkg = cfg.getPackage(pkgName);
-                    if (pkg == null) {
-                        pkg = new Package(pkgName);
-                        cfg.addPackage(pkg);
-                    }
-                    part.setPackage(pkg);
-
-                    cfg.addPart(part);
-                }
-                placement.setPart(part);
-
+            if (parts != null) {
+                parts.resolve(placement, pkgName + "-" + partValue, pkgName);
             }
 
             placement.setSide(placementLayer.charAt(0) == 'T' ? Side.Top : Side.Bottom);
@@ -254,11 +241,20 @@ public class DipTraceImporter implements BoardImporter {
             public void actionPerformed(ActionEvent e) {
                 fileName = new File(textFieldFileName.getText());
                 board = new Board();
+                PartResolver parts =
+                        chckbxCreateMissingParts.isSelected() ? new PartResolver() : null;
+                ImportTask task = new ImportTask();
+                Future<List<Placement>> result = null;
+                if (fileName.exists()) {
+                    result = task.add(fileName, in -> parseFile(in, parts));
+                }
                 List<Placement> placements = new ArrayList<>();
                 try {
-                    if (fileName.exists()) {
-                        placements.addAll(parseFile(fileName, chckbxCreateMissingParts.isSelected()));
-                        
+                    if (!task.run(Dlg.this)) {
+                        return;
+                    }
+                    if (result != null) {
+                        placements.addAll(result.get());
                     }
                 }
                 catch (Exception e1) {
@@ -267,9 +263,10 @@ public class DipTraceImporter implements BoardImporter {
                     		+ "The lines that follow are data.");
                     return;
                 }
-                for (Placement placement : placements) {
-                    board.addPlacement(placement);
+                if (parts != null) {
+                    parts.apply(Configuration.get());
                 }
+                board.addPlacements(placements);
                 setVisible(false);
             }
         }
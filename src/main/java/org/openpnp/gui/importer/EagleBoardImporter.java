@@ -25,9 +25,10 @@ import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.concurrent.Future;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -52,17 +53,10 @@ import org.openpnp.model.BoardPad;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
-import org.openpnp.model.Package;
 import org.openpnp.model.Pad;
-import org.openpnp.model.Part;
 import org.openpnp.model.Placement;
 import org.openpnp.model.Point;
-import org.openpnp.model.eagle.EagleLoader;
-import org.openpnp.model.eagle.xml.Element;
-import org.openpnp.model.eagle.xml.Layer;
-import org.openpnp.model.eagle.xml.Library;
-import org.openpnp.model.eagle.xml.Param;
-import org.openpnp.model.eagle.xml.Vertex;
+import org.openpnp.model.eagle.EagleBoardReader;
 import org.openpnp.util.Utils2D;
 import org.pmw.tinylog.Logger;
 
@@ -98,584 +92,250 @@ public class EagleBoardImporter implements BoardImporter {
         return board;
     }
 
-    private static List<Placement> parseFile(File file, Side side, boolean createMissingParts)
+    /**
+     * Parse the placements and solder paste pads of the given side, or both sides if side is
+     * null, into a new Board. If parts is not null the part of each placement is resolved
+     * through it, otherwise the placements have no part. The file is only used in messages.
+     */
+    public static Board parseFile(InputStream in, File file, Side side, PartResolver parts)
             throws Exception {
-
-        String dimensionLayer = "";
-        String topLayer = "";
-        String bottomLayer = "";
-        String tCreamLayer = "";
-        String bCreamLayer = "";
-
-        String mmMinCreamFrame_string;
-        double mmMinCreamFrame_number = 0;
-        String mmMaxCreamFrame_string;
-        double mmMaxCreamFrame_number = 0;
-        String libraryId = "";
-        String packageId = "";
-        Part part = null;
-
+        Board board = new Board();
+        List<Placement> placements = new ArrayList<>();
         List<BoardPad> pads = new ArrayList<>();
-
-        ArrayList<Placement> placements = new ArrayList<>();
         // we don't use the 'side' parameter as we can read this from the .brd file
         // in the future we could use the side parameter to restrict this from only parsing one side
         // or the other or both
 
-        EagleLoader boardToProcess = new EagleLoader(file);
-        if (boardToProcess.board != null) {
+        // The board is read in a single streaming pass that only keeps the layers, design rules,
+        // packages and elements, rather than loading the whole document with EagleLoader.
+        EagleBoardReader boardToProcess = new EagleBoardReader(in);
+        if (!boardToProcess.hasBoard()) {
+            return board;
+        }
 
-            // first establish which is the Dimension, Top, Bottom, tCream and bCream layers in case
-            // the board has non-standard layer numbering
-            for (Layer layer : boardToProcess.layers.getLayer()) {
-                if (layer.getName().equalsIgnoreCase("Dimension")) {
-                    dimensionLayer = layer.getNumber();
-                }
-                else if (layer.getName().equalsIgnoreCase("Top")) {
-                    topLayer = layer.getNumber();
-                }
-                else if (layer.getName().equalsIgnoreCase("Bottom")) {
-                    bottomLayer = layer.getNumber();
-                }
-                else if (layer.getName().equalsIgnoreCase("tCream")) {
-                    tCreamLayer = layer.getNumber();
-                }
-                else if (layer.getName().equalsIgnoreCase("bCream")) {
-                    bCreamLayer = layer.getNumber();
-                }
+        // first establish which is the Dimension, Top, Bottom, tCream and bCream layers in case
+        // the board has non-standard layer numbering
+        String dimensionLayer = boardToProcess.getLayerNumber("Dimension");
+        String topLayer = boardToProcess.getLayerNumber("Top");
+        String bottomLayer = boardToProcess.getLayerNumber("Bottom");
+        String tCreamLayer = boardToProcess.getLayerNumber("tCream");
+        String bCreamLayer = boardToProcess.getLayerNumber("bCream");
+
+        // Now we want to establish the width of the board which we need to record. Note that we
+        // set x = maximum x point on the Y=0;
+        Point center = new Point(boardToProcess.getPlainMaxX(dimensionLayer) / 2, 0);
+
+        // determine the parameters for the pads based on DesignRules. Now we know the min and
+        // max tolerance for the cream (aka solder paste) in mm (converted from mil as required)
+        double mmMinCreamFrame = getCreamFrame(boardToProcess, "mlMinCreamFrame");
+        double mmMaxCreamFrame = getCreamFrame(boardToProcess, "mlMaxCreamFrame");
+        // Eagle has the concept of minimum and max from the edge of the pad so we need to adjust
+        // the pad to be the size as the mid-point between the minimum and max in practice these
+        // are usually 0, which means we paste the entire pad
+        double creamFrame = (mmMaxCreamFrame - mmMinCreamFrame) / 2;
+
+        // Now we got through each of the parts
+        for (EagleBoardReader.Element element : boardToProcess.getElements()) {
+            // first we determine if the part is on the top layer or bottom layer. If it is
+            // mirrored it is on the bottom of the board
+            String rot = element.getRot();
+            Side element_side =
+                    rot.toUpperCase().startsWith("M") ? Side.Bottom : Side.Top;
+
+            // Now determine if we want to process this part based on which side of the
+            // board it is on, null means process both sides
+            if (side != null && side != element_side) {
+                continue;
             }
 
-            // Now we want to establish the width of the board which we need to record
-            Double x_boundary = 0.0;
-            for (Object e : boardToProcess.board.getPlain()
-                    .getPolygonOrWireOrTextOrDimensionOrCircleOrRectangleOrFrameOrHole()) {
-                if (e instanceof org.openpnp.model.eagle.xml.Wire) {
-                    if (((org.openpnp.model.eagle.xml.Wire) e).getLayer()
-                            .equalsIgnoreCase(dimensionLayer)) {
-                        x_boundary = Math.max(x_boundary,
-                                Double.parseDouble(((org.openpnp.model.eagle.xml.Wire) e).getX1()));
-                        x_boundary = Math.max(x_boundary,
-                                Double.parseDouble(((org.openpnp.model.eagle.xml.Wire) e).getX2()));
-                    }
-                }
+            Placement placement = new Placement(element.getName());
+            double rotation = parseRotation(rot);
+            double x = element.getX();
+            double y = element.getY();
+            placement.setLocation(new Location(LengthUnit.Millimeters, x, y, 0, rotation));
+
+            // placement now contains where the package is on the PCB, we need to work out
+            // where the pads are relative to the 'placement'
+            if (parts != null) {
+                resolvePart(parts, placement, element);
             }
-            Point center = new Point(x_boundary / 2, 0); // note that we set x = maximum x point on
-                                                         // the Y=0;
-
-            // determine the parameters for the pads based on DesignRules
-            for (Param params : boardToProcess.board.getDesignrules().getParam()) {
-
-                if (params.getName().compareToIgnoreCase("mlMinCreamFrame") == 0) { // found exact
-                                                                                    // match when 0
-                                                                                    // returned
-                    mmMinCreamFrame_string = params.getValue().replaceAll("[A-Za-z ]", ""); // remove
-                                                                                            // all
-                                                                                            // letters,
-                                                                                            // i.e.
-                                                                                            // 0mil
-                                                                                            // becomes
-                                                                                            // 0
-                    if (params.getValue().toUpperCase().endsWith("MIL")) {
-                        mmMinCreamFrame_number =
-                                Double.parseDouble(mmMinCreamFrame_string) * mil_to_mm;
-                    }
-                    else if (params.getValue().toUpperCase().endsWith("MM")) {
-                        mmMinCreamFrame_number =
-                                Double.parseDouble(mmMinCreamFrame_string) * mil_to_mm;
-                    }
-                    else {
-                        throw new Exception("mlMinCream must either be in mil or mm"); // Force the
-                                                                                       // importer
-                                                                                       // to abort,
-                                                                                       // something
-                                                                                       // is very
-                                                                                       // wrong
-                    }
-                }
-                if (params.getName().compareToIgnoreCase("mlMaxCreamFrame") == 0) { // found exact
-                                                                                    // match when 0
-                                                                                    // returned
-                    mmMaxCreamFrame_string = params.getValue().replaceAll("[A-Za-z ]", ""); // remove
-                                                                                            // all
-                                                                                            // letters,
-                                                                                            // i.e.
-                                                                                            // "0mil"
-                                                                                            // becomes
-                                                                                            // 0
-                    if (params.getValue().toUpperCase().endsWith("MIL")) {
-                        mmMaxCreamFrame_number =
-                                Double.parseDouble(mmMaxCreamFrame_string) * mil_to_mm;
-                    }
-                    else if (params.getValue().toUpperCase().endsWith("MM")) {
-                        mmMaxCreamFrame_number = Double.parseDouble(mmMaxCreamFrame_string);
+
+            // Now we have the part, we now need to add the SolderPastePads to the board
+            EagleBoardReader.Package pak =
+                    boardToProcess.getPackage(element.getLibrary(), element.getPackage());
+            if (pak != null) {
+                for (Object e : pak.getContents()) {
+                    if (e instanceof EagleBoardReader.Smd) {
+                        EagleBoardReader.Smd smd = (EagleBoardReader.Smd) e;
+                        // if cream="no" then we do not paste this pad
+                        if (!smd.isCream()) {
+                            continue;
+                        }
+                        BoardPad boardPad = createSmdPad(file, element, element_side, rotation,
+                                center, creamFrame, smd, topLayer, bottomLayer);
+                        pads.add(boardPad);
                     }
-                    else {
-                        throw new Exception("mlMaxCream must either be in mil or mm"); // Force the
-                                                                                       // importer
-                                                                                       // to abort,
-                                                                                       // something
-                                                                                       // is very
-                                                                                       // wrong
+                    // TODO implement pasting for through hole pads
+                    else if (e instanceof EagleBoardReader.Polygon) {
+                        EagleBoardReader.Polygon polygon = (EagleBoardReader.Polygon) e;
+                        // We have a polygon is it on a tCream or bCream layer, otherwise ignore
+                        // it
+                        if (polygon.getLayer().equals(tCreamLayer)
+                                || polygon.getLayer().equals(bCreamLayer)) {
+                            BoardPad boardPad = createPolygonPad(file, element, polygon);
+                            boardPad.setSide(polygon.getLayer().equals(tCreamLayer) ? Side.Top
+                                    : Side.Bottom);
+                            pads.add(boardPad);
+                        }
                     }
                 }
             }
-            // Now we know the min and max tolerance for the cream (aka solder paste)
-            // which are mmMinCreamFrame_number and mmMaxCreamFrame_number and are in mm (converted
-            // from mil as required)
-
-            // Now we got through each of the parts
-            if (!boardToProcess.board.getElements().getElement().isEmpty()) {
-
-                // Process each of the element items
-                for (Element element : boardToProcess.board.getElements().getElement()) {
-                    // first we determine if the part is on the top layer or bottom layer
-
-                    Side element_side;
-                    String rot = element.getRot();
-                    if (rot.toUpperCase().startsWith("M")) {
-                        // The part is mirrored and therefore is on the bottom of the board
-                        element_side = Side.Bottom;
-                    }
-                    else {
-                        element_side = Side.Top;
-                    }
 
-                    // Now determine if we want to process this part based on which side of the
-                    // board it is on
+            placement.setSide(element_side);
+            placements.add(placement);
+        }
 
-                    if (side != null) { // null means process both sides
-                        if (side != element_side) {
-                            continue; // exit this loop and process the next element
-                        }
-                    }
+        // this adds the placements to the Pick and Place list and the pads to the SolderPaste
+        board.addPlacements(placements);
+        board.addSolderPastePads(pads);
+        return board;
+    }
 
-                    String rot_number = rot.replaceAll("[A-Za-z ]", ""); // remove all letters, i.e.
-                                                                         // R180 becomes 180
-
-                    Placement placement = new Placement(element.getName());
-                    double rotation = Double.parseDouble(rot_number);
-                    double x = Double.parseDouble(element.getX());
-                    double y = Double.parseDouble(element.getY());
-                    placement.setLocation(new Location(LengthUnit.Millimeters, x, y, 0, rotation));
-
-                    // placement now contains where the package is on the PCB, we need to work out
-                    // where the pads
-                    // are relative to the 'placement'
-                    Configuration cfg = Configuration.get();
-                    if (cfg != null && createMissingParts) {
-                        String value = element.getValue(); // Value
-                        packageId = element.getPackage(); // Package
-                        libraryId = element.getLibrary(); // Library that contains the package
-
-                        String pkgId = libraryId + "-" + packageId;
-
-                        String partId = libraryId + "-" + packageId;
-                        if (value.trim().length() > 0) {
-                            partId += "-" + value;
-                        }
+    /**
+     * Returns the design rule with the given name in millimeters, or 0 if the board doesn't have
+     * it.
+     */
+    private static double getCreamFrame(EagleBoardReader boardToProcess, String name)
+            throws Exception {
+        String value = boardToProcess.getDesignRule(name);
+        if (value == null) {
+            return 0;
+        }
+        // remove all letters, i.e. 0mil becomes 0
+        double number = Double.parseDouble(value.replaceAll("[A-Za-z ]", ""));
+        if (value.toUpperCase().endsWith("MIL")) {
+            return number * mil_to_mm;
+        }
+        else if (value.toUpperCase().endsWith("MM")) {
+            return number;
+        }
+        // Force the importer to abort, something is very wrong
+        throw new Exception(name + " must either be in mil or mm");
+    }
 
-                        part = cfg.getPart(partId);
-                        Package pkg = cfg.getPackage(pkgId);
-
-                        if ((part == null) || (pkg == null)) {
-
-                            if (pkg == null) {
-                                pkg = new Package(pkgId);
-                                cfg.addPackage(pkg); // save the package in the configuration file
-                                if (part != null) {
-                                    cfg.removePart(part);// we have to remove the part so we can
-                                                         // re-add it with the correct package &
-                                                         // library
-                                    part = null;
-                                }
-
-                            }
-                            if (part == null) {
-                                part = new Part(partId);
-                                part.setPackage(pkg);
-                                // TODO part.setLibrary(libraryId);
-                                cfg.addPart(part); // save the package in the configuration file
-                            }
-                            cfg.addPart(part);
-                        }
-                    }
-                    placement.setPart(part);
-
-                    // Now we have the part, we now need to add the SolderPastePad to the board
-                    // Note, Eagle has the concept of minimum and max from the edge of the pad so we
-                    // need to
-                    // adjust the pad to be the size as the mid-point between the minimum and max
-                    // in practice these are usually 0, which means we paste the entire pad
-
-                    // TODO: This desperately needs to be broken up into functions. This function
-                    // is way too long and wide.
-                    if (!boardToProcess.board.getLibraries().getLibrary().isEmpty()) {
-                        for (Library library : boardToProcess.board.getLibraries().getLibrary()) {
-                            if (library.getName().equalsIgnoreCase(libraryId)) {
-                                // we have found the library, now to scan for the package we want
-                                if (!library.getPackages().getPackage().isEmpty()) {
-
-                                    ListIterator<org.openpnp.model.eagle.xml.Package> it =
-                                            library.getPackages().getPackage().listIterator();
-
-                                    while (it.hasNext()) {
-
-                                        org.openpnp.model.eagle.xml.Package pak =
-                                                (org.openpnp.model.eagle.xml.Package) it.next();
-                                        if (pak.getName().equalsIgnoreCase(packageId)) {
-
-                                            for (Object e : pak
-                                                    .getPolygonOrWireOrTextOrDimensionOrCircleOrRectangleOrFrameOrHoleOrPadOrSmd()) {
-                                                if (e instanceof org.openpnp.model.eagle.xml.Smd) {
-                                                    // we have found the correct package in the
-                                                    // correct library and we need to to add the pad
-                                                    // to the boardPads
-
-                                                    if (!((org.openpnp.model.eagle.xml.Smd) e)
-                                                            .getCream().equalsIgnoreCase("No")) { // if
-                                                                                                  // cream="no"
-                                                                                                  // then
-                                                                                                  // we
-                                                                                                  // do
-                                                                                                  // not
-                                                                                                  // paste
-                                                                                                  // this
-                                                                                                  // pad
-
-                                                        Pad.RoundRectangle pad =
-                                                                new Pad.RoundRectangle();
-                                                        pad.setUnits(LengthUnit.Millimeters);
-
-                                                        // TODO check that these reduce the pad to
-                                                        // the halfway between the minimum & maximum
-                                                        // tolerances
-                                                        pad.setHeight(Double.parseDouble(
-                                                                ((org.openpnp.model.eagle.xml.Smd) e)
-                                                                        .getDx())
-                                                                - (mmMaxCreamFrame_number
-                                                                        - mmMinCreamFrame_number)
-                                                                        / 2);
-                                                        pad.setWidth(Double.parseDouble(
-                                                                ((org.openpnp.model.eagle.xml.Smd) e)
-                                                                        .getDy())
-                                                                - (mmMaxCreamFrame_number
-                                                                        - mmMinCreamFrame_number)
-                                                                        / 2);
-
-                                                        pad.setRoundness(0);
-                                                        pad.setRoundness(Double.parseDouble(
-                                                                ((org.openpnp.model.eagle.xml.Smd) e)
-                                                                        .getRoundness()));
-
-                                                        // first find out how is the package defined
-                                                        Double pad_rotation =
-                                                                Double.parseDouble(rot_number);
-                                                        // now rotate the pad by its own rotation
-                                                        // relative to its origin and make sure we
-                                                        // don't turn through 360 degrees
-                                                        pad_rotation += Double.parseDouble(
-                                                                ((org.openpnp.model.eagle.xml.Smd) e)
-                                                                        .getRot().replaceAll(
-                                                                                "[A-Za-z ]", ""))
-                                                                % 360;
-
-                                                        Point a = new Point(
-                                                                Double.parseDouble(
-                                                                        ((org.openpnp.model.eagle.xml.Smd) e)
-                                                                                .getX())
-                                                                        + x,
-                                                                Double.parseDouble(
-                                                                        ((org.openpnp.model.eagle.xml.Smd) e)
-                                                                                .getY())
-                                                                        + y);
-
-                                                        Point part_center = new Point(x, y);
-
-                                                        if (element_side == Side.Top) {
-                                                            if (rotation > 180) {
-                                                                a = Utils2D
-                                                                        .rotateTranslateCenterPoint(
-                                                                                a, rotation, 0, 0,
-                                                                                part_center); // rotate
-                                                                                              // the
-                                                                                              // part-pin
-                                                            }
-                                                            else {
-                                                                a = Utils2D
-                                                                        .rotateTranslateCenterPoint(
-                                                                                a, -rotation, 0, 0,
-                                                                                part_center); // rotate
-                                                                                              // the
-                                                                                              // part-pin
-                                                            }
-                                                        }
-                                                        else if (element_side == Side.Bottom) {
-                                                            if (rotation > 180) {
-                                                                a = Utils2D
-                                                                        .rotateTranslateCenterPoint(
-                                                                                a, rotation, 0, 0,
-                                                                                part_center); // rotate
-                                                                                              // the
-                                                                                              // part-pin
-                                                            }
-                                                            else {
-                                                                a = Utils2D
-                                                                        .rotateTranslateCenterPoint(
-                                                                                a,
-                                                                                -(180 - rotation),
-                                                                                0, 0, part_center); // rotate
-                                                                                                    // the
-                                                                                                    // part-pin
-                                                            }
-
-                                                            // Mirror along the Y axis of the board
-                                                            if (a.getX() < center.getX()) {
-                                                                Double offset =
-                                                                        center.getX() - a.getX();
-                                                                a.setX(center.getX() + offset); // mirror
-                                                                                                // left
-                                                                                                // to
-                                                                                                // right
-                                                                                                // across
-                                                                                                // the
-                                                                                                // centre
-                                                                                                // of
-                                                                                                // the
-                                                                                                // board
-                                                            }
-                                                            else {
-                                                                Double offset =
-                                                                        a.getX() - center.getX();
-                                                                a.setX(center.getX() - offset);
-                                                            }
-                                                            // Mirror along the X axis of the part's
-                                                            // center line
-                                                            if (a.getY() < y) {
-                                                                Double offset = y - a.getY();
-                                                                a.setY(y + offset); // mirror top to
-                                                                                    // bottom across
-                                                                                    // the centre of
-                                                                                    // the part
-                                                            }
-                                                            else {
-                                                                Double offset = a.getY() - y;
-                                                                a.setY(y - offset); // mirror bottom
-                                                                                    // to top across
-                                                                                    // the centre of
-                                                                                    // the part
-                                                            }
-
-                                                        }
-
-                                                        // TODO Need to write the logic for pad
-                                                        // rotation
-                                                        // A = Utils2D.rotateTranslateCenterPoint(A,
-                                                        // pad_rotation,0,0,center);
-                                                        //
-
-
-                                                        BoardPad boardPad = new BoardPad(pad,
-                                                                new Location(LengthUnit.Millimeters,
-                                                                        a.getX(), a.getY(), 0,
-                                                                        pad_rotation));
-
-                                                        // TODO add support for Circle pads
-
-                                                        boardPad.setName(element.getName() + "-"
-                                                                + ((org.openpnp.model.eagle.xml.Smd) e)
-                                                                        .getName());
-
-                                                        if (((org.openpnp.model.eagle.xml.Smd) e)
-                                                                .getLayer()
-                                                                .equalsIgnoreCase(topLayer)) { // is
-                                                                                               // the
-                                                                                               // pad
-                                                                                               // on
-                                                                                               // top
-                                                            if (element_side == Side.Top) {// part
-                                                                                           // is
-                                                                                           // on the
-                                                                                           // top
-                                                                boardPad.setSide(Side.Top);
-                                                            } // pad
-                                                              // is on
-                                                              // the
-                                                              // top
-                                                            else {
-                                                                boardPad.setSide(Side.Bottom); // part
-                                                                                               // is
-                                                                                               // on
-                                                                                               // top,
-                                                                                               // but
-                                                                                               // pat
-                                                                                               // is
-                                                                                               // on
-                                                                                               // the
-                                                                                               // bottom
-                                                            }
-                                                        }
-                                                        else if (((org.openpnp.model.eagle.xml.Smd) e)
-                                                                .getLayer()
-                                                                .equalsIgnoreCase(bottomLayer)) { // is
-                                                                                                  // the
-                                                                                                  // pad
-                                                                                                  // on
-                                                                                                  // the
-                                                                                                  // bottom
-                                                            if (element_side == Side.Top) { // part
-                                                                                            // is
-                                                                                            // top
-                                                                boardPad.setSide(Side.Bottom); // pad
-                                                                                               // stays
-                                                                                               // on
-                                                                                               // the
-                                                                                               // bottom
-                                                            }
-                                                            else {
-                                                                boardPad.setSide(Side.Top); // pad
-                                                                                            // moves
-                                                                                            // to
-                                                                                            // the
-                                                                                            // top
-                                                            }
-                                                        }
-                                                        else {
-                                                            Logger.info("Warning: " + file
-                                                                    + "contains a SMD pad that is not on a topLayer or bottomLayer");
-                                                        }
-
-                                                        // TODO figure out if it is possible for an
-                                                        // SMD pad to have a drill, it appears not
-                                                        // !!
-                                                        // pad.setdrillDiameter(0);
-
-                                                        // TODO later we need to associate a list of
-                                                        // pads to a board.
-                                                        pads.add(boardPad);
-
-                                                        board.addSolderPastePad(boardPad); // This
-                                                                                           // adds
-                                                                                           // the
-                                                                                           // pad to
-                                                                                           // the
-                                                                                           // SolderPaste
-                                                    }
-                                                }
-                                                else if (e instanceof org.openpnp.model.eagle.xml.Pad) {
-
-                                                    // TODO implement pasting for through hole pads
-
-                                                }
-                                                else if (e instanceof org.openpnp.model.eagle.xml.Polygon) {
-                                                    // We have a polygon is it on a tCream or bCream
-                                                    // layer, otherwise ignore it
-                                                    if (((org.openpnp.model.eagle.xml.Polygon) e)
-                                                            .getLayer()
-                                                            .equalsIgnoreCase(tCreamLayer)
-                                                            || ((org.openpnp.model.eagle.xml.Polygon) e)
-                                                                    .getLayer().equalsIgnoreCase(
-                                                                            bCreamLayer)) {
-                                                        Logger.info("Warning: " + file
-                                                                + " contains a Polygon pad - this functionality has been implmented as the smallest bounded rectangle and may over paste the area");
-                                                        Logger.info(
-                                                                "Layer" + ((org.openpnp.model.eagle.xml.Polygon) e)
-                                                                        .getLayer().toString());
-                                                        Double vertex_x_min = 0.0;
-                                                        Double vertex_x_max = 0.0;
-                                                        Double vertex_y_min = 0.0;
-                                                        Double vertex_y_max = 0.0;
-                                                        ListIterator<org.openpnp.model.eagle.xml.Vertex> vertex_it =
-                                                                ((org.openpnp.model.eagle.xml.Polygon) e)
-                                                                        .getVertex().listIterator();
-                                                        while (vertex_it.hasNext()) {
-                                                            org.openpnp.model.eagle.xml.Vertex vertex =
-                                                                    (Vertex) vertex_it.next();
-                                                            vertex_x_min = Math.min(vertex_x_min,
-                                                                    Double.parseDouble(
-                                                                            vertex.getX()));
-                                                            vertex_x_max = Math.max(vertex_x_max,
-                                                                    Double.parseDouble(
-                                                                            vertex.getX()));
-                                                            vertex_y_min = Math.min(vertex_y_min,
-                                                                    Double.parseDouble(
-                                                                            vertex.getY()));
-                                                            vertex_y_max = Math.max(vertex_y_max,
-                                                                    Double.parseDouble(
-                                                                            vertex.getY()));
-                                                            Logger.info("Vertex: X=" + vertex.getX()
-                                                                    + " y=" + vertex.getY());
-                                                        }
-                                                        // TODO implement polygon pad in Pad.java
-                                                        Pad.RoundRectangle pad =
-                                                                new Pad.RoundRectangle();
-                                                        pad.setUnits(LengthUnit.Millimeters);
-                                                        pad.setRoundness(0);
-                                                        pad.setHeight(
-                                                                (vertex_y_max - vertex_y_min));
-                                                        pad.setWidth((vertex_x_max - vertex_x_min));
-
-                                                        BoardPad boardPad = new BoardPad(pad,
-                                                                new Location(LengthUnit.Millimeters,
-                                                                        x + (vertex_x_max
-                                                                                + vertex_x_min) / 2,
-                                                                        y + (vertex_y_max
-                                                                                + vertex_y_min) / 2,
-                                                                        0, 0));
-                                                        Logger.info("Pad generated width is "
-                                                                + pad.getWidth() + " height "
-                                                                + pad.getHeight()
-                                                                + " centered at x = "
-                                                                + boardPad.getLocation().getX()
-                                                                + " y = "
-                                                                + boardPad.getLocation().getY());
-                                                        boardPad.setName(element.getName() + "-"
-                                                                + "Polygon "); // Polygons are not
-                                                                               // named so just name
-                                                                               // it as "Polygon"
-
-                                                        if (((org.openpnp.model.eagle.xml.Polygon) e)
-                                                                .getLayer()
-                                                                .equalsIgnoreCase(tCreamLayer)) {
-                                                            boardPad.setSide(Side.Top);
-                                                        }
-                                                        else {
-                                                            boardPad.setSide(Side.Bottom);
-                                                        }
-
-                                                        pads.add(boardPad);
-
-                                                        board.addSolderPastePad(boardPad); // This
-                                                                                           // adds
-                                                                                           // the
-                                                                                           // pad to
-                                                                                           // the
-                                                                                           // SolderPaste
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
+    /**
+     * Returns the angle of an Eagle rotation such as R90 or MR180, which is the rotation with
+     * its letters removed.
+     */
+    private static double parseRotation(String rot) {
+        int i = 0;
+        while (i < rot.length() && (Character.isLetter(rot.charAt(i)) || rot.charAt(i) == ' ')) {
+            i++;
+        }
+        return Double.parseDouble(rot.substring(i));
+    }
 
-                    placement.setSide(element_side);
-                    placements.add(placement);
-                    board.addPlacement(placement); // this adds the placement to the Pick and Place
-                                                   // list
+    private static void resolvePart(PartResolver parts, Placement placement,
+            EagleBoardReader.Element element) {
+        String value = element.getValue();
+        // Library that contains the package, and the package
+        String pkgId = element.getLibrary() + "-" + element.getPackage();
 
-                }
-            }
+        String partId = pkgId;
+        if (value.trim().length() > 0) {
+            partId += "-" + value;
+        }
+        // TODO part.setLibrary(libraryId);
+        parts.resolve(placement, partId, pkgId);
+    }
+
+    private static BoardPad createSmdPad(File file, EagleBoardReader.Element element,
+            Side element_side, double rotation, Point center, double creamFrame,
+            EagleBoardReader.Smd smd, String topLayer, String bottomLayer) {
+        double x = element.getX();
+        double y = element.getY();
+
+        Pad.RoundRectangle pad = new Pad.RoundRectangle();
+        pad.setUnits(LengthUnit.Millimeters);
+        // TODO check that these reduce the pad to the halfway between the minimum & maximum
+        // tolerances
+        pad.setHeight(smd.getDx() - creamFrame);
+        pad.setWidth(smd.getDy() - creamFrame);
+        pad.setRoundness(smd.getRoundness());
+
+        // first find out how is the package defined, then rotate the pad by its own rotation
+        // relative to its origin and make sure we don't turn through 360 degrees
+        double pad_rotation = rotation + parseRotation(smd.getRot()) % 360;
+
+        Point a = new Point(smd.getX() + x, smd.getY() + y);
+        Point part_center = new Point(x, y);
+
+        // rotate the part-pin
+        if (rotation > 180) {
+            a = Utils2D.rotateTranslateCenterPoint(a, rotation, 0, 0, part_center);
+        }
+        else if (element_side == Side.Top) {
+            a = Utils2D.rotateTranslateCenterPoint(a, -rotation, 0, 0, part_center);
+        }
+        else {
+            a = Utils2D.rotateTranslateCenterPoint(a, -(180 - rotation), 0, 0, part_center);
         }
-        if (boardToProcess.library != null) {
 
+        if (element_side == Side.Bottom) {
+            // Mirror left to right across the centre of the board
+            a.setX(2 * center.getX() - a.getX());
+            // Mirror along the X axis of the part's center line
+            a.setY(2 * y - a.getY());
         }
-        if (boardToProcess.schematic != null) {
 
+        // TODO Need to write the logic for pad rotation
+        // A = Utils2D.rotateTranslateCenterPoint(A, pad_rotation,0,0,center);
+
+        // TODO add support for Circle pads
+        BoardPad boardPad = new BoardPad(pad,
+                new Location(LengthUnit.Millimeters, a.getX(), a.getY(), 0, pad_rotation));
+        boardPad.setName(element.getName() + "-" + smd.getName());
+
+        if (smd.getLayer().equals(topLayer)) {
+            // the pad is on the same side as the part
+            boardPad.setSide(element_side);
+        }
+        else if (smd.getLayer().equals(bottomLayer)) {
+            // the pad is on the other side from the part
+            boardPad.setSide(element_side == Side.Top ? Side.Bottom : Side.Top);
         }
+        else {
+            Logger.info("Warning: " + file
+                    + "contains a SMD pad that is not on a topLayer or bottomLayer");
+        }
+
+        // TODO figure out if it is possible for an SMD pad to have a drill, it appears not !!
+        return boardPad;
+    }
 
-        return placements;
+    private static BoardPad createPolygonPad(File file, EagleBoardReader.Element element,
+            EagleBoardReader.Polygon polygon) {
+        Logger.info("Warning: " + file + " contains a Polygon pad - this functionality has been "
+                + "implmented as the smallest bounded rectangle and may over paste the area");
+        Logger.info("Layer" + polygon.getLayer());
+
+        // TODO implement polygon pad in Pad.java
+        Pad.RoundRectangle pad = new Pad.RoundRectangle();
+        pad.setUnits(LengthUnit.Millimeters);
+        pad.setRoundness(0);
+        pad.setHeight(polygon.getYMax() - polygon.getYMin());
+        pad.setWidth(polygon.getXMax() - polygon.getXMin());
+
+        BoardPad boardPad = new BoardPad(pad,
+                new Location(LengthUnit.Millimeters,
+                        element.getX() + (polygon.getXMax() + polygon.getXMin()) / 2,
+                        element.getY() + (polygon.getYMax() + polygon.getYMin()) / 2, 0, 0));
+        Logger.info("Pad generated width is " + pad.getWidth() + " height " + pad.getHeight()
+                + " centered at x = " + boardPad.getLocation().getX() + " y = "
+                + boardPad.getLocation().getY());
+        // Polygons are not named so just name it as "Polygon"
+        boardPad.setName(element.getName() + "-" + "Polygon ");
+        return boardPad;
     }
 
     class Dlg extends JDialog {
@@ -793,30 +453,43 @@ public class EagleBoardImporter implements BoardImporter {
             public void actionPerformed(ActionEvent e) {
                 boardFile = new File(textFieldBoardFile.getText());
                 board = new Board();
-                List<Placement> placements = new ArrayList<>();
+                Side side;
+                if (chckbxImportTop.isSelected() && chckbxImportBottom.isSelected()) {
+                    side = null; // both Top and Bottom of the board
+                }
+                else if (chckbxImportTop.isSelected()) {
+                    side = Side.Top; // Just the Top side of the board
+                }
+                else if (chckbxImportBottom.isSelected()) {
+                    side = Side.Bottom; // Just the Bottom side of the board
+                }
+                else {
+                    setVisible(false);
+                    return;
+                }
+                PartResolver parts =
+                        chckbxCreateMissingParts.isSelected() ? new PartResolver() : null;
+                ImportTask task = new ImportTask();
+                Future<Board> result = null;
+                if (boardFile.exists()) {
+                    File file = boardFile;
+                    result = task.add(file, in -> parseFile(in, file, side, parts));
+                }
                 try {
-                    if (boardFile.exists()) {
-                        if (chckbxImportTop.isSelected() && chckbxImportBottom.isSelected()) {
-                            placements.addAll(parseFile(boardFile, null,
-                                    chckbxCreateMissingParts.isSelected())); // both Top and Bottom
-                                                                             // of the board
-                        }
-                        else if (chckbxImportTop.isSelected()) {
-                            placements.addAll(parseFile(boardFile, Side.Top,
-                                    chckbxCreateMissingParts.isSelected())); // Just the Top side of
-                                                                             // the board
-                        }
-                        else if (chckbxImportBottom.isSelected()) {
-                            placements.addAll(parseFile(boardFile, Side.Bottom,
-                                    chckbxCreateMissingParts.isSelected())); // Just the Bottom side
-                                                                             // of the board
-                        }
+                    if (!task.run(Dlg.this)) {
+                        return;
+                    }
+                    if (result != null) {
+                        board = result.get();
                     }
                 }
                 catch (Exception e1) {
                     MessageBoxes.errorBox(Dlg.this, "Import Error", e1);
                     return;
                 }
+                if (parts != null) {
+                    parts.apply(Configuration.get());
+                }
 
                 setVisible(false);
             }
@@ -27,10 +27,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -56,8 +58,6 @@ import org.openpnp.model.Board.Side;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
-import org.openpnp.model.Package;
-import org.openpnp.model.Part;
 import org.openpnp.model.Placement;
 
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -92,8 +92,24 @@ public class EagleMountsmdUlpImporter implements BoardImporter {
 
     public static List<Placement> parseFile(File file, Side side, boolean createMissingParts)
             throws Exception {
-        BufferedReader reader =
-                new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+        PartResolver parts = createMissingParts ? new PartResolver() : null;
+        List<Placement> placements;
+        try (InputStream in = new FileInputStream(file)) {
+            placements = parseFile(in, side, parts);
+        }
+        if (parts != null) {
+            parts.apply(Configuration.get());
+        }
+        return placements;
+    }
+
+    /**
+     * Parse the placements of one side. If parts is not null the part of each placement is
+     * resolved through it, otherwise the placements have no part.
+     */
+    private static List<Placement> parseFile(InputStream in, Side side, PartResolver parts)
+            throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
         ArrayList<Placement> placements = new ArrayList<>();
         String line;
         while ((line = reader.readLine()) != null) {
@@ -114,8 +130,7 @@ public class EagleMountsmdUlpImporter implements BoardImporter {
             placement.setLocation(new Location(LengthUnit.Millimeters,
                     Double.parseDouble(fields[1]), Double.parseDouble(fields[2]), 0,
                     Double.parseDouble(fields[3])));
-            Configuration cfg = Configuration.get();
-            if (cfg != null && createMissingParts) {
+            if (parts != null) {
                 String value = null, packageId = null;
                 if (fields.length > 4) {
                     value = fields[4].trim();
@@ -133,20 +148,7 @@ public class EagleMountsmdUlpImporter implements BoardImporter {
                 if (value != null && !value.isEmpty()) {
                     partId += "-" + value;
                 }
-                Part part = cfg.getPart(partId);
-                if (part == null) {
-                    part = new Part(partId);
-                    Package pkg = cfg.getPackage(packageId);
-                    if (pkg == null) {
-                        pkg = new Package(packageId);
-                        cfg.addPackage(pkg);
-                    }
-                    part.setPackage(pkg);
-
-                    cfg.addPart(part);
-                }
-                placement.setPart(part);
-
+                parts.resolve(placement, partId, packageId);
             }
 
             placement.setSide(side);
@@ -296,24 +298,33 @@ public class EagleMountsmdUlpImporter implements BoardImporter {
                 topFile = new File(textFieldTopFile.getText());
                 bottomFile = new File(textFieldBottomFile.getText());
                 board = new Board();
+                PartResolver parts =
+                        chckbxCreateMissingParts.isSelected() ? new PartResolver() : null;
+                ImportTask task = new ImportTask();
+                List<Future<List<Placement>>> results = new ArrayList<>();
+                if (topFile.exists()) {
+                    results.add(task.add(topFile, in -> parseFile(in, Side.Top, parts)));
+                }
+                if (bottomFile.exists()) {
+                    results.add(task.add(bottomFile, in -> parseFile(in, Side.Bottom, parts)));
+                }
                 List<Placement> placements = new ArrayList<>();
                 try {
-                    if (topFile.exists()) {
-                        placements.addAll(parseFile(topFile, Side.Top,
-                                chckbxCreateMissingParts.isSelected()));
+                    if (!task.run(Dlg.this)) {
+                        return;
                     }
-                    if (bottomFile.exists()) {
-                        placements.addAll(parseFile(bottomFile, Side.Bottom,
-                                chckbxCreateMissingParts.isSelected()));
+                    for (Future<List<Placement>> result : results) {
+                        placements.addAll(result.get());
                     }
                 }
                 catch (Exception e1) {
                     MessageBoxes.errorBox(Dlg.this, "Import Error", e1);
                     return;
                 }
-                for (Placement placement : placements) {
-                    board.addPlacement(placement);
+                if (parts != null) {
+                    parts.apply(Configuration.get());
                 }
+                board.addPlacements(placements);
                 setVisible(false);
             }
         }
@@ -0,0 +1,278 @@
+package org.openpnp.gui.importer;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.AbstractAction;
+import javax.swing.Action;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.KeyStroke;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+
+/**
+ * Parses the files of an import on background threads, one thread per file, so the top, bottom
+ * and paste files of a board are parsed at the same time and the UI keeps painting while they
+ * are. Progress is the share of the bytes of all the files that have been read so far, and
+ * cancelling makes the next read of every file fail, which ends the parsers.
+ *
+ * Add each file with the parser for it, then call run() from the UI thread, which shows a
+ * progress dialog with a Cancel button if parsing takes more than a moment. Once it returns true
+ * the results of the parsers can be taken from the futures that add() returned.
+ */
+public class ImportTask {
+    public interface Parser<T> {
+        T parse(InputStream in) throws Exception;
+    }
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "BoardImporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<File> files = new ArrayList<>();
+
+    private final List<FutureTask<?>> tasks = new ArrayList<>();
+
+    private final AtomicLong read = new AtomicLong();
+
+    private final AtomicReference<Exception> error = new AtomicReference<>();
+
+    private long total;
+
+    private volatile boolean cancelled;
+
+    /**
+     * Set when the parsers should stop, because the import was cancelled or one of them failed.
+     */
+    private volatile boolean stopped;
+
+    public <T> Future<T> add(File file, Parser<T> parser) {
+        FutureTask<T> task = new FutureTask<>(() -> {
+            try (InputStream in = new ProgressInputStream(
+                    new BufferedInputStream(new FileInputStream(file)))) {
+                return parser.parse(in);
+            }
+            catch (Exception e) {
+                // Keep the first error, rather than those of the parsers it stopped.
+                error.compareAndSet(null, e);
+                stopped = true;
+                throw e;
+            }
+        });
+        files.add(file);
+        tasks.add(task);
+        total += file.length();
+        return task;
+    }
+
+    public void start() {
+        for (FutureTask<?> task : tasks) {
+            executor.execute(task);
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        stopped = true;
+        for (FutureTask<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        for (FutureTask<?> task : tasks) {
+            if (!task.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait up to the timeout for all of the parsers to finish, and return true if they have.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (FutureTask<?> task : tasks) {
+            try {
+                task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            catch (TimeoutException e) {
+                return false;
+            }
+            catch (Exception e) {
+                // Done, the error is reported by run().
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the share of all of the files that has been read, from 0 to 1.
+     */
+    public double getProgress() {
+        return total == 0 ? 0 : Math.min(1, read.get() / (double) total);
+    }
+
+    /**
+     * Start the parsers and wait for them to finish, showing a modal progress dialog over the
+     * owner if they take more than a moment. Returns false if the user cancelled, and throws
+     * the first error of any of the parsers.
+     */
+    public boolean run(Window owner) throws Exception {
+        start();
+        if (!await(250, TimeUnit.MILLISECONDS)) {
+            new ProgressDialog(owner).setVisible(true);
+        }
+        if (cancelled) {
+            return false;
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+        for (FutureTask<?> task : tasks) {
+            try {
+                task.get();
+            }
+            catch (ExecutionException e) {
+                throw new Exception(e.getCause());
+            }
+        }
+        return true;
+    }
+
+    private class ProgressInputStream extends FilterInputStream {
+        ProgressInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkStopped();
+            int b = super.read();
+            if (b != -1) {
+                read.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkStopped();
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                read.addAndGet(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            checkStopped();
+            long skipped = super.skip(n);
+            read.addAndGet(skipped);
+            return skipped;
+        }
+
+        private void checkStopped() throws InterruptedIOException {
+            if (stopped || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Import cancelled.");
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class ProgressDialog extends JDialog {
+        private final JProgressBar progressBar = new JProgressBar(0, 1000);
+
+        private final Timer timer = new Timer(100, e -> update());
+
+        private final Action cancelAction = new AbstractAction("Cancel") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cancel();
+                close();
+            }
+        };
+
+        ProgressDialog(Window owner) {
+            super(owner, "Importing", ModalityType.DOCUMENT_MODAL);
+            setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    cancelAction.actionPerformed(null);
+                }
+            });
+
+            JPanel panel = new JPanel(new BorderLayout(0, 8));
+            panel.setBorder(BorderFactory.createEmptyBorder(12, 12, 4, 12));
+            StringBuilder names = new StringBuilder();
+            for (File file : files) {
+                names.append(names.length() == 0 ? "" : ", ").append(file.getName());
+            }
+            panel.add(new JLabel("Parsing " + names), BorderLayout.NORTH);
+            progressBar.setStringPainted(true);
+            panel.add(progressBar, BorderLayout.CENTER);
+            getContentPane().add(panel, BorderLayout.CENTER);
+
+            JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            buttons.add(new JButton(cancelAction));
+            getContentPane().add(buttons, BorderLayout.SOUTH);
+
+            getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                    .put(KeyStroke.getKeyStroke("ESCAPE"), "ESCAPE");
+            getRootPane().getActionMap().put("ESCAPE", cancelAction);
+
+            setSize(400, 140);
+            setLocationRelativeTo(owner);
+            timer.start();
+        }
+
+        private void update() {
+            progressBar.setValue((int) (getProgress() * 1000));
+            if (isDone()) {
+                close();
+            }
+        }
+
+        private void close() {
+            timer.stop();
+            dispose();
+        }
+    }
+}
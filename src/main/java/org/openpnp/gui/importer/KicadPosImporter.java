@@ -25,11 +25,12 @@ import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FilenameFilter;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,8 +56,6 @@ import org.openpnp.model.Board.Side;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
-import org.openpnp.model.Package;
-import org.openpnp.model.Part;
 import org.openpnp.model.Placement;
 
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -89,10 +88,13 @@ public class KicadPosImporter implements BoardImporter {
         return board;
     }
 
-    private static List<Placement> parseFile(File file, Side side, boolean createMissingParts)
+    /**
+     * Parse the placements of one side. If parts is not null the part of each placement is
+     * resolved through it, otherwise the placements have no part.
+     */
+    private static List<Placement> parseFile(InputStream in, Side side, PartResolver parts)
             throws Exception {
-        BufferedReader reader =
-                new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
         ArrayList<Placement> placements = new ArrayList<>();
         String line;
 
@@ -132,23 +134,8 @@ public class KicadPosImporter implements BoardImporter {
             Placement placement = new Placement(placementId);
             placement.setLocation(new Location(LengthUnit.Millimeters, placementX, placementY, 0,
                     placementRotation));
-            Configuration cfg = Configuration.get();
-            if (cfg != null && createMissingParts) {
-                String partId = pkgName + "-" + partValue;
-                Part part = cfg.getPart(partId);
-                if (part == null) {
-                    part = new Part(partId);
-                    Package pkg = cfg.getPackage(pkgName);
-                    if (pkg == null) {
-                        pkg = new Package(pkgName);
-                        cfg.addPackage(pkg);
-                    }
-                    part.setPackage(pkg);
-
-                    cfg.addPart(part);
-                }
-                placement.setPart(part);
-
+            if (parts != null) {
+                parts.resolve(placement, pkgName + "-" + partValue, pkgName);
             }
 
             placement.setSide(side);
@@ -298,24 +285,33 @@ public class KicadPosImporter implements BoardImporter {
                 topFile = new File(textFieldTopFile.getText());
                 bottomFile = new File(textFieldBottomFile.getText());
                 board = new Board();
+                PartResolver parts =
+                        chckbxCreateMissingParts.isSelected() ? new PartResolver() : null;
+                ImportTask task = new ImportTask();
+                List<Future<List<Placement>>> results = new ArrayList<>();
+                if (topFile.exists()) {
+                    results.add(task.add(topFile, in -> parseFile(in, Side.Top, parts)));
+                }
+                if (bottomFile.exists()) {
+                    results.add(task.add(bottomFile, in -> parseFile(in, Side.Bottom, parts)));
+                }
                 List<Placement> placements = new ArrayList<>();
                 try {
-                    if (topFile.exists()) {
-                        placements.addAll(parseFile(topFile, Side.Top,
-                                chckbxCreateMissingParts.isSelected()));
+                    if (!task.run(Dlg.this)) {
+                        return;
                     }
-                    if (bottomFile.exists()) {
-                        placements.addAll(parseFile(bottomFile, Side.Bottom,
-                                chckbxCreateMissingParts.isSelected()));
+                    for (Future<List<Placement>> result : results) {
+                        placements.addAll(result.get());
                     }
                 }
                 catch (Exception e1) {
                     MessageBoxes.errorBox(Dlg.this, "Import Error", e1);
                     return;
                 }
-                for (Placement placement : placements) {
-                    board.addPlacement(placement);
+                if (parts != null) {
+                    parts.apply(Configuration.get());
                 }
+                board.addPlacements(placements);
                 setVisible(false);
             }
         }
@@ -25,12 +25,13 @@ import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FilenameFilter;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -55,8 +56,6 @@ import org.openpnp.model.Configuration;
 import org.openpnp.model.Length;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
-import org.openpnp.model.Package;
-import org.openpnp.model.Part;
 import org.openpnp.model.Placement;
 import org.pmw.tinylog.Logger;
 
@@ -264,10 +263,13 @@ public class NamedCSVImporter implements BoardImporter {
      */
     //////////////////////////////////////////////////////////
 
-    private static List<Placement> parseFile(File file, boolean createMissingParts,
+    /**
+     * Parse the placements of the file. If parts is not null the part of each placement is
+     * resolved through it, otherwise the placements have no part.
+     */
+    private static List<Placement> parseFile(InputStream in, PartResolver parts,
             boolean updateHeights) throws Exception {
-        BufferedReader reader =
-                new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
         ArrayList<Placement> placements = new ArrayList<>();
         String line;
 
@@ -333,36 +335,11 @@ public class NamedCSVImporter implements BoardImporter {
                 Placement placement = new Placement(as[Ref]);
                 placement.setLocation(new Location(LengthUnit.Millimeters, placementX, placementY,
                         0, placementRotation));
-                Configuration cfg = Configuration.get();
-                if (cfg != null && createMissingParts) {
-                    String partId = as[Pack] + "-" + as[Val];
-                    Part part = cfg.getPart(partId);
-
-                    if (part == null) {
-                        part = new Part(partId);
-                        Length l = new Length(heightZ, LengthUnit.Millimeters);
-                        part.setHeight(l);
-                        Package pkg = cfg.getPackage(as[Pack]);
-                        if (pkg == null) {
-                            pkg = new Package(as[Pack]);
-                            cfg.addPackage(pkg);
-                        }
-                        part.setPackage(pkg);
-
-                        cfg.addPart(part);
-                    }
-
+                if (parts != null) {
                     // if part exists and height exist and user wants height updated do it.
-                    if (cfg != null && updateHeights && HT != -1) {
-                        String partId2 = as[Pack] + "-" + as[Val];
-                        Part part2 = cfg.getPart(partId2);
-                        if (part2 != null) {
-                            Length l = new Length(heightZ, LengthUnit.Millimeters);
-                            part2.setHeight(l);
-                        }
-                    }
-                    placement.setPart(part);
-
+                    parts.resolve(placement, as[Pack] + "-" + as[Val], as[Pack],
+                            new Length(heightZ, LengthUnit.Millimeters),
+                            updateHeights && HT != -1);
                 }
 
                 char c = 0;
@@ -494,20 +471,31 @@ public class NamedCSVImporter implements BoardImporter {
                 Logger.debug("Parsing " + textFieldTopFile.getText() + " CSV FIle");
                 topFile = new File(textFieldTopFile.getText());
                 board = new Board();
+                PartResolver parts =
+                        chckbxCreateMissingParts.isSelected() ? new PartResolver() : null;
+                boolean updateHeights = chckbxUpdatePartHeight.isSelected();
+                ImportTask task = new ImportTask();
+                Future<List<Placement>> result = null;
+                if (topFile.exists()) {
+                    result = task.add(topFile, in -> parseFile(in, parts, updateHeights));
+                }
                 List<Placement> placements = new ArrayList<>();
                 try {
-                    if (topFile.exists()) {
-                        placements.addAll(parseFile(topFile, chckbxCreateMissingParts.isSelected(),
-                                chckbxUpdatePartHeight.isSelected()));
+                    if (!task.run(Dlg.this)) {
+                        return;
+                    }
+                    if (result != null) {
+                        placements.addAll(result.get());
                     }
                 }
                 catch (Exception e1) {
                     MessageBoxes.errorBox(Dlg.this, "Import Error", e1);
                     return;
                 }
-                for (Placement placement : placements) {
-                    board.addPlacement(placement);
+                if (parts != null) {
+                    parts.apply(Configuration.get());
                 }
+                board.addPlacements(placements);
                 setVisible(false);
             }
         }
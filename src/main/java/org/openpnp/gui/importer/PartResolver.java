@@ -0,0 +1,99 @@
+package org.openpnp.gui.importer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Length;
+import org.openpnp.model.Package;
+import org.openpnp.model.Part;
+import org.openpnp.model.Placement;
+
+/**
+ * Collects the parts that the placements of an import need while its files are parsed, which
+ * may be on several threads at once, and then finds or creates all of them in one update of the
+ * Configuration. The parsers never touch the Configuration, which belongs to the UI thread, and
+ * the parts and packages lists change once per import rather than once per part.
+ */
+public class PartResolver {
+    private static class Request {
+        final Placement placement;
+        final String partId;
+        final String packageId;
+        final Length height;
+        final boolean updateHeight;
+
+        Request(Placement placement, String partId, String packageId, Length height,
+                boolean updateHeight) {
+            this.placement = placement;
+            this.partId = partId;
+            this.packageId = packageId;
+            this.height = height;
+            this.updateHeight = updateHeight;
+        }
+    }
+
+    private final List<Request> requests = new ArrayList<>();
+
+    /**
+     * Give the placement the part with the given id once apply() is called, creating it with
+     * the given package if it doesn't exist yet.
+     */
+    public void resolve(Placement placement, String partId, String packageId) {
+        resolve(placement, partId, packageId, null, false);
+    }
+
+    /**
+     * As resolve(Placement, String, String), and if height is not null give it to the part if
+     * the part is created, or to the existing part too if updateHeight is set.
+     */
+    public synchronized void resolve(Placement placement, String partId, String packageId,
+            Length height, boolean updateHeight) {
+        requests.add(new Request(placement, partId, packageId, height, updateHeight));
+    }
+
+    /**
+     * Find or create the parts and packages of everything resolved so far, add the new ones to
+     * the configuration and set the parts on the placements. Call this on the thread that
+     * owns the configuration. Does nothing if there is no configuration.
+     */
+    public synchronized void apply(Configuration cfg) {
+        if (cfg == null) {
+            return;
+        }
+        Map<String, Part> newParts = new LinkedHashMap<>();
+        Map<String, Package> newPackages = new LinkedHashMap<>();
+        for (Request request : requests) {
+            String partKey = request.partId.toUpperCase();
+            boolean created = false;
+            Part part = newParts.get(partKey);
+            if (part == null) {
+                part = cfg.getPart(request.partId);
+            }
+            if (part == null) {
+                String packageKey = request.packageId.toUpperCase();
+                Package pkg = newPackages.get(packageKey);
+                if (pkg == null) {
+                    pkg = cfg.getPackage(request.packageId);
+                }
+                if (pkg == null) {
+                    pkg = new Package(request.packageId);
+                    newPackages.put(packageKey, pkg);
+                }
+                part = new Part(request.partId);
+                part.setPackage(pkg);
+                newParts.put(partKey, part);
+                created = true;
+            }
+            if (request.height != null && (created || request.updateHeight)) {
+                part.setHeight(request.height);
+            }
+            request.placement.setPart(part);
+        }
+        requests.clear();
+        cfg.addPackages(newPackages.values());
+        cfg.addParts(newParts.values());
+    }
+}
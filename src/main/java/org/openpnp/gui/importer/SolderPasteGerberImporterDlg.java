@@ -5,8 +5,11 @@ import java.awt.FlowLayout;
 import java.awt.Frame;
 import java.awt.event.ActionEvent;
 import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -166,38 +169,45 @@ class SolderPasteGerberImporterDlg extends JDialog {
             SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.bottomFile =
                     new File(textFieldBottomFile.getText());
             SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.board = new Board();
+            ImportTask task = new ImportTask();
+            List<Future<List<BoardPad>>> results = new ArrayList<>();
+            if (SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.topFile.exists()) {
+                results.add(task.add(
+                        SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.topFile,
+                        in -> parseFile(in, Side.Top)));
+            }
+            if (SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.bottomFile.exists()) {
+                results.add(task.add(
+                        SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.bottomFile,
+                        in -> parseFile(in, Side.Bottom)));
+            }
             List<BoardPad> pads = new ArrayList<>();
             try {
-                if (SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.topFile.exists()) {
-                    List<BoardPad> topPads = new Rs274xParser().parseSolderPastePads(
-                            SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.topFile);
-                    for (BoardPad pad : topPads) {
-                        pad.setSide(Side.Top);
-                    }
-                    pads.addAll(topPads);
+                if (!task.run(SolderPasteGerberImporterDlg.this)) {
+                    return;
                 }
-                if (SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.bottomFile
-                        .exists()) {
-                    List<BoardPad> bottomPads = new Rs274xParser().parseSolderPastePads(
-                            SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.bottomFile);
-                    for (BoardPad pad : bottomPads) {
-                        pad.setSide(Side.Bottom);
-                    }
-                    pads.addAll(bottomPads);
+                for (Future<List<BoardPad>> result : results) {
+                    pads.addAll(result.get());
                 }
             }
             catch (Exception e1) {
                 MessageBoxes.errorBox(SolderPasteGerberImporterDlg.this, "Import Error", e1);
                 return;
             }
-            for (BoardPad pad : pads) {
-                SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.board
-                        .addSolderPastePad(pad);
-            }
+            SolderPasteGerberImporterDlg.this.solderPasteGerberImporter.board
+                    .addSolderPastePads(pads);
             setVisible(false);
         }
     }
 
+    private static List<BoardPad> parseFile(InputStream in, Side side) throws Exception {
+        List<BoardPad> pads = new Rs274xParser().parseSolderPastePads(new InputStreamReader(in));
+        for (BoardPad pad : pads) {
+            pad.setSide(side);
+        }
+        return pads;
+    }
+
     private class SwingAction_3 extends AbstractAction {
         public SwingAction_3() {
             putValue(NAME, "Cancel");
@@ -1,11 +1,12 @@
 package org.openpnp.gui.importer.rs274x;
 
 import java.awt.geom.Point2D;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -33,7 +34,13 @@ public class Rs274xParser {
         Linear, Clockwise, CounterClockwise
     }
 
-    private BufferedReader reader;
+    /**
+     * The whole input, read up front so that peeking at the next character is just an index into
+     * the array.
+     */
+    private char[] buffer = new char[0];
+    private int length;
+    private int position;
 
     // Context
     private LengthUnit unit;
@@ -49,15 +56,19 @@ public class Rs274xParser {
     private boolean coordinateFormatIncremental;
     private Map<Integer, Aperture> apertures = new HashMap<>();
     /**
-     * Maps Aperture indexes to a count to aid in generation of pad names.
+     * Used to build pad names without going through String.format for every flash.
      */
-    private Map<Integer, Integer> apertureUseCounts = new HashMap<>();
+    private final StringBuilder padName = new StringBuilder();
 
     private boolean stopped;
     private int lineNumber;
     private ParseStatistics parseStatistics;
     private boolean regionStarted;
 
+    private static final double[] POWERS_OF_TEN =
+            {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+                    1e16, 1e17, 1e18};
+
     private List<BoardPad> pads;
 
     public Rs274xParser() {
@@ -74,7 +85,9 @@ public class Rs274xParser {
      */
     public List<BoardPad> parseSolderPastePads(File file) throws Exception {
         Logger.info("Parsing " + file);
-        return parseSolderPastePads(new FileReader(file));
+        try (Reader reader = new FileReader(file)) {
+            return parseSolderPastePads(reader);
+        }
     }
 
     /**
@@ -95,7 +108,7 @@ public class Rs274xParser {
     public List<BoardPad> parseSolderPastePads(Reader reader) throws Exception {
         reset();
 
-        this.reader = new BufferedReader(reader);
+        load(reader);
 
         try {
             while (!stopped) {
@@ -106,10 +119,30 @@ public class Rs274xParser {
             parseStatistics.errored = true;
             error("Uncaught error: " + e.getMessage());
         }
+        finally {
+            // Don't hold on to the input, it can be large.
+            buffer = new char[0];
+            length = 0;
+        }
 
         return pads;
     }
 
+    private void load(Reader reader) throws IOException {
+        char[] chars = new char[64 * 1024];
+        int length = 0;
+        int count;
+        while ((count = reader.read(chars, length, chars.length - length)) != -1) {
+            length += count;
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+        }
+        this.buffer = chars;
+        this.length = length;
+        this.position = 0;
+    }
+
     private void readCommand() throws Exception {
         if (peek() == '%') {
             readExtendedCodeCommand();
@@ -363,17 +396,14 @@ public class Rs274xParser {
 
         parseStatistics.flashCount++;
 
-        Integer counter = apertureUseCounts.get(currentAperture.getIndex());
-        if (counter == null) {
-            counter = 0;
-        }
-        else {
-            counter++;
-        }
-        apertureUseCounts.put(currentAperture.getIndex(), counter);
-
         BoardPad pad = currentAperture.createPad(unit, coordinate);
-        pad.setName(String.format("D%02d-%03d", currentAperture.getIndex(), counter++));
+        // Same as String.format("D%02d-%03d", index, count)
+        padName.setLength(0);
+        padName.append('D');
+        appendPadded(padName, currentAperture.getIndex(), 2);
+        padName.append('-');
+        appendPadded(padName, currentAperture.useCount++, 3);
+        pad.setName(padName.toString());
         pads.add(pad);
         parseStatistics.padCount++;
 
@@ -758,39 +788,73 @@ public class Rs274xParser {
     }
 
     private double readDecimal() throws Exception {
-        boolean negative = false;
-        int ch = peek();
-        if (ch == '-') {
-            negative = true;
-            read();
-        }
-        else if (ch == '+') {
-            read();
+        boolean negative = readSign();
+        long value = 0;
+        int digits = 0;
+        int decimals = -1;
+        while (true) {
+            int ch = peek();
+            if (ch >= '0' && ch <= '9') {
+                value = value * 10 + (ch - '0');
+                digits++;
+                if (decimals != -1) {
+                    decimals++;
+                }
+            }
+            else if (ch == '.' && decimals == -1) {
+                decimals = 0;
+            }
+            else {
+                break;
+            }
+            position++;
         }
-        StringBuffer sb = new StringBuffer();
-        String allowed = "0123456789.";
-        while (allowed.indexOf(peek()) != -1) {
-            sb.append((char) read());
+        if (digits == 0) {
+            error("Expected decimal");
         }
-        return (negative ? -1 : 1) * Double.parseDouble(sb.toString());
+        double d = decimals <= 0 ? value
+                : value / (decimals < POWERS_OF_TEN.length ? POWERS_OF_TEN[decimals]
+                        : Math.pow(10, decimals));
+        return negative ? -d : d;
     }
 
     private int readInteger() throws Exception {
-        boolean negative = false;
-        int ch = peek();
-        if (ch == '-') {
-            negative = true;
-            read();
+        return (int) readLong();
+    }
+
+    private long readLong() throws Exception {
+        boolean negative = readSign();
+        long value = 0;
+        int digits = 0;
+        int ch;
+        while ((ch = peek()) >= '0' && ch <= '9') {
+            value = value * 10 + (ch - '0');
+            digits++;
+            position++;
         }
-        else if (ch == '+') {
-            read();
+        if (digits == 0) {
+            error("Expected integer");
         }
-        StringBuffer sb = new StringBuffer();
-        String allowed = "0123456789";
-        while (allowed.indexOf(peek()) != -1) {
-            sb.append((char) read());
+        return negative ? -value : value;
+    }
+
+    /**
+     * Consume an optional + or - and return true if it was a -.
+     */
+    private boolean readSign() throws Exception {
+        int ch = peek();
+        if (ch == '-' || ch == '+') {
+            position++;
+        }
+        return ch == '-';
+    }
+
+    private static void appendPadded(StringBuilder sb, int value, int width) {
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < width; i++) {
+            sb.append('0');
         }
-        return (negative ? -1 : 1) * Integer.parseInt(sb.toString());
+        sb.append(s);
     }
 
     private double readCoordinateValue() throws Exception {
@@ -803,18 +867,9 @@ public class Rs274xParser {
         if (coordinateFormatIntegerLength == -1 || coordinateFormatDecimalLength == -1) {
             error("Coordinate format not specified.");
         }
-        // Read the value as an integer first, since this will read until it hits
-        // something that isn't an integer character, then pad it out and then
-        // break up the components.
-        int value = readInteger();
-        String sValue = Integer.toString(Math.abs(value));
-        while (sValue.length() < coordinateFormatIntegerLength + coordinateFormatDecimalLength) {
-            sValue = "0" + sValue;
-        }
-        String integerPart = sValue.substring(0, coordinateFormatIntegerLength);
-        String decimalPart = sValue.substring(coordinateFormatIntegerLength,
-                coordinateFormatIntegerLength + coordinateFormatDecimalLength - 1);
-        return (value < 0 ? -1 : 1) * Double.parseDouble(integerPart + "." + decimalPart);
+        // With leading zeros omitted the value is an integer with the last
+        // coordinateFormatDecimalLength digits after the decimal point.
+        return readLong() / POWERS_OF_TEN[coordinateFormatDecimalLength];
     }
 
     /**
@@ -824,11 +879,8 @@ public class Rs274xParser {
      * @throws Exception
      */
     private int read() throws Exception {
-        skipCrLf();
-        int ch = reader.read();
-        if (ch == -1) {
-            error("Unexpected end of stream");
-        }
+        int ch = peek();
+        position++;
         return ch;
     }
 
@@ -839,45 +891,18 @@ public class Rs274xParser {
      * @throws Exception
      */
     private int peek() throws Exception {
-        skipCrLf();
-        return peekInternal();
-    }
-
-    /**
-     * Consume any number of \r or \n, stopping when another character is found.
-     * 
-     * @throws Exception
-     */
-    private void skipCrLf() throws Exception {
-        while (true) {
-            int ch = peekInternal();
+        while (position < length) {
+            char ch = buffer[position];
             if (ch == '\n') {
                 lineNumber++;
-                reader.read();
             }
-            else if (ch == '\r') {
-                reader.read();
+            else if (ch != '\r') {
+                return ch;
             }
-            else {
-                return;
-            }
-        }
-    }
-
-    /**
-     * Return the next character in the reader without consuming it.
-     * 
-     * @return
-     * @throws Exception
-     */
-    private int peekInternal() throws Exception {
-        reader.mark(1);
-        int ch = reader.read();
-        if (ch == -1) {
-            error("Unexpected end of stream");
+            position++;
         }
-        reader.reset();
-        return ch;
+        error("Unexpected end of stream");
+        return -1;
     }
 
     private void reset() {
@@ -901,7 +926,9 @@ public class Rs274xParser {
         lineNumber = 1;
         pads = new ArrayList<>();
         regionStarted = false;
-        apertureUseCounts = new HashMap<>();
+        buffer = new char[0];
+        length = 0;
+        position = 0;
 
         parseStatistics = new ParseStatistics();
     }
@@ -973,6 +1000,18 @@ public class Rs274xParser {
     static abstract class Aperture {
         final protected int index;
 
+        /**
+         * The number of pads flashed with this aperture, for naming them.
+         */
+        int useCount;
+
+        /**
+         * Every flash of the aperture has the same pad, so it is created once and shared by all
+         * of the BoardPads. The unit can change between flashes, in which case it is recreated.
+         */
+        private Pad template;
+        private LengthUnit templateUnit;
+
         public Aperture(int index) {
             this.index = index;
         }
@@ -981,7 +1020,18 @@ public class Rs274xParser {
             return index;
         }
 
-        public abstract BoardPad createPad(LengthUnit unit, Point2D.Double coordinate);
+        public BoardPad createPad(LengthUnit unit, Point2D.Double coordinate) {
+            if (template == null || templateUnit != unit) {
+                template = createTemplate(unit);
+                templateUnit = unit;
+            }
+            if (template == null) {
+                return null;
+            }
+            return new BoardPad(template, new Location(unit, coordinate.x, coordinate.y, 0, 0));
+        }
+
+        protected abstract Pad createTemplate(LengthUnit unit);
     }
 
     static abstract class StandardAperture extends Aperture {
@@ -1002,15 +1052,13 @@ public class Rs274xParser {
             this.holeDiameter = holeDiameter;
         }
 
-        public BoardPad createPad(LengthUnit unit, Point2D.Double coordinate) {
+        protected Pad createTemplate(LengthUnit unit) {
             Pad.RoundRectangle pad = new Pad.RoundRectangle();
             pad.setUnits(unit);
             pad.setWidth(width);
             pad.setHeight(height);
             pad.setRoundness(0);
-            BoardPad boardPad =
-                    new BoardPad(pad, new Location(unit, coordinate.x, coordinate.y, 0, 0));
-            return boardPad;
+            return pad;
         }
 
         @Override
@@ -1030,13 +1078,11 @@ public class Rs274xParser {
             this.holeDiameter = holeDiameter;
         }
 
-        public BoardPad createPad(LengthUnit unit, Point2D.Double coordinate) {
+        protected Pad createTemplate(LengthUnit unit) {
             Pad.Circle pad = new Pad.Circle();
             pad.setRadius(diameter / 2);
             pad.setUnits(unit);
-            BoardPad boardPad =
-                    new BoardPad(pad, new Location(unit, coordinate.x, coordinate.y, 0, 0));
-            return boardPad;
+            return pad;
         }
 
         @Override
@@ -1081,7 +1127,7 @@ public class Rs274xParser {
         }
 
         @Override
-        public BoardPad createPad(LengthUnit unit, java.awt.geom.Point2D.Double coordinate) {
+        protected Pad createTemplate(LengthUnit unit) {
             return null;
         }
     }
@@ -0,0 +1,111 @@
+package org.openpnp.gui.importer.rs274x;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.openpnp.model.BoardPad;
+
+/**
+ * Times Rs274xParser on a Gerber solder paste layer. Without a file it generates one with the
+ * given number of flashes spread over three apertures, with a region every 50 flashes, which is
+ * about what a large paste layer looks like.
+ *
+ * Usage: Rs274xParserBenchmark [gerber file | flash count] [iterations] [warmup iterations]
+ */
+public class Rs274xParserBenchmark {
+    private final String gerber;
+
+    public Rs274xParserBenchmark(String gerber) {
+        this.gerber = gerber;
+    }
+
+    /**
+     * Parse the Gerber warmup times without timing it, then iterations times, and return the
+     * time each of the timed runs took in nanoseconds.
+     */
+    public long[] run(int iterations, int warmup) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            parse();
+        }
+        long[] times = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long t = System.nanoTime();
+            parse();
+            times[i] = System.nanoTime() - t;
+        }
+        return times;
+    }
+
+    public List<BoardPad> parse() throws Exception {
+        try (Reader reader = new StringReader(gerber)) {
+            return new Rs274xParser().parseSolderPastePads(reader);
+        }
+    }
+
+    /**
+     * Generate a paste layer in 2.4 millimeter format with the given number of flashes.
+     */
+    public static String generate(int flashes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("G04 Generated by Rs274xParserBenchmark*\r\n");
+        sb.append("%FSLAX24Y24*%\r\n");
+        sb.append("%MOMM*%\r\n");
+        sb.append("%ADD10R,1.200X0.600*%\r\n");
+        sb.append("%ADD11C,0.500*%\r\n");
+        sb.append("%ADD12O,1.000X2.000*%\r\n");
+        sb.append("G01*\r\n");
+        Random random = new Random(0);
+        for (int i = 0; i < flashes; i++) {
+            sb.append('D').append(10 + i % 3).append("*\r\n");
+            sb.append('X').append(random.nextInt(990000)).append('Y')
+              .append(random.nextInt(990000)).append("D03*\r\n");
+            if (i % 50 == 0) {
+                sb.append("G36*\r\nX0Y0D02*\r\nX10000Y0D01*\r\nX10000Y10000D01*\r\n");
+                sb.append("X0Y10000D01*\r\nX0Y0D01*\r\nG37*\r\n");
+            }
+        }
+        sb.append("M02*\r\n");
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String gerber;
+        if (args.length > 0 && new File(args[0]).isFile()) {
+            gerber = read(new File(args[0]));
+        }
+        else {
+            gerber = generate(args.length > 0 ? Integer.parseInt(args[0]) : 100000);
+        }
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Rs274xParserBenchmark benchmark = new Rs274xParserBenchmark(gerber);
+        int pads = benchmark.parse().size();
+        long[] times = benchmark.run(iterations, warmup);
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        for (long time : times) {
+            total += time;
+            min = Math.min(min, time);
+        }
+        double mean = total / (double) times.length;
+        System.out.println(String.format(Locale.US,
+                "%d chars, %d pads, %d iterations after %d warmup", gerber.length(), pads,
+                iterations, warmup));
+        System.out.println(String.format(Locale.US,
+                "mean %.1f ms, min %.1f ms, %.0f pads/s, %.1f MB/s", mean / 1e6, min / 1e6,
+                pads / (mean / 1e9), gerber.length() / (mean / 1e9) / 1e6));
+        System.exit(0);
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+    }
+}
@@ -0,0 +1,245 @@
+package org.openpnp.gui.support;
+
+import java.util.concurrent.Future;
+
+import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.model.Length;
+import org.openpnp.model.Location;
+import org.openpnp.spi.HeadMountable;
+import org.openpnp.spi.Machine;
+import org.openpnp.util.UiUtils;
+
+/**
+ * Moves a tool for as long as a jog key is held or the mouse is dragged, by streaming short
+ * moves from a single machine task rather than submitting a task per key press. Each move covers
+ * segmentMilliseconds worth of travel at the jog velocity, and no more than lookAhead moves are
+ * sent ahead of where the machine should be, so the tool stops soon after the jog is stopped even
+ * on a controller that acknowledges moves before they are complete. If the driver says what its
+ * maximum feed rate is the jog velocity is limited to it and the moves are sent at the speed that
+ * gives the jog velocity, otherwise they are sent at the machine's speed. The machine is told it
+ * is jogging, see Machine.setJogging(boolean), so a driver that can cancel queued jog moves
+ * stops even sooner.
+ *
+ * start, update and stop are called from the event dispatch thread and return immediately.
+ */
+public class ContinuousJog {
+    private long segmentMilliseconds = 50;
+
+    private int lookAhead = 2;
+
+    private HeadMountable tool;
+
+    /**
+     * Units per second for each axis, in the units of the Location, and degrees per second for
+     * rotation.
+     */
+    private Location velocity;
+
+    private long startTime;
+
+    private boolean active;
+
+    private Future<Void> task;
+
+    /**
+     * Start jogging the tool at the given velocity, once delayMilliseconds have passed, unless
+     * stop is called first. If a jog is already running it is redirected instead.
+     *
+     * @param velocity Units per second for each axis and degrees per second for rotation.
+     */
+    public synchronized void start(HeadMountable tool, Location velocity, long delayMilliseconds) {
+        this.tool = tool;
+        this.velocity = velocity;
+        if (!active) {
+            startTime = System.currentTimeMillis() + delayMilliseconds;
+        }
+        active = true;
+        if (task == null) {
+            task = UiUtils.submitUiMachineTask(this::jog);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Change the velocity of a running jog.
+     */
+    public synchronized void update(Location velocity) {
+        this.velocity = velocity;
+    }
+
+    public synchronized void stop() {
+        active = false;
+        notifyAll();
+    }
+
+    /**
+     * True if a jog has been started and not stopped, whether or not it is moving yet.
+     */
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    /**
+     * True if the jog is moving, or is about to, in the same direction as the given velocity.
+     */
+    public synchronized boolean isActive(Location velocity) {
+        return active && velocity.equals(this.velocity);
+    }
+
+    private void jog() throws Exception {
+        HeadMountable tool;
+        synchronized (this) {
+            // Wait out the delay, so that a quick key press is just a step.
+            long wait;
+            while (active && (wait = startTime - System.currentTimeMillis()) > 0) {
+                wait(wait);
+            }
+            if (!active) {
+                task = null;
+                return;
+            }
+            tool = this.tool;
+        }
+        Machine machine = tool.getHead().getMachine();
+        boolean failed = true;
+        machine.setJogging(true);
+        try {
+            Location target = tool.getLocation();
+            long segmentNanos = segmentMilliseconds * 1000000L;
+            // When the machine should be done with the moves sent so far.
+            long done = System.nanoTime();
+            while (true) {
+                Location velocity;
+                synchronized (this) {
+                    long ahead;
+                    while (active && (ahead = done - System.nanoTime()) > lookAhead
+                            * segmentNanos) {
+                        long wait = (ahead - lookAhead * segmentNanos) / 1000000L;
+                        wait(Math.max(1, wait));
+                    }
+                    if (!active || this.tool != tool) {
+                        break;
+                    }
+                    velocity = this.velocity.convertToUnits(target.getUnits());
+                }
+                // Limit the velocity first, so the segment is no longer than the machine can
+                // cover in segmentMilliseconds.
+                velocity = limitVelocity(machine, velocity);
+                double seconds = segmentMilliseconds / 1000.0;
+                target = target.addWithRotation(new Location(target.getUnits(),
+                        velocity.getX() * seconds, velocity.getY() * seconds,
+                        velocity.getZ() * seconds, velocity.getRotation() * seconds));
+                double speed = getSpeed(machine, velocity);
+                if (Double.isNaN(speed)) {
+                    tool.moveTo(target);
+                }
+                else {
+                    tool.moveTo(target, speed);
+                }
+                // Moves queue up behind each other, so a move that takes longer than a segment
+                // delays all the ones after it and done keeps the lag.
+                done = Math.max(done, System.nanoTime())
+                        + Math.max(segmentNanos, getMoveNanos(machine, velocity, speed, seconds));
+            }
+            failed = false;
+        }
+        finally {
+            try {
+                machine.setJogging(false);
+            }
+            finally {
+                synchronized (this) {
+                    task = null;
+                    if (failed) {
+                        active = false;
+                    }
+                    else if (active) {
+                        // Started again with another tool, or just as this jog ended.
+                        task = UiUtils.submitUiMachineTask(this::jog);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the speed, as a fraction of the driver's maximum feed rate, that moves the tool at
+     * the given velocity, or NaN if the driver doesn't say what its maximum feed rate is. The
+     * velocity is the linear velocity, or the rotation if the tool isn't moving otherwise.
+     */
+    static double getSpeed(Machine machine, Location velocity) {
+        double maxPerSecond = getMaxPerSecond(machine, velocity);
+        if (Double.isNaN(maxPerSecond)) {
+            return Double.NaN;
+        }
+        return Math.max(0, Math.min(1, getPerSecond(velocity) / maxPerSecond));
+    }
+
+    /**
+     * Returns the velocity scaled down, keeping its direction, so that it is no faster than the
+     * driver's maximum feed rate. It is returned unchanged if it is already slow enough or the
+     * driver doesn't say what its maximum feed rate is.
+     */
+    static Location limitVelocity(Machine machine, Location velocity) {
+        double maxPerSecond = getMaxPerSecond(machine, velocity);
+        double perSecond = getPerSecond(velocity);
+        if (Double.isNaN(maxPerSecond) || perSecond <= maxPerSecond) {
+            return velocity;
+        }
+        double scale = maxPerSecond / perSecond;
+        return velocity.multiply(scale, scale, scale, scale);
+    }
+
+    /**
+     * Returns how long the machine takes to cover seconds worth of the velocity when moving at
+     * the given speed, or 0 if that isn't known.
+     */
+    private static long getMoveNanos(Machine machine, Location velocity, double speed,
+            double seconds) {
+        double maxPerSecond = getMaxPerSecond(machine, velocity);
+        if (Double.isNaN(speed) || speed <= 0 || Double.isNaN(maxPerSecond)) {
+            return 0;
+        }
+        return (long) (getPerSecond(velocity) * seconds / (speed * maxPerSecond) * 1e9);
+    }
+
+    private static double getPerSecond(Location velocity) {
+        double perSecond = Math.sqrt(velocity.getX() * velocity.getX()
+                + velocity.getY() * velocity.getY() + velocity.getZ() * velocity.getZ());
+        if (perSecond == 0) {
+            perSecond = Math.abs(velocity.getRotation());
+        }
+        return perSecond;
+    }
+
+    /**
+     * Returns the driver's maximum feed rate in the units of the velocity per second, or NaN if
+     * the driver doesn't say what it is.
+     */
+    private static double getMaxPerSecond(Machine machine, Location velocity) {
+        if (!(machine instanceof ReferenceMachine)) {
+            return Double.NaN;
+        }
+        Length maxFeedRate = ((ReferenceMachine) machine).getDriver().getMaxFeedRatePerMinute();
+        if (maxFeedRate == null || maxFeedRate.getValue() <= 0) {
+            return Double.NaN;
+        }
+        return maxFeedRate.convertToUnits(velocity.getUnits()).getValue() / 60;
+    }
+
+    public long getSegmentMilliseconds() {
+        return segmentMilliseconds;
+    }
+
+    public void setSegmentMilliseconds(long segmentMilliseconds) {
+        this.segmentMilliseconds = segmentMilliseconds;
+    }
+
+    public int getLookAhead() {
+        return lookAhead;
+    }
+
+    public void setLookAhead(int lookAhead) {
+        this.lookAhead = lookAhead;
+    }
+}
@@ -0,0 +1,222 @@
+package org.openpnp.machine.reference;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BooleanSupplier;
+
+import org.openpnp.model.Length;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.spi.Head;
+import org.pmw.tinylog.Logger;
+
+/**
+ * Keeps heads that move at the same time from running into each other. Each head holds the area
+ * it occupies, which is the clearance around it along the separation axes, and before it moves
+ * it must also hold the area it sweeps on the way to its destination. If that overlaps an area held
+ * by another head the move waits until the other head has moved out of the way. Once the move is
+ * complete the head only holds the area around its destination.
+ *
+ * The interlock only does anything while it is enabled, which ReferencePnpJobProcessor does while
+ * it is running a job on more than one head. Moves that only change Z or rotation are not held up.
+ *
+ * A head that is blocked by a head that hasn't moved for longer than the timeout gives up with an
+ * error, rather than waiting forever on a head that isn't going to move, or on a head that is in
+ * turn waiting for it. The wait starts over each time the blocking head moves, so a head that is
+ * making its way out of the way is waited for however long that takes. A timeout of 0 waits
+ * forever.
+ *
+ * The separation axes describe how the heads can get in each other's way. Heads on their own
+ * carriages that can pass each other are kept apart in X and Y, so each holds a square. Heads on
+ * gantries that share the Y rails can never pass each other in Y, and each gantry's beam spans
+ * the whole machine in X, so each holds a band across the machine and they are only kept apart
+ * in Y. Likewise for X.
+ */
+public class HeadInterlock {
+    public enum Axes {
+        XY,
+        X,
+        Y
+    }
+
+    private final ReferenceMachine machine;
+
+    /**
+     * The area held by each head as minimum X, minimum Y, maximum X and maximum Y in head
+     * coordinates, in millimeters.
+     */
+    private final Map<Head, double[]> areas = new HashMap<>();
+
+    /**
+     * The head that each waiting head is waiting for.
+     */
+    private final Map<Head, Head> blockedBy = new HashMap<>();
+
+    private boolean enabled;
+
+    private double clearance = 50;
+
+    private Axes axes = Axes.XY;
+
+    private long timeoutMilliseconds = 30000;
+
+    public HeadInterlock(ReferenceMachine machine) {
+        this.machine = machine;
+    }
+
+    /**
+     * Turn the interlock on or off. Either way it forgets where the heads are, so when turning
+     * it on, register() each head that might be in the way.
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        areas.clear();
+        blockedBy.clear();
+        notifyAll();
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized void setClearance(Length clearance) {
+        this.clearance = clearance.convertToUnits(LengthUnit.Millimeters).getValue();
+    }
+
+    public synchronized void setAxes(Axes axes) {
+        this.axes = axes;
+    }
+
+    public synchronized void setTimeoutMilliseconds(long timeoutMilliseconds) {
+        this.timeoutMilliseconds = timeoutMilliseconds;
+    }
+
+    /**
+     * Tell the interlock where the head of the given object is, without moving it.
+     */
+    public synchronized void register(ReferenceHeadMountable hm) {
+        Location l = getHeadLocation(hm, machine.getDriver().getLocation(hm));
+        areas.put(hm.getHead(), area(l, l));
+    }
+
+    /**
+     * Move the object with the machine's driver, waiting for the way to be clear first if the
+     * interlock is enabled.
+     */
+    public void moveTo(ReferenceHeadMountable hm, Location location, double speed)
+            throws Exception {
+        ReferenceDriver driver = machine.getDriver();
+        if (!isEnabled() || (Double.isNaN(location.getX()) && Double.isNaN(location.getY()))) {
+            driver.moveTo(hm, location, speed);
+            return;
+        }
+        Location from = getHeadLocation(hm, driver.getLocation(hm));
+        Location to = getHeadLocation(hm, location);
+        to = to.derive(Double.isNaN(to.getX()) ? from.getX() : null,
+                Double.isNaN(to.getY()) ? from.getY() : null, null, null);
+        Head head = hm.getHead();
+        acquire(head, area(from, to));
+        // If the move fails the head could be anywhere along the way, so it keeps the whole
+        // area it was going to sweep.
+        driver.moveTo(hm, location, speed);
+        synchronized (this) {
+            if (enabled) {
+                areas.put(head, area(to, to));
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized void acquire(Head head, double[] area) throws Exception {
+        long deadline = 0;
+        double[] blockerArea = null;
+        try {
+            while (enabled) {
+                Head blocker = findOverlap(head, area);
+                if (blocker == null) {
+                    areas.put(head, area);
+                    return;
+                }
+                if (blockedBy.put(head, blocker) != blocker) {
+                    Logger.debug("Head {} is waiting for head {} to get out of the way.",
+                            head.getName(), blocker.getName());
+                    notifyAll();
+                }
+                // Every move replaces the area a head holds, so a new area means the blocker
+                // is making progress and the wait starts over.
+                if (areas.get(blocker) != blockerArea) {
+                    blockerArea = areas.get(blocker);
+                    deadline = System.currentTimeMillis() + timeoutMilliseconds;
+                }
+                if (timeoutMilliseconds <= 0) {
+                    wait();
+                    continue;
+                }
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new Exception(String.format(
+                            "Head %s can't move, head %s has been in the way for %d ms.",
+                            head.getName(), blocker.getName(), timeoutMilliseconds));
+                }
+                wait(wait);
+            }
+        }
+        finally {
+            blockedBy.remove(head);
+        }
+    }
+
+    private Head findOverlap(Head head, double[] area) {
+        for (Entry<Head, double[]> entry : areas.entrySet()) {
+            double[] other = entry.getValue();
+            if (entry.getKey() != head && area[0] < other[2] && other[0] < area[2]
+                    && area[1] < other[3] && other[1] < area[3]) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait until the head is in the way of another head, and return true, or until done returns
+     * true, and return false. A head that has nothing left to do uses this to find out whether
+     * it should move out of the way. Call signal() when done might have changed.
+     */
+    public synchronized boolean awaitBlocking(Head head, BooleanSupplier done)
+            throws InterruptedException {
+        while (!done.getAsBoolean()) {
+            if (blockedBy.containsValue(head)) {
+                return true;
+            }
+            wait();
+        }
+        return false;
+    }
+
+    public synchronized void signal() {
+        notifyAll();
+    }
+
+    private double[] area(Location from, Location to) {
+        double margin = clearance / 2;
+        double[] area = new double[] {Math.min(from.getX(), to.getX()) - margin,
+                Math.min(from.getY(), to.getY()) - margin,
+                Math.max(from.getX(), to.getX()) + margin,
+                Math.max(from.getY(), to.getY()) + margin};
+        // The area spans the whole machine along an axis the heads aren't kept apart on.
+        if (axes == Axes.Y) {
+            area[0] = Double.NEGATIVE_INFINITY;
+            area[2] = Double.POSITIVE_INFINITY;
+        }
+        else if (axes == Axes.X) {
+            area[1] = Double.NEGATIVE_INFINITY;
+            area[3] = Double.POSITIVE_INFINITY;
+        }
+        return area;
+    }
+
+    private static Location getHeadLocation(ReferenceHeadMountable hm, Location location) {
+        return location.convertToUnits(LengthUnit.Millimeters).subtract(hm.getHeadOffsets());
+    }
+}
@@ -0,0 +1,304 @@
+package org.openpnp.machine.reference;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openpnp.model.BoardLocation;
+import org.openpnp.model.Job;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.spi.PnpJobProcessor.JobPlacement;
+import org.openpnp.spi.PnpJobProcessor.JobPlacement.Status;
+import org.pmw.tinylog.Logger;
+
+/**
+ * An append only record of job progress that survives a crash or power loss. Each line records
+ * one event:
+ *
+ * <pre>
+ * C boardIndex boardFile placementId            placement completed
+ * S boardIndex boardFile placementId            placement skipped
+ * F boardIndex boardFile units x y z rotation   fiducial override for the board
+ * </pre>
+ *
+ * boardIndex is the index of the BoardLocation in the Job and boardFile is the board's file name,
+ * which is used to ignore entries if the Job has been rearranged since the journal was written.
+ *
+ * Writes are buffered and forced to disk in batches so that recording a placement costs no more
+ * than appending a short line to a buffer. At most the last batch of placements can be lost,
+ * which means at worst a few parts are placed twice after a crash rather than the whole board.
+ * A batch that isn't filled is forced to disk by a background thread once the sync interval has
+ * passed, so entries don't wait in the buffer while the job is paused or has stopped on an error.
+ */
+public class JobProgressJournal {
+    private static final String HEADER = "openpnp-job-journal 1";
+
+    private final File file;
+
+    private final int syncBatchSize;
+
+    private final long syncIntervalMs;
+
+    private FileOutputStream out;
+
+    private Writer writer;
+
+    private int unsyncedCount;
+
+    private long lastSyncTime;
+
+    private ScheduledExecutorService syncExecutor;
+
+    /**
+     * The background sync scheduled for the entries that have been appended since the last sync,
+     * or null if there are none.
+     */
+    private ScheduledFuture<?> pendingSync;
+
+    public JobProgressJournal(File file, int syncBatchSize, long syncIntervalMs) {
+        this.file = file;
+        this.syncBatchSize = syncBatchSize;
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    /**
+     * Get the journal File for the given Job, or null if the Job has never been saved and
+     * therefore has nowhere to keep a journal.
+     */
+    public static File getJournalFile(Job job) {
+        if (job.getFile() == null) {
+            return null;
+        }
+        return new File(job.getFile().getAbsolutePath() + ".journal");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Replay the journal, if there is one, into the given JobPlacements and fiducial overrides.
+     * Completed and skipped placements are given those statuses so the job processor treats them
+     * as done. Unknown or mismatched entries are ignored.
+     *
+     * @return The number of placements restored.
+     */
+    public int replay(Job job, List<JobPlacement> jobPlacements,
+            Map<BoardLocation, Location> boardLocationFiducialOverrides) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        List<BoardLocation> boardLocations = job.getBoardLocations();
+        Map<BoardLocation, Map<String, JobPlacement>> index = new HashMap<>();
+        for (JobPlacement jobPlacement : jobPlacements) {
+            index.computeIfAbsent(jobPlacement.boardLocation, b -> new HashMap<>())
+                    .put(jobPlacement.placement.getId(), jobPlacement);
+        }
+        int restored = 0;
+        String[] lines = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+                .split("\n", -1);
+        if (!HEADER.equals(lines[0])) {
+            Logger.warn("Ignoring job journal {} with unknown header {}.", file, lines[0]);
+            return 0;
+        }
+        // The last element is whatever follows the final newline. It's either empty or a
+        // partial entry from a crash mid write, so it is never replayed.
+        for (int i = 1; i < lines.length - 1; i++) {
+            // The last field is the rest of the line, since placement ids may contain spaces.
+            String[] fields = lines[i].split(" ", 4);
+            if (fields.length < 4) {
+                continue;
+            }
+            BoardLocation boardLocation;
+            try {
+                int boardIndex = Integer.parseInt(fields[1]);
+                boardLocation = boardLocations.get(boardIndex);
+            }
+            catch (Exception e) {
+                continue;
+            }
+            if (!getBoardFileName(boardLocation).equals(fields[2])) {
+                continue;
+            }
+            switch (fields[0]) {
+                case "C":
+                case "S":
+                    Map<String, JobPlacement> byId = index.get(boardLocation);
+                    JobPlacement jobPlacement = byId == null ? null : byId.get(fields[3]);
+                    if (jobPlacement != null) {
+                        jobPlacement.status =
+                                fields[0].equals("C") ? Status.Complete : Status.Skipped;
+                        restored++;
+                    }
+                    break;
+                case "F":
+                    String[] values = fields[3].split(" ");
+                    if (values.length < 5) {
+                        continue;
+                    }
+                    try {
+                        boardLocationFiducialOverrides.put(boardLocation,
+                                new Location(LengthUnit.valueOf(values[0]),
+                                        Double.parseDouble(values[1]),
+                                        Double.parseDouble(values[2]),
+                                        Double.parseDouble(values[3]),
+                                        Double.parseDouble(values[4])));
+                    }
+                    catch (Exception e) {
+                        // Partially written, ignore it.
+                    }
+                    break;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Open the journal for writing. If append is false any existing journal is discarded and a new
+     * one is started.
+     */
+    public synchronized void open(boolean append) throws IOException {
+        close();
+        boolean writeHeader = !append || !file.exists() || file.length() == 0;
+        out = new FileOutputStream(file, !writeHeader);
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (writeHeader) {
+            writer.write(HEADER);
+            writer.write('\n');
+            sync();
+        }
+        lastSyncTime = System.currentTimeMillis();
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "JobProgressJournal Sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void placementCompleted(Job job, JobPlacement jobPlacement) throws IOException {
+        appendPlacement("C", job, jobPlacement);
+    }
+
+    public void placementSkipped(Job job, JobPlacement jobPlacement) throws IOException {
+        appendPlacement("S", job, jobPlacement);
+    }
+
+    /**
+     * Record a fiducial override. These are rare and expensive to reproduce, so they are forced
+     * to disk immediately.
+     */
+    public synchronized void fiducialOverride(Job job, BoardLocation boardLocation,
+            Location location) throws IOException {
+        if (writer == null) {
+            return;
+        }
+        writer.write(String.format("F %d %s %s %s %s %s %s\n",
+                job.getBoardLocations().indexOf(boardLocation), getBoardFileName(boardLocation),
+                location.getUnits().name(), Double.toString(location.getX()),
+                Double.toString(location.getY()), Double.toString(location.getZ()),
+                Double.toString(location.getRotation())));
+        sync();
+    }
+
+    /**
+     * Force any buffered entries to disk.
+     */
+    public synchronized void sync() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        if (pendingSync != null) {
+            pendingSync.cancel(false);
+            pendingSync = null;
+        }
+        writer.flush();
+        out.getFD().sync();
+        unsyncedCount = 0;
+        lastSyncTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Force any buffered entries to disk and close the journal.
+     */
+    public synchronized void close() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            sync();
+            writer.close();
+        }
+        finally {
+            writer = null;
+            out = null;
+            syncExecutor.shutdown();
+            syncExecutor = null;
+        }
+    }
+
+    /**
+     * Close and remove the journal, used once a job has run to completion.
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        file.delete();
+    }
+
+    private synchronized void appendPlacement(String type, Job job, JobPlacement jobPlacement)
+            throws IOException {
+        if (writer == null) {
+            return;
+        }
+        writer.write(type);
+        writer.write(' ');
+        writer.write(Integer.toString(job.getBoardLocations().indexOf(jobPlacement.boardLocation)));
+        writer.write(' ');
+        writer.write(getBoardFileName(jobPlacement.boardLocation));
+        writer.write(' ');
+        writer.write(jobPlacement.placement.getId());
+        writer.write('\n');
+        if (++unsyncedCount >= syncBatchSize
+                || System.currentTimeMillis() - lastSyncTime >= syncIntervalMs) {
+            sync();
+        }
+        else if (pendingSync == null) {
+            pendingSync =
+                    syncExecutor.schedule(this::idleSync, syncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sync entries that have been waiting in the buffer for the sync interval because no more
+     * have been appended since.
+     */
+    private synchronized void idleSync() {
+        pendingSync = null;
+        try {
+            sync();
+        }
+        catch (IOException e) {
+            Logger.warn(e, "Unable to sync job journal {}.", file);
+        }
+    }
+
+    private static String getBoardFileName(BoardLocation boardLocation) {
+        if (boardLocation.getBoard() == null || boardLocation.getBoard().getFile() == null) {
+            return "-";
+        }
+        // Keep the entry space separated even if the file name contains spaces.
+        return boardLocation.getBoard().getFile().getName().replace(' ', '_');
+    }
+}
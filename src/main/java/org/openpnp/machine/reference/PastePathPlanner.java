@@ -0,0 +1,298 @@
+package org.openpnp.machine.reference;
+
+import java.util.Locale;
+
+import org.openpnp.machine.reference.driver.SimulationDriver.AxisLimits;
+
+/**
+ * Plans the order in which paste is dispensed, and how the dispenser travels between pads. Pads
+ * are ordered by a nearest neighbour tour from the dispenser's starting position, which is then
+ * improved with 2-opt until no reversal of a stretch of the tour makes it shorter. Boards are not
+ * treated separately, so a job with several boards is dispensed as one tour.
+ *
+ * Normally the dispenser goes up to safe Z between every pair of pads. With low hop enabled it
+ * only rises to a clearance height above the pad when the next pad is within the low hop distance,
+ * which saves most of the Z travel on boards with densely packed pads.
+ *
+ * All positions and lengths are in millimeters, and times are estimated with the same motion
+ * model the SimulationDriver uses.
+ */
+public class PastePathPlanner {
+    /**
+     * The result of planning: the order to visit the pads in, how to travel to each of them and
+     * the totals for the whole path.
+     */
+    public static class Plan {
+        private final int[] order;
+        private final boolean[] lowHop;
+        private double xyTravel;
+        private double zTravel;
+        private double time;
+
+        Plan(int[] order) {
+            this.order = order;
+            this.lowHop = new boolean[order.length];
+        }
+
+        /**
+         * The indexes of the pads, in the order they should be dispensed.
+         */
+        public int[] getOrder() {
+            return order;
+        }
+
+        /**
+         * True if the pad at the given position in the order is reached from the one before it
+         * at clearance height rather than safe Z.
+         */
+        public boolean isLowHop(int i) {
+            return lowHop[i];
+        }
+
+        public int getLowHopCount() {
+            int count = 0;
+            for (boolean b : lowHop) {
+                if (b) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Total distance travelled in X and Y, in millimeters.
+         */
+        public double getXyTravel() {
+            return xyTravel;
+        }
+
+        /**
+         * Total distance travelled in Z, in millimeters.
+         */
+        public double getZTravel() {
+            return zTravel;
+        }
+
+        /**
+         * Estimated time for all of the travel, in seconds. Dispensing itself is not included.
+         */
+        public double getEstimatedTime() {
+            return time;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%d pads, %d low hops, %.1f mm XY and %.1f mm Z travel, estimated %.2f s",
+                    order.length, getLowHopCount(), xyTravel, zTravel, time);
+        }
+    }
+
+    private final AxisLimits x;
+    private final AxisLimits y;
+    private final AxisLimits z;
+
+    private double speed = 1;
+    private double safeZ;
+    private boolean optimize = true;
+    private boolean lowHopEnabled;
+    private double lowHopDistance = 5;
+    private double lowHopClearance = 1;
+    private int maxPasses = 100;
+
+    public PastePathPlanner(AxisLimits x, AxisLimits y, AxisLimits z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Plan the path through the pads. The dispenser is assumed to start at safe Z above the
+     * given start position.
+     *
+     * @param startX The dispenser's X when the plan starts.
+     * @param startY The dispenser's Y when the plan starts.
+     * @param pads The pads as X, Y, Z triples.
+     */
+    public Plan plan(double startX, double startY, double[] pads) {
+        int n = pads.length / 3;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        if (optimize) {
+            nearestNeighbour(startX, startY, pads, order);
+            twoOpt(startX, startY, pads, order);
+        }
+        Plan plan = new Plan(order);
+        estimate(startX, startY, pads, plan);
+        return plan;
+    }
+
+    private static void nearestNeighbour(double startX, double startY, double[] pads,
+            int[] order) {
+        double px = startX;
+        double py = startY;
+        for (int i = 0; i < order.length; i++) {
+            int best = i;
+            double bestDistance = Double.MAX_VALUE;
+            for (int j = i; j < order.length; j++) {
+                double dx = pads[order[j] * 3] - px;
+                double dy = pads[order[j] * 3 + 1] - py;
+                double d = dx * dx + dy * dy;
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = j;
+                }
+            }
+            int t = order[i];
+            order[i] = order[best];
+            order[best] = t;
+            px = pads[order[i] * 3];
+            py = pads[order[i] * 3 + 1];
+        }
+    }
+
+    /**
+     * Improve the tour by reversing any stretch of it that makes it shorter, until none does or
+     * maxPasses passes have been made. The start is fixed and the end is free, since the dispenser
+     * doesn't have to come back.
+     */
+    private void twoOpt(double startX, double startY, double[] pads, int[] order) {
+        int n = order.length;
+        for (int pass = 0; pass < maxPasses; pass++) {
+            boolean improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                // The point before the stretch, which is the start for the first pad.
+                double ax = i == 0 ? startX : pads[order[i - 1] * 3];
+                double ay = i == 0 ? startY : pads[order[i - 1] * 3 + 1];
+                for (int j = i + 1; j < n; j++) {
+                    double before = distance(ax, ay, pads, order[i]);
+                    double after = distance(ax, ay, pads, order[j]);
+                    if (j < n - 1) {
+                        before += distance(pads, order[j], order[j + 1]);
+                        after += distance(pads, order[i], order[j + 1]);
+                    }
+                    if (after < before - 1e-9) {
+                        reverse(order, i, j);
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+    }
+
+    private static void reverse(int[] order, int i, int j) {
+        while (i < j) {
+            int t = order[i];
+            order[i++] = order[j];
+            order[j--] = t;
+        }
+    }
+
+    private static double distance(double x, double y, double[] pads, int a) {
+        double dx = pads[a * 3] - x;
+        double dy = pads[a * 3 + 1] - y;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static double distance(double[] pads, int a, int b) {
+        return distance(pads[a * 3], pads[a * 3 + 1], pads, b);
+    }
+
+    /**
+     * Decide which legs are low hops and add up the travel and time for the path.
+     */
+    private void estimate(double startX, double startY, double[] pads, Plan plan) {
+        int[] order = plan.order;
+        double px = startX;
+        double py = startY;
+        // The first pad is approached from safe Z.
+        double pz = safeZ;
+        for (int i = 0; i < order.length; i++) {
+            double nx = pads[order[i] * 3];
+            double ny = pads[order[i] * 3 + 1];
+            double nz = pads[order[i] * 3 + 2];
+            double d = Math.hypot(nx - px, ny - py);
+            double hopZ = safeZ;
+            if (i > 0 && lowHopEnabled && d <= lowHopDistance
+                    && Math.max(pz, nz) + lowHopClearance < safeZ) {
+                plan.lowHop[i] = true;
+                hopZ = Math.max(pz, nz) + lowHopClearance;
+            }
+            double up = Math.abs(hopZ - pz);
+            double down = Math.abs(hopZ - nz);
+            plan.xyTravel += d;
+            plan.zTravel += up + down;
+            plan.time += z.getMoveTime(up, speed)
+                    + Math.max(x.getMoveTime(nx - px, speed), y.getMoveTime(ny - py, speed))
+                    + z.getMoveTime(down, speed);
+            px = nx;
+            py = ny;
+            pz = nz;
+        }
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    public double getSafeZ() {
+        return safeZ;
+    }
+
+    public void setSafeZ(double safeZ) {
+        this.safeZ = safeZ;
+    }
+
+    public boolean isOptimize() {
+        return optimize;
+    }
+
+    /**
+     * If false the pads are visited in the order they are given, which is useful for comparing
+     * plans.
+     */
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    public boolean isLowHopEnabled() {
+        return lowHopEnabled;
+    }
+
+    public void setLowHopEnabled(boolean lowHopEnabled) {
+        this.lowHopEnabled = lowHopEnabled;
+    }
+
+    public double getLowHopDistance() {
+        return lowHopDistance;
+    }
+
+    public void setLowHopDistance(double lowHopDistance) {
+        this.lowHopDistance = lowHopDistance;
+    }
+
+    public double getLowHopClearance() {
+        return lowHopClearance;
+    }
+
+    public void setLowHopClearance(double lowHopClearance) {
+        this.lowHopClearance = lowHopClearance;
+    }
+
+    public int getMaxPasses() {
+        return maxPasses;
+    }
+
+    public void setMaxPasses(int maxPasses) {
+        this.maxPasses = maxPasses;
+    }
+}
@@ -103,7 +103,7 @@ public class ReferenceActuator extends AbstractActuator implements ReferenceHead
     @Override
     public void moveTo(Location location, double speed) throws Exception {
         Logger.debug("{}.moveTo({}, {})", getName(), location, speed);
-        getDriver().moveTo(this, location, speed);
+        getMachine().getHeadInterlock().moveTo(this, location, speed);
         getMachine().fireMachineHeadActivity(head);
     }
 
@@ -113,7 +113,7 @@ public class ReferenceActuator extends AbstractActuator implements ReferenceHead
         Length safeZ = this.safeZ.convertToUnits(getLocation().getUnits());
         Location l = new Location(getLocation().getUnits(), Double.NaN, Double.NaN,
                 safeZ.getValue(), Double.NaN);
-        getDriver().moveTo(this, l, speed);
+        getMachine().getHeadInterlock().moveTo(this, l, speed);
         getMachine().fireMachineHeadActivity(head);
     }
 
@@ -43,12 +43,14 @@ import org.openpnp.gui.MainFrame;
 import org.openpnp.gui.support.Icons;
 import org.openpnp.gui.support.PropertySheetWizardAdapter;
 import org.openpnp.gui.wizards.CameraConfigurationWizard;
+import org.openpnp.machine.reference.driver.SessionRecorder;
 import org.openpnp.model.AbstractModelObject;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Length;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
 import org.openpnp.spi.base.AbstractCamera;
+import org.openpnp.util.MatPool;
 import org.openpnp.util.OpenCvUtils;
 import org.openpnp.vision.LensCalibration;
 import org.openpnp.vision.LensCalibration.LensModel;
@@ -130,7 +132,12 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
         catch (Exception e) {
             Logger.warn(e);
         }
+        long t = System.nanoTime();
         BufferedImage image = safeInternalCapture();
+        SessionRecorder recorder = SessionRecorder.getActive();
+        if (recorder != null) {
+            recorder.recordFrame(this, image, t, System.nanoTime() - t);
+        }
         try {
             Map<String, Object> globals = new HashMap<>();
             globals.put("camera", this);
@@ -207,7 +214,7 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
     @Override
     public void moveTo(Location location, double speed) throws Exception {
         Logger.debug("moveTo({}, {})", location, speed);
-        getDriver().moveTo(this, location, speed);
+        getMachine().getHeadInterlock().moveTo(this, location, speed);
         getMachine().fireMachineHeadActivity(head);
     }
 
@@ -217,7 +224,7 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
         Length safeZ = this.safeZ.convertToUnits(getLocation().getUnits());
         Location l = new Location(getLocation().getUnits(), Double.NaN, Double.NaN,
                 safeZ.getValue(), Double.NaN);
-        getDriver().moveTo(this, l, speed);
+        getMachine().getHeadInterlock().moveTo(this, l, speed);
         getMachine().fireMachineHeadActivity(head);
     }
 
@@ -301,8 +308,12 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
         this.deinterlace = deinterlace;
     }
 
+    /**
+     * Apply the camera's transforms to the image. Every step hands the Mat it replaces back to
+     * the MatPool, so at a steady frame size a frame doesn't allocate any native memory.
+     */
     protected BufferedImage transformImage(BufferedImage image) {
-        Mat mat = OpenCvUtils.toMat(image);
+        Mat mat = OpenCvUtils.toMat(image, MatPool.get());
 
         mat = crop(mat);
 
@@ -331,7 +342,7 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
         }
 
         image = OpenCvUtils.toBufferedImage(mat);
-        mat.release();
+        MatPool.get().release(mat);
         return image;
     }
 
@@ -345,8 +356,11 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
                     cw,
                     ch);
             Mat tmp = new Mat(mat, roi);
-            tmp.copyTo(mat);
+            Mat dst = MatPool.get().acquire(ch, cw, mat.type());
+            tmp.copyTo(dst);
             tmp.release();
+            MatPool.get().release(mat);
+            return dst;
         }
         return mat;
     }
@@ -355,12 +369,12 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
         if (!deinterlace) {
             return mat;
         }
-        Mat dst = new Mat(mat.size(), mat.type());
+        Mat dst = MatPool.get().acquire(mat.rows(), mat.cols(), mat.type());
         for (int i = 0; i < mat.rows() / 2; i++) {
             mat.row(i).copyTo(dst.row(i * 2));
             mat.row(i + mat.rows() / 2).copyTo(dst.row(i * 2 + 1));
         }
-        mat.release();
+        MatPool.get().release(mat);
         return dst;
     }
 
@@ -384,9 +398,9 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
         mapMatrix.put(0, 2, cx);
         mapMatrix.put(1, 2, cy);
 
-        Mat dst = new Mat(bbox.width, bbox.height, mat.type());
+        Mat dst = MatPool.get().acquire(bbox.height, bbox.width, mat.type());
         Imgproc.warpAffine(mat, dst, mapMatrix, bbox.size(), Imgproc.INTER_LINEAR);
-        mat.release();
+        MatPool.get().release(mat);
 
         mapMatrix.release();
 
@@ -405,9 +419,9 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
             }
         };
 
-        Mat dst = mat.clone();
+        Mat dst = MatPool.get().acquire(mat.rows(), mat.cols(), mat.type());
         Imgproc.warpAffine(mat, dst, mapMatrix, mat.size(), Imgproc.INTER_LINEAR);
-        mat.release();
+        MatPool.get().release(mat);
 
         mapMatrix.release();
 
@@ -418,9 +432,9 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
         if (scaleWidth == 0 || scaleHeight == 0) {
             return mat;
         }
-        Mat dst = new Mat();
+        Mat dst = MatPool.get().acquire(scaleHeight, scaleWidth, mat.type());
         Imgproc.resize(mat, dst, new Size(scaleWidth, scaleHeight));
-        mat.release();
+        MatPool.get().release(mat);
         return dst;
     }
 
@@ -440,9 +454,9 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
             rectification.release();
         }
 
-        Mat dst = mat.clone();
+        Mat dst = MatPool.get().acquire(mat.rows(), mat.cols(), mat.type());
         Imgproc.remap(mat, dst, undistortionMap1, undistortionMap2, Imgproc.INTER_LINEAR);
-        mat.release();
+        MatPool.get().release(mat);
 
         return dst;
     }
@@ -526,6 +540,28 @@ public abstract class ReferenceCamera extends AbstractCamera implements Referenc
         return getDriver().getLocation(this);
     }
 
+    /**
+     * Settles through the driver, so that a simulated machine advances its clock rather than
+     * sleeping.
+     */
+    @Override
+    public BufferedImage settleAndCapture() {
+        try {
+            getDriver().dwell(getSettleTimeMs());
+        }
+        catch (Exception e) {
+            Logger.warn(e, "Camera {} failed to settle through the driver, sleeping instead.",
+                    getName());
+            try {
+                Thread.sleep(getSettleTimeMs());
+            }
+            catch (InterruptedException e1) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return capture();
+    }
+
     public Length getSafeZ() {
         return safeZ;
     }
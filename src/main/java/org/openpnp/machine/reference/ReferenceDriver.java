@@ -21,6 +21,7 @@ package org.openpnp.machine.reference;
 
 import java.io.Closeable;
 
+import org.openpnp.model.Length;
 import org.openpnp.model.Location;
 import org.openpnp.spi.PropertySheetHolder;
 import org.openpnp.spi.WizardConfigurable;
@@ -127,5 +128,91 @@ public interface ReferenceDriver extends WizardConfigurable, PropertySheetHolder
     public void dispense(ReferencePasteDispenser dispenser, Location startLocation,
             Location endLocation, long dispenseTimeMilliseconds) throws Exception;
 
+    /**
+     * See Machine.setJogging(boolean). Drivers that can stream jog moves and cancel them should
+     * do so while jogging is true.
+     * 
+     * @param jogging
+     * @throws Exception
+     */
+    public default void setJogging(boolean jogging) throws Exception {
+
+    }
+
+    /**
+     * Returns true if the driver can be called for different heads from different threads at the
+     * same time, so that ReferencePnpJobProcessor can move the heads concurrently. Drivers that
+     * send every command down one connection should leave this false, and the heads then take
+     * turns.
+     * 
+     * @return
+     */
+    public default boolean supportsConcurrentHeads() {
+        return false;
+    }
+
+    /**
+     * Returns the distance a move at speed 1 covers in a minute, so that callers that need a
+     * particular velocity, such as jogging, can work out the speed to ask for. Returns null if the
+     * driver doesn't know.
+     * 
+     * @return
+     */
+    public default Length getMaxFeedRatePerMinute() {
+        return null;
+    }
+
+    /**
+     * Returns true if the two head mountables can be moved in Z independently of each other, so
+     * that each can be lowered to its own height while the other stays where it is. Returns false
+     * if they share a Z axis, including when one motor drives both through a cam, or if the
+     * driver doesn't know.
+     * 
+     * @param hm1
+     * @param hm2
+     * @return
+     */
+    public default boolean isIndependentZ(ReferenceHeadMountable hm1,
+            ReferenceHeadMountable hm2) {
+        return false;
+    }
+
+    /**
+     * Wait for the given time while the machine dwells or settles, such as after a pick or
+     * before a capture. Drivers that simulate a machine on a clock of their own advance it
+     * instead of sleeping.
+     * 
+     * @param milliseconds
+     * @throws Exception
+     */
+    public default void dwell(long milliseconds) throws Exception {
+        if (milliseconds > 0) {
+            Thread.sleep(milliseconds);
+        }
+    }
+
+    /**
+     * Returns the current time on the clock dwell() waits on, in milliseconds. Use this to
+     * measure how much of a wait has already passed, so that the rest can be waited out with
+     * dwell() on the same clock.
+     * 
+     * @return
+     */
+    public default long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Returns this driver as the given class, or the driver it wraps if this driver delegates to
+     * another one, such as the RecordingDriver. Use this instead of instanceof to find out if the
+     * machine is driven by a particular kind of driver.
+     * 
+     * @param driverClass
+     * @return The driver, or null if neither this driver nor any it wraps is of the class.
+     */
+    public default <T extends ReferenceDriver> T unwrap(Class<T> driverClass) {
+        return driverClass.isInstance(this) ? driverClass.cast(this) : null;
+    }
+
     public default void createDefaults() {};
 }
@@ -0,0 +1,116 @@
+package org.openpnp.machine.reference;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openpnp.model.Location;
+import org.openpnp.model.Part;
+import org.openpnp.spi.Feeder;
+import org.openpnp.spi.FeederSelectionStrategy;
+import org.openpnp.spi.Machine;
+import org.openpnp.spi.Nozzle;
+import org.openpnp.spi.base.AbstractMachine;
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Root;
+
+/**
+ * FeederSelectionStrategy with a handful of built in policies for choosing between duplicate
+ * feeders:
+ * 
+ * First: The first enabled feeder in machine order. This is the historical behavior.
+ * 
+ * Nearest: The feeder whose pick location is closest to the nozzle's current location, which
+ * shortens travel when the same part is loaded in several places on the machine.
+ * 
+ * RoundRobin: Rotate through the feeders for a part so that they empty at roughly the same rate.
+ * 
+ * MostRemaining: The feeder reporting the highest remaining count. Feeders that don't know their
+ * count rank below those that do.
+ */
+@Root
+public class ReferenceFeederSelectionStrategy implements FeederSelectionStrategy {
+    public enum Mode {
+        First,
+        Nearest,
+        RoundRobin,
+        MostRemaining
+    }
+
+    @Attribute(required = false)
+    protected Mode mode = Mode.First;
+
+    private Map<Part, Integer> roundRobinIndexes = new IdentityHashMap<>();
+
+    @Override
+    public Feeder select(Part part, List<Feeder> feeders, Nozzle nozzle) throws Exception {
+        if (feeders.size() == 1) {
+            return feeders.get(0);
+        }
+        switch (mode) {
+            case Nearest:
+                return selectNearest(feeders, nozzle);
+            case RoundRobin:
+                return selectRoundRobin(part, feeders);
+            case MostRemaining:
+                return selectMostRemaining(feeders);
+            case First:
+            default:
+                return feeders.get(0);
+        }
+    }
+
+    protected Feeder selectNearest(List<Feeder> feeders, Nozzle nozzle) {
+        if (nozzle == null) {
+            return feeders.get(0);
+        }
+        Location nozzleLocation = nozzle.getLocation();
+        Machine machine = nozzle.getHead() == null ? null : nozzle.getHead().getMachine();
+        Feeder best = feeders.get(0);
+        double bestDistance = Double.MAX_VALUE;
+        for (Feeder feeder : feeders) {
+            double distance;
+            try {
+                // The machine caches pick locations, since this asks every candidate each time.
+                Location pickLocation = machine instanceof AbstractMachine
+                        ? ((AbstractMachine) machine).getCachedPickLocation(feeder)
+                        : feeder.getPickLocation();
+                distance = nozzleLocation.getLinearDistanceTo(pickLocation);
+            }
+            catch (Exception e) {
+                // A feeder that can't report a location yet is only used if nothing else can.
+                continue;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = feeder;
+            }
+        }
+        return best;
+    }
+
+    protected synchronized Feeder selectRoundRobin(Part part, List<Feeder> feeders) {
+        Integer index = roundRobinIndexes.get(part);
+        int next = index == null ? 0 : (index + 1) % feeders.size();
+        roundRobinIndexes.put(part, next);
+        return feeders.get(next);
+    }
+
+    protected Feeder selectMostRemaining(List<Feeder> feeders) {
+        Feeder best = feeders.get(0);
+        for (Feeder feeder : feeders) {
+            if (feeder.getRemainingCount() > best.getRemainingCount()) {
+                best = feeder;
+            }
+        }
+        return best;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+}
@@ -93,6 +93,8 @@ public class ReferenceMachine extends AbstractMachine {
 
     private boolean enabled;
 
+    private final HeadInterlock headInterlock = new HeadInterlock(this);
+
     private List<Class<? extends Feeder>> registeredFeederClasses = new ArrayList<>();
 
     @Commit
@@ -113,6 +115,14 @@ public class ReferenceMachine extends AbstractMachine {
         this.driver = driver;
     }
 
+    /**
+     * Head mountables on this machine move through the HeadInterlock, so that heads that are
+     * moving at the same time stay out of each other's way.
+     */
+    public HeadInterlock getHeadInterlock() {
+        return headInterlock;
+    }
+
     public ReferenceMachine()
     {
         Configuration.get().addListener(new ConfigurationListener.Adapter() {
@@ -163,6 +173,11 @@ public class ReferenceMachine extends AbstractMachine {
         }
     }
 
+    @Override
+    public void setJogging(boolean jogging) throws Exception {
+        driver.setJogging(jogging);
+    }
+
     @Override
     public Wizard getConfigurationWizard() {
         return new ReferenceMachineConfigurationWizard(this);
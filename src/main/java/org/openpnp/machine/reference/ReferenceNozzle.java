@@ -67,6 +67,9 @@ public class ReferenceNozzle extends AbstractNozzle implements ReferenceHeadMoun
             @Override
             public void configurationLoaded(Configuration configuration) throws Exception {
                 nozzleTip = (ReferenceNozzleTip) nozzleTips.get(currentNozzleTipId);
+                if (nozzleTip != null) {
+                    nozzleTip.getCalibration().resetIfStale(ReferenceNozzle.this);
+                }
             }
         });
     }
@@ -138,7 +141,7 @@ public class ReferenceNozzle extends AbstractNozzle implements ReferenceHeadMoun
         this.part = part;
         getDriver().pick(this);
         getMachine().fireMachineHeadActivity(head);
-        Thread.sleep(pickDwellMilliseconds);
+        getDriver().dwell(pickDwellMilliseconds);
 
         Actuator actuator = getHead().getActuatorByName(vacuumSenseActuatorName);
         if (actuator != null) {
@@ -170,7 +173,7 @@ public class ReferenceNozzle extends AbstractNozzle implements ReferenceHeadMoun
         getDriver().place(this);
         this.part = null;
         getMachine().fireMachineHeadActivity(head);
-        Thread.sleep(placeDwellMilliseconds);
+        getDriver().dwell(placeDwellMilliseconds);
 
         Actuator actuator = getHead().getActuatorByName(vacuumSenseActuatorName);
         if (actuator != null) {
@@ -215,7 +218,7 @@ public class ReferenceNozzle extends AbstractNozzle implements ReferenceHeadMoun
         }
 
         // Check calibration.
-        if (nozzleTip != null && nozzleTip.getCalibration().isCalibrationNeeded()) {
+        if (nozzleTip != null && nozzleTip.getCalibration().isCalibrationNeeded(this)) {
             Logger.debug("NozzleTip is not yet calibrated, calibrating now.");
             nozzleTip.getCalibration().calibrate(nozzleTip);
         }
@@ -236,12 +239,12 @@ public class ReferenceNozzle extends AbstractNozzle implements ReferenceHeadMoun
                 location = location.derive(null, null, null, location.getRotation() - 360);
             }
         }
-        if (nozzleTip != null && nozzleTip.getCalibration().isCalibrated()) {
-            location = location.subtract(
-                    nozzleTip.getCalibration().getCalibratedOffset(location.getRotation()));
+        if (nozzleTip != null && nozzleTip.getCalibration().isCalibrated(this)) {
+            location = location.subtract(nozzleTip.getCalibration().getCalibratedOffset(this,
+                    location.getRotation()));
             Logger.debug("{}.moveTo({}, {}) (corrected)", getName(), location, speed);
         }
-        getDriver().moveTo(this, location, speed);
+        getMachine().getHeadInterlock().moveTo(this, location, speed);
         getMachine().fireMachineHeadActivity(head);
     }
 
@@ -257,7 +260,7 @@ public class ReferenceNozzle extends AbstractNozzle implements ReferenceHeadMoun
         Length safeZ = this.safeZ.convertToUnits(getLocation().getUnits());
         Location l = new Location(getLocation().getUnits(), Double.NaN, Double.NaN,
                 safeZ.getValue(), Double.NaN);
-        getDriver().moveTo(this, l, speed);
+        getMachine().getHeadInterlock().moveTo(this, l, speed);
         getMachine().fireMachineHeadActivity(head);
     }
 
@@ -297,7 +300,9 @@ public class ReferenceNozzle extends AbstractNozzle implements ReferenceHeadMoun
         }
         
         this.nozzleTip = nt;
-        this.nozzleTip.getCalibration().reset();
+        // A persisted calibration is reused unless it has expired, so a tip change doesn't
+        // always cost a full recalibration.
+        this.nozzleTip.getCalibration().resetIfStale(this);
         currentNozzleTipId = nozzleTip.getId();
         firePropertyChange("nozzleTip", null, getNozzleTip());
         ((ReferenceMachine) head.getMachine()).fireMachineHeadActivity(head);
@@ -340,9 +345,9 @@ public class ReferenceNozzle extends AbstractNozzle implements ReferenceHeadMoun
     @Override
     public Location getLocation() {
         Location location = getDriver().getLocation(this);
-        if (nozzleTip != null && nozzleTip.getCalibration().isCalibrated()) {
+        if (nozzleTip != null && nozzleTip.getCalibration().isCalibrated(this)) {
             Location offset =
-                    nozzleTip.getCalibration().getCalibratedOffset(location.getRotation());
+                    nozzleTip.getCalibration().getCalibratedOffset(this, location.getRotation());
             location = location.add(offset);
         }
         return location;
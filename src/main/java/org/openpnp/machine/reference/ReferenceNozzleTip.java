@@ -2,9 +2,11 @@ package org.openpnp.machine.reference;
 
 import java.awt.event.ActionEvent;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -41,6 +43,7 @@ import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.ElementList;
+import org.simpleframework.xml.ElementMap;
 import org.simpleframework.xml.Root;
 import org.simpleframework.xml.core.Commit;
 
@@ -357,6 +360,175 @@ public class ReferenceNozzleTip extends AbstractNozzleTip {
             }
         }
 
+        /**
+         * The fitted runout of a nozzle tip. The tip's offset from the axis of rotation is modeled
+         * as a first harmonic of the nozzle angle in each axis:
+         * 
+         * <pre>
+         * x = centerX + xCos * cos(angle) + xSin * sin(angle)
+         * y = centerY + yCos * cos(angle) + ySin * sin(angle)
+         * </pre>
+         * 
+         * An eccentric tip traces a circle, which is the case xCos = ySin and xSin = -yCos (or the
+         * mirror image of that if the rotation axis is reversed), but the general form also
+         * absorbs small differences in camera scale between the axes. Since it is fitted by least
+         * squares, a handful of samples gives a smooth correction for every angle instead of
+         * interpolating linearly between many.
+         * 
+         * The model is persisted with the nozzle tip, one for each nozzle the tip has been
+         * calibrated on, when the configuration is saved like any other machine setting, so that
+         * it survives tip changes and restarts. All values are in millimeters.
+         */
+        public static class RunoutModel {
+            @Attribute
+            private String nozzleId;
+
+            @Attribute
+            private long timestamp;
+
+            @Attribute
+            private double centerX;
+
+            @Attribute
+            private double centerY;
+
+            @Attribute
+            private double xCos;
+
+            @Attribute
+            private double xSin;
+
+            @Attribute
+            private double yCos;
+
+            @Attribute
+            private double ySin;
+
+            @Attribute
+            private double residual;
+
+            /**
+             * Fit the model to the given offsets by least squares, independently for each axis.
+             */
+            public static RunoutModel fit(String nozzleId, List<CalibrationOffset> offsets) {
+                double[] x = new double[offsets.size()];
+                double[] y = new double[offsets.size()];
+                double[] angles = new double[offsets.size()];
+                for (int i = 0; i < offsets.size(); i++) {
+                    Location offset = offsets.get(i).offset.convertToUnits(LengthUnit.Millimeters);
+                    x[i] = offset.getX();
+                    y[i] = offset.getY();
+                    angles[i] = Math.toRadians(offsets.get(i).angle);
+                }
+                double[] xCoefficients = fitHarmonic(angles, x);
+                double[] yCoefficients = fitHarmonic(angles, y);
+
+                RunoutModel model = new RunoutModel();
+                model.nozzleId = nozzleId;
+                model.timestamp = System.currentTimeMillis();
+                model.centerX = xCoefficients[0];
+                model.xCos = xCoefficients[1];
+                model.xSin = xCoefficients[2];
+                model.centerY = yCoefficients[0];
+                model.yCos = yCoefficients[1];
+                model.ySin = yCoefficients[2];
+
+                double sumSquares = 0;
+                for (int i = 0; i < offsets.size(); i++) {
+                    double dx = x[i] - model.getX(angles[i]);
+                    double dy = y[i] - model.getY(angles[i]);
+                    sumSquares += dx * dx + dy * dy;
+                }
+                model.residual = Math.sqrt(sumSquares / offsets.size());
+                return model;
+            }
+
+            /**
+             * Solve the normal equations for v = c + a * cos(t) + b * sin(t).
+             * 
+             * @return { c, a, b }
+             */
+            private static double[] fitHarmonic(double[] angles, double[] values) {
+                double[][] m = new double[3][3];
+                double[] r = new double[3];
+                for (int i = 0; i < angles.length; i++) {
+                    double[] basis = {1, Math.cos(angles[i]), Math.sin(angles[i])};
+                    for (int j = 0; j < 3; j++) {
+                        for (int k = 0; k < 3; k++) {
+                            m[j][k] += basis[j] * basis[k];
+                        }
+                        r[j] += basis[j] * values[i];
+                    }
+                }
+                double det = determinant(m);
+                if (Math.abs(det) < 1e-12) {
+                    throw new IllegalArgumentException(
+                            "Calibration angles do not cover enough of the circle to fit runout.");
+                }
+                double[] result = new double[3];
+                for (int col = 0; col < 3; col++) {
+                    double[][] mi = new double[3][];
+                    for (int row = 0; row < 3; row++) {
+                        mi[row] = m[row].clone();
+                        mi[row][col] = r[row];
+                    }
+                    result[col] = determinant(mi) / det;
+                }
+                return result;
+            }
+
+            private static double determinant(double[][] m) {
+                return m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+                        - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+                        + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+            }
+
+            double getX(double radians) {
+                return centerX + xCos * Math.cos(radians) + xSin * Math.sin(radians);
+            }
+
+            double getY(double radians) {
+                return centerY + yCos * Math.cos(radians) + ySin * Math.sin(radians);
+            }
+
+            /**
+             * The modeled offset of the tip with the nozzle at the given angle, in degrees.
+             */
+            public Location getOffset(double angle) {
+                double radians = Math.toRadians(angle);
+                return new Location(LengthUnit.Millimeters, getX(radians), getY(radians), 0, 0);
+            }
+
+            /**
+             * The approximate radius of the runout circle.
+             */
+            public double getRunout() {
+                return Math.sqrt((xCos * xCos + xSin * xSin + yCos * yCos + ySin * ySin) / 2);
+            }
+
+            /**
+             * The RMS distance between the measured offsets and the model, in millimeters.
+             */
+            public double getResidual() {
+                return residual;
+            }
+
+            public String getNozzleId() {
+                return nozzleId;
+            }
+
+            public long getTimestamp() {
+                return timestamp;
+            }
+
+            @Override
+            public String toString() {
+                return String.format(Locale.US,
+                        "center (%.4f, %.4f), runout %.4f mm, residual %.4f mm", centerX, centerY,
+                        getRunout(), residual);
+            }
+        }
+
         @Element(required = false)
         private CvPipeline pipeline = createDefaultPipeline();
 
@@ -365,10 +537,30 @@ public class ReferenceNozzleTip extends AbstractNozzleTip {
         
         @Attribute(required = false)
         private boolean enabled;
-        
-        private boolean calibrating;
 
-        List<CalibrationOffset> offsets;
+        /**
+         * Calibrations older than this are discarded when the tip is next loaded. 0 means a
+         * calibration never expires.
+         */
+        @Attribute(required = false)
+        private double maxAgeHours = 24;
+
+        /**
+         * A calibration whose RMS residual is above this, in millimeters, is rejected as
+         * unreliable. This usually means the pipeline is finding something other than the tip.
+         */
+        @Attribute(required = false)
+        private double maxResidual = 0.05;
+
+        /**
+         * The calibration of the tip on each nozzle it has been calibrated on, by nozzle id. The
+         * runout depends on how the tip sits on the nozzle as well as on the tip, so a calibration
+         * made on one nozzle doesn't apply on another. Guarded by this.
+         */
+        @ElementMap(required = false)
+        private Map<String, RunoutModel> models = new HashMap<>();
+
+        private boolean calibrating;
 
         public void calibrate(ReferenceNozzleTip nozzleTip) throws Exception {
             if (!isEnabled()) {
@@ -376,10 +568,10 @@ public class ReferenceNozzleTip extends AbstractNozzleTip {
             }
             try {
                 calibrating = true;
-                
-                reset();
 
                 Nozzle nozzle = nozzleTip.getParentNozzle();
+                reset(nozzle);
+
                 Camera camera = VisionUtils.getBottomVisionCamera();
 
                 // Move to the camera with an angle of 0.
@@ -407,11 +599,28 @@ public class ReferenceNozzleTip extends AbstractNozzleTip {
                     Location offset = findCircle();
                     offsets.add(new CalibrationOffset(offset, i));
                 }
+                if (offsets.size() < 4) {
+                    throw new Exception(String.format(
+                            "Angle increment %f gives only %d samples, at least 4 are needed.",
+                            angleIncrement, offsets.size()));
+                }
+
+                RunoutModel model = RunoutModel.fit(nozzle.getId(), offsets);
+                Logger.debug("{} calibration samples {}", nozzleTip.getName(), offsets);
+                if (maxResidual > 0 && model.getResidual() > maxResidual) {
+                    throw new Exception(String.format(Locale.US,
+                            "Nozzle tip %s calibration rejected, residual %.4f mm is more than "
+                                    + "%.4f mm. Check the calibration pipeline.",
+                            nozzleTip.getName(), model.getResidual(), maxResidual));
+                }
+                Logger.info("Nozzle tip {} calibrated: {}", nozzleTip.getName(), model);
+
+                // The nozzle tip is now calibrated on this nozzle and
+                // calibration.getCalibratedOffset() can be used.
+                synchronized (this) {
+                    models.put(nozzle.getId(), model);
+                }
 
-                // The nozzle tip is now calibrated and calibration.getCalibratedOffset() can be
-                // used.
-                this.offsets = offsets;
-                
                 nozzle.moveToSafeZ();
             }
             finally {
@@ -419,31 +628,31 @@ public class ReferenceNozzleTip extends AbstractNozzleTip {
             }
         }
 
-        public Location getCalibratedOffset(double angle) {
-            if (!isEnabled() || !isCalibrated()) {
+        public Location getCalibratedOffset(Nozzle nozzle, double angle) {
+            RunoutModel model = getModel(nozzle);
+            if (!isEnabled() || model == null) {
                 return new Location(LengthUnit.Millimeters, 0, 0, 0, 0);
             }
+            return model.getOffset(angle);
+        }
 
-            // Make sure the angle is between 0 and 360.
-            while (angle < 0) {
-                angle += 360;
+        /**
+         * Discard the calibration made on the nozzle if it is older than maxAgeHours. Called when
+         * the tip is loaded, rather than on every move, so that a calibration can't expire part
+         * way through a pick and place cycle. Calibrations made on other nozzles are kept for
+         * when the tip is next loaded on them.
+         */
+        public synchronized void resetIfStale(Nozzle nozzle) {
+            RunoutModel model = getModel(nozzle);
+            if (model == null) {
+                return;
             }
-            while (angle > 360) {
-                angle -= 360;
+            if (maxAgeHours > 0 && System.currentTimeMillis()
+                    - model.getTimestamp() > maxAgeHours * 60 * 60 * 1000) {
+                Logger.debug("Nozzle tip calibration is older than {} hours, resetting.",
+                        maxAgeHours);
+                reset(nozzle);
             }
-            List<CalibrationOffset> offsets = getOffsetPairForAngle(angle);
-            CalibrationOffset a = offsets.get(0);
-            CalibrationOffset b = offsets.get(1);
-            Location offsetA = a.offset;
-            Location offsetB = b.offset.convertToUnits(a.offset.getUnits());
-
-            double ratio = (angle - a.angle) / (b.angle - a.angle);
-            double deltaX = offsetB.getX() - offsetA.getX();
-            double deltaY = offsetB.getY() - offsetA.getY();
-            double offsetX = offsetA.getX() + (deltaX * ratio);
-            double offsetY = offsetA.getY() + (deltaY * ratio);
-
-            return new Location(offsetA.getUnits(), offsetX, offsetY, 0, 0);
         }
 
         private Location findCircle() throws Exception {
@@ -486,25 +695,6 @@ public class ReferenceNozzleTip extends AbstractNozzleTip {
             return location;
         }
 
-        /**
-         * Find the two closest offsets to the angle being requested. The offsets start at angle 0
-         * and go to angle 360 - angleIncrement in angleIncrement steps.
-         */
-        private List<CalibrationOffset> getOffsetPairForAngle(double angle) {
-            CalibrationOffset a = null, b = null;
-            if (angle >= offsets.get(offsets.size() - 1).angle) {
-                return Arrays.asList(offsets.get(offsets.size() - 1), offsets.get(0));
-            }
-            for (int i = 0; i < offsets.size(); i++) {
-                if (angle < offsets.get(i + 1).angle) {
-                    a = offsets.get(i);
-                    b = offsets.get(i + 1);
-                    break;
-                }
-            }
-            return Arrays.asList(a, b);
-        }
-
         public static CvPipeline createDefaultPipeline() {
             try {
                 String xml = IOUtils.toString(ReferenceNozzleTip.class
@@ -516,12 +706,48 @@ public class ReferenceNozzleTip extends AbstractNozzleTip {
             }
         }
 
-        public void reset() {
-            offsets = null;
+        /**
+         * Discard the calibrations made on every nozzle.
+         */
+        public synchronized void reset() {
+            models.clear();
+        }
+
+        public synchronized void reset(Nozzle nozzle) {
+            if (nozzle != null) {
+                models.remove(nozzle.getId());
+            }
+        }
+
+        public boolean isCalibrated(Nozzle nozzle) {
+            return getModel(nozzle) != null;
+        }
+
+        /**
+         * Get the calibration made on the nozzle, or null if the tip hasn't been calibrated on
+         * it.
+         */
+        public synchronized RunoutModel getModel(Nozzle nozzle) {
+            if (nozzle == null) {
+                return null;
+            }
+            return models.get(nozzle.getId());
+        }
+
+        public double getMaxAgeHours() {
+            return maxAgeHours;
+        }
+
+        public void setMaxAgeHours(double maxAgeHours) {
+            this.maxAgeHours = maxAgeHours;
+        }
+
+        public double getMaxResidual() {
+            return maxResidual;
         }
 
-        public boolean isCalibrated() {
-            return offsets != null && !offsets.isEmpty();
+        public void setMaxResidual(double maxResidual) {
+            this.maxResidual = maxResidual;
         }
         
         public boolean isCalibrating() {
@@ -532,8 +758,8 @@ public class ReferenceNozzleTip extends AbstractNozzleTip {
             return enabled;
         }
         
-        public boolean isCalibrationNeeded() {
-            return isEnabled() && !isCalibrated() && !isCalibrating();
+        public boolean isCalibrationNeeded(Nozzle nozzle) {
+            return isEnabled() && !isCalibrated(nozzle) && !isCalibrating();
         }
 
         public void setEnabled(boolean enabled) {
@@ -27,10 +27,13 @@ import java.util.List;
 import java.util.Map;
 
 import org.openpnp.machine.reference.ReferencePasteDispenseJobProcessor.JobDispense.Status;
+import org.openpnp.machine.reference.driver.SimulationDriver;
 import org.openpnp.model.BoardLocation;
 import org.openpnp.model.BoardPad;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Job;
+import org.openpnp.model.Length;
+import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
 import org.openpnp.spi.FiducialLocator;
 import org.openpnp.spi.Head;
@@ -43,6 +46,7 @@ import org.openpnp.util.MovableUtils;
 import org.openpnp.util.Utils2D;
 import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Element;
 import org.simpleframework.xml.Root;
 
 @Root
@@ -82,11 +86,20 @@ public class ReferencePasteDispenseJobProcessor extends AbstractPasteDispenseJob
             this.boardPad = boardPad;
         }
 
+        private double distance = Double.NaN;
+
+        /**
+         * The distance of the pad from the machine origin. Calculated once, since it is used
+         * to sort the dispenses.
+         */
         public double getDistance()
         {
-            Location zeroLocation=this.boardLocation.getLocation().derive((double) 0,(double) 0,(double) 0,(double) 0);
+            if (Double.isNaN(distance)) {
+                Location zeroLocation=this.boardLocation.getLocation().derive((double) 0,(double) 0,(double) 0,(double) 0);
 
-            return zeroLocation.getLinearDistanceTo((Utils2D.calculateBoardPlacementLocation(this.boardLocation,this.boardPad.getLocation())));
+                distance = zeroLocation.getLinearDistanceTo((Utils2D.calculateBoardPlacementLocation(this.boardLocation,this.boardPad.getLocation())));
+            }
+            return distance;
         }
     }
 
@@ -95,6 +108,26 @@ public class ReferencePasteDispenseJobProcessor extends AbstractPasteDispenseJob
     @Attribute(required = false)
     protected boolean parkWhenComplete = false;
 
+    /**
+     * Order the dispenses by a shortest path tour across all boards rather than by distance from
+     * the machine origin.
+     */
+    @Attribute(required = false)
+    protected boolean optimizePath = true;
+
+    /**
+     * Travel between pads that are closer than lowHopDistance at lowHopClearance above them,
+     * rather than at safe Z.
+     */
+    @Attribute(required = false)
+    protected boolean lowHopEnabled = false;
+
+    @Element(required = false)
+    protected Length lowHopDistance = new Length(5, LengthUnit.Millimeters);
+
+    @Element(required = false)
+    protected Length lowHopClearance = new Length(1, LengthUnit.Millimeters);
+
     private FiniteStateMachine<State, Message> fsm = new FiniteStateMachine<>(State.Uninitialized);
 
     protected Job job;
@@ -107,6 +140,8 @@ public class ReferencePasteDispenseJobProcessor extends AbstractPasteDispenseJob
 
     protected Map<BoardLocation, Location> boardLocationFiducialOverrides = new HashMap<>();
 
+    protected PastePathPlanner.Plan pathPlan;
+
     public ReferencePasteDispenseJobProcessor() {
         fsm.add(State.Uninitialized, Message.Initialize, State.PreFlight, this::doInitialize);
 
@@ -234,7 +269,7 @@ public class ReferencePasteDispenseJobProcessor extends AbstractPasteDispenseJob
         Collections.sort(jobDispenses, new Comparator<JobDispense>() {
             @Override
             public int compare(JobDispense c1, JobDispense c2) {
-                return new Double(c1.getDistance()).compareTo(new Double(c2.getDistance()));
+                return Double.compare(c1.getDistance(), c2.getDistance());
             }
         });
 
@@ -265,38 +300,151 @@ public class ReferencePasteDispenseJobProcessor extends AbstractPasteDispenseJob
     }
 
     protected void doDispense() throws Exception {
-        for(JobDispense jobDispense : jobDispenses) {
-            /* if (jobDispense.stepComplete) {
-                continue;
-            }*/
-
-            BoardLocation boardLocation = jobDispense.boardLocation;
-            BoardPad boardPad = jobDispense.boardPad;
-
-            // Check if there is a fiducial override for the board location and if so, use it.
-            if (boardLocationFiducialOverrides.containsKey(boardLocation)) {
-                BoardLocation boardLocation2 = new BoardLocation(boardLocation.getBoard());
-                boardLocation2.setSide(boardLocation.getSide());
-                boardLocation2.setLocation(boardLocationFiducialOverrides.get(boardLocation));
-                boardLocation = boardLocation2;
+        PasteDispenser pasteDispenser = head.getDefaultPasteDispenser();
+        Location[] dispenseLocations = getDispenseLocations();
+        pathPlan = planPath(pasteDispenser, dispenseLocations);
+        Logger.info("Paste path: {}", pathPlan);
+        fireTextStatus("Dispensing " + pathPlan + ".");
+
+        Length lowHopClearance = this.lowHopClearance.convertToUnits(
+                dispenseLocations.length == 0 ? LengthUnit.Millimeters
+                        : dispenseLocations[0].getUnits());
+        int[] order = pathPlan.getOrder();
+        Location previous = null;
+        for (int i = 0; i < order.length; i++) {
+            JobDispense jobDispense = jobDispenses.get(order[i]);
+            Location dispenseLocation = dispenseLocations[order[i]];
+
+            if (previous != null && pathPlan.isLowHop(i)) {
+                // Stay at the clearance height rather than going all the way up to safe Z.
+                double z = Math.max(previous.getZ(), dispenseLocation.getZ())
+                        + lowHopClearance.getValue();
+                pasteDispenser.moveTo(previous.derive(null, null, z, null));
+                pasteDispenser.moveTo(dispenseLocation.derive(null, null, z, null));
+                pasteDispenser.moveTo(dispenseLocation);
+            }
+            else {
+                MovableUtils.moveToLocationAtSafeZ(pasteDispenser, dispenseLocation);
             }
-
-            Location dispenseLocation =
-                    Utils2D.calculateBoardPlacementLocation(boardLocation, boardPad.getLocation());
-            
-            PasteDispenser pasteDispenser = head.getDefaultPasteDispenser();
-
-            MovableUtils.moveToLocationAtSafeZ(pasteDispenser, dispenseLocation);
 
             pasteDispenser.dispense(null,null,0);
 
-            pasteDispenser.moveToSafeZ();
-
             // Mark the dispense as finished
             jobDispense.status = Status.Complete;
+            previous = dispenseLocation;
 
             Logger.debug("Dispensed {} ", dispenseLocation);
         }
+        pasteDispenser.moveToSafeZ();
+    }
+
+    /**
+     * The machine location of every dispense, in the order of jobDispenses. Each board's fiducial
+     * override, if any, is applied once for the board rather than once per pad, and all of the
+     * locations are in the units of the first board so the path can be planned in one unit.
+     */
+    protected Location[] getDispenseLocations() {
+        Map<BoardLocation, BoardLocation> compensated = new HashMap<>();
+        Location[] locations = new Location[jobDispenses.size()];
+        for (int i = 0; i < locations.length; i++) {
+            JobDispense jobDispense = jobDispenses.get(i);
+            BoardLocation boardLocation =
+                    compensated.computeIfAbsent(jobDispense.boardLocation, b -> {
+                        // Check if there is a fiducial override for the board location and if
+                        // so, use it.
+                        Location override = boardLocationFiducialOverrides.get(b);
+                        if (override == null) {
+                            return b;
+                        }
+                        BoardLocation boardLocation2 = new BoardLocation(b.getBoard());
+                        boardLocation2.setSide(b.getSide());
+                        boardLocation2.setLocation(override);
+                        return boardLocation2;
+                    });
+            locations[i] = Utils2D.calculateBoardPlacementLocation(boardLocation,
+                    jobDispense.boardPad.getLocation());
+            if (i > 0) {
+                locations[i] = locations[i].convertToUnits(locations[0].getUnits());
+            }
+        }
+        return locations;
+    }
+
+    /**
+     * Plan the order of the dispenses and the travel between them, starting from where the
+     * dispenser is now. Times are estimated with the SimulationDriver's motion limits, which are
+     * its defaults unless the machine is actually driven by one.
+     */
+    protected PastePathPlanner.Plan planPath(PasteDispenser pasteDispenser,
+            Location[] dispenseLocations) {
+        SimulationDriver limits = null;
+        if (machine instanceof ReferenceMachine) {
+            limits = ((ReferenceMachine) machine).getDriver().unwrap(SimulationDriver.class);
+        }
+        if (limits == null) {
+            limits = new SimulationDriver();
+        }
+        PastePathPlanner planner = new PastePathPlanner(limits.getX(), limits.getY(),
+                limits.getZ());
+        planner.setSpeed(machine.getSpeed());
+        planner.setOptimize(optimizePath);
+        planner.setLowHopEnabled(lowHopEnabled);
+        planner.setLowHopDistance(lowHopDistance.convertToUnits(LengthUnit.Millimeters).getValue());
+        planner.setLowHopClearance(
+                lowHopClearance.convertToUnits(LengthUnit.Millimeters).getValue());
+        if (pasteDispenser instanceof ReferencePasteDispenser) {
+            planner.setSafeZ(((ReferencePasteDispenser) pasteDispenser).getSafeZ()
+                    .convertToUnits(LengthUnit.Millimeters).getValue());
+        }
+
+        double[] pads = new double[dispenseLocations.length * 3];
+        for (int i = 0; i < dispenseLocations.length; i++) {
+            Location l = dispenseLocations[i].convertToUnits(LengthUnit.Millimeters);
+            pads[i * 3] = l.getX();
+            pads[i * 3 + 1] = l.getY();
+            pads[i * 3 + 2] = l.getZ();
+        }
+        Location start = pasteDispenser.getLocation().convertToUnits(LengthUnit.Millimeters);
+        return planner.plan(start.getX(), start.getY(), pads);
+    }
+
+    /**
+     * The plan for the current or last dispense, or null if there hasn't been one.
+     */
+    public PastePathPlanner.Plan getPathPlan() {
+        return pathPlan;
+    }
+
+    public boolean isOptimizePath() {
+        return optimizePath;
+    }
+
+    public void setOptimizePath(boolean optimizePath) {
+        this.optimizePath = optimizePath;
+    }
+
+    public boolean isLowHopEnabled() {
+        return lowHopEnabled;
+    }
+
+    public void setLowHopEnabled(boolean lowHopEnabled) {
+        this.lowHopEnabled = lowHopEnabled;
+    }
+
+    public Length getLowHopDistance() {
+        return lowHopDistance;
+    }
+
+    public void setLowHopDistance(Length lowHopDistance) {
+        this.lowHopDistance = lowHopDistance;
+    }
+
+    public Length getLowHopClearance() {
+        return lowHopClearance;
+    }
+
+    public void setLowHopClearance(Length lowHopClearance) {
+        this.lowHopClearance = lowHopClearance;
     }
 
 
@@ -60,7 +60,7 @@ public class ReferencePasteDispenser extends AbstractPasteDispenser
     @Override
     public void moveTo(Location location, double speed) throws Exception {
         Logger.debug("{}.moveTo({}, {})", getName(), location, speed);
-        driver.moveTo(this, location, speed);
+        machine.getHeadInterlock().moveTo(this, location, speed);
         machine.fireMachineHeadActivity(head);
     }
 
@@ -70,7 +70,7 @@ public class ReferencePasteDispenser extends AbstractPasteDispenser
         Length safeZ = this.safeZ.convertToUnits(getLocation().getUnits());
         Location l = new Location(getLocation().getUnits(), Double.NaN, Double.NaN,
                 safeZ.getValue(), Double.NaN);
-        driver.moveTo(this, l, speed);
+        machine.getHeadInterlock().moveTo(this, l, speed);
         machine.fireMachineHeadActivity(head);
     }
 
@@ -19,44 +19,63 @@
 
 package org.openpnp.machine.reference;
 
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.openpnp.gui.support.Wizard;
+import org.openpnp.machine.reference.vision.ReferenceBottomVision;
+import org.openpnp.machine.reference.vision.ReferenceBottomVision.Alignment;
 import org.openpnp.machine.reference.wizards.ReferencePnpJobProcessorConfigurationWizard;
 import org.openpnp.model.BoardLocation;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Job;
+import org.openpnp.model.Length;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
 import org.openpnp.model.Panel;
 import org.openpnp.model.Part;
 import org.openpnp.model.Placement;
 import org.openpnp.spi.Feeder;
+import org.openpnp.spi.FeederSelectionStrategy;
 import org.openpnp.spi.FiducialLocator;
 import org.openpnp.spi.Head;
 import org.openpnp.spi.Machine;
 import org.openpnp.spi.Nozzle;
 import org.openpnp.spi.NozzleTip;
 import org.openpnp.spi.PartAlignment;
+import org.openpnp.spi.PartAlignment.PartAlignmentOffset;
 import org.openpnp.spi.PnpJobProcessor.JobPlacement.Status;
 import org.openpnp.spi.base.AbstractJobProcessor;
 import org.openpnp.spi.base.AbstractPnpJobProcessor;
 import org.openpnp.util.Collect;
 import org.openpnp.util.FiniteStateMachine;
 import org.openpnp.util.MovableUtils;
+import org.openpnp.util.TimingMetrics;
 import org.openpnp.util.Utils2D;
 import org.openpnp.util.VisionUtils;
 import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Element;
 import org.simpleframework.xml.Root;
 
 @Root
@@ -103,11 +122,39 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
         }
     }
 
+    /**
+     * The work one of the steps does for a head's planned placements, see forEachHead().
+     */
+    protected interface HeadStep {
+        void run(List<PlannedPlacement> plannedPlacements) throws Exception;
+    }
 
 
     @Attribute(required = false)
     protected boolean parkWhenComplete = false;
 
+    @Attribute(required = false)
+    protected boolean journalEnabled = false;
+
+    @Attribute(required = false)
+    protected boolean prefeedEnabled = false;
+
+    @Attribute(required = false)
+    protected boolean multiHeadEnabled = false;
+
+    @Element(required = false)
+    protected Length headClearance = new Length(50, LengthUnit.Millimeters);
+
+    @Attribute(required = false)
+    protected int headInterlockTimeout = 30000;
+
+    @Attribute(required = false)
+    protected HeadInterlock.Axes headSeparationAxes = HeadInterlock.Axes.XY;
+
+    @Element(required = false)
+    protected FeederSelectionStrategy feederSelectionStrategy =
+            new ReferenceFeederSelectionStrategy();
+
     private FiniteStateMachine<State, Message> fsm = new FiniteStateMachine<>(State.Uninitialized);
 
     protected Job job;
@@ -116,16 +163,82 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
 
     protected Head head;
 
+    /**
+     * The heads the job is run on. Just the default head unless multiHeadEnabled is set.
+     */
+    protected List<Head> heads = new ArrayList<>();
+
+    /**
+     * The head whose region of the boards each placement is in, see assignRegions().
+     */
+    protected Map<JobPlacement, Head> regions = new HashMap<>();
+
+    /**
+     * A thread for each head while the heads are being run concurrently, see forEachHead().
+     */
+    private Map<Head, ExecutorService> headExecutors = new LinkedHashMap<>();
+
+    /**
+     * Feeders that a head is feeding or picking from, which the other heads must leave alone
+     * until they are released.
+     */
+    private final Set<Feeder> reservedFeeders = new HashSet<>();
+
+    /**
+     * Guards the state the heads share while they run concurrently. The job processor itself
+     * can't be used for this since next() holds it while the heads run.
+     */
+    private final Object lock = new Object();
+
     protected List<JobPlacement> jobPlacements = new ArrayList<>();
 
     protected List<PlannedPlacement> plannedPlacements = new ArrayList<>();
 
     protected Map<BoardLocation, Location> boardLocationFiducialOverrides = new HashMap<>();
+
+    /**
+     * The BoardLocations made for the fiducial overrides, reused while the override stays the
+     * same so that their cached transforms are too.
+     */
+    private Map<BoardLocation, BoardLocation> fiducialCompensatedBoardLocations = new HashMap<>();
+
+    protected JobProgressJournal journal;
+
+    /**
+     * Feeders that have been prefed for upcoming picks, by Part. doFeedAndPick() uses the Feeder
+     * recorded here rather than asking the FeederSelectionStrategy again so that the Feeder that
+     * was prefed is the one that gets picked from.
+     */
+    protected Map<Part, Feeder> prefedFeeders = new HashMap<>();
     
     long startTime;
     int totalPartsPlaced;
 
+    /**
+     * When the last part was placed, or the job started, for the "per part" job metric.
+     */
+    private long lastPlacedTime;
+
+    private final TimingMetrics metrics = TimingMetrics.get();
+
+    private long stepStartTime;
+
     public ReferencePnpJobProcessor() {
+        // Time each step. A step's task runs while it is the current state, so the time until
+        // the state changes is the time the step took. The state is also the phase the driver
+        // commands sent from now on are recorded against, see inPhase().
+        fsm.addPropertyChangeListener("state", (e) -> {
+            long now = System.nanoTime();
+            if (e.getOldValue() != null && stepStartTime != 0) {
+                metrics.record(TimingMetrics.STEP, ((State) e.getOldValue()).name(),
+                        now - stepStartTime);
+            }
+            stepStartTime = now;
+            if (TimingMetrics.getPhase() != null) {
+                TimingMetrics.setPhase(((State) e.getNewValue()).name());
+            }
+        });
+
         fsm.add(State.Uninitialized, Message.Initialize, State.PreFlight, this::doInitialize);
 
         fsm.add(State.PreFlight, Message.Next, State.FiducialCheck, this::doPreFlight,
@@ -178,6 +291,10 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
     }
 
     public synchronized boolean next() throws Exception {
+        return inPhase(this::step);
+    }
+
+    private boolean step() throws Exception {
 
         try{
             fsm.send(Message.Next);
@@ -209,11 +326,52 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
     }
 
     public synchronized void abort() throws Exception {
-        fsm.send(Message.Abort);
+        inPhase(() -> {
+            fsm.send(Message.Abort);
+            return null;
+        });
     }
 
     public synchronized void skip() throws Exception {
-        fsm.send(Message.Skip);
+        inPhase(() -> {
+            fsm.send(Message.Skip);
+            return null;
+        });
+    }
+
+    /**
+     * Run the callable with the driver commands sent meanwhile recorded against the step that is
+     * running, see TimingMetrics.setPhase(String). The state listener keeps the phase up to date
+     * as the steps change.
+     */
+    private <T> T inPhase(Callable<T> callable) throws Exception {
+        TimingMetrics.setPhase(fsm.getState().name());
+        try {
+            return callable.call();
+        }
+        finally {
+            TimingMetrics.setPhase(null);
+        }
+    }
+
+    /**
+     * Listen for the job moving from one step to the next, such as Plan, Feed, Align and Place.
+     * The new value of each event is the step being entered. A step's work is done while it is
+     * the current step, so the time between two events is the time taken by the first step.
+     */
+    public void addStateListener(PropertyChangeListener listener) {
+        fsm.addPropertyChangeListener("state", listener);
+    }
+
+    public void removeStateListener(PropertyChangeListener listener) {
+        fsm.removePropertyChangeListener("state", listener);
+    }
+
+    /**
+     * The number of parts placed since the job was started.
+     */
+    public int getTotalPartsPlaced() {
+        return totalPartsPlaced;
     }
 
     /*
@@ -264,12 +422,19 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
     protected void doPreFlight() throws Exception {
         startTime = System.currentTimeMillis();
         totalPartsPlaced = 0;
+        lastPlacedTime = System.nanoTime();
+        // Only this job's own series, the driver's keep counting across jobs.
+        metrics.reset(TimingMetrics.JOB_CATEGORIES);
         
         // Create some shortcuts for things that won't change during the run
         this.machine = Configuration.get().getMachine();
         this.head = this.machine.getDefaultHead();
+        this.heads = getJobHeads();
         this.jobPlacements.clear();
+        this.regions.clear();
         this.boardLocationFiducialOverrides.clear();
+        this.fiducialCompensatedBoardLocations.clear();
+        this.prefedFeeders.clear();
 
         fireTextStatus("Checking job for setup errors.");
 
@@ -305,22 +470,29 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
                 }
 
                 // Make sure there is at least one compatible nozzle tip available
-                findNozzleTip(head, placement.getPart());
+                findNozzleTip(heads, placement.getPart());
 
-                // Make sure there is at least one compatible and enabled feeder available
+                // Make sure there is at least one compatible and enabled feeder available. This
+                // is an index lookup, so it's cheap to repeat for every placement.
                 findFeeder(machine, placement.getPart());
 
                 jobPlacements.add(jobPlacement);
             }
         }
 
+        openJournal();
+
         // Everything looks good, so prepare the machine.
         fireTextStatus("Preparing machine.");
 
-        // Safe Z the machine
-        head.moveToSafeZ();
-        // Discard any currently picked parts
-        discardAll(head);
+        for (Head head : heads) {
+            // Safe Z the machine
+            head.moveToSafeZ();
+            // Discard any currently picked parts
+            discardAll(head);
+        }
+
+        startHeads();
         
         HashMap<String, Object> params = new HashMap<>();
         params.put("job", job);
@@ -333,14 +505,25 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
 
         FiducialLocator locator = Configuration.get().getMachine().getFiducialLocator();
         
+        // Any overrides present at this point were restored from the journal, and those boards
+        // have not moved since, so there is no need to check them again.
+        Set<BoardLocation> resumedBoardLocations =
+                new HashSet<>(boardLocationFiducialOverrides.keySet());
+
         if (job.isUsingPanel() && job.getPanels().get(0).isCheckFiducials()){
         	Panel p = job.getPanels().get(0);
         	
         	BoardLocation boardLocation = job.getBoardLocations().get(0);
         	
-        	Location location = locator.locateBoard(boardLocation, p.isCheckFiducials());
-        	boardLocationFiducialOverrides.put(boardLocation, location);
-        	Logger.debug("Panel Fiducial check for {}", boardLocation);
+        	if (!resumedBoardLocations.contains(boardLocation)) {
+        	    parkOtherHeads();
+        	    long t = System.nanoTime();
+        	    Location location = locator.locateBoard(boardLocation, p.isCheckFiducials());
+        	    metrics.record(TimingMetrics.FIDUCIAL_CHECK_BY_BOARD,
+        	            boardLocation.getBoard().getName(), System.nanoTime() - t);
+        	    setFiducialOverride(boardLocation, location);
+        	    Logger.debug("Panel Fiducial check for {}", boardLocation);
+        	}
         }
         
         for (BoardLocation boardLocation : job.getBoardLocations()) {
@@ -350,8 +533,15 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
             if (!boardLocation.isCheckFiducials()) {
                 continue;
             }
+            if (resumedBoardLocations.contains(boardLocation)) {
+                continue;
+            }
+            parkOtherHeads();
+            long t = System.nanoTime();
             Location location = locator.locateBoard(boardLocation);
-            boardLocationFiducialOverrides.put(boardLocation, location);
+            metrics.record(TimingMetrics.FIDUCIAL_CHECK_BY_BOARD,
+                    boardLocation.getBoard().getName(), System.nanoTime() - t);
+            setFiducialOverride(boardLocation, location);
             Logger.debug("Fiducial check for {}", boardLocation);
         }
     }
@@ -361,11 +551,164 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
 
         FiducialLocator locator = Configuration.get().getMachine().getFiducialLocator();
         
+        parkOtherHeads();
+        long t = System.nanoTime();
         Location location = locator.locateBoard(boardLocation);
-        boardLocationFiducialOverrides.put(boardLocation, location);
+        metrics.record(TimingMetrics.FIDUCIAL_CHECK_BY_BOARD, boardLocation.getBoard().getName(),
+                System.nanoTime() - t);
+        setFiducialOverride(boardLocation, location);
         Logger.debug("Fiducial check for {}", boardLocation);
     }
 
+    protected void setFiducialOverride(BoardLocation boardLocation, Location location) {
+        synchronized (lock) {
+            boardLocationFiducialOverrides.put(boardLocation, location);
+            if (journal != null) {
+                try {
+                    journal.fiducialOverride(job, boardLocation, location);
+                }
+                catch (IOException e) {
+                    journalFailed(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * If journaling is enabled and the job has been saved, replay any journal left by a run of
+     * this job that was interrupted by a crash, and then open it for appending. A run that is
+     * stopped normally removes its journal in doCleanup(). Placements and fiducial checks
+     * restored from the journal are not repeated.
+     */
+    protected void openJournal() throws Exception {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        if (!journalEnabled) {
+            return;
+        }
+        File file = JobProgressJournal.getJournalFile(job);
+        if (file == null) {
+            Logger.info("Job has not been saved, not journaling progress.");
+            return;
+        }
+        journal = new JobProgressJournal(file, 16, 1000);
+        int restored = journal.replay(job, jobPlacements, boardLocationFiducialOverrides);
+        if (restored > 0 || !boardLocationFiducialOverrides.isEmpty()) {
+            Logger.info("Resuming job from {}: {} placements and {} fiducial checks restored.",
+                    file, restored, boardLocationFiducialOverrides.size());
+        }
+        journal.open(true);
+    }
+
+    protected void journalPlacement(JobPlacement jobPlacement) {
+        synchronized (lock) {
+            if (journal == null) {
+                return;
+            }
+            try {
+                if (jobPlacement.status == Status.Complete) {
+                    journal.placementCompleted(job, jobPlacement);
+                }
+                else if (jobPlacement.status == Status.Skipped) {
+                    journal.placementSkipped(job, jobPlacement);
+                }
+            }
+            catch (IOException e) {
+                journalFailed(e);
+            }
+        }
+    }
+
+    /**
+     * A journal failure should never stop the job, so it is logged and journaling is turned off
+     * for the rest of the run.
+     */
+    protected void journalFailed(Exception e) {
+        Logger.warn(e, "Unable to write job journal {}, journaling disabled for this run.",
+                journal.getFile());
+        try {
+            journal.close();
+        }
+        catch (Exception e1) {
+        }
+        journal = null;
+    }
+
+    /**
+     * Plan the next cycle for each of the heads in turn. With more than one head each head plans
+     * from the placements in its own region of the boards first, see assignRegions(), and once
+     * there is nothing left there that it can place it takes placements from the other regions.
+     */
+    protected void doPlan() throws Exception {
+        plannedPlacements.clear();
+
+        fireTextStatus("Planning placements.");
+
+        if (heads.size() > 1 && regions.isEmpty()) {
+            assignRegions();
+        }
+
+        for (Head head : heads) {
+            // Get the list of unfinished placements and sort them by part height.
+            List<JobPlacement> jobPlacements = getPendingJobPlacements().stream()
+                    .sorted(Comparator.comparing(JobPlacement::getPartHeight))
+                    .collect(Collectors.toList());
+
+            if (jobPlacements.isEmpty()) {
+                break;
+            }
+
+            if (heads.size() > 1) {
+                List<JobPlacement> region = jobPlacements.stream()
+                        .filter(jobPlacement -> regions.get(jobPlacement) == head)
+                        .collect(Collectors.toList());
+                if (!region.isEmpty() && plan(head, region)) {
+                    continue;
+                }
+            }
+            plan(head, jobPlacements);
+        }
+
+        Logger.debug("Planned placements {}", plannedPlacements);
+    }
+
+    /**
+     * Divide the pending placements between the heads by where they are on the boards, so that
+     * heads running at the same time work in different parts of the machine. The boards are cut
+     * into strips across the axis the heads are kept apart along, or if they are kept apart in
+     * both the one along which their park locations are furthest apart, with the same number of
+     * placements in each strip, and each head gets the strip on its side.
+     */
+    protected void assignRegions() {
+        List<Location> parkLocations = heads.stream()
+                .map(head -> head.getParkLocation().convertToUnits(LengthUnit.Millimeters))
+                .collect(Collectors.toList());
+        double spreadX = parkLocations.stream().mapToDouble(Location::getX).max().getAsDouble()
+                - parkLocations.stream().mapToDouble(Location::getX).min().getAsDouble();
+        double spreadY = parkLocations.stream().mapToDouble(Location::getY).max().getAsDouble()
+                - parkLocations.stream().mapToDouble(Location::getY).min().getAsDouble();
+        boolean alongY = headSeparationAxes == HeadInterlock.Axes.XY ? spreadY > spreadX
+                : headSeparationAxes == HeadInterlock.Axes.Y;
+
+        List<Head> sortedHeads = new ArrayList<>(heads);
+        sortedHeads.sort(Comparator.comparingDouble(head -> {
+            Location l = head.getParkLocation().convertToUnits(LengthUnit.Millimeters);
+            return alongY ? l.getY() : l.getX();
+        }));
+        List<JobPlacement> jobPlacements = getPendingJobPlacements();
+        jobPlacements.sort(Comparator.comparingDouble(jobPlacement -> {
+            Location l = Utils2D.calculateBoardPlacementLocation(jobPlacement.boardLocation,
+                    jobPlacement.placement.getLocation()).convertToUnits(LengthUnit.Millimeters);
+            return alongY ? l.getY() : l.getX();
+        }));
+        for (int i = 0; i < jobPlacements.size(); i++) {
+            regions.put(jobPlacements.get(i),
+                    sortedHeads.get(i * sortedHeads.size() / jobPlacements.size()));
+        }
+    }
+
     /**
      * Description of the planner:
      * 
@@ -390,21 +733,10 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
      * want to fill all nozzles and perform minimal nozzle changes. Based on IRC discussion, the
      * part height thing might be a red herring - most machines will have enough Z to place all
      * parts regardless of height order.
+     * 
+     * Returns true if anything was planned for the head.
      */
-    protected void doPlan() throws Exception {
-        plannedPlacements.clear();
-
-        fireTextStatus("Planning placements.");
-
-        // Get the list of unfinished placements and sort them by part height.
-        List<JobPlacement> jobPlacements = getPendingJobPlacements().stream()
-                .sorted(Comparator.comparing(JobPlacement::getPartHeight))
-                .collect(Collectors.toList());
-
-        if (jobPlacements.isEmpty()) {
-            return;
-        }
-
+    protected boolean plan(Head head, List<JobPlacement> jobPlacements) throws Exception {
         // Create a List of Lists of JobPlacements that each Nozzle can handle, including
         // one instance of null per Nozzle. The null indicates a possible "no solution"
         // for that Nozzle.
@@ -440,11 +772,12 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
                 })
                 // Sort by the solutions that contain the fewest nulls followed by the
                 // solutions that require the fewest nozzle changes.
-                .sorted(byFewestNulls.thenComparing(byFewestNozzleChanges))
+                .sorted(byFewestNulls.thenComparing(byFewestNozzleChanges(head)))
                 // And return the top result.
                 .findFirst().orElse(null);
 
         // Now we have a solution, so apply it to the nozzles and plan the placements.
+        boolean planned = false;
         for (Nozzle nozzle : head.getNozzles()) {
             // The solution is in Nozzle order, so grab the next one.
             JobPlacement jobPlacement = result.remove(0);
@@ -453,12 +786,17 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
             }
             jobPlacement.status = Status.Processing;
             plannedPlacements.add(new PlannedPlacement(nozzle, jobPlacement));
+            planned = true;
         }
-
-        Logger.debug("Planned placements {}", plannedPlacements);
+        return planned;
     }
 
     protected void doChangeNozzleTip() throws Exception {
+        forEachHead(this::changeNozzleTips);
+        clearStepComplete();
+    }
+
+    protected void changeNozzleTips(List<PlannedPlacement> plannedPlacements) throws Exception {
         for (PlannedPlacement plannedPlacement : plannedPlacements) {
             if (plannedPlacement.stepComplete) {
                 continue;
@@ -482,14 +820,15 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
             NozzleTip nozzleTip = findNozzleTip(nozzle, part);
             Logger.debug("Change nozzle tip on {} from {} to {}",
                     new Object[] {nozzle, nozzle.getNozzleTip(), nozzleTip});
+            long t = System.nanoTime();
             nozzle.unloadNozzleTip();
             nozzle.loadNozzleTip(nozzleTip);
+            metrics.record(TimingMetrics.NOZZLE_CHANGE_BY_NOZZLE, nozzle.getId(),
+                    System.nanoTime() - t);
 
             // Mark this step as complete
             plannedPlacement.stepComplete = true;
         }
-
-        clearStepComplete();
     }
 
     /*
@@ -512,6 +851,16 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
      * https://imgur.com/a/63Y1t
      */
     protected void doFeedAndPick() throws Exception {
+        forEachHead(this::feedAndPick);
+
+        clearStepComplete();
+
+        // Everything for this cycle has been picked, so start advancing the feeders for the next
+        // one while the heads go off to align and place.
+        prefeedNextCycle();
+    }
+
+    protected void feedAndPick(List<PlannedPlacement> plannedPlacements) throws Exception {
         for (PlannedPlacement plannedPlacement : plannedPlacements) {
             if (plannedPlacement.stepComplete) {
                 continue;
@@ -525,10 +874,11 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
                 Exception lastError = null;
                 Feeder lastErrorFeeder = null;
                 while (true) {
-                    // Find a compatible, enabled feeder
+                    // Find a compatible, enabled feeder, preferring one that was prefed for
+                    // this part.
                     Feeder feeder;
                     try {
-                        feeder = findFeeder(machine, part);
+                        feeder = reserveFeeder(part, nozzle);
                     }
                     catch (Exception e) {
                         if (lastError != null) {
@@ -546,6 +896,7 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
 
                     // Feed the part
                     try {
+                        long t = System.nanoTime();
                         // Try to feed the part. If it fails, retry the specified number of times
                         // before
                         // giving up.
@@ -560,6 +911,9 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
                             Logger.debug("Fed {} from {} with {}.",
                                     new Object[] {part, feeder, nozzle});
                         });
+                        long dt = System.nanoTime() - t;
+                        metrics.record(TimingMetrics.FEED_BY_FEEDER, feeder.getId(), dt);
+                        metrics.record(TimingMetrics.FEED_BY_PART, part.getId(), dt);
 
                         break;
                     }
@@ -570,6 +924,7 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
                         // more valid feeders the findFeeder() call above will throw and exit the
                         // loop.
                         feeder.setEnabled(false);
+                        releaseFeeder(feeder);
                         lastErrorFeeder = feeder;
                         lastError = e;
                     }
@@ -580,33 +935,160 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
             // Get the feeder that was used to feed
             Feeder feeder = plannedPlacement.feeder;
 
-            // Move to the pick location
-            MovableUtils.moveToLocationAtSafeZ(nozzle, feeder.getPickLocation());
+            long pickStartTime = System.nanoTime();
 
-            fireTextStatus("Picking %s from %s for %s.", part.getId(), feeder.getName(),
-                    placement.getId());
-            
-            ++totalPartsPlaced;
+            try {
+                // Move to the pick location
+                MovableUtils.moveToLocationAtSafeZ(nozzle, feeder.getPickLocation());
 
-            // Pick
-            nozzle.pick(part);
+                fireTextStatus("Picking %s from %s for %s.", part.getId(), feeder.getName(),
+                        placement.getId());
 
-            // Retract
-            nozzle.moveToSafeZ();
+                // Pick
+                try {
+                    nozzle.pick(part);
+                }
+                catch (Exception e) {
+                    // Let the feeder recover, such as by looking at the tape again on the next
+                    // feed.
+                    feeder.pickFailed(nozzle);
+                    throw e;
+                }
+
+                // Retract
+                nozzle.moveToSafeZ();
 
-            Logger.debug("Pick {} from {} with {}", part, feeder, nozzle);
+                long pickTime = System.nanoTime() - pickStartTime;
+                metrics.record(TimingMetrics.PICK_BY_NOZZLE, nozzle.getId(), pickTime);
+                metrics.record(TimingMetrics.PICK_BY_FEEDER, feeder.getId(), pickTime);
+                metrics.record(TimingMetrics.PICK_BY_PART, part.getId(), pickTime);
 
-            if (feeder != null) {
-                feeder.postPick(nozzle);
+                Logger.debug("Pick {} from {} with {}", part, feeder, nozzle);
+
+                if (feeder != null) {
+                    feeder.postPick(nozzle);
+                }
+            }
+            finally {
+                releaseFeeder(feeder);
             }
 
             plannedPlacement.stepComplete = true;
         }
+    }
 
-        clearStepComplete();
+    /**
+     * Find a compatible, enabled Feeder for the Part that no other head is using and reserve it
+     * for the Nozzle, preferring the one that was prefed for the Part. If every Feeder for the
+     * Part is reserved this waits for one to be released. Release it with releaseFeeder() once
+     * the part has been picked.
+     */
+    protected Feeder reserveFeeder(Part part, Nozzle nozzle) throws Exception {
+        synchronized (reservedFeeders) {
+            Feeder feeder = takePrefedFeeder(part);
+            while (feeder == null || reservedFeeders.contains(feeder)) {
+                List<Feeder> feeders = new ArrayList<>(machine.getFeeders(part));
+                if (!feeders.removeAll(reservedFeeders)) {
+                    feeder = findFeeder(machine, part, nozzle, feederSelectionStrategy);
+                }
+                else if (feeders.isEmpty()) {
+                    reservedFeeders.wait();
+                }
+                else {
+                    feeder = feederSelectionStrategy.select(part, feeders, nozzle);
+                }
+            }
+            reservedFeeders.add(feeder);
+            return feeder;
+        }
+    }
+
+    protected void releaseFeeder(Feeder feeder) {
+        synchronized (reservedFeeders) {
+            reservedFeeders.remove(feeder);
+            reservedFeeders.notifyAll();
+        }
+    }
+
+    /**
+     * Guess the Parts the planner will choose for the next cycle and prefeed a Feeder for each of
+     * them. This mirrors the planner's ordering, and with more than one head the regions it
+     * assigns them, but not its nozzle matching, so it may guess wrong. Each head's Parts are
+     * prefed for that head's default nozzle, so the Feeders chosen are the ones near the head
+     * that will pick from them. A wrong guess costs nothing: the prefed part stays in its Feeder
+     * and is used the next time that Feeder is fed.
+     * 
+     * Prefeeding is done here on the machine thread rather than in the background because drivers
+     * are not safe to call from more than one thread. Firing the actuator is quick, and it's the
+     * mechanical advance that follows which overlaps with the rest of the cycle.
+     */
+    protected void prefeedNextCycle() {
+        if (!prefeedEnabled) {
+            return;
+        }
+        for (Head head : heads) {
+            List<Part> parts = getPendingJobPlacements().stream()
+                    .filter(jobPlacement -> regions.getOrDefault(jobPlacement, head) == head)
+                    .sorted(Comparator.comparing(JobPlacement::getPartHeight))
+                    .map(jobPlacement -> jobPlacement.placement.getPart())
+                    .distinct()
+                    .limit(head.getNozzles().size())
+                    .collect(Collectors.toList());
+            Nozzle nozzle = head.getDefaultNozzle();
+            for (Part part : parts) {
+                if (prefedFeeders.containsKey(part)) {
+                    continue;
+                }
+                Feeder feeder;
+                try {
+                    feeder = findFeeder(machine, part, nozzle, feederSelectionStrategy);
+                }
+                catch (Exception e) {
+                    // The feed step will report this properly if it happens for real.
+                    continue;
+                }
+                try {
+                    // Only remember Feeders that actually have a part waiting, so the others
+                    // are chosen by the FeederSelectionStrategy as usual when it's time to feed.
+                    if (feeder.prefeed(nozzle)) {
+                        synchronized (lock) {
+                            prefedFeeders.put(part, feeder);
+                        }
+                        Logger.debug("Prefed {} from {}.", part.getId(), feeder.getName());
+                    }
+                }
+                catch (Exception e) {
+                    // The Feeder is left unfed, so the normal feed will try again and apply the
+                    // usual retry and disable handling if it still fails.
+                    Logger.warn(e, "Prefeed {} from {} failed, it will be fed normally.",
+                            part.getId(), feeder.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove and return the Feeder that was prefed for the Part, if it is still enabled and still
+     * serving the Part.
+     */
+    protected Feeder takePrefedFeeder(Part part) {
+        Feeder feeder;
+        synchronized (lock) {
+            feeder = prefedFeeders.remove(part);
+        }
+        if (feeder == null || !feeder.isEnabled() || feeder.getPart() != part) {
+            return null;
+        }
+        return feeder;
     }
 
     protected void doAlign() throws Exception {
+        forEachHead(this::align);
+        clearStepComplete();
+    }
+
+    protected void align(List<PlannedPlacement> plannedPlacements) throws Exception {
+        alignTogether(plannedPlacements);
         for (PlannedPlacement plannedPlacement : plannedPlacements) {
             if (plannedPlacement.stepComplete) {
                 continue;
@@ -623,11 +1105,15 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
             BoardLocation boardLocation = getFiducialCompensatedBoardLocation(jobPlacement.boardLocation);
             
             if(partAlignment!=null) {
+                long t = System.nanoTime();
                 plannedPlacement.alignmentOffsets = VisionUtils.findPartAlignmentOffsets(
                         partAlignment,
                         part,
                         boardLocation,
                         placement.getLocation(), nozzle);
+                long dt = System.nanoTime() - t;
+                metrics.record(TimingMetrics.ALIGN_BY_NOZZLE, nozzle.getId(), dt);
+                metrics.record(TimingMetrics.ALIGN_BY_PART, part.getId(), dt);
                 Logger.debug("Align {} with {}", part, nozzle);
             }
             else
@@ -638,11 +1124,102 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
 
             plannedPlacement.stepComplete = true;
         }
+    }
 
-        clearStepComplete();
+    /**
+     * Align the parts on each head that use the same ReferenceBottomVision and that it can align
+     * together, so that the pipelines run while the other nozzles are captured. See
+     * ReferenceBottomVision.findOffsets(List). Placements it doesn't align are left to align().
+     */
+    protected void alignTogether(List<PlannedPlacement> plannedPlacements) throws Exception {
+        Map<Head, Map<ReferenceBottomVision, List<PlannedPlacement>>> groups =
+                new LinkedHashMap<>();
+        for (PlannedPlacement plannedPlacement : plannedPlacements) {
+            Part part = plannedPlacement.jobPlacement.placement.getPart();
+            PartAlignment partAlignment = findPartAligner(machine, part);
+            if (plannedPlacement.stepComplete || !(partAlignment instanceof ReferenceBottomVision)
+                    || !((ReferenceBottomVision) partAlignment).canAlignTogether(part)) {
+                continue;
+            }
+            groups.computeIfAbsent(plannedPlacement.nozzle.getHead(), h -> new LinkedHashMap<>())
+                  .computeIfAbsent((ReferenceBottomVision) partAlignment,
+                          a -> new ArrayList<>())
+                  .add(plannedPlacement);
+        }
+        for (Map<ReferenceBottomVision, List<PlannedPlacement>> headGroups : groups.values()) {
+            for (Entry<ReferenceBottomVision, List<PlannedPlacement>> group : headGroups
+                    .entrySet()) {
+                if (group.getValue().size() > 1) {
+                    alignTogether(group.getKey(), group.getValue());
+                }
+            }
+        }
+    }
+
+    private void alignTogether(ReferenceBottomVision bottomVision,
+            List<PlannedPlacement> plannedPlacements) throws Exception {
+        fireTextStatus("Aligning %d parts on head %s.", plannedPlacements.size(),
+                plannedPlacements.get(0).nozzle.getHead().getName());
+        List<Alignment> alignments = new ArrayList<>();
+        for (PlannedPlacement plannedPlacement : plannedPlacements) {
+            JobPlacement jobPlacement = plannedPlacement.jobPlacement;
+            alignments.add(new Alignment(jobPlacement.placement.getPart(),
+                    getFiducialCompensatedBoardLocation(jobPlacement.boardLocation),
+                    jobPlacement.placement.getLocation(), plannedPlacement.nozzle));
+        }
+        long t = System.nanoTime();
+        List<Future<PartAlignmentOffset>> futures = bottomVision.findOffsets(alignments);
+        // Collect every result before reporting an error, so that the parts that were aligned
+        // don't have to be aligned again.
+        Exception error = null;
+        for (int i = 0; i < futures.size(); i++) {
+            PlannedPlacement plannedPlacement = plannedPlacements.get(i);
+            Nozzle nozzle = plannedPlacement.nozzle;
+            Part part = plannedPlacement.jobPlacement.placement.getPart();
+            try {
+                plannedPlacement.alignmentOffsets = futures.get(i).get();
+            }
+            catch (InterruptedException e) {
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+                throw e;
+            }
+            catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof Exception ? (Exception) e.getCause()
+                            : new Exception(e.getCause());
+                }
+                continue;
+            }
+            long dt = System.nanoTime() - t;
+            metrics.record(TimingMetrics.ALIGN_BY_NOZZLE, nozzle.getId(), dt);
+            metrics.record(TimingMetrics.ALIGN_BY_PART, part.getId(), dt);
+            Logger.debug("Align {} with {}", part, nozzle);
+            plannedPlacement.stepComplete = true;
+        }
+        if (error != null) {
+            throw error;
+        }
     }
 
     protected void doPlace() throws Exception {
+        if (!headExecutors.isEmpty()) {
+            // Individual fiducial checks use the default head's camera, so when the heads are
+            // running concurrently they are done here, before the heads go off to place.
+            for (PlannedPlacement plannedPlacement : plannedPlacements) {
+                JobPlacement jobPlacement = plannedPlacement.jobPlacement;
+                if (!plannedPlacement.stepComplete && jobPlacement.placement.getCheckFids()
+                        && jobPlacement.boardLocation.isEnabled()) {
+                    doIndividualFiducialCheck(jobPlacement.boardLocation);
+                }
+            }
+        }
+        forEachHead(this::place);
+        clearStepComplete();
+    }
+
+    protected void place(List<PlannedPlacement> plannedPlacements) throws Exception {
         for (PlannedPlacement plannedPlacement : plannedPlacements) {
             if (plannedPlacement.stepComplete) {
                 continue;
@@ -653,7 +1230,9 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
             Part part = placement.getPart();
             BoardLocation boardLocation = plannedPlacement.jobPlacement.boardLocation;
             //Check if the individual piece has a fiducial check and check to see if the board is enabled
-            if(jobPlacement.placement.getCheckFids()&&jobPlacement.boardLocation.isEnabled()) {
+            //When the heads are running concurrently doPlace() has already done it.
+            if (headExecutors.isEmpty() && jobPlacement.placement.getCheckFids()
+                    && jobPlacement.boardLocation.isEnabled()) {
                 doIndividualFiducialCheck(jobPlacement.boardLocation);
             }
 
@@ -708,6 +1287,8 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
             placementLocation = placementLocation.add(new Location(part.getHeight().getUnits(), 0,
                     0, part.getHeight().getValue(), 0));
 
+            long placeStartTime = System.nanoTime();
+
             // Move to the placement location
             MovableUtils.moveToLocationAtSafeZ(nozzle, placementLocation);
 
@@ -719,35 +1300,69 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
             // Retract
             nozzle.moveToSafeZ();
 
+            long placeTime = System.nanoTime() - placeStartTime;
+            metrics.record(TimingMetrics.PLACE_BY_NOZZLE, nozzle.getId(), placeTime);
+            metrics.record(TimingMetrics.PLACE_BY_PART, part.getId(), placeTime);
+
             // Mark the placement as finished
             jobPlacement.status = Status.Complete;
+            journalPlacement(jobPlacement);
+
+            synchronized (lock) {
+                ++totalPartsPlaced;
+                // With more than one head this is the time between placements by any of them,
+                // so the samples still add up to the time the job took.
+                long now = System.nanoTime();
+                metrics.record(TimingMetrics.JOB, "per part", now - lastPlacedTime);
+                lastPlacedTime = now;
+            }
 
             plannedPlacement.stepComplete = true;
 
             Logger.debug("Place {} with {}", part, nozzle.getName());
         }
-
-        clearStepComplete();
     }
 
     protected void doCleanup() throws Exception {
         fireTextStatus("Cleaning up.");
 
-        // Safe Z the machine
-        head.moveToSafeZ();
-        
-        // Discard any currently picked parts
-        discardAll(head);
+        // The journal is only for resuming a run that never got here, after a crash or power
+        // loss. A job that finished has nothing to resume, and one the user stopped is started
+        // over, so the journal is removed first in case cleaning up the machine fails.
+        if (journal != null) {
+            JobProgressJournal journal = this.journal;
+            this.journal = null;
+            journal.delete();
+        }
+
+        // When the heads have been running concurrently they are cleaned up one at a time, and
+        // each one is parked afterwards so that it is out of the way of the next.
+        boolean concurrent = !headExecutors.isEmpty();
 
-        // Safe Z the machine
-        head.moveToSafeZ();
+        try {
+            for (Head head : heads) {
+                // Safe Z the machine
+                head.moveToSafeZ();
 
-        if (parkWhenComplete) {
-            fireTextStatus("Park nozzle.");
-            MovableUtils.moveToLocationAtSafeZ(head.getDefaultNozzle(), head.getParkLocation());
+                // Discard any currently picked parts
+                discardAll(head);
+
+                // Safe Z the machine
+                head.moveToSafeZ();
+
+                if (parkWhenComplete || concurrent) {
+                    fireTextStatus("Park nozzle.");
+                    MovableUtils.moveToLocationAtSafeZ(head.getDefaultNozzle(),
+                            head.getParkLocation());
+                }
+            }
         }
-        
+        finally {
+            stopHeads();
+        }
+
         double dtSec = (System.currentTimeMillis() - startTime)/1000.0;
+        metrics.record(TimingMetrics.JOB, "total", (long) (dtSec * 1e9));
         DecimalFormat df = new DecimalFormat("###,###.0");
         
         Logger.info("Job finished {} parts in {} sec. This is {} pph", totalPartsPlaced, df.format(dtSec), df.format(totalPartsPlaced / (dtSec / 3600.0)));
@@ -759,26 +1374,205 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
     }
 
     protected void doReset() throws Exception {
+        stopHeads();
         this.job = null;
     }
 
     /**
      * Discard the picked part, if any. Remove the currently processing PlannedPlacement from the
-     * list and mark the JobPlacement as Skipped.
+     * list and mark the JobPlacement as Skipped. The currently processing PlannedPlacement is the
+     * first one the current step has not completed, which is the one that failed.
      * 
      * @throws Exception
      */
     protected void doSkip() throws Exception {
         if (plannedPlacements.size() > 0) {
-            PlannedPlacement plannedPlacement = plannedPlacements.remove(0);
+            PlannedPlacement plannedPlacement = plannedPlacements.stream()
+                    .filter(p -> !p.stepComplete)
+                    .findFirst()
+                    .orElse(plannedPlacements.get(0));
+            plannedPlacements.remove(plannedPlacement);
             JobPlacement jobPlacement = plannedPlacement.jobPlacement;
             Nozzle nozzle = plannedPlacement.nozzle;
             discard(nozzle);
             jobPlacement.status = Status.Skipped;
+            journalPlacement(jobPlacement);
             Logger.debug("Skipped {}", jobPlacement.placement);
         }
     }
 
+    /**
+     * The heads to run the job on: every head with nozzles if multiHeadEnabled is set, otherwise
+     * just the default head.
+     */
+    protected List<Head> getJobHeads() {
+        if (!multiHeadEnabled) {
+            return Collections.singletonList(head);
+        }
+        List<Head> heads = new ArrayList<>();
+        for (Head head : machine.getHeads()) {
+            if (!head.getNozzles().isEmpty()) {
+                heads.add(head);
+            }
+        }
+        return heads.isEmpty() ? Collections.singletonList(head) : heads;
+    }
+
+    /**
+     * Make sure that at least one of the heads has a nozzle tip that can handle the part.
+     */
+    protected static void findNozzleTip(List<Head> heads, Part part) throws Exception {
+        Exception lastError = null;
+        for (Head head : heads) {
+            try {
+                findNozzleTip(head, part);
+                return;
+            }
+            catch (Exception e) {
+                lastError = e;
+            }
+        }
+        throw lastError;
+    }
+
+    /**
+     * If there is more than one head arm the machine's HeadInterlock to keep them out of each
+     * other's way, and if the driver can move them concurrently start a thread for each head.
+     * Otherwise the heads take turns on the job's thread, see forEachHead().
+     */
+    protected void startHeads() throws Exception {
+        stopHeads();
+        if (heads.size() < 2 || !(machine instanceof ReferenceMachine)) {
+            return;
+        }
+        ReferenceMachine referenceMachine = (ReferenceMachine) machine;
+        HeadInterlock interlock = referenceMachine.getHeadInterlock();
+        interlock.setClearance(headClearance);
+        interlock.setTimeoutMilliseconds(headInterlockTimeout);
+        interlock.setAxes(headSeparationAxes);
+        interlock.setEnabled(true);
+        for (Head head : heads) {
+            if (head.getDefaultNozzle() instanceof ReferenceHeadMountable) {
+                interlock.register((ReferenceHeadMountable) head.getDefaultNozzle());
+            }
+        }
+        if (!referenceMachine.getDriver().supportsConcurrentHeads()) {
+            Logger.info("The driver can't move heads concurrently, they will take turns.");
+            return;
+        }
+        for (Head head : heads) {
+            headExecutors.put(head, Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Head " + head.getName());
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    protected void stopHeads() {
+        for (ExecutorService executor : headExecutors.values()) {
+            executor.shutdownNow();
+        }
+        headExecutors.clear();
+        if (machine instanceof ReferenceMachine) {
+            ((ReferenceMachine) machine).getHeadInterlock().setEnabled(false);
+        }
+    }
+
+    /**
+     * Run a step for the planned placements. When the heads are running concurrently each head's
+     * placements are handed to its own thread, and this waits for all of them to finish so that
+     * the heads go on to the next step together. A head that finishes early and is in the way of
+     * one that hasn't moves to its park location. Otherwise the heads take turns here, each
+     * running the step for its own placements once the other heads have been parked.
+     */
+    protected void forEachHead(HeadStep step) throws Exception {
+        if (headExecutors.isEmpty()) {
+            if (heads.size() < 2) {
+                step.run(plannedPlacements);
+                return;
+            }
+            for (Head head : heads) {
+                List<PlannedPlacement> plannedPlacements = this.plannedPlacements.stream()
+                        .filter(plannedPlacement -> plannedPlacement.nozzle.getHead() == head)
+                        .collect(Collectors.toList());
+                if (!plannedPlacements.isEmpty()) {
+                    parkOtherHeads(head);
+                    step.run(plannedPlacements);
+                }
+            }
+            return;
+        }
+        HeadInterlock interlock = ((ReferenceMachine) machine).getHeadInterlock();
+        AtomicInteger running = new AtomicInteger(headExecutors.size());
+        String phase = TimingMetrics.getPhase();
+        List<Future<?>> futures = new ArrayList<>();
+        for (Entry<Head, ExecutorService> entry : headExecutors.entrySet()) {
+            Head head = entry.getKey();
+            List<PlannedPlacement> plannedPlacements = this.plannedPlacements.stream()
+                    .filter(plannedPlacement -> plannedPlacement.nozzle.getHead() == head)
+                    .collect(Collectors.toList());
+            futures.add(entry.getValue().submit(() -> {
+                TimingMetrics.setPhase(phase);
+                try {
+                    step.run(plannedPlacements);
+                }
+                finally {
+                    running.decrementAndGet();
+                    interlock.signal();
+                }
+                if (interlock.awaitBlocking(head, () -> running.get() == 0)) {
+                    fireTextStatus("Moving head %s out of the way.", head.getName());
+                    MovableUtils.moveToLocationAtSafeZ(head.getDefaultNozzle(),
+                            head.getParkLocation());
+                }
+                return null;
+            }));
+        }
+        Exception error = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                for (Future<?> f : futures) {
+                    f.cancel(true);
+                }
+                throw e;
+            }
+            catch (ExecutionException e) {
+                if (error == null) {
+                    error = e.getCause() instanceof Exception ? (Exception) e.getCause()
+                            : new Exception(e.getCause());
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Fiducial checks use the default head's camera, so when the job is run on more than one
+     * head the other heads are parked first to make sure they are out of its way.
+     */
+    protected void parkOtherHeads() throws Exception {
+        parkOtherHeads(this.head);
+    }
+
+    /**
+     * Move every head but the given one to its park location, if it isn't there already.
+     */
+    protected void parkOtherHeads(Head except) throws Exception {
+        for (Head head : heads) {
+            if (head != except && head.getDefaultNozzle().getLocation()
+                    .getLinearDistanceTo(head.getParkLocation()) > 0.001) {
+                MovableUtils.moveToLocationAtSafeZ(head.getDefaultNozzle(),
+                        head.getParkLocation());
+            }
+        }
+    }
+
     protected void clearStepComplete() {
         for (PlannedPlacement plannedPlacement : plannedPlacements) {
             plannedPlacement.stepComplete = false;
@@ -808,6 +1602,62 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
         this.parkWhenComplete = parkWhenComplete;
     }
     
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    public boolean isPrefeedEnabled() {
+        return prefeedEnabled;
+    }
+
+    public void setPrefeedEnabled(boolean prefeedEnabled) {
+        this.prefeedEnabled = prefeedEnabled;
+    }
+
+    public boolean isMultiHeadEnabled() {
+        return multiHeadEnabled;
+    }
+
+    public void setMultiHeadEnabled(boolean multiHeadEnabled) {
+        this.multiHeadEnabled = multiHeadEnabled;
+    }
+
+    public Length getHeadClearance() {
+        return headClearance;
+    }
+
+    public void setHeadClearance(Length headClearance) {
+        this.headClearance = headClearance;
+    }
+
+    public int getHeadInterlockTimeout() {
+        return headInterlockTimeout;
+    }
+
+    public void setHeadInterlockTimeout(int headInterlockTimeout) {
+        this.headInterlockTimeout = headInterlockTimeout;
+    }
+
+    public HeadInterlock.Axes getHeadSeparationAxes() {
+        return headSeparationAxes;
+    }
+
+    public void setHeadSeparationAxes(HeadInterlock.Axes headSeparationAxes) {
+        this.headSeparationAxes = headSeparationAxes;
+    }
+
+    public FeederSelectionStrategy getFeederSelectionStrategy() {
+        return feederSelectionStrategy;
+    }
+
+    public void setFeederSelectionStrategy(FeederSelectionStrategy feederSelectionStrategy) {
+        this.feederSelectionStrategy = feederSelectionStrategy;
+    }
+
     public List<JobPlacement> getJobPlacementsById(String id) { 
         return jobPlacements.stream().filter((jobPlacement) -> {
             return jobPlacement.toString() == id;
@@ -825,38 +1675,49 @@ public class ReferencePnpJobProcessor extends AbstractPnpJobProcessor {
         return Collections.frequency(a, null) - Collections.frequency(b, null);
     };
 
-    // Sort a List<JobPlacement> by the number of nozzle changes it will require in
+    // Sort a List<JobPlacement> by the number of nozzle changes it will require on the head in
     // descending order.
-    Comparator<List<JobPlacement>> byFewestNozzleChanges = (a, b) -> {
-        int countA = 0, countB = 0;
-        for (int i = 0; i < head.getNozzles().size(); i++) {
-            Nozzle nozzle = head.getNozzles().get(i);
-            JobPlacement jpA = a.get(i);
-            JobPlacement jpB = b.get(i);
-            if (nozzle.getNozzleTip() == null) {
-                countA++;
-                countB++;
-                continue;
-            }
-            if (jpA != null && !nozzle.getNozzleTip().canHandle(jpA.placement.getPart())) {
-                countA++;
-            }
-            if (jpB != null && !nozzle.getNozzleTip().canHandle(jpB.placement.getPart())) {
-                countB++;
+    static Comparator<List<JobPlacement>> byFewestNozzleChanges(Head head) {
+        return (a, b) -> {
+            int countA = 0, countB = 0;
+            for (int i = 0; i < head.getNozzles().size(); i++) {
+                Nozzle nozzle = head.getNozzles().get(i);
+                JobPlacement jpA = a.get(i);
+                JobPlacement jpB = b.get(i);
+                if (nozzle.getNozzleTip() == null) {
+                    countA++;
+                    countB++;
+                    continue;
+                }
+                if (jpA != null && !nozzle.getNozzleTip().canHandle(jpA.placement.getPart())) {
+                    countA++;
+                }
+                if (jpB != null && !nozzle.getNozzleTip().canHandle(jpB.placement.getPart())) {
+                    countB++;
+                }
             }
-        }
-        return countA - countB;
-    };
+            return countA - countB;
+        };
+    }
     
     BoardLocation getFiducialCompensatedBoardLocation(BoardLocation boardLocation) {
-        // Check if there is a fiducial override for the board location and if so, use it.
-        if (boardLocationFiducialOverrides.containsKey(boardLocation)) {
-            BoardLocation boardLocation2 = new BoardLocation(boardLocation.getBoard());
-            boardLocation2.setSide(boardLocation.getSide());
-            boardLocation2.setLocation(boardLocationFiducialOverrides.get(boardLocation));
-            return boardLocation2;
-        }
-        return boardLocation;
+        synchronized (lock) {
+            // Check if there is a fiducial override for the board location and if so, use it.
+            Location override = boardLocationFiducialOverrides.get(boardLocation);
+            if (override != null) {
+                BoardLocation boardLocation2 = fiducialCompensatedBoardLocations.get(boardLocation);
+                if (boardLocation2 == null || boardLocation2.getLocation() != override
+                        || boardLocation2.getBoard() != boardLocation.getBoard()
+                        || boardLocation2.getSide() != boardLocation.getSide()) {
+                    boardLocation2 = new BoardLocation(boardLocation.getBoard());
+                    boardLocation2.setSide(boardLocation.getSide());
+                    boardLocation2.setLocation(override);
+                    fiducialCompensatedBoardLocations.put(boardLocation, boardLocation2);
+                }
+                return boardLocation2;
+            }
+            return boardLocation;
+        }
     }
 
 }
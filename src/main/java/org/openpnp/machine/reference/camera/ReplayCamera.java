@@ -0,0 +1,97 @@
+package org.openpnp.machine.reference.camera;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import org.openpnp.gui.support.Wizard;
+import org.openpnp.machine.reference.ReferenceCamera;
+import org.openpnp.machine.reference.driver.ReplayDriver;
+import org.openpnp.machine.reference.driver.Session;
+import org.openpnp.machine.reference.driver.Session.Event;
+import org.openpnp.machine.reference.driver.SessionRecorder;
+import org.openpnp.spi.PropertySheetHolder;
+import org.pmw.tinylog.Logger;
+
+/**
+ * A camera that plays back the frames a camera captured during a recorded Session, in the order
+ * they were captured, see SessionReplay. It takes the place of the camera that recorded them,
+ * with the same id, offsets and vision settings. Frames were recorded after the camera's
+ * transforms and lens calibration were applied, so they are returned as they were recorded.
+ *
+ * If more frames are captured than were recorded, the last one is returned again.
+ */
+public class ReplayCamera extends ReferenceCamera {
+    private final ReplayDriver driver;
+
+    private BufferedImage lastFrame;
+
+    private long replayedCount;
+
+    private long missedCount;
+
+    /**
+     * Create a camera that replaces the given camera during a replay.
+     */
+    public ReplayCamera(ReferenceCamera camera, ReplayDriver driver) {
+        this.driver = driver;
+        id = camera.getId();
+        name = camera.getName();
+        looking = camera.getLooking();
+        setUnitsPerPixel(camera.getUnitsPerPixel());
+        setHeadOffsets(camera.getHeadOffsets());
+        setSafeZ(camera.getSafeZ());
+        setSettleTimeMs(camera.getSettleTimeMs());
+        if (camera.getVisionProvider() != null) {
+            setVisionProvider(camera.getVisionProvider());
+        }
+    }
+
+    @Override
+    protected synchronized BufferedImage internalCapture() {
+        Session session = driver.getSession();
+        Event event = session.take(SessionRecorder.key("frame", this));
+        if (event == null) {
+            missedCount++;
+            return lastFrame;
+        }
+        try {
+            lastFrame = session.readFrame(event);
+        }
+        catch (IOException e) {
+            Logger.warn(e, "Unable to replay {}", event);
+            return lastFrame;
+        }
+        driver.frameCaptured(event);
+        replayedCount++;
+        return lastFrame;
+    }
+
+    /**
+     * The number of frames that were played back from the session.
+     */
+    public synchronized long getReplayedCount() {
+        return replayedCount;
+    }
+
+    /**
+     * The number of captures that weren't in the session and got the previous frame again.
+     */
+    public synchronized long getMissedCount() {
+        return missedCount;
+    }
+
+    @Override
+    public Wizard getConfigurationWizard() {
+        return null;
+    }
+
+    @Override
+    public String getPropertySheetHolderTitle() {
+        return getClass().getSimpleName() + " " + getName();
+    }
+
+    @Override
+    public PropertySheetHolder[] getChildPropertySheetHolders() {
+        return null;
+    }
+}
@@ -1,6 +1,7 @@
 package org.openpnp.machine.reference.driver;
 
 import java.awt.event.ActionEvent;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -33,6 +34,7 @@ import org.openpnp.machine.reference.driver.wizards.GcodeDriverConsole;
 import org.openpnp.machine.reference.driver.wizards.GcodeDriverGcodes;
 import org.openpnp.machine.reference.driver.wizards.GcodeDriverSettings;
 import org.openpnp.model.Configuration;
+import org.openpnp.model.Length;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
 import org.openpnp.model.Part;
@@ -41,6 +43,7 @@ import org.openpnp.spi.HeadMountable;
 import org.openpnp.spi.Nozzle;
 import org.openpnp.spi.PropertySheetHolder;
 import org.openpnp.spi.base.SimplePropertySheetHolder;
+import org.openpnp.util.TimingMetrics;
 import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.Element;
@@ -65,6 +68,8 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
         PUMP_OFF_COMMAND,
         MOVE_TO_COMMAND(true, "Id", "Name", "FeedRate", "X", "Y", "Z", "Rotation"),
         MOVE_TO_COMPLETE_REGEX(true),
+        JOG_COMMAND(true, "Id", "Name", "FeedRate", "X", "Y", "Z", "Rotation"),
+        JOG_CANCEL_COMMAND,
         PICK_COMMAND(true, "Id", "Name", "VacuumLevelPartOn", "VacuumLevelPartOff"),
         PLACE_COMMAND(true, "Id", "Name"),
         ACTUATE_BOOLEAN_COMMAND(true, "Id", "Name", "Index", "BooleanValue", "True", "False"),
@@ -180,6 +185,23 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
     private LinkedBlockingQueue<String> responseQueue = new LinkedBlockingQueue<>();
     private Set<Nozzle> pickedNozzles = new HashSet<>();
     private GcodeDriver parent = null;
+
+    /**
+     * True while a continuous jog is streaming moves, see setJogging(boolean).
+     */
+    private boolean jogging;
+
+    /**
+     * True if a JOG_COMMAND has been sent since jogging started, so the controller may still
+     * have jog motion queued.
+     */
+    private boolean jogMoved;
+
+    /**
+     * Counts the position reports received, so that code waiting for the controller to report
+     * its position can tell when a new one has arrived.
+     */
+    private volatile long positionReportCount;
     
     @Commit
     public void commit() {
@@ -385,6 +407,25 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
         }
     }
 
+    @Override
+    public boolean isIndependentZ(ReferenceHeadMountable hm1, ReferenceHeadMountable hm2) {
+        // Head mountables on a shared axis, whether the same coordinate or mirrored by a cam or
+        // negating transform, can't move in Z on their own.
+        Axis zAxis1 = getZAxis(hm1);
+        Axis zAxis2 = getZAxis(hm2);
+        return zAxis1 != null && zAxis2 != null && zAxis1 != zAxis2;
+    }
+
+    private Axis getZAxis(ReferenceHeadMountable hm) {
+        Axis zAxis = getAxis(hm, Axis.Type.Z);
+        for (GcodeDriver driver : subDrivers) {
+            if (driver.getAxis(hm, Axis.Type.Z) != null) {
+                zAxis = driver.getAxis(hm, Axis.Type.Z);
+            }
+        }
+        return zAxis;
+    }
+
     @Override
     public Location getLocation(ReferenceHeadMountable hm) {
         // according main driver
@@ -471,7 +512,11 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
                 rotation = rotationAxis.getTransform().toRaw(rotationAxis, hm, rotation);
             }
 
-            String command = getCommand(hm, CommandType.MOVE_TO_COMMAND);
+            // While jogging use the controller's jog command if there is one. It is
+            // acknowledged as soon as the move is queued and can be cancelled when jogging ends.
+            boolean jog = jogging && getCommand(hm, CommandType.JOG_COMMAND) != null;
+            String command = getCommand(hm,
+                    jog ? CommandType.JOG_COMMAND : CommandType.MOVE_TO_COMMAND);
             command = substituteVariable(command, "Id", hm.getId());
             command = substituteVariable(command, "Name", hm.getName());
             command = substituteVariable(command, "FeedRate", maxFeedRate * speed);
@@ -551,6 +596,7 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
 
             // Only give a command when move is necessary
             if (includeX || includeY || includeZ || includeRotation) {
+                long moveStartTime = System.nanoTime();
 
                 List<String> responses = sendGcode(command);
 
@@ -563,7 +609,10 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
                  * Exception.
                  */
                 String moveToCompleteRegex = getCommand(hm, CommandType.MOVE_TO_COMPLETE_REGEX);
-                if (moveToCompleteRegex != null) {
+                if (jog) {
+                    jogMoved = true;
+                }
+                else if (moveToCompleteRegex != null) {
                     if (!containsMatch(responses, moveToCompleteRegex)) {
                         long t = System.currentTimeMillis();
                         boolean done = false;
@@ -575,6 +624,7 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
                         }
                     }
                 }
+                TimingMetrics.get().recordCommand("move", System.nanoTime() - moveStartTime);
 
                 // And save the final values on the axes.
                 if (xAxis != null) {
@@ -601,6 +651,71 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
 
     }
 
+    /**
+     * Start or end a continuous jog. While jogging, moves use the JOG_COMMAND if one is set and
+     * don't wait for MOVE_TO_COMPLETE_REGEX, so a jog can stream short moves without a round
+     * trip for each.
+     * 
+     * When jogging ends the JOG_CANCEL_COMMAND is sent, if there is one, to drop whatever jog
+     * motion the controller still has queued. It is written straight to the controller without
+     * waiting for a response, so it can be a real time command, and \xNN can be used for bytes
+     * that can't be typed, such as \x85 for Grbl's jog cancel. Since the machine then stops
+     * somewhere short of the last jog target the driver has to learn where, so the cancel is
+     * only used when a POSITION_REPORT_REGEX is set, and the cancel command should make the
+     * controller report its position once stopped. Without it jog moves simply run out, which
+     * the caller keeps short by not queueing far ahead.
+     */
+    @Override
+    public void setJogging(boolean jogging) throws Exception {
+        boolean cancel = this.jogging && !jogging && jogMoved;
+        this.jogging = jogging;
+        jogMoved = false;
+        if (cancel) {
+            String cancelCommand = getCommand(null, CommandType.JOG_CANCEL_COMMAND);
+            if (cancelCommand != null
+                    && getCommand(null, CommandType.POSITION_REPORT_REGEX) != null) {
+                long reports = positionReportCount;
+                for (String line : cancelCommand.split("\n")) {
+                    sendRealtime(line.trim());
+                }
+                long t = System.currentTimeMillis();
+                while (positionReportCount == reports
+                        && System.currentTimeMillis() - t < timeoutMilliseconds) {
+                    Thread.sleep(5);
+                }
+                if (positionReportCount == reports) {
+                    throw new Exception("Timed out waiting for position after jog cancel.");
+                }
+            }
+        }
+        for (ReferenceDriver driver : subDrivers) {
+            driver.setJogging(jogging);
+        }
+    }
+
+    /**
+     * Write the command and a newline to the controller without waiting for a response. \xNN is
+     * replaced by the byte with the hex value NN.
+     */
+    protected void sendRealtime(String command) throws Exception {
+        if (command.isEmpty()) {
+            return;
+        }
+        Matcher matcher = Pattern.compile("\\\\x([0-9a-fA-F]{2})").matcher(command);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int start = 0;
+        while (matcher.find()) {
+            bytes.write(command.substring(start, matcher.start()).getBytes());
+            bytes.write(Integer.parseInt(matcher.group(1), 16));
+            start = matcher.end();
+        }
+        bytes.write(command.substring(start).getBytes());
+        bytes.write('\n');
+        Logger.trace("[{}] >> {}", portName, command);
+        output.write(bytes.toByteArray());
+        output.flush();
+    }
+
     private boolean containsMatch(List<String> responses, String regex) {
         for (String response : responses) {
             if (response.matches(regex)) {
@@ -793,6 +908,8 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
 
         Logger.debug("sendCommand({}, {})...", command, timeout);
 
+        long commandStartTime = System.nanoTime();
+
         // Send the command, if one was specified
         if (command != null) {
             Logger.trace("[{}] >> {}", portName, command);
@@ -842,6 +959,10 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
         if (command != null && !found) {
             throw new Exception("Timeout waiting for response to " + command);
         }
+        if (command != null) {
+            TimingMetrics.get().recordCommand(getCommandKind(command),
+                    System.nanoTime() - commandStartTime);
+        }
 
         // Read any additional responses that came in after the initial one.
         responseQueue.drainTo(responses);
@@ -851,6 +972,23 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
         return responses;
     }
 
+    /**
+     * A constant name for the kind of command, used to group command timings without building a
+     * new String for every command.
+     */
+    private static String getCommandKind(String command) {
+        switch (command.isEmpty() ? ' ' : Character.toUpperCase(command.charAt(0))) {
+            case 'G':
+                return "G";
+            case 'M':
+                return "M";
+            case 'T':
+                return "T";
+            default:
+                return "other";
+        }
+    }
+
     public void run() {
         while (!disconnectRequested) {
             String line;
@@ -882,6 +1020,7 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
         }
 
         Logger.trace("Position report: {}", line);
+        positionReportCount++;
         Matcher matcher =
                 Pattern.compile(getCommand(null, CommandType.POSITION_REPORT_REGEX)).matcher(line);
         matcher.matches();
@@ -1045,6 +1184,11 @@ public class GcodeDriver extends AbstractSerialPortDriver implements Runnable {
         this.maxFeedRate = maxFeedRate;
     }
 
+    @Override
+    public Length getMaxFeedRatePerMinute() {
+        return new Length(maxFeedRate, units);
+    }
+
     public int getTimeoutMilliseconds() {
         return timeoutMilliseconds;
     }
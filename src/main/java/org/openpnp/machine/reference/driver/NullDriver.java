@@ -20,7 +20,8 @@
 package org.openpnp.machine.reference.driver;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.Action;
 import javax.swing.Icon;
@@ -35,6 +36,7 @@ import org.openpnp.machine.reference.ReferenceMachine;
 import org.openpnp.machine.reference.ReferenceNozzle;
 import org.openpnp.machine.reference.ReferencePasteDispenser;
 import org.openpnp.model.Configuration;
+import org.openpnp.model.Length;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
 import org.openpnp.spi.Head;
@@ -53,7 +55,7 @@ public class NullDriver implements ReferenceDriver {
     @Attribute(required = false)
     private double feedRateMmPerMinute = 5000;
 
-    private HashMap<Head, Location> headLocations = new HashMap<>();
+    private Map<Head, Location> headLocations = new ConcurrentHashMap<>();
 
     private boolean enabled;
 
@@ -77,6 +79,22 @@ public class NullDriver implements ReferenceDriver {
         headLocations.put(head, l);
     }
 
+    /**
+     * Each head's location is kept separately, so heads can be moved from different threads.
+     */
+    @Override
+    public boolean supportsConcurrentHeads() {
+        return true;
+    }
+
+    @Override
+    public Length getMaxFeedRatePerMinute() {
+        if (feedRateMmPerMinute <= 0) {
+            return null;
+        }
+        return new Length(feedRateMmPerMinute, LengthUnit.Millimeters);
+    }
+
     @Override
     public void home(ReferenceHead head) throws Exception {
         Logger.debug("home()");
@@ -311,7 +329,7 @@ public class NullDriver implements ReferenceDriver {
         return null;
     }
 
-    private void checkEnabled() throws Exception {
+    protected void checkEnabled() throws Exception {
         if (!enabled) {
             throw new Exception("Driver is not yet enabled!");
         }
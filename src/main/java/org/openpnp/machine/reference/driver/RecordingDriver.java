@@ -0,0 +1,306 @@
+package org.openpnp.machine.reference.driver;
+
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import javax.swing.Action;
+import javax.swing.Icon;
+
+import org.openpnp.gui.support.Wizard;
+import org.openpnp.machine.reference.ReferenceActuator;
+import org.openpnp.machine.reference.ReferenceDriver;
+import org.openpnp.machine.reference.ReferenceHead;
+import org.openpnp.machine.reference.ReferenceHeadMountable;
+import org.openpnp.machine.reference.ReferenceNozzle;
+import org.openpnp.machine.reference.ReferencePasteDispenser;
+import org.openpnp.machine.reference.ReferencePnpJobProcessor;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Length;
+import org.openpnp.model.Location;
+import org.openpnp.spi.Machine;
+import org.openpnp.spi.PropertySheetHolder;
+import org.openpnp.spi.PropertySheetHolder.PropertySheet;
+import org.pmw.tinylog.Logger;
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Element;
+
+/**
+ * Wraps another driver and records a session, see SessionRecorder, every time the machine is
+ * enabled, so that a production run can be replayed later with SessionReplay. The wrapped driver
+ * does all the work and is configured as usual. Sessions are written to a new directory, named
+ * for the time the machine was enabled, under the sessions directory in the configuration
+ * directory.
+ *
+ * Only calls made on this driver are recorded, so calls a driver makes to its own sub drivers are
+ * part of the call that caused them.
+ */
+public class RecordingDriver implements ReferenceDriver {
+    @Element(required = false)
+    private ReferenceDriver driver = new NullDriver();
+
+    /**
+     * Where sessions are recorded, relative to the configuration directory.
+     */
+    @Attribute(required = false)
+    private String directory = "sessions";
+
+    /**
+     * If false the driver is passed through without recording anything.
+     */
+    @Attribute(required = false)
+    private boolean recording = true;
+
+    private volatile SessionRecorder recorder;
+
+    private ReferencePnpJobProcessor jobProcessor;
+
+    private final PropertyChangeListener phaseListener = (e) -> {
+        SessionRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.recordPhase(String.valueOf(e.getNewValue()));
+        }
+    };
+
+    public RecordingDriver() {
+
+    }
+
+    public RecordingDriver(ReferenceDriver driver) {
+        this.driver = driver;
+    }
+
+    public ReferenceDriver getDriver() {
+        return driver;
+    }
+
+    @Override
+    public <T extends ReferenceDriver> T unwrap(Class<T> driverClass) {
+        if (driverClass.isInstance(this)) {
+            return driverClass.cast(this);
+        }
+        return driver == null ? null : driver.unwrap(driverClass);
+    }
+
+    @Override
+    public void home(ReferenceHead head) throws Exception {
+        long t = System.nanoTime();
+        driver.home(head);
+        record(t, SessionRecorder.key("home", head), null);
+    }
+
+    @Override
+    public void moveTo(ReferenceHeadMountable hm, Location location, double speed)
+            throws Exception {
+        // The start of the move is part of the key, since how long a move takes depends on where
+        // it starts as much as where it ends.
+        Location from = recorder == null ? null : driver.getLocation(hm);
+        long t = System.nanoTime();
+        driver.moveTo(hm, location, speed);
+        record(t, SessionRecorder.key("moveTo", hm, from, location, speed), null);
+    }
+
+    @Override
+    public Location getLocation(ReferenceHeadMountable hm) {
+        long t = System.nanoTime();
+        Location location = driver.getLocation(hm);
+        record(t, SessionRecorder.key("getLocation", hm), String.valueOf(location));
+        return location;
+    }
+
+    @Override
+    public void pick(ReferenceNozzle nozzle) throws Exception {
+        long t = System.nanoTime();
+        driver.pick(nozzle);
+        record(t, SessionRecorder.key("pick", nozzle), null);
+    }
+
+    @Override
+    public void place(ReferenceNozzle nozzle) throws Exception {
+        long t = System.nanoTime();
+        driver.place(nozzle);
+        record(t, SessionRecorder.key("place", nozzle), null);
+    }
+
+    @Override
+    public void actuate(ReferenceActuator actuator, boolean on) throws Exception {
+        long t = System.nanoTime();
+        driver.actuate(actuator, on);
+        record(t, SessionRecorder.key("actuate", actuator, on), null);
+    }
+
+    @Override
+    public void actuate(ReferenceActuator actuator, double value) throws Exception {
+        long t = System.nanoTime();
+        driver.actuate(actuator, value);
+        record(t, SessionRecorder.key("actuate", actuator, value), null);
+    }
+
+    @Override
+    public String actuatorRead(ReferenceActuator actuator) throws Exception {
+        long t = System.nanoTime();
+        String value = driver.actuatorRead(actuator);
+        // A null read is recorded as no result at all, and replayed as null.
+        record(t, SessionRecorder.key("actuatorRead", actuator), value);
+        return value;
+    }
+
+    @Override
+    public void dispense(ReferencePasteDispenser dispenser, Location startLocation,
+            Location endLocation, long dispenseTimeMilliseconds) throws Exception {
+        long t = System.nanoTime();
+        driver.dispense(dispenser, startLocation, endLocation, dispenseTimeMilliseconds);
+        record(t, SessionRecorder.key("dispense", dispenser, startLocation, endLocation,
+                dispenseTimeMilliseconds), null);
+    }
+
+    @Override
+    public boolean supportsConcurrentHeads() {
+        return driver.supportsConcurrentHeads();
+    }
+
+    @Override
+    public Length getMaxFeedRatePerMinute() {
+        return driver.getMaxFeedRatePerMinute();
+    }
+
+    @Override
+    public void dwell(long milliseconds) throws Exception {
+        driver.dwell(milliseconds);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return driver.currentTimeMillis();
+    }
+
+    @Override
+    public boolean isIndependentZ(ReferenceHeadMountable hm1, ReferenceHeadMountable hm2) {
+        return driver.isIndependentZ(hm1, hm2);
+    }
+
+    @Override
+    public void setJogging(boolean jogging) throws Exception {
+        long t = System.nanoTime();
+        driver.setJogging(jogging);
+        record(t, SessionRecorder.key("setJogging", null, jogging), null);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) throws Exception {
+        if (enabled && recording && recorder == null) {
+            startRecording();
+        }
+        long t = System.nanoTime();
+        try {
+            driver.setEnabled(enabled);
+            record(t, SessionRecorder.key("setEnabled", null, enabled), null);
+        }
+        finally {
+            if (!enabled) {
+                stopRecording();
+            }
+        }
+    }
+
+    private void startRecording() {
+        File sessions = new File(Configuration.get().getConfigurationDirectory(), directory);
+        String name = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss").format(new Date());
+        try {
+            recorder = new SessionRecorder(new File(sessions, name));
+        }
+        catch (IOException e) {
+            // Failing to record shouldn't stop the machine from working.
+            Logger.error(e, "Unable to start recording a session");
+            return;
+        }
+        SessionRecorder.setActive(recorder);
+        Machine machine = Configuration.get().getMachine();
+        if (machine != null && machine.getPnpJobProcessor() instanceof ReferencePnpJobProcessor) {
+            jobProcessor = (ReferencePnpJobProcessor) machine.getPnpJobProcessor();
+            jobProcessor.addStateListener(phaseListener);
+        }
+    }
+
+    private void stopRecording() {
+        if (jobProcessor != null) {
+            jobProcessor.removeStateListener(phaseListener);
+            jobProcessor = null;
+        }
+        if (recorder != null) {
+            try {
+                recorder.close();
+            }
+            catch (IOException e) {
+                Logger.error(e, "Unable to finish recording a session");
+            }
+            recorder = null;
+        }
+    }
+
+    private void record(long startNanos, String key, String result) {
+        SessionRecorder recorder = this.recorder;
+        if (recorder != null) {
+            recorder.record(startNanos, System.nanoTime() - startNanos, key, result);
+        }
+    }
+
+    @Override
+    public void createDefaults() {
+        driver.createDefaults();
+    }
+
+    @Override
+    public Wizard getConfigurationWizard() {
+        return driver.getConfigurationWizard();
+    }
+
+    @Override
+    public String getPropertySheetHolderTitle() {
+        return getClass().getSimpleName() + " (" + driver.getPropertySheetHolderTitle() + ")";
+    }
+
+    @Override
+    public PropertySheetHolder[] getChildPropertySheetHolders() {
+        return driver.getChildPropertySheetHolders();
+    }
+
+    @Override
+    public PropertySheet[] getPropertySheets() {
+        return driver.getPropertySheets();
+    }
+
+    @Override
+    public Icon getPropertySheetHolderIcon() {
+        return driver.getPropertySheetHolderIcon();
+    }
+
+    @Override
+    public Action[] getPropertySheetHolderActions() {
+        return driver.getPropertySheetHolderActions();
+    }
+
+    @Override
+    public void close() throws IOException {
+        stopRecording();
+        driver.close();
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+    }
+}
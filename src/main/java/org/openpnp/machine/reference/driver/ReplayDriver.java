@@ -0,0 +1,165 @@
+package org.openpnp.machine.reference.driver;
+
+import org.openpnp.machine.reference.ReferenceActuator;
+import org.openpnp.machine.reference.ReferenceHead;
+import org.openpnp.machine.reference.ReferenceHeadMountable;
+import org.openpnp.machine.reference.ReferenceNozzle;
+import org.openpnp.machine.reference.ReferencePasteDispenser;
+import org.openpnp.machine.reference.driver.Session.Event;
+import org.openpnp.model.Location;
+import org.pmw.tinylog.Logger;
+
+/**
+ * A SimulationDriver that plays back a recorded Session. Each call is matched to the first
+ * recorded call with the same key that hasn't been played back yet, see SessionRecorder.key(),
+ * and takes as long on the clock as the recorded one took on the machine. Actuator reads return
+ * what was read on the machine. Calls that weren't recorded, such as a move that a changed job
+ * processor makes from somewhere the recorded one never did, fall back to the simulation's model,
+ * and are counted so the report can say how much of the replay was modeled rather than replayed.
+ *
+ * Locations are always the simulated ones, since the driver moves exactly where it is told to.
+ */
+public class ReplayDriver extends SimulationDriver {
+    private final Session session;
+
+    private Event move;
+
+    private long replayedCount;
+
+    private long modeledCount;
+
+    public ReplayDriver(Session session) {
+        this.session = session;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    /**
+     * The number of calls that were played back from the session.
+     */
+    public synchronized long getReplayedCount() {
+        return replayedCount;
+    }
+
+    /**
+     * The number of calls that weren't in the session and were modeled instead.
+     */
+    public synchronized long getModeledCount() {
+        return modeledCount;
+    }
+
+    /**
+     * Take the recorded event for a call, counting it as replayed or modeled.
+     */
+    private synchronized Event take(String key) {
+        Event event = session.take(key);
+        if (event == null) {
+            modeledCount++;
+            Logger.trace("Not recorded, modeling {}", key);
+        }
+        else {
+            replayedCount++;
+        }
+        return event;
+    }
+
+    private boolean replay(String key) throws Exception {
+        Event event = take(key);
+        if (event == null) {
+            return false;
+        }
+        checkEnabled();
+        advanceNanos(event.getDurationNanos());
+        return true;
+    }
+
+    @Override
+    public void home(ReferenceHead head) throws Exception {
+        Event event = take(SessionRecorder.key("home", head));
+        super.home(head);
+        if (event != null) {
+            // Homing has to move the simulated head as well, so take back the modeled time.
+            advanceNanos(event.getDurationNanos()
+                    - (getHomeMilliseconds() + getCommandLatencyMilliseconds()) * 1000000L);
+        }
+    }
+
+    @Override
+    public void moveTo(ReferenceHeadMountable hm, Location location, double speed)
+            throws Exception {
+        Location from = getLocation(hm);
+        move = take(SessionRecorder.key("moveTo", hm, from, location, speed));
+        try {
+            super.moveTo(hm, location, speed);
+        }
+        finally {
+            move = null;
+        }
+    }
+
+    @Override
+    protected double getMoveTime(ReferenceHeadMountable hm, Location from, Location to,
+            double speed) {
+        if (move != null) {
+            return move.getDurationNanos() / 1e9;
+        }
+        return super.getMoveTime(hm, from, to, speed);
+    }
+
+    @Override
+    public void pick(ReferenceNozzle nozzle) throws Exception {
+        if (!replay(SessionRecorder.key("pick", nozzle))) {
+            super.pick(nozzle);
+        }
+    }
+
+    @Override
+    public void place(ReferenceNozzle nozzle) throws Exception {
+        if (!replay(SessionRecorder.key("place", nozzle))) {
+            super.place(nozzle);
+        }
+    }
+
+    @Override
+    public void actuate(ReferenceActuator actuator, boolean on) throws Exception {
+        if (!replay(SessionRecorder.key("actuate", actuator, on))) {
+            super.actuate(actuator, on);
+        }
+    }
+
+    @Override
+    public void actuate(ReferenceActuator actuator, double value) throws Exception {
+        if (!replay(SessionRecorder.key("actuate", actuator, value))) {
+            super.actuate(actuator, value);
+        }
+    }
+
+    @Override
+    public String actuatorRead(ReferenceActuator actuator) throws Exception {
+        Event event = take(SessionRecorder.key("actuatorRead", actuator));
+        if (event == null) {
+            return super.actuatorRead(actuator);
+        }
+        advanceNanos(event.getDurationNanos());
+        return event.getResult();
+    }
+
+    @Override
+    public void dispense(ReferencePasteDispenser dispenser, Location startLocation,
+            Location endLocation, long dispenseTimeMilliseconds) throws Exception {
+        if (!replay(SessionRecorder.key("dispense", dispenser, startLocation, endLocation,
+                dispenseTimeMilliseconds))) {
+            super.dispense(dispenser, startLocation, endLocation, dispenseTimeMilliseconds);
+        }
+    }
+
+    /**
+     * Adds a replayed frame's recorded capture time to the clock, so frames take as long as they
+     * did on the machine. Called by ReplayCamera.
+     */
+    public void frameCaptured(Event event) {
+        advanceNanos(event.getDurationNanos());
+    }
+}
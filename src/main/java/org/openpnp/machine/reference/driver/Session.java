@@ -0,0 +1,191 @@
+package org.openpnp.machine.reference.driver;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.openpnp.machine.reference.driver.ThroughputSimulator.Report;
+
+/**
+ * A session recorded by the SessionRecorder, loaded for replay. Replay takes recorded events by
+ * key, in the order they were recorded, so a replayed run that makes the same calls as the
+ * recorded one gets the same results and timings for each of them, and one that makes calls in a
+ * different order or skips some still gets the recorded results for the calls it has in common.
+ */
+public class Session {
+    public static class Event {
+        private final long startNanos;
+        private final long durationNanos;
+        private final String key;
+        private final String result;
+
+        Event(long startNanos, long durationNanos, String key, String result) {
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.key = key;
+            this.result = result;
+        }
+
+        /**
+         * When the event started, in nanoseconds since the recording started.
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getKind() {
+            int i = key.indexOf('\t');
+            return i == -1 ? key : key.substring(0, i);
+        }
+
+        /**
+         * What the call returned, or null if it doesn't return anything.
+         */
+        public String getResult() {
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return startNanos + " " + key.replace('\t', ' ')
+                    + (result == null ? "" : " = " + result);
+        }
+    }
+
+    private final File directory;
+
+    private final List<Event> events = new ArrayList<>();
+
+    private final Map<String, ArrayDeque<Event>> remaining = new HashMap<>();
+
+    public Session(File directory) throws IOException {
+        this.directory = directory;
+        File file = new File(directory, SessionRecorder.EVENTS_FILE);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                events.add(parse(line));
+            }
+        }
+        catch (EOFException e) {
+            // A recording that wasn't closed, because OpenPnP was killed for instance, ends
+            // without the gzip trailer. Everything up to there is still good.
+        }
+        rewind();
+    }
+
+    private static Event parse(String line) throws IOException {
+        String[] fields = line.split("\t", 3);
+        if (fields.length < 3) {
+            throw new IOException("Invalid session event: " + line);
+        }
+        String key = fields[2];
+        String result = null;
+        int i = key.indexOf("\t= ");
+        if (i != -1) {
+            result = SessionRecorder.unescape(key.substring(i + 3));
+            key = key.substring(0, i);
+        }
+        return new Event(Long.parseLong(fields[0]), Long.parseLong(fields[1]), key, result);
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public List<Event> getEvents() {
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Take the first event with the given key that hasn't been taken yet, or return null if there
+     * is none.
+     */
+    public synchronized Event take(String key) {
+        ArrayDeque<Event> queue = remaining.get(key);
+        return queue == null ? null : queue.poll();
+    }
+
+    /**
+     * Make every event available to take again, so the session can be replayed again.
+     */
+    public synchronized void rewind() {
+        remaining.clear();
+        for (Event event : events) {
+            remaining.computeIfAbsent(event.getKey(), k -> new ArrayDeque<>()).add(event);
+        }
+    }
+
+    /**
+     * Read the frame recorded by a frame event.
+     */
+    public BufferedImage readFrame(Event event) throws IOException {
+        File file = new File(directory, event.getResult());
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Unable to read frame " + file);
+        }
+        return image;
+    }
+
+    /**
+     * The timings of the recorded job, in the same form as the ThroughputSimulator reports them,
+     * so that a replay can be compared with it. Timing runs from the job processor leaving the
+     * Uninitialized state until it returns to it, and if the session contains more than one job
+     * they are added together.
+     */
+    public Report getReport() {
+        Report report = new Report();
+        String phase = null;
+        long phaseStart = 0;
+        for (Event event : events) {
+            switch (event.getKind()) {
+                case "phase":
+                    long now = event.getStartNanos();
+                    if (phase != null) {
+                        report.phaseNanos.merge(phase, now - phaseStart, Long::sum);
+                        report.totalNanos += now - phaseStart;
+                    }
+                    phase = event.getResult();
+                    phaseStart = now;
+                    if ("Place".equals(phase)) {
+                        report.parts++;
+                    }
+                    else if ("Uninitialized".equals(phase)) {
+                        phase = null;
+                    }
+                    break;
+                case "moveTo":
+                    if (phase != null) {
+                        report.moveNanos += event.getDurationNanos();
+                        report.moveCount++;
+                    }
+                    break;
+            }
+        }
+        return report;
+    }
+}
@@ -0,0 +1,243 @@
+package org.openpnp.machine.reference.driver;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.openpnp.model.Identifiable;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.spi.Camera;
+import org.pmw.tinylog.Logger;
+
+/**
+ * Records a session on the machine to a directory so that it can be replayed later, see Session
+ * and SessionReplay. Every driver call is written to a gzipped, tab separated event log with the
+ * time it started and how long it took, along with job processor state changes. Every image
+ * captured by a ReferenceCamera is written to the frames directory as a PNG, so frames are
+ * compressed without losing anything the vision pipelines could see.
+ *
+ * Each event is a line of
+ *
+ * <pre>
+ * start nanos, duration nanos, kind, target id, arguments..., = result
+ * </pre>
+ *
+ * where the result is only present for calls that return something. The kind, target and
+ * arguments together are the event's key, which the replay uses to match calls to recorded
+ * events, so they are formatted the same way by key() in both.
+ *
+ * Frames are encoded on a thread of their own so that recording doesn't slow down vision.
+ */
+public class SessionRecorder implements Closeable {
+    public static final String EVENTS_FILE = "events.tsv.gz";
+
+    public static final String FRAMES_DIRECTORY = "frames";
+
+    private static volatile SessionRecorder active;
+
+    private final File directory;
+
+    private final Writer events;
+
+    private final ExecutorService frameWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "SessionRecorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long startNanos = System.nanoTime();
+
+    private int frameCount;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    public SessionRecorder(File directory) throws IOException {
+        this.directory = directory;
+        File frames = new File(directory, FRAMES_DIRECTORY);
+        if (!frames.isDirectory() && !frames.mkdirs()) {
+            throw new IOException("Unable to create " + frames);
+        }
+        events = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(new File(directory, EVENTS_FILE))),
+                StandardCharsets.UTF_8));
+        Logger.info("Recording session to {}", directory);
+    }
+
+    /**
+     * The recorder that cameras should write their frames to, or null if no session is being
+     * recorded.
+     */
+    public static SessionRecorder getActive() {
+        return active;
+    }
+
+    public static void setActive(SessionRecorder recorder) {
+        active = recorder;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Record an event.
+     *
+     * @param startNanos System.nanoTime() when the call started.
+     * @param durationNanos How long the call took.
+     * @param key See key().
+     * @param result What the call returned, or null if it doesn't return anything.
+     */
+    public synchronized void record(long startNanos, long durationNanos, String key,
+            String result) {
+        if (failed || closed) {
+            return;
+        }
+        try {
+            events.write(Long.toString(startNanos - this.startNanos));
+            events.write('\t');
+            events.write(Long.toString(durationNanos));
+            events.write('\t');
+            events.write(key);
+            if (result != null) {
+                events.write("\t= ");
+                events.write(escape(result));
+            }
+            events.write('\n');
+        }
+        catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Record a frame captured by the camera. The image must not be changed after this is called,
+     * since it is written out later.
+     */
+    public void recordFrame(Camera camera, BufferedImage image, long startNanos,
+            long durationNanos) {
+        synchronized (this) {
+            if (failed || closed) {
+                return;
+            }
+            String name = String.format(Locale.US, "%s/%06d.png", FRAMES_DIRECTORY, frameCount++);
+            record(startNanos, durationNanos, key("frame", camera), name);
+            frameWriter.submit(() -> {
+                try {
+                    ImageIO.write(image, "png", new File(directory, name));
+                }
+                catch (Exception e) {
+                    Logger.warn(e, "Unable to write frame {}", name);
+                }
+            });
+        }
+    }
+
+    /**
+     * Record that the job processor entered a new state.
+     */
+    public void recordPhase(String phase) {
+        record(System.nanoTime(), 0, key("phase", null), phase);
+    }
+
+    /**
+     * Stop recording. If this is the active recorder there is no longer one. Waits for queued
+     * frames to be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (active == this) {
+            active = null;
+        }
+        synchronized (this) {
+            closed = true;
+            frameWriter.shutdown();
+        }
+        try {
+            frameWriter.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            Logger.warn("Interrupted while writing frames to {}", directory);
+        }
+        synchronized (this) {
+            events.close();
+        }
+        Logger.info("Recorded {} frames to {}", frameCount, directory);
+    }
+
+    private void fail(IOException e) {
+        // Losing the recording is no reason to stop the machine, so this is only logged.
+        Logger.error(e, "Session recording to {} failed, no more events will be recorded",
+                directory);
+        failed = true;
+    }
+
+    /**
+     * The key of an event: its kind, the id of the object it acts on and its arguments, separated
+     * by tabs. Locations are converted to millimeters and numbers are rounded to 4 decimal places
+     * so that a replayed call matches the recorded one even if it was computed slightly
+     * differently.
+     */
+    public static String key(String kind, Identifiable target, Object... args) {
+        StringBuilder sb = new StringBuilder(kind);
+        sb.append('\t').append(target == null ? "" : escape(target.getId()));
+        for (Object arg : args) {
+            sb.append('\t').append(format(arg));
+        }
+        return sb.toString();
+    }
+
+    private static String format(Object arg) {
+        if (arg instanceof Location) {
+            Location l = ((Location) arg).convertToUnits(LengthUnit.Millimeters);
+            return format(l.getX()) + "," + format(l.getY()) + "," + format(l.getZ()) + ","
+                    + format(l.getRotation());
+        }
+        if (arg instanceof Double) {
+            return format(((Double) arg).doubleValue());
+        }
+        return escape(String.valueOf(arg));
+    }
+
+    private static String format(double d) {
+        if (Double.isNaN(d)) {
+            return "NaN";
+        }
+        String s = String.format(Locale.US, "%.4f", d);
+        // Don't let rounding tell 0 and -0 apart.
+        return s.equals("-0.0000") ? "0.0000" : s;
+    }
+
+    static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r",
+                "\\r");
+    }
+
+    static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '\\' && i + 1 < s.length()) {
+                ch = s.charAt(++i);
+                ch = ch == 't' ? '\t' : ch == 'n' ? '\n' : ch == 'r' ? '\r' : ch;
+            }
+            sb.append(ch);
+        }
+        return sb.toString();
+    }
+}
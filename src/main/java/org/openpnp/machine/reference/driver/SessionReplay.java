@@ -0,0 +1,126 @@
+package org.openpnp.machine.reference.driver;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.openpnp.machine.reference.ReferenceCamera;
+import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.machine.reference.camera.ReplayCamera;
+import org.openpnp.machine.reference.driver.ThroughputSimulator.Report;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Job;
+import org.openpnp.spi.Camera;
+import org.openpnp.spi.Head;
+
+/**
+ * Replays a session recorded with the RecordingDriver against the job processor and vision
+ * pipelines in the current build, and reports how the time for each phase of the job differs
+ * from the recording. This makes it possible to tell whether a change to the job processor or to
+ * vision makes a real job faster or slower without the machine, see ReplayDriver and
+ * ReplayCamera for how calls and frames are matched to the recording.
+ *
+ * Driver calls and frame captures take as long on the replay's clock as they did on the machine,
+ * and dwells and settles as long as they are configured to. The clock is the SimulationDriver's
+ * virtual clock, so planning and image processing take no time on it and the replay gives the
+ * same times on any computer. The recording's times were measured on the machine and include
+ * them, which shows up in the difference in cycle time.
+ *
+ * Can be run from the command line with the configuration directory the session was recorded
+ * with, the session directory and the job that was run:
+ *
+ * <pre>
+ * java -cp openpnp.jar org.openpnp.machine.reference.driver.SessionReplay \
+ *     ~/.openpnp ~/.openpnp/sessions/2018-05-01-10-00-00 board.job.xml
+ * </pre>
+ */
+public class SessionReplay {
+    /**
+     * Replace the machine's driver with a ReplayDriver for the session and its cameras with
+     * ReplayCameras, run the job and return the timings of the replay. Use
+     * Report.compare(session.getReport()) for the differences from the recording. The machine's
+     * own motion limits are used for calls that weren't recorded if it uses the SimulationDriver.
+     */
+    public static Report run(ReferenceMachine machine, Session session, Job job)
+            throws Exception {
+        ReplayDriver driver = new ReplayDriver(session);
+        SimulationDriver limits = machine.getDriver().unwrap(SimulationDriver.class);
+        if (limits != null) {
+            driver.setX(limits.getX());
+            driver.setY(limits.getY());
+            driver.setZ(limits.getZ());
+            driver.setC(limits.getC());
+        }
+        machine.setDriver(driver);
+        for (Head head : machine.getHeads()) {
+            List<ReferenceCamera> cameras = getReferenceCameras(head.getCameras());
+            for (ReferenceCamera camera : cameras) {
+                head.removeCamera(camera);
+            }
+            for (ReferenceCamera camera : cameras) {
+                head.addCamera(new ReplayCamera(camera, driver));
+            }
+        }
+        List<ReferenceCamera> cameras = getReferenceCameras(machine.getCameras());
+        for (ReferenceCamera camera : cameras) {
+            machine.removeCamera(camera);
+        }
+        for (ReferenceCamera camera : cameras) {
+            machine.addCamera(new ReplayCamera(camera, driver));
+        }
+        session.rewind();
+        return ThroughputSimulator.run(machine, job);
+    }
+
+    /**
+     * The cameras that can be replaced by ReplayCameras, in order, so that the default camera
+     * stays the default when they are replaced. Other cameras are left as they are and can't be
+     * replayed.
+     */
+    private static List<ReferenceCamera> getReferenceCameras(List<Camera> cameras) {
+        List<ReferenceCamera> referenceCameras = new ArrayList<>();
+        for (Camera camera : cameras) {
+            if (camera instanceof ReferenceCamera) {
+                referenceCameras.add((ReferenceCamera) camera);
+            }
+        }
+        return referenceCameras;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: SessionReplay <configuration directory> "
+                    + "<session directory> <job file>");
+            System.exit(1);
+        }
+        Configuration.initialize(new File(args[0]));
+        Configuration.get().load();
+        ReferenceMachine machine = (ReferenceMachine) Configuration.get().getMachine();
+        Session session = new Session(new File(args[1]));
+        Job job = Configuration.get().loadJob(new File(args[2]));
+
+        Report recorded = session.getReport();
+        Report replayed = run(machine, session, job);
+        ReplayDriver driver = (ReplayDriver) machine.getDriver();
+        System.out.print(replayed);
+        System.out.println();
+        System.out.print(replayed.compare(recorded));
+        System.out.println();
+        System.out.println(String.format(Locale.US, "%d driver calls replayed, %d modeled",
+                driver.getReplayedCount(), driver.getModeledCount()));
+        List<Camera> cameras = new ArrayList<>(machine.getCameras());
+        for (Head head : machine.getHeads()) {
+            cameras.addAll(head.getCameras());
+        }
+        for (Camera camera : cameras) {
+            if (camera instanceof ReplayCamera) {
+                ReplayCamera replayCamera = (ReplayCamera) camera;
+                System.out.println(String.format(Locale.US, "%s: %d frames replayed, %d missed",
+                        camera.getName(), replayCamera.getReplayedCount(),
+                        replayCamera.getMissedCount()));
+            }
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,411 @@
+package org.openpnp.machine.reference.driver;
+
+import java.util.Locale;
+
+import org.openpnp.machine.reference.ReferenceActuator;
+import org.openpnp.machine.reference.ReferenceHead;
+import org.openpnp.machine.reference.ReferenceHeadMountable;
+import org.openpnp.machine.reference.ReferenceNozzle;
+import org.openpnp.machine.reference.ReferencePasteDispenser;
+import org.openpnp.model.Length;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.pmw.tinylog.Logger;
+import org.simpleframework.xml.Attribute;
+import org.simpleframework.xml.Element;
+
+/**
+ * A driver for estimating how long a machine would take to do its work without the machine. Like
+ * the NullDriver it keeps track of where each Head is, but instead of sleeping to simulate motion
+ * it calculates how long each move would take using per axis feed rate, acceleration and jerk
+ * limits and advances a virtual clock by that amount. Actuators, pick, place and dispense add a
+ * fixed latency in the same way, and nozzle dwell and camera settle times, which are waited for
+ * through dwell(), add their time without sleeping.
+ *
+ * The clock only ever advances by modeled time, never by real time, so it is the time the job
+ * would take on the modeled machine whatever the speed of the computer running it. Work that
+ * doesn't go through the driver, such as planning and image processing, takes no time on the
+ * clock.
+ *
+ * Moves are modeled per axis with an S-curve velocity profile that starts and ends at rest, and a
+ * move takes as long as its slowest axis. This is simpler than a real motion planner, which can
+ * blend consecutive moves, so predictions are somewhat pessimistic for long sequences of short
+ * moves.
+ */
+public class SimulationDriver extends NullDriver {
+    /**
+     * Motion limits for a single axis. Linear axes are in millimeters, the rotation axis in
+     * degrees.
+     */
+    public static class AxisLimits {
+        /**
+         * Units per minute, as in a G-code feed rate.
+         */
+        @Attribute(required = false)
+        private double feedRatePerMinute;
+
+        /**
+         * Units per second squared. 0 means the axis reaches full speed instantly.
+         */
+        @Attribute(required = false)
+        private double acceleration;
+
+        /**
+         * Units per second cubed. 0 means acceleration changes instantly, giving a trapezoidal
+         * velocity profile.
+         */
+        @Attribute(required = false)
+        private double jerk;
+
+        public AxisLimits() {
+
+        }
+
+        public AxisLimits(double feedRatePerMinute, double acceleration, double jerk) {
+            this.feedRatePerMinute = feedRatePerMinute;
+            this.acceleration = acceleration;
+            this.jerk = jerk;
+        }
+
+        /**
+         * Seconds needed to move the given distance, starting and ending at rest, at the given
+         * fraction of the maximum feed rate.
+         */
+        public double getMoveTime(double distance, double speed) {
+            distance = Math.abs(distance);
+            double velocity = feedRatePerMinute / 60.0 * Math.max(speed, 0.01);
+            if (distance == 0 || velocity <= 0) {
+                return 0;
+            }
+            if (acceleration <= 0) {
+                return distance / velocity;
+            }
+            double rampTime = getRampTime(velocity);
+            // Ramping up and down is symmetric, so together they cover the peak velocity times
+            // the time of one ramp.
+            if (velocity * rampTime <= distance) {
+                return 2 * rampTime + (distance - velocity * rampTime) / velocity;
+            }
+            // The move is too short to reach full speed. Find the peak velocity whose ramps
+            // cover exactly the distance.
+            double low = 0;
+            double high = velocity;
+            for (int i = 0; i < 50; i++) {
+                double peak = (low + high) / 2;
+                if (peak * getRampTime(peak) < distance) {
+                    low = peak;
+                }
+                else {
+                    high = peak;
+                }
+            }
+            return 2 * getRampTime((low + high) / 2);
+        }
+
+        /**
+         * Seconds needed to go from rest to the given velocity.
+         */
+        private double getRampTime(double velocity) {
+            if (jerk <= 0) {
+                return velocity / acceleration;
+            }
+            if (velocity * jerk >= acceleration * acceleration) {
+                // Acceleration reaches its limit and holds there for a while.
+                return velocity / acceleration + acceleration / jerk;
+            }
+            // Acceleration ramps up and straight back down without reaching its limit.
+            return 2 * Math.sqrt(velocity / jerk);
+        }
+
+        public double getFeedRatePerMinute() {
+            return feedRatePerMinute;
+        }
+
+        public void setFeedRatePerMinute(double feedRatePerMinute) {
+            this.feedRatePerMinute = feedRatePerMinute;
+        }
+
+        public double getAcceleration() {
+            return acceleration;
+        }
+
+        public void setAcceleration(double acceleration) {
+            this.acceleration = acceleration;
+        }
+
+        public double getJerk() {
+            return jerk;
+        }
+
+        public void setJerk(double jerk) {
+            this.jerk = jerk;
+        }
+    }
+
+    @Element(required = false)
+    private AxisLimits x = new AxisLimits(30000, 2000, 50000);
+
+    @Element(required = false)
+    private AxisLimits y = new AxisLimits(30000, 2000, 50000);
+
+    @Element(required = false)
+    private AxisLimits z = new AxisLimits(10000, 1000, 20000);
+
+    @Element(required = false)
+    private AxisLimits c = new AxisLimits(36000, 5000, 0);
+
+    /**
+     * Time for the controller to acknowledge any command, added to every operation.
+     */
+    @Attribute(required = false)
+    private long commandLatencyMilliseconds = 2;
+
+    /**
+     * Time for an actuator, such as a drag pin solenoid or feeder, to respond.
+     */
+    @Attribute(required = false)
+    private long actuatorLatencyMilliseconds = 20;
+
+    /**
+     * Time for the vacuum valve to switch on pick and place, before the nozzle dwell.
+     */
+    @Attribute(required = false)
+    private long valveLatencyMilliseconds = 10;
+
+    @Attribute(required = false)
+    private long homeMilliseconds = 5000;
+
+    private long clockNanos;
+
+    private long moveCount;
+
+    private long moveNanos;
+
+    /**
+     * Reset the clock and the counters to zero.
+     */
+    public synchronized void resetClock() {
+        clockNanos = 0;
+        moveCount = 0;
+        moveNanos = 0;
+    }
+
+    /**
+     * The modeled time since the clock was reset, in nanoseconds.
+     */
+    public synchronized long getClockNanos() {
+        return clockNanos;
+    }
+
+    /**
+     * Modeled time spent moving since the clock was reset, in nanoseconds.
+     */
+    public synchronized long getMoveNanos() {
+        return moveNanos;
+    }
+
+    public synchronized long getMoveCount() {
+        return moveCount;
+    }
+
+    private void advance(double seconds) {
+        advanceNanos((long) (seconds * 1e9));
+    }
+
+    protected synchronized void advanceNanos(long nanos) {
+        clockNanos += nanos;
+    }
+
+    private void advanceMilliseconds(long milliseconds) {
+        advance((milliseconds + commandLatencyMilliseconds) / 1000.0);
+    }
+
+    @Override
+    public void home(ReferenceHead head) throws Exception {
+        super.home(head);
+        advanceMilliseconds(homeMilliseconds);
+    }
+
+    /**
+     * Dwelling is waiting on the host, so there is no command latency to add.
+     */
+    @Override
+    public void dwell(long milliseconds) throws Exception {
+        if (milliseconds > 0) {
+            advance(milliseconds / 1000.0);
+        }
+    }
+
+    /**
+     * The modeled clock, so that waits measured against it line up with dwell().
+     */
+    @Override
+    public long currentTimeMillis() {
+        return getClockNanos() / 1000000;
+    }
+
+    @Override
+    public void moveTo(ReferenceHeadMountable hm, Location location, double speed)
+            throws Exception {
+        Location from = getHeadLocation(hm.getHead());
+        super.moveTo(hm, location, speed);
+        Location to = getHeadLocation(hm.getHead());
+
+        double seconds = getMoveTime(hm, from, to, speed);
+        synchronized (this) {
+            moveCount++;
+            moveNanos += (long) (seconds * 1e9);
+        }
+        advance(seconds);
+        Logger.trace("moveTo {} modeled {}", hm,
+                String.format(Locale.US, "%.4f s", seconds));
+    }
+
+    /**
+     * The modeled time for a move of the head from one location to another, including the command
+     * latency, in seconds.
+     */
+    protected double getMoveTime(ReferenceHeadMountable hm, Location from, Location to,
+            double speed) {
+        double seconds = Math.max(
+                Math.max(x.getMoveTime(to.getX() - from.getX(), speed),
+                        y.getMoveTime(to.getY() - from.getY(), speed)),
+                Math.max(z.getMoveTime(to.getZ() - from.getZ(), speed),
+                        c.getMoveTime(to.getRotation() - from.getRotation(), speed)));
+        return seconds + commandLatencyMilliseconds / 1000.0;
+    }
+
+    /**
+     * The clock is a single timeline, so heads moving at the same time would add up their times
+     * rather than overlap them.
+     */
+    @Override
+    public boolean supportsConcurrentHeads() {
+        return false;
+    }
+
+    /**
+     * The slower of the X and Y axes.
+     */
+    @Override
+    public Length getMaxFeedRatePerMinute() {
+        return new Length(Math.min(x.getFeedRatePerMinute(), y.getFeedRatePerMinute()),
+                LengthUnit.Millimeters);
+    }
+
+    /**
+     * Motion is modeled in moveTo, so there is nothing to simulate here.
+     */
+    @Override
+    protected void simulateMovement(ReferenceHeadMountable hm, Location location, Location hl,
+            double speed) throws Exception {
+
+    }
+
+    @Override
+    public void pick(ReferenceNozzle nozzle) throws Exception {
+        Logger.debug("pick({})", nozzle);
+        checkEnabled();
+        advanceMilliseconds(valveLatencyMilliseconds);
+    }
+
+    @Override
+    public void place(ReferenceNozzle nozzle) throws Exception {
+        Logger.debug("place({})", nozzle);
+        checkEnabled();
+        advanceMilliseconds(valveLatencyMilliseconds);
+    }
+
+    @Override
+    public void actuate(ReferenceActuator actuator, boolean on) throws Exception {
+        Logger.debug("actuate({}, {})", actuator, on);
+        checkEnabled();
+        advanceMilliseconds(actuatorLatencyMilliseconds);
+    }
+
+    @Override
+    public void actuate(ReferenceActuator actuator, double value) throws Exception {
+        Logger.debug("actuate({}, {})", actuator, value);
+        checkEnabled();
+        advanceMilliseconds(actuatorLatencyMilliseconds);
+    }
+
+    @Override
+    public String actuatorRead(ReferenceActuator actuator) throws Exception {
+        advanceMilliseconds(actuatorLatencyMilliseconds);
+        return super.actuatorRead(actuator);
+    }
+
+    @Override
+    public void dispense(ReferencePasteDispenser dispenser, Location startLocation,
+            Location endLocation, long dispenseTimeMilliseconds) throws Exception {
+        Logger.debug("dispense({}, {}, {}, {})",
+                new Object[] {dispenser, startLocation, endLocation, dispenseTimeMilliseconds});
+        checkEnabled();
+        advanceMilliseconds(dispenseTimeMilliseconds);
+    }
+
+    public AxisLimits getX() {
+        return x;
+    }
+
+    public void setX(AxisLimits x) {
+        this.x = x;
+    }
+
+    public AxisLimits getY() {
+        return y;
+    }
+
+    public void setY(AxisLimits y) {
+        this.y = y;
+    }
+
+    public AxisLimits getZ() {
+        return z;
+    }
+
+    public void setZ(AxisLimits z) {
+        this.z = z;
+    }
+
+    public AxisLimits getC() {
+        return c;
+    }
+
+    public void setC(AxisLimits c) {
+        this.c = c;
+    }
+
+    public long getCommandLatencyMilliseconds() {
+        return commandLatencyMilliseconds;
+    }
+
+    public void setCommandLatencyMilliseconds(long commandLatencyMilliseconds) {
+        this.commandLatencyMilliseconds = commandLatencyMilliseconds;
+    }
+
+    public long getActuatorLatencyMilliseconds() {
+        return actuatorLatencyMilliseconds;
+    }
+
+    public void setActuatorLatencyMilliseconds(long actuatorLatencyMilliseconds) {
+        this.actuatorLatencyMilliseconds = actuatorLatencyMilliseconds;
+    }
+
+    public long getValveLatencyMilliseconds() {
+        return valveLatencyMilliseconds;
+    }
+
+    public void setValveLatencyMilliseconds(long valveLatencyMilliseconds) {
+        this.valveLatencyMilliseconds = valveLatencyMilliseconds;
+    }
+
+    public long getHomeMilliseconds() {
+        return homeMilliseconds;
+    }
+
+    public void setHomeMilliseconds(long homeMilliseconds) {
+        this.homeMilliseconds = homeMilliseconds;
+    }
+}
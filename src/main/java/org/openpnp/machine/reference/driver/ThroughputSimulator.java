@@ -0,0 +1,173 @@
+package org.openpnp.machine.reference.driver;
+
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.machine.reference.ReferencePnpJobProcessor;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Job;
+
+/**
+ * Runs a Job headless on a machine driven by the SimulationDriver and reports how long it would
+ * take on the modeled machine. The machine's configuration is used as is, so cameras should be
+ * ImageCamera and SimulatedUpCamera for vision to work.
+ *
+ * Can be run from the command line with a configuration directory and a job file:
+ *
+ * <pre>
+ * java -cp openpnp.jar org.openpnp.machine.reference.driver.ThroughputSimulator \
+ *     ~/.openpnp board.job.xml
+ * </pre>
+ */
+public class ThroughputSimulator {
+    public static class Report {
+        final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+        long totalNanos;
+        long moveNanos;
+        long moveCount;
+        int parts;
+
+        /**
+         * Predicted time for the whole job, in seconds.
+         */
+        public double getCycleTime() {
+            return totalNanos / 1e9;
+        }
+
+        /**
+         * Predicted time spent in each step of the job, in seconds, in the order the steps were
+         * first entered.
+         */
+        public Map<String, Double> getPhaseTimes() {
+            Map<String, Double> times = new LinkedHashMap<>();
+            for (Entry<String, Long> entry : phaseNanos.entrySet()) {
+                times.put(entry.getKey(), entry.getValue() / 1e9);
+            }
+            return times;
+        }
+
+        /**
+         * Predicted time spent moving, in seconds.
+         */
+        public double getMoveTime() {
+            return moveNanos / 1e9;
+        }
+
+        public long getMoveCount() {
+            return moveCount;
+        }
+
+        public int getParts() {
+            return parts;
+        }
+
+        public double getPartsPerHour() {
+            return totalNanos == 0 ? 0 : parts / (totalNanos / 1e9 / 3600.0);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "Cycle time %.3f s, %d parts, %.0f parts/hour%n",
+                    getCycleTime(), parts, getPartsPerHour()));
+            sb.append(String.format(Locale.US, "  %-16s %10.3f s (%d moves)%n", "Motion",
+                    getMoveTime(), moveCount));
+            for (Entry<String, Double> entry : getPhaseTimes().entrySet()) {
+                sb.append(String.format(Locale.US, "  %-16s %10.3f s %5.1f%%%n", entry.getKey(),
+                        entry.getValue(), 100.0 * entry.getValue() / getCycleTime()));
+            }
+            return sb.toString();
+        }
+
+        /**
+         * A table of the time for each phase in a baseline report, such as a recorded session,
+         * the time in this one and the difference between them.
+         */
+        public String compare(Report baseline) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "  %-16s %10s %10s %10s %8s%n", "", "Baseline",
+                    "This", "Delta", ""));
+            appendDelta(sb, "Cycle", baseline.getCycleTime(), getCycleTime());
+            appendDelta(sb, "Motion", baseline.getMoveTime(), getMoveTime());
+            Map<String, Double> phases = new LinkedHashMap<>(baseline.getPhaseTimes());
+            for (String phase : getPhaseTimes().keySet()) {
+                phases.putIfAbsent(phase, 0.0);
+            }
+            for (String phase : phases.keySet()) {
+                appendDelta(sb, phase, phases.get(phase),
+                        getPhaseTimes().getOrDefault(phase, 0.0));
+            }
+            return sb.toString();
+        }
+
+        private static void appendDelta(StringBuilder sb, String name, double baseline,
+                double time) {
+            String percent = baseline == 0 ? ""
+                    : String.format(Locale.US, "%+7.1f%%", 100.0 * (time - baseline) / baseline);
+            sb.append(String.format(Locale.US, "  %-16s %8.3f s %8.3f s %+8.3f s %8s%n", name,
+                    baseline, time, time - baseline, percent));
+        }
+    }
+
+    /**
+     * Run the job on the machine and return the predicted timings. If the machine isn't using
+     * the SimulationDriver, directly or wrapped in a RecordingDriver, it is replaced with one with
+     * default limits.
+     */
+    public static Report run(ReferenceMachine machine, Job job) throws Exception {
+        SimulationDriver driver = machine.getDriver().unwrap(SimulationDriver.class);
+        if (driver == null) {
+            driver = new SimulationDriver();
+            machine.setDriver(driver);
+        }
+        ReferencePnpJobProcessor jobProcessor =
+                (ReferencePnpJobProcessor) machine.getPnpJobProcessor();
+
+        Report report = new Report();
+        String[] phase = new String[] {"Initialize"};
+        long[] phaseStart = new long[1];
+        PropertyChangeListener listener = (e) -> {
+            long now = driver.getClockNanos();
+            report.phaseNanos.merge(phase[0], now - phaseStart[0], Long::sum);
+            phase[0] = String.valueOf(e.getNewValue());
+            phaseStart[0] = now;
+        };
+
+        machine.setEnabled(true);
+        driver.resetClock();
+        jobProcessor.addStateListener(listener);
+        try {
+            jobProcessor.initialize(job);
+            while (jobProcessor.next());
+        }
+        finally {
+            jobProcessor.removeStateListener(listener);
+        }
+        long now = driver.getClockNanos();
+        report.phaseNanos.merge(phase[0], now - phaseStart[0], Long::sum);
+        report.totalNanos = now;
+        report.moveNanos = driver.getMoveNanos();
+        report.moveCount = driver.getMoveCount();
+        report.parts = jobProcessor.getTotalPartsPlaced();
+        machine.setEnabled(false);
+        return report;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: ThroughputSimulator <configuration directory> <job file>");
+            System.exit(1);
+        }
+        Configuration.initialize(new File(args[0]));
+        Configuration.get().load();
+        ReferenceMachine machine = (ReferenceMachine) Configuration.get().getMachine();
+        Job job = Configuration.get().loadJob(new File(args[1]));
+        System.out.print(run(machine, job));
+        System.exit(0);
+    }
+}
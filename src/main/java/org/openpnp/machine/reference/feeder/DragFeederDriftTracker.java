@@ -0,0 +1,181 @@
+package org.openpnp.machine.reference.feeder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+
+/**
+ * Keeps a running estimate of how a drag feeder's vision offset changes from feed to feed so
+ * that the feeder can skip the camera check when the tape is behaving.
+ *
+ * Each vision measurement is compared with the previous one to get the drift per feed. The mean
+ * drift is used to predict the offset for feeds that aren't checked, and the spread of the drift
+ * around that mean is treated as a random walk to estimate how uncertain the prediction is after
+ * a number of unchecked feeds. Both are exponentially weighted so that the estimate follows a
+ * tape that changes behavior part way through a reel.
+ *
+ * All values are in millimeters.
+ */
+public class DragFeederDriftTracker {
+    /**
+     * Weight given to each new drift measurement.
+     */
+    private static final double ALPHA = 0.3;
+
+    /**
+     * Number of measured intervals needed before the estimate is trusted at all.
+     */
+    private static final int MIN_SAMPLES = 3;
+
+    private static final int HISTORY_SIZE = 100;
+
+    public static class Entry {
+        public final long timestamp;
+        public final int feedCount;
+        public final Location offset;
+        public final boolean measured;
+        public final double uncertainty;
+
+        Entry(int feedCount, Location offset, boolean measured, double uncertainty) {
+            this.timestamp = System.currentTimeMillis();
+            this.feedCount = feedCount;
+            this.offset = offset;
+            this.measured = measured;
+            this.uncertainty = uncertainty;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d %s %s (%.4f)", feedCount,
+                    measured ? "measured" : "estimated", offset, uncertainty);
+        }
+    }
+
+    private final LinkedList<Entry> history = new LinkedList<>();
+
+    private Location lastMeasured;
+
+    private int feedCount;
+
+    private int lastMeasuredFeedCount;
+
+    private int samples;
+
+    private double meanDriftX;
+
+    private double meanDriftY;
+
+    private double driftVariance;
+
+    /**
+     * Record a vision measurement made after a feed.
+     */
+    public synchronized void measured(Location offset) {
+        offset = offset.convertToUnits(LengthUnit.Millimeters);
+        feedCount++;
+        if (lastMeasured != null) {
+            int feeds = feedCount - lastMeasuredFeedCount;
+            double driftX = (offset.getX() - lastMeasured.getX()) / feeds;
+            double driftY = (offset.getY() - lastMeasured.getY()) / feeds;
+            if (samples == 0) {
+                meanDriftX = driftX;
+                meanDriftY = driftY;
+            }
+            else {
+                // Residual of the whole interval against the mean, scaled to a single feed's
+                // variance assuming a random walk.
+                double residualX = (driftX - meanDriftX) * feeds;
+                double residualY = (driftY - meanDriftY) * feeds;
+                double variance = (residualX * residualX + residualY * residualY) / feeds;
+                driftVariance = samples == 1 ? variance
+                        : (1 - ALPHA) * driftVariance + ALPHA * variance;
+                meanDriftX = (1 - ALPHA) * meanDriftX + ALPHA * driftX;
+                meanDriftY = (1 - ALPHA) * meanDriftY + ALPHA * driftY;
+            }
+            samples++;
+        }
+        lastMeasured = offset;
+        lastMeasuredFeedCount = feedCount;
+        addHistory(new Entry(feedCount, offset, true, 0));
+    }
+
+    /**
+     * Record a feed that was not checked with vision.
+     *
+     * @return The estimated offset after the feed.
+     */
+    public synchronized Location estimated() {
+        feedCount++;
+        Location offset = getEstimate();
+        addHistory(new Entry(feedCount, offset, false, getUncertainty()));
+        return offset;
+    }
+
+    /**
+     * The predicted offset after the most recent feed.
+     */
+    public synchronized Location getEstimate() {
+        if (lastMeasured == null) {
+            return null;
+        }
+        int feeds = feedCount - lastMeasuredFeedCount;
+        return lastMeasured.add(new Location(LengthUnit.Millimeters, meanDriftX * feeds,
+                meanDriftY * feeds, 0, 0));
+    }
+
+    /**
+     * The estimated standard deviation, in millimeters, of the error in the offset predicted for
+     * the next feed if it is not checked. Infinite until enough measurements have been made.
+     */
+    public synchronized double getUncertainty() {
+        if (samples < MIN_SAMPLES) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int feeds = feedCount - lastMeasuredFeedCount + 1;
+        return Math.sqrt(driftVariance * feeds);
+    }
+
+    /**
+     * Number of feeds since the last vision measurement.
+     */
+    public synchronized int getFeedsSinceMeasured() {
+        return feedCount - lastMeasuredFeedCount;
+    }
+
+    /**
+     * Forget everything, used when the offset is known to be wrong, such as after a failed pick.
+     */
+    public synchronized void reset() {
+        lastMeasured = null;
+        samples = 0;
+        meanDriftX = 0;
+        meanDriftY = 0;
+        driftVariance = 0;
+        lastMeasuredFeedCount = feedCount;
+    }
+
+    /**
+     * Recent offsets, oldest first, both measured and estimated.
+     */
+    public synchronized List<Entry> getHistory() {
+        return Collections.unmodifiableList(new ArrayList<>(history));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "drift (%.4f, %.4f) mm/feed, sigma %.4f mm, samples %d",
+                meanDriftX, meanDriftY, Math.sqrt(driftVariance), samples);
+    }
+
+    private void addHistory(Entry entry) {
+        history.add(entry);
+        while (history.size() > HISTORY_SIZE) {
+            history.removeFirst();
+        }
+    }
+}
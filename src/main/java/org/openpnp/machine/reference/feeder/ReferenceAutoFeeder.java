@@ -22,7 +22,9 @@ package org.openpnp.machine.reference.feeder;
 import javax.swing.Action;
 
 import org.openpnp.gui.support.Wizard;
+import org.openpnp.machine.reference.ReferenceDriver;
 import org.openpnp.machine.reference.ReferenceFeeder;
+import org.openpnp.machine.reference.ReferenceMachine;
 import org.openpnp.machine.reference.feeder.wizards.ReferenceAutoFeederConfigurationWizard;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Location;
@@ -61,11 +63,79 @@ public class ReferenceAutoFeeder extends ReferenceFeeder {
         return location;
     }
 
+    /**
+     * Time the feeder needs after the feed actuator fires before the part can be picked. feed()
+     * waits out whatever remains of it, so a prefed part usually costs no wait at all.
+     */
+    @Attribute(required=false)
+    protected long feedSettleMilliseconds;
+
+    /**
+     * When a prefeed last fired the feed actuator, by the driver's clock, or -1 if there is no
+     * prefed part waiting to be picked.
+     */
+    private long prefedTime = -1;
+
     @Override
     public void feed(Nozzle nozzle) throws Exception {
+        // The settle time is measured and waited out on the driver's clock, which a simulated
+        // machine keeps on its own.
+        ReferenceDriver driver = getDriver();
+        long fedTime;
+        if (prefedTime >= 0) {
+            // The part was already advanced by prefeed(), so just let it settle.
+            Logger.debug("{} using prefed part.", getName());
+            fedTime = prefedTime;
+            prefedTime = -1;
+        }
+        else {
+            if (!actuateFeed(nozzle)) {
+                return;
+            }
+            fedTime = driver.currentTimeMillis();
+        }
+        long remaining = feedSettleMilliseconds - (driver.currentTimeMillis() - fedTime);
+        if (remaining > 0) {
+            driver.dwell(remaining);
+        }
+    }
+
+    /**
+     * Fire the feed actuator ahead of time. Only one part is ever prefed, so repeated calls before
+     * the next feed() do nothing. If the actuator fails the feeder is left without a prefed part
+     * and feed() falls back to actuating normally.
+     */
+    @Override
+    public boolean prefeed(Nozzle nozzle) throws Exception {
+        if (prefedTime < 0 && actuateFeed(nozzle)) {
+            prefedTime = getDriver().currentTimeMillis();
+        }
+        return isPrefed();
+    }
+
+    /**
+     * Forget the part advanced by prefeed(), if any, so the next feed() actuates again. Used
+     * when whatever the actuator advances is no longer what this feeder picks from.
+     */
+    protected void clearPrefeed() {
+        prefedTime = -1;
+    }
+
+    private static ReferenceDriver getDriver() {
+        return ((ReferenceMachine) Configuration.get().getMachine()).getDriver();
+    }
+
+    /**
+     * True if a part has been advanced by prefeed() and not yet used by feed().
+     */
+    public boolean isPrefed() {
+        return prefedTime >= 0;
+    }
+
+    private boolean actuateFeed(Nozzle nozzle) throws Exception {
         if (actuatorName == null || actuatorName.equals("")) {
             Logger.warn("No actuatorName specified for feeder {}.", getName());
-            return;
+            return false;
         }
         Actuator actuator = nozzle.getHead().getActuatorByName(actuatorName);
         if (actuator == null) {
@@ -80,6 +150,7 @@ public class ReferenceAutoFeeder extends ReferenceFeeder {
         else {
             actuator.actuate(actuatorValue);
         }
+        return true;
     }
     
     @Override
@@ -126,6 +197,14 @@ public class ReferenceAutoFeeder extends ReferenceFeeder {
         this.actuatorValue = actuatorValue;
     }
 
+    public long getFeedSettleMilliseconds() {
+        return feedSettleMilliseconds;
+    }
+
+    public void setFeedSettleMilliseconds(long feedSettleMilliseconds) {
+        this.feedSettleMilliseconds = feedSettleMilliseconds;
+    }
+
     public String getPostPickActuatorName() {
         return postPickActuatorName;
     }
@@ -19,19 +19,21 @@
 
 package org.openpnp.machine.reference.feeder;
 
-import java.awt.Point;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 import javax.imageio.ImageIO;
 import javax.swing.Action;
+import javax.swing.SwingUtilities;
 
 import org.openpnp.ConfigurationListener;
 import org.openpnp.gui.support.Wizard;
 import org.openpnp.machine.reference.ReferenceFeeder;
+import org.openpnp.machine.reference.ReferenceMachine;
 import org.openpnp.machine.reference.feeder.wizards.ReferenceDragFeederConfigurationWizard;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Length;
@@ -44,6 +46,7 @@ import org.openpnp.spi.Head;
 import org.openpnp.spi.Nozzle;
 import org.openpnp.spi.PropertySheetHolder;
 import org.openpnp.spi.VisionProvider;
+import org.openpnp.spi.VisionProvider.TemplateMatch;
 import org.openpnp.util.Utils2D;
 import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Attribute;
@@ -65,6 +68,11 @@ import org.simpleframework.xml.core.Persist;
  * commanded to pick the Part it only needs to move the distance of the Vision Offsets and do the
  * pick. The Vision Offsets are then used in the next feed operation to be sure to hit the tape at
  * the right position.
+ * 
+ * With drift tracking enabled the Vision Operation after a feed is skipped when the offset can be
+ * predicted from previous feeds with enough confidence. The predicted offset is used in its place,
+ * and vision is run again every few feeds, when the prediction becomes too uncertain, or after a
+ * failed pick.
  */
 public class ReferenceDragFeeder extends ReferenceFeeder {
 
@@ -94,6 +102,8 @@ public class ReferenceDragFeeder extends ReferenceFeeder {
      */
     protected Location visionOffset;
 
+    protected DragFeederDriftTracker driftTracker = new DragFeederDriftTracker();
+
     @Override
     public Location getPickLocation() throws Exception {
         if (pickLocation == null) {
@@ -182,14 +192,52 @@ public class ReferenceDragFeeder extends ReferenceFeeder {
         actuator.actuate(false);
 
         if (vision.isEnabled()) {
-            visionOffset = getVisionOffsets(head, location);
-
-            Logger.debug("final visionOffsets " + visionOffset);
+            if (canSkipVision()) {
+                visionOffset = driftTracker.estimated();
+                Logger.debug("estimated visionOffsets {}, {}", visionOffset, driftTracker);
+            }
+            else {
+                visionOffset = getVisionOffsets(head, location);
+                driftTracker.measured(visionOffset);
+                Logger.debug("final visionOffsets " + visionOffset);
+            }
         }
 
         Logger.debug("Modified pickLocation {}", pickLocation);
     }
 
+    private boolean canSkipVision() {
+        if (!vision.isDriftTracking() || visionOffset == null) {
+            return false;
+        }
+        if (driftTracker.getFeedsSinceMeasured() + 1 >= vision.getVerifyInterval()) {
+            return false;
+        }
+        return driftTracker.getUncertainty() <= vision.getMaxUncertainty();
+    }
+
+    /**
+     * The vision offset is the most likely reason for a missed pick and can no longer be trusted,
+     * so the next feed runs the full vision pre-flight and the drift estimate starts over.
+     */
+    @Override
+    public void pickFailed(Nozzle nozzle) {
+        Logger.debug("{} pick failed, invalidating vision offsets.", getName());
+        visionOffset = null;
+        driftTracker.reset();
+    }
+
+    /**
+     * Recent vision offsets after each feed, both measured and estimated, for diagnostics.
+     */
+    public List<DragFeederDriftTracker.Entry> getVisionOffsetHistory() {
+        return driftTracker.getHistory();
+    }
+
+    public DragFeederDriftTracker getDriftTracker() {
+        return driftTracker;
+    }
+
     // TODO: Throw an Exception if vision fails.
     private Location getVisionOffsets(Head head, Location pickLocation) throws Exception {
         Logger.debug("getVisionOffsets({}, {})", head.getName(), pickLocation);
@@ -216,60 +264,33 @@ public class ReferenceDragFeeder extends ReferenceFeeder {
         // head.moveTo(head.getX(), head.getY(), z, head.getC());
 
         // Settle the camera
-        Thread.sleep(camera.getSettleTimeMs());
+        ReferenceMachine machine = (ReferenceMachine) Configuration.get().getMachine();
+        machine.getDriver().dwell(camera.getSettleTimeMs());
 
         VisionProvider visionProvider = camera.getVisionProvider();
 
         Rectangle aoi = getVision().getAreaOfInterest();
 
-        // Perform the template match
+        // Perform the template match. The provider keeps the template's pyramid between calls
+        // since the same template image is passed each time.
         Logger.debug("Perform template match.");
-        Point[] matchingPoints = visionProvider.locateTemplateMatches(aoi.getX(), aoi.getY(),
-                aoi.getWidth(), aoi.getHeight(), 0, 0, vision.getTemplateImage());
-
-        // Get the best match from the array
-        Point match = matchingPoints[0];
-
-        // match now contains the position, in pixels, from the top left corner
-        // of the image to the top left corner of the match. We are interested in
-        // knowing how far from the center of the image the center of the match is.
-        double imageWidth = camera.getWidth();
-        double imageHeight = camera.getHeight();
-        double templateWidth = vision.getTemplateImage().getWidth();
-        double templateHeight = vision.getTemplateImage().getHeight();
-        double matchX = match.x;
-        double matchY = match.y;
-
-        Logger.debug("matchX {}, matchY {}", matchX, matchY);
-
-        // Adjust the match x and y to be at the center of the match instead of
-        // the top left corner.
-        matchX += (templateWidth / 2);
-        matchY += (templateHeight / 2);
-
-        Logger.debug("centered matchX {}, matchY {}", matchX, matchY);
-
-        // Calculate the difference between the center of the image to the
-        // center of the match.
-        double offsetX = (imageWidth / 2) - matchX;
-        double offsetY = (imageHeight / 2) - matchY;
-
-        Logger.debug("offsetX {}, offsetY {}", offsetX, offsetY);
-
-        // Invert the Y offset because images count top to bottom and the Y
-        // axis of the machine counts bottom to top.
-        offsetY *= -1;
+        TemplateMatch match = visionProvider.getBestTemplateMatch(aoi.getX(), aoi.getY(),
+                aoi.getWidth(), aoi.getHeight(), vision.getTemplateImage());
+        if (match == null) {
+            throw new Exception("Drag feeder " + getName()
+                    + " template match failed. Is the area of interest smaller than the template?");
+        }
 
-        Logger.debug("negated offsetX {}, offsetY {}", offsetX, offsetY);
+        Logger.debug("match {}", match);
 
-        // And convert pixels to units
-        Location unitsPerPixel = camera.getUnitsPerPixel();
-        offsetX *= unitsPerPixel.getX();
-        offsetY *= unitsPerPixel.getY();
+        // The match is the location of the center of the template, so the offset is the
+        // difference between it and the center of the camera.
+        Location offset =
+                camera.getLocation().subtract(match.location).derive(null, null, 0d, 0d);
 
-        Logger.debug("final, in camera units offsetX {}, offsetY {}", offsetX, offsetY);
+        Logger.debug("final, in camera units offset {}", offset);
 
-        return new Location(unitsPerPixel.getUnits(), offsetX, offsetY, 0, 0);
+        return offset;
     }
 
     @Override
@@ -376,18 +397,35 @@ public class ReferenceDragFeeder extends ReferenceFeeder {
         private Location templateImageTopLeft = new Location(LengthUnit.Millimeters);
         @Element(required = false)
         private Location templateImageBottomRight = new Location(LengthUnit.Millimeters);
+        @Attribute(required = false)
+        private boolean driftTracking;
+        /**
+         * Vision is always run after at least this many feeds, even when the drift estimate is
+         * confident.
+         */
+        @Attribute(required = false)
+        private int verifyInterval = 10;
+        /**
+         * Largest estimated error, in millimeters, in a predicted offset that is accepted without
+         * running vision.
+         */
+        @Attribute(required = false)
+        private double maxUncertainty = 0.05;
 
-        private BufferedImage templateImage;
+        private volatile BufferedImage templateImage;
         private boolean templateImageDirty;
 
         public Vision() {
-            Configuration.get().addListener(new ConfigurationListener.Adapter() {
+            Configuration.get().addListener(new ConfigurationListener.ConcurrentAdapter() {
                 @Override
                 public void configurationComplete(Configuration configuration) throws Exception {
                     if (templateImageName != null) {
                         File file = configuration.getResourceFile(Vision.this.getClass(),
                                 templateImageName);
-                        templateImage = ImageIO.read(file);
+                        // Only the slow read is done on the loading pool. The image is handed
+                        // over on the Swing thread, which is where the wizard reads it.
+                        BufferedImage image = ImageIO.read(file);
+                        SwingUtilities.invokeLater(() -> templateImage = image);
                     }
                 }
             });
@@ -452,5 +490,29 @@ public class ReferenceDragFeeder extends ReferenceFeeder {
         public void setTemplateImageBottomRight(Location templateImageBottomRight) {
             this.templateImageBottomRight = templateImageBottomRight;
         }
+
+        public boolean isDriftTracking() {
+            return driftTracking;
+        }
+
+        public void setDriftTracking(boolean driftTracking) {
+            this.driftTracking = driftTracking;
+        }
+
+        public int getVerifyInterval() {
+            return verifyInterval;
+        }
+
+        public void setVerifyInterval(int verifyInterval) {
+            this.verifyInterval = verifyInterval;
+        }
+
+        public double getMaxUncertainty() {
+            return maxUncertainty;
+        }
+
+        public void setMaxUncertainty(double maxUncertainty) {
+            this.maxUncertainty = maxUncertainty;
+        }
     }
 }
@@ -153,6 +153,11 @@ public class ReferenceRotatedTrayFeeder extends ReferenceFeeder {
 		this.trayRotation = trayrotation;
 	}
 
+	@Override
+	public int getRemainingCount() {
+		return Math.max(0, (trayCountCols * trayCountRows) - feedCount);
+	}
+
 	public int getFeedCount() {
 		return feedCount;
 	}
@@ -88,6 +88,17 @@ public class ReferenceSlotAutoFeeder extends ReferenceAutoFeeder {
         super.feed(nozzle);
     }
 
+    /**
+     * An empty slot has nothing to prefeed.
+     */
+    @Override
+    public boolean prefeed(Nozzle nozzle) throws Exception {
+        if (getFeeder() == null) {
+            return false;
+        }
+        return super.prefeed(nozzle);
+    }
+
     @Override
     public void postPick(Nozzle nozzle) throws Exception {
         if (getFeeder() == null) {
@@ -142,6 +153,10 @@ public class ReferenceSlotAutoFeeder extends ReferenceAutoFeeder {
               throw new Exception("Can't set feeder from another bank.");
           }
         }
+        if (feeder != getFeeder()) {
+            // A part prefed for the feeder that was in the slot isn't in the one that is now.
+            clearPrefeed();
+        }
         getBank().setFeeder(this, feeder);
     }
     
@@ -23,7 +23,9 @@ package org.openpnp.machine.reference.feeder;
 
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.Action;
 
@@ -41,6 +43,7 @@ import org.openpnp.spi.PropertySheetHolder;
 import org.openpnp.util.MovableUtils;
 import org.openpnp.util.Utils2D;
 import org.openpnp.vision.FluentCv;
+import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.Element;
 
@@ -114,6 +117,17 @@ public class ReferenceStripFeeder extends ReferenceFeeder {
     private Location visionOffsets;
     private Location visionLocation;
 
+    /**
+     * Hole locations for upcoming feeds, keyed by feed count, predicted from the holes seen in the
+     * last capture. A feed with an entry here uses it instead of moving the camera.
+     */
+    private Map<Integer, Location> predictedHoleLocations = new HashMap<>();
+
+    /**
+     * Feeds in a row that have used a predicted hole location without checking it.
+     */
+    private int predictedFeeds;
+
     public Length getHoleDiameterMin() {
         return getHoleDiameter().multiply(0.9);
     }
@@ -142,6 +156,22 @@ public class ReferenceStripFeeder extends ReferenceFeeder {
         return 9;
     }
 
+    /**
+     * If the holes in a capture don't fit a straight, evenly spaced line to within this RMS
+     * distance none of them are used to predict later feeds.
+     */
+    public Length getHoleFitResidualMax() {
+        return new Length(0.1, LengthUnit.Millimeters);
+    }
+
+    /**
+     * How many feeds in a row may use a predicted hole location before one is checked with the
+     * camera. The check also predicts the following holes afresh from what it sees.
+     */
+    public int getPredictedFeedsMax() {
+        return 3;
+    }
+
     @Override
     public Location getPickLocation() throws Exception {
         int feedCount = this.feedCount;
@@ -213,61 +243,215 @@ public class ReferenceStripFeeder extends ReferenceFeeder {
         updateVisionOffsets(nozzle);
     }
 
+    /**
+     * A failed pick may mean the strip has moved, so forget the predicted hole locations and look
+     * for the next hole with the camera.
+     */
+    @Override
+    public void pickFailed(Nozzle nozzle) {
+        predictedHoleLocations.clear();
+    }
+
     private void updateVisionOffsets(Nozzle nozzle) throws Exception {
         if (!visionEnabled) {
             return;
         }
-        // go to where we expect to find the next reference hole
-        Camera camera = nozzle.getHead().getDefaultCamera();
-        Location expectedLocation = null;
         Location[] lineLocations = getIdealLineLocations();
+        Location expectedLocation = getExpectedHoleLocation(lineLocations, feedCount);
+
+        Location predictedLocation = predictedHoleLocations.remove(feedCount);
+        Location actualLocation;
+        if (predictedLocation != null && predictedFeeds < getPredictedFeedsMax()) {
+            predictedFeeds++;
+            actualLocation = predictedLocation;
+            Logger.debug("{} using predicted hole location {} for feed {}", getName(),
+                    actualLocation, feedCount);
+        }
+        else {
+            predictedFeeds = 0;
+            // go to where we expect to find the next reference hole and look for the holes
+            List<Location> holeLocations = findHoles(nozzle, expectedLocation);
+            actualLocation = closestHole(holeLocations, expectedLocation);
+            if (actualLocation == null) {
+                throw new Exception("Unable to locate reference hole. End of strip?");
+            }
+            // make sure it's not too far away
+            Length distance = actualLocation.getLinearLengthTo(expectedLocation)
+                    .convertToUnits(LengthUnit.Millimeters);
+            if (distance.getValue() > 2) {
+                throw new Exception("Unable to locate reference hole. End of strip?");
+            }
+            if (predictedLocation != null) {
+                Length error = actualLocation.getLinearLengthTo(predictedLocation)
+                        .convertToUnits(LengthUnit.Millimeters);
+                if (error.getValue() > getHoleFitResidualMax()
+                        .convertToUnits(LengthUnit.Millimeters).getValue()) {
+                    Logger.warn("{} predicted hole for feed {} was {} off, predicting again.",
+                            getName(), feedCount, error);
+                }
+            }
+            predictHoleLocations(lineLocations, holeLocations,
+                    actualLocation.subtract(expectedLocation));
+        }
+        visionOffsets = actualLocation.subtract(expectedLocation).derive(null, null, 0d, 0d);
+        visionLocation = actualLocation;
+    }
 
+    /**
+     * Where the reference hole for the given feed should be along the line between the two given
+     * locations.
+     */
+    private Location getExpectedHoleLocation(Location[] lineLocations, int feedCount) {
         if (partPitch.convertToUnits(LengthUnit.Millimeters).getValue() < 4) {
             // For tapes with a part pitch < 4 we need to check each hole
             // twice since there are two parts per reference hole.
             // Note the use of holePitch here and partPitch in the
             // alternate case below.
-            expectedLocation = Utils2D.getPointAlongLine(lineLocations[0], lineLocations[1],
+            return Utils2D.getPointAlongLine(lineLocations[0], lineLocations[1],
                     holePitch.multiply((feedCount - 1) / 2));
         }
         else {
             // For tapes with a part pitch >= 4 there is always a reference
             // hole 2mm from a part so we just multiply by the part pitch
             // skipping over holes that are not reference holes.
-            expectedLocation = Utils2D.getPointAlongLine(lineLocations[0], lineLocations[1],
+            return Utils2D.getPointAlongLine(lineLocations[0], lineLocations[1],
                     partPitch.multiply(feedCount - 1));
         }
-        MovableUtils.moveToLocationAtSafeZ(camera, expectedLocation);
-        // and look for the hole
-        Location actualLocation = findClosestHole(camera);
-        if (actualLocation == null) {
-            throw new Exception("Unable to locate reference hole. End of strip?");
+    }
+
+    /**
+     * Match the holes seen in one capture to the feeds that follow the current one and, if they
+     * lie on a straight, evenly spaced line, remember where the line puts each of them so those
+     * feeds don't need to move the camera. Matching stops at the first feed whose hole can't be
+     * seen, so only the window of holes visible in this capture is predicted.
+     * 
+     * @param offset The offset between the expected and actual location of the current hole,
+     *        used to improve the guess at where the following holes are.
+     */
+    private void predictHoleLocations(Location[] lineLocations, List<Location> holeLocations,
+            Location offset) {
+        predictedHoleLocations.clear();
+        LengthUnit units = lineLocations[0].getUnits();
+        double tolerance = holePitch.convertToUnits(units).getValue() / 4;
+
+        // Distance along the tape and the matched hole for the current feed and each following
+        // feed whose hole was seen.
+        List<Double> distances = new ArrayList<>();
+        List<Location> matches = new ArrayList<>();
+        Location first = getExpectedHoleLocation(lineLocations, feedCount);
+        // At most two feeds share a hole, which bounds the search even if the pitch is zero.
+        for (int i = feedCount; i < feedCount + 2 * holeLocations.size(); i++) {
+            Location expected =
+                    getExpectedHoleLocation(lineLocations, i).add(offset).convertToUnits(units);
+            Location match = closestHole(holeLocations, expected);
+            if (match == null
+                    || match.convertToUnits(units).getLinearDistanceTo(expected) > tolerance) {
+                break;
+            }
+            distances.add(first.getLinearDistanceTo(expected.subtract(offset)));
+            matches.add(match.convertToUnits(units));
         }
-        // make sure it's not too far away
-        Length distance = actualLocation.getLinearLengthTo(expectedLocation)
-                .convertToUnits(LengthUnit.Millimeters);
-        if (distance.getValue() > 2) {
-            throw new Exception("Unable to locate reference hole. End of strip?");
+        if (matches.size() < 2 || distances.get(distances.size() - 1) == 0) {
+            return;
         }
-        visionOffsets = actualLocation.subtract(expectedLocation).derive(null, null, 0d, 0d);
-        visionLocation = actualLocation;
+
+        int n = matches.size();
+        List<Location> fitted = fitLine(distances, matches);
+        double sumSquares = 0;
+        for (int i = 0; i < n; i++) {
+            sumSquares += Math.pow(fitted.get(i).getLinearDistanceTo(matches.get(i)), 2);
+        }
+        double residual = Math.sqrt(sumSquares / n);
+        if (residual > getHoleFitResidualMax().convertToUnits(units).getValue()) {
+            Logger.debug("{} holes don't fit a line, residual {}, not predicting.", getName(),
+                    residual);
+            return;
+        }
+        // The current feed uses the hole it actually found, the rest use the fitted line.
+        for (int i = 1; i < n; i++) {
+            predictedHoleLocations.put(feedCount + i, fitted.get(i));
+        }
+        Logger.debug("{} predicted {} holes from one capture, residual {}", getName(), n - 1,
+                residual);
+    }
+
+    /**
+     * Least squares fit of x and y against the distance along the tape.
+     * 
+     * @param distances The distance along the tape of each location.
+     * @param locations At least two locations, at no fewer than two different distances.
+     * @return Where the fitted line puts each of the locations.
+     */
+    public static List<Location> fitLine(List<Double> distances, List<Location> locations) {
+        int n = locations.size();
+        double sumD = 0, sumDD = 0, sumX = 0, sumY = 0, sumDX = 0, sumDY = 0;
+        for (int i = 0; i < n; i++) {
+            double d = distances.get(i);
+            Location l = locations.get(i);
+            sumD += d;
+            sumDD += d * d;
+            sumX += l.getX();
+            sumY += l.getY();
+            sumDX += d * l.getX();
+            sumDY += d * l.getY();
+        }
+        double denominator = n * sumDD - sumD * sumD;
+        double slopeX = (n * sumDX - sumD * sumX) / denominator;
+        double slopeY = (n * sumDY - sumD * sumY) / denominator;
+        double interceptX = (sumX - slopeX * sumD) / n;
+        double interceptY = (sumY - slopeY * sumD) / n;
+
+        List<Location> fitted = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double d = distances.get(i);
+            fitted.add(locations.get(i).derive(interceptX + slopeX * d,
+                    interceptY + slopeY * d, null, null));
+        }
+        return fitted;
+    }
+
+    private static Location closestHole(List<Location> holeLocations, Location location) {
+        Location closest = null;
+        double closestDistance = Double.MAX_VALUE;
+        for (Location hole : holeLocations) {
+            double distance = hole.getLinearDistanceTo(location);
+            if (distance < closestDistance) {
+                closest = hole;
+                closestDistance = distance;
+            }
+        }
+        return closest;
     }
 
-    private Location findClosestHole(Camera camera) {
+    /**
+     * Move the nozzle's head's camera to the location and return every hole it sees.
+     */
+    protected List<Location> findHoles(Nozzle nozzle, Location location) throws Exception {
+        Camera camera = nozzle.getHead().getDefaultCamera();
+        MovableUtils.moveToLocationAtSafeZ(camera, location);
+        return findHoles(camera);
+    }
+
+    /**
+     * Capture an image and return every hole in it, closest to the camera first.
+     */
+    private List<Location> findHoles(Camera camera) {
         List<Location> holeLocations = new ArrayList<>();
-        BufferedImage image = new FluentCv()
+        FluentCv cv = new FluentCv();
+        BufferedImage image = cv
                 .setCamera(camera)
                 .settleAndCapture("original")
-                .saveDebugImage(ReferenceStripFeeder.class, "findClosestHole", "original")
+                .saveDebugImage(ReferenceStripFeeder.class, "findHoles", "original")
                 .toGray()
                 .blurGaussian(getHoleBlurKernelSize())
                 .findCirclesHough(getHoleDiameterMin(), getHoleDiameterMax(), getHolePitchMin(), "circles")
                 .convertCirclesToLocations(holeLocations)
                 .drawCircles("original")
-                .saveDebugImage(ReferenceStripFeeder.class, "findClosestHole", "debug")
+                .saveDebugImage(ReferenceStripFeeder.class, "findHoles", "debug")
                 .toBufferedImage();
+        cv.release();
         if (holeLocations.isEmpty()) {
-            return null;
+            return holeLocations;
         }
         try {
             MainFrame.get().getCameraViews().getCameraView(camera).showFilteredImage(image, 500);
@@ -275,7 +459,7 @@ public class ReferenceStripFeeder extends ReferenceFeeder {
         catch (Exception e) {
             // if we aren't running in the UI this will fail, and that's okay
         }
-        return holeLocations.get(0);
+        return holeLocations;
     }
 
     private Length getHoleToPartLateral() {
@@ -298,6 +482,7 @@ public class ReferenceStripFeeder extends ReferenceFeeder {
     public void setReferenceHoleLocation(Location referenceHoleLocation) {
         this.referenceHoleLocation = referenceHoleLocation;
         visionLocation = null;
+        predictedHoleLocations.clear();
     }
 
     public Location getLastHoleLocation() {
@@ -307,6 +492,7 @@ public class ReferenceStripFeeder extends ReferenceFeeder {
     public void setLastHoleLocation(Location lastHoleLocation) {
         this.lastHoleLocation = lastHoleLocation;
         visionLocation = null;
+        predictedHoleLocations.clear();
     }
 
     public Length getHoleDiameter() {
@@ -349,6 +535,11 @@ public class ReferenceStripFeeder extends ReferenceFeeder {
         int oldValue = this.feedCount;
         this.feedCount = feedCount;
         this.visionOffsets = null;
+        // Predictions only hold while the strip is fed one part at a time. Anything else means
+        // the strip was reset or replaced.
+        if (feedCount != oldValue + 1) {
+            predictedHoleLocations.clear();
+        }
         firePropertyChange("feedCount", oldValue, feedCount);
     }
 
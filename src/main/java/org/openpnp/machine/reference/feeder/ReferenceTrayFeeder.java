@@ -117,6 +117,11 @@ public class ReferenceTrayFeeder extends ReferenceFeeder {
         this.offsets = offsets;
     }
 
+    @Override
+    public int getRemainingCount() {
+        return Math.max(0, (trayCountX * trayCountY) - feedCount);
+    }
+
     public int getFeedCount() {
         return feedCount;
     }
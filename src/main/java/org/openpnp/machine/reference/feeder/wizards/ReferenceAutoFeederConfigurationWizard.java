@@ -30,6 +30,7 @@ import javax.swing.border.TitledBorder;
 
 import org.openpnp.gui.components.ComponentDecorators;
 import org.openpnp.gui.support.DoubleConverter;
+import org.openpnp.gui.support.LongConverter;
 import org.openpnp.machine.reference.feeder.ReferenceAutoFeeder;
 import org.openpnp.machine.reference.feeder.ReferenceAutoFeeder.ActuatorType;
 import org.openpnp.model.Configuration;
@@ -49,6 +50,7 @@ public class ReferenceAutoFeederConfigurationWizard
     private JTextField postPickActuatorValue;
     private JComboBox actuatorType;
     private JComboBox postPickActuatorType;
+    private JTextField feedSettleMilliseconds;
 
     public ReferenceAutoFeederConfigurationWizard(ReferenceAutoFeeder feeder) {
         super(feeder);
@@ -75,6 +77,8 @@ public class ReferenceAutoFeederConfigurationWizard
                 FormSpecs.RELATED_GAP_ROWSPEC,
                 FormSpecs.DEFAULT_ROWSPEC,
                 FormSpecs.RELATED_GAP_ROWSPEC,
+                FormSpecs.DEFAULT_ROWSPEC,
+                FormSpecs.RELATED_GAP_ROWSPEC,
                 FormSpecs.DEFAULT_ROWSPEC,}));
 
         JLabel lblActuatorName = new JLabel("Actuator Name");
@@ -119,6 +123,15 @@ public class ReferenceAutoFeederConfigurationWizard
         
         JLabel label = new JLabel("For Boolean: 1 = True, 0 = False");
         panelActuator.add(label, "10, 6");
+
+        JLabel lblFeedSettle = new JLabel("Feed Settle Time (ms)");
+        lblFeedSettle.setToolTipText(
+                "Time needed after the feed actuator fires before the part can be picked.");
+        panelActuator.add(lblFeedSettle, "2, 8, right, default");
+
+        feedSettleMilliseconds = new JTextField();
+        feedSettleMilliseconds.setColumns(10);
+        panelActuator.add(feedSettleMilliseconds, "4, 8");
     }
 
     @Override
@@ -135,10 +148,14 @@ public class ReferenceAutoFeederConfigurationWizard
         addWrappedBinding(feeder, "postPickActuatorName", postPickActuatorName, "text");
         addWrappedBinding(feeder, "postPickActuatorType", postPickActuatorType, "selectedItem");
         addWrappedBinding(feeder, "postPickActuatorValue", postPickActuatorValue, "text", doubleConverter);
+
+        addWrappedBinding(feeder, "feedSettleMilliseconds", feedSettleMilliseconds, "text",
+                new LongConverter());
         
         ComponentDecorators.decorateWithAutoSelect(actuatorName);
         ComponentDecorators.decorateWithAutoSelect(actuatorValue);
         ComponentDecorators.decorateWithAutoSelect(postPickActuatorName);
         ComponentDecorators.decorateWithAutoSelect(postPickActuatorValue);
+        ComponentDecorators.decorateWithAutoSelect(feedSettleMilliseconds);
     }
 }
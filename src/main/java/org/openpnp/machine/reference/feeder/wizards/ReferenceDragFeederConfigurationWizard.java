@@ -106,6 +106,11 @@ public class ReferenceDragFeederConfigurationWizard
     private JButton btnCancelChangeAoi;
     private JPanel panel;
     private JButton btnCancelChangeTemplateImage;
+    private JCheckBox chckbxDriftTracking;
+    private JLabel lblVerifyInterval;
+    private JTextField textFieldVerifyInterval;
+    private JLabel lblMaxUncertainty;
+    private JTextField textFieldMaxUncertainty;
 
     public ReferenceDragFeederConfigurationWizard(ReferenceDragFeeder feeder) {
         super(feeder);
@@ -234,6 +239,25 @@ public class ReferenceDragFeederConfigurationWizard
         chckbxVisionEnabled = new JCheckBox("Vision Enabled?");
         panelVisionEnabled.add(chckbxVisionEnabled);
 
+        chckbxDriftTracking = new JCheckBox("Drift Tracking?");
+        chckbxDriftTracking.setToolTipText(
+                "Skip vision after a feed when the offset can be predicted from previous feeds.");
+        panelVisionEnabled.add(chckbxDriftTracking);
+
+        lblVerifyInterval = new JLabel("Verify Every N Feeds");
+        panelVisionEnabled.add(lblVerifyInterval);
+
+        textFieldVerifyInterval = new JTextField();
+        textFieldVerifyInterval.setColumns(4);
+        panelVisionEnabled.add(textFieldVerifyInterval);
+
+        lblMaxUncertainty = new JLabel("Max Uncertainty (mm)");
+        panelVisionEnabled.add(lblMaxUncertainty);
+
+        textFieldMaxUncertainty = new JTextField();
+        textFieldMaxUncertainty.setColumns(6);
+        panelVisionEnabled.add(textFieldMaxUncertainty);
+
         separator = new JSeparator();
         panelVision.add(separator);
 
@@ -356,6 +380,11 @@ public class ReferenceDragFeederConfigurationWizard
         addWrappedBinding(feedEndLocation, "lengthZ", textFieldFeedEndZ, "text", lengthConverter);
 
         addWrappedBinding(feeder, "vision.enabled", chckbxVisionEnabled, "selected");
+        addWrappedBinding(feeder, "vision.driftTracking", chckbxDriftTracking, "selected");
+        addWrappedBinding(feeder, "vision.verifyInterval", textFieldVerifyInterval, "text",
+                intConverter);
+        addWrappedBinding(feeder, "vision.maxUncertainty", textFieldMaxUncertainty, "text",
+                doubleConverter);
         addWrappedBinding(feeder, "vision.templateImage", labelTemplateImage, "icon",
                 imageConverter);
 
@@ -377,6 +406,8 @@ public class ReferenceDragFeederConfigurationWizard
         ComponentDecorators.decorateWithAutoSelectAndLengthConversion(textFieldFeedEndX);
         ComponentDecorators.decorateWithAutoSelectAndLengthConversion(textFieldFeedEndY);
         ComponentDecorators.decorateWithAutoSelectAndLengthConversion(textFieldFeedEndZ);
+        ComponentDecorators.decorateWithAutoSelect(textFieldVerifyInterval);
+        ComponentDecorators.decorateWithAutoSelect(textFieldMaxUncertainty);
         ComponentDecorators.decorateWithAutoSelect(textFieldAoiX);
         ComponentDecorators.decorateWithAutoSelect(textFieldAoiY);
         ComponentDecorators.decorateWithAutoSelect(textFieldAoiWidth);
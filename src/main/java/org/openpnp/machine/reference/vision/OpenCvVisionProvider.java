@@ -27,6 +27,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.opencv.core.Core;
 import org.opencv.core.Core.MinMaxLocResult;
@@ -43,6 +45,8 @@ import org.openpnp.util.ImageUtils;
 import org.openpnp.util.LogUtils;
 import org.openpnp.util.OpenCvUtils;
 import org.openpnp.util.VisionUtils;
+import org.openpnp.vision.PyramidTemplateMatcher;
+import org.openpnp.vision.pipeline.CvStage;
 import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Root;
 
@@ -57,6 +61,9 @@ public class OpenCvVisionProvider implements VisionProvider {
 
     protected Camera camera;
 
+    private final Map<BufferedImage, PyramidTemplateMatcher> templateMatchers =
+            new WeakHashMap<>();
+
     @Override
     public void setCamera(Camera camera) {
         this.camera = camera;
@@ -182,6 +189,49 @@ public class OpenCvVisionProvider implements VisionProvider {
         return new Point[] {new Point(((int) matchLoc.x) + roiX, ((int) matchLoc.y) + roiY)};
     }
 
+    @Override
+    public TemplateMatch getBestTemplateMatch(int roiX, int roiY, int roiWidth, int roiHeight,
+            BufferedImage templateImage) throws Exception {
+        PyramidTemplateMatcher matcher = getTemplateMatcher(templateImage);
+        Mat cameraImage = getCameraImage();
+        try {
+            Rect roi = new Rect(roiX, roiY, roiWidth, roiHeight);
+            if (roiWidth <= 0 || roiHeight <= 0) {
+                roi = null;
+            }
+            CvStage.Result.TemplateMatch match = matcher.match(cameraImage, roi);
+            if (match == null) {
+                return null;
+            }
+            Logger.debug("getBestTemplateMatch certainty {} at {}, {}", match.score, match.x,
+                    match.y);
+            TemplateMatch templateMatch = new TemplateMatch();
+            templateMatch.score = match.score;
+            templateMatch.location = VisionUtils.getPixelLocation(camera,
+                    match.x + match.width / 2, match.y + match.height / 2);
+            return templateMatch;
+        }
+        finally {
+            cameraImage.release();
+        }
+    }
+
+    /**
+     * Get the matcher for the given template image, building its pyramid the first time the image
+     * is seen. Images are held weakly and by identity, so each feeder's template gets its own
+     * entry, and replacing a template naturally retires the old entry.
+     */
+    protected synchronized PyramidTemplateMatcher getTemplateMatcher(BufferedImage templateImage) {
+        PyramidTemplateMatcher matcher = templateMatchers.get(templateImage);
+        if (matcher == null) {
+            Mat templateMat = OpenCvUtils.toMat(templateImage);
+            matcher = new PyramidTemplateMatcher(templateMat);
+            templateMat.release();
+            templateMatchers.put(templateImage, matcher);
+        }
+        return matcher;
+    }
+
     private void locateTemplateMatchesDebug(Mat roiImage, Mat templateImage,
             org.opencv.core.Point matchLoc) {
         if (LogUtils.isDebugEnabled()) {
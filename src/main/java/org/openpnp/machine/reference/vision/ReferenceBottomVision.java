@@ -1,25 +1,40 @@
 package org.openpnp.machine.reference.vision;
 
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.Action;
 import javax.swing.Icon;
 
 import org.apache.commons.io.IOUtils;
+import org.opencv.core.Rect;
 import org.opencv.core.RotatedRect;
 import org.openpnp.gui.MainFrame;
-import org.openpnp.gui.components.CameraView;
 import org.openpnp.gui.support.PropertySheetWizardAdapter;
 import org.openpnp.gui.support.Wizard;
+import org.openpnp.machine.reference.ReferenceHeadMountable;
+import org.openpnp.machine.reference.ReferenceMachine;
 import org.openpnp.machine.reference.vision.wizards.ReferenceBottomVisionConfigurationWizard;
 import org.openpnp.machine.reference.vision.wizards.ReferenceBottomVisionPartConfigurationWizard;
 import org.openpnp.model.BoardLocation;
+import org.openpnp.model.Footprint;
 import org.openpnp.model.Length;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
 import org.openpnp.model.Part;
 import org.openpnp.spi.Camera;
+import org.openpnp.spi.Machine;
+import org.openpnp.spi.MachineListener;
 import org.openpnp.spi.Nozzle;
 import org.openpnp.spi.PartAlignment;
 import org.openpnp.spi.PropertySheetHolder;
@@ -28,7 +43,9 @@ import org.openpnp.util.OpenCvUtils;
 import org.openpnp.util.Utils2D;
 import org.openpnp.util.VisionUtils;
 import org.openpnp.vision.pipeline.CvPipeline;
+import org.openpnp.vision.pipeline.CvStage;
 import org.openpnp.vision.pipeline.CvStage.Result;
+import org.openpnp.vision.pipeline.stages.ImageCapture;
 import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.Element;
@@ -48,9 +65,52 @@ public class ReferenceBottomVision implements PartAlignment {
     @Attribute(required = false)
     protected boolean preRotate = false;
 
+    /**
+     * With preRotate, skip the second capture when the first one is good enough, and correct the
+     * rotation on the way to the board instead.
+     */
+    @Attribute(required = false)
+    protected boolean preRotateSingleCapture = false;
+
+    /**
+     * The largest angle error, in degrees, that is corrected without a second capture.
+     */
+    @Attribute(required = false)
+    protected double maxSingleCaptureAngleError = 3;
+
+    /**
+     * The lowest confidence, from 0 to 1, that is corrected without a second capture. See
+     * getConfidence.
+     */
+    @Attribute(required = false)
+    protected double minSingleCaptureConfidence = 0.5;
+
+    /**
+     * Let the job processor align all the parts on a head together, see findOffsets(List). Each
+     * nozzle is captured as soon as it is over the camera and its pipeline runs while the next
+     * nozzle moves into view.
+     */
+    @Attribute(required = false)
+    protected boolean parallelEnabled = false;
+
+    /**
+     * When aligning the parts on a head together, capture all of them in a single frame if they
+     * fit in the camera's view, and find each part in its own region of the frame.
+     */
+    @Attribute(required = false)
+    protected boolean multiNozzleCapture = false;
+
     @ElementMap(required = false)
     protected Map<String, PartSettings> partSettingsByPartId = new HashMap<>();
 
+    /**
+     * Runs the pipelines for findOffsets(List), so that images are processed while the machine
+     * moves. Created when first needed and shut down when the machine is disabled.
+     */
+    private ExecutorService computePool;
+
+    private boolean computePoolListening;
+
     private double angleNorm(double val, double lim) {
         double clip = lim * 2;
         while (Math.abs(val) > lim) {
@@ -74,6 +134,10 @@ public class ReferenceBottomVision implements PartAlignment {
         }
 
         Camera camera = VisionUtils.getBottomVisionCamera();
+        // Parts of the same kind share a pipeline, which findOffsets(List) or another head may
+        // be running at the same time, so they take turns with it. The pipeline is only held
+        // while it runs and its result is read, never while the nozzle moves.
+        CvPipeline pipeline = partSettings.getPipeline();
 
         // Pre-rotate to minimize runout
         double preRotateAngle = 0;
@@ -89,6 +153,7 @@ public class ReferenceBottomVision implements PartAlignment {
                 angle = Utils2D.calculateBoardPlacementLocation(boardLocation, placementLocation)
                                .getRotation();
             }
+            double boardAngle = angle;
             angle = angleNorm(angle, 180.);
             double placementAngle = angle;
             MovableUtils.moveToLocationAtSafeZ(nozzle, camera.getLocation()
@@ -98,53 +163,51 @@ public class ReferenceBottomVision implements PartAlignment {
                                                                                    .getValue(),
                                                                      0.0))
                                                              .derive(null, null, null, angle));
-            CvPipeline pipeline = partSettings.getPipeline();
-            pipeline.setProperty("camera", camera);
-            pipeline.setProperty("nozzle", nozzle);
-            pipeline.process();
-            if (!((pipeline.getResult("result")).model instanceof RotatedRect)) {
-                throw new Exception("Bottom vision alignment failed for part " + part.getId()
-                        + " on nozzle " + nozzle.getName() + ". No result found.");
+            synchronized (pipeline) {
+                RotatedRect rect = process(pipeline, camera, part, nozzle);
+                angle = angleNorm(angleNorm(angle) + angleNorm(
+                        (rect.size.width < rect.size.height) ? 90 + rect.angle : rect.angle));
+                // error is -angle
+                // See https://github.com/openpnp/openpnp/pull/590 for explanations of the magic
+                // values below.
+                if (Math.abs(angle) > 0.0765) {
+                    angle += 0.0567 * Math.signum(angle);
+                } // rounding
+
+                double confidence = getConfidence(part, camera, rect, angle);
+                Logger.debug("Pre-rotate angle error {}, confidence {}", angle, confidence);
+                if (preRotateSingleCapture && Math.abs(angle) <= maxSingleCaptureAngleError
+                        && confidence >= minSingleCaptureConfidence) {
+                    // The nozzle will turn by the error on the way to the board, which swings
+                    // the part around the nozzle by the same angle.
+                    Location offsets = VisionUtils
+                            .getPixelCenterOffsets(camera, rect.center.x, rect.center.y)
+                            .rotateXy(angle);
+                    // The job processor subtracts the offsets from the placement, so this puts
+                    // the nozzle at the angle it was captured at plus the error, without turning
+                    // it through a full circle if the placement angle was normalized.
+                    offsets =
+                            offsets.derive(null, null, null, boardAngle - placementAngle - angle);
+                    showResult(camera, pipeline, part, offsets);
+                    return new PartAlignment.PartAlignmentOffset(offsets, true);
+                }
             }
 
-            RotatedRect rect = ((RotatedRect) (pipeline.getResult("result")).model);
-            angle = angleNorm(angleNorm(angle) + angleNorm(
-                    (rect.size.width < rect.size.height) ? 90 + rect.angle : rect.angle));
-            // error is -angle
-            // See https://github.com/openpnp/openpnp/pull/590 for explanations of the magic
-            // values below.
-            if (Math.abs(angle) > 0.0765) {
-                angle += 0.0567 * Math.signum(angle);
-            } // rounding
             nozzle.moveTo(
                     new Location(LengthUnit.Millimeters, Double.NaN, Double.NaN, Double.NaN,
                             placementAngle + angle),
                     nozzle.getHead()
                           .getMachine()
                           .getSpeed());
-            pipeline.process();
-            if (!((pipeline.getResult("result")).model instanceof RotatedRect)) {
-                throw new Exception("Bottom vision alignment failed for part " + part.getId()
-                        + " on nozzle " + nozzle.getName() + ". No result found.");
+            synchronized (pipeline) {
+                RotatedRect rect = process(pipeline, camera, part, nozzle);
+                Logger.debug("Result rect {}", rect);
+                Location offsets =
+                        VisionUtils.getPixelCenterOffsets(camera, rect.center.x, rect.center.y)
+                                   .derive(null, null, null, Double.NaN);
+                showResult(camera, pipeline, part, offsets);
+                return new PartAlignment.PartAlignmentOffset(offsets, true);
             }
-
-            rect = (RotatedRect) pipeline.getResult("result").model;
-            Logger.debug("Result rect {}", rect);
-            Location offsets =
-                    VisionUtils.getPixelCenterOffsets(camera, rect.center.x, rect.center.y)
-                               .derive(null, null, null, Double.NaN);
-            try {
-                String s = String.format("%s : %s", part.getId(), offsets.toString());
-                MainFrame.get()
-                         .getCameraViews()
-                         .getCameraView(camera)
-                         .showFilteredImage(OpenCvUtils.toBufferedImage(pipeline.getWorkingImage()),
-                                 s, 1500);
-            }
-            catch (Exception e) {
-                // Throw away, just means we're running outside of the UI.
-            }
-            return new PartAlignment.PartAlignmentOffset(offsets, true);
         }
 
         // Create a location that is the Camera's X, Y, it's Z + part height
@@ -158,12 +221,46 @@ public class ReferenceBottomVision implements PartAlignment {
 
         MovableUtils.moveToLocationAtSafeZ(nozzle, startLocation);
 
-        CvPipeline pipeline = partSettings.getPipeline();
+        synchronized (pipeline) {
+            pipeline.setProperty("camera", camera);
+            pipeline.setProperty("nozzle", nozzle);
+            pipeline.process();
+
+            Location offsets = getOffsets(camera, pipeline, part, nozzle, 0, 0,
+                    new Location(camera.getUnitsPerPixel().getUnits()));
 
+            offsets = offsets.derive(null, null, null, offsets.getRotation() + preRotateAngle);
+
+            showResult(camera, pipeline, part, offsets);
+
+            return new PartAlignmentOffset(offsets, false);
+        }
+    }
+
+    /**
+     * Run the pipeline for the part on the nozzle and return the part's rectangle. The caller
+     * must hold the pipeline.
+     */
+    private static RotatedRect process(CvPipeline pipeline, Camera camera, Part part,
+            Nozzle nozzle) throws Exception {
         pipeline.setProperty("camera", camera);
         pipeline.setProperty("nozzle", nozzle);
         pipeline.process();
+        if (!((pipeline.getResult("result")).model instanceof RotatedRect)) {
+            throw new Exception("Bottom vision alignment failed for part " + part.getId()
+                    + " on nozzle " + nozzle.getName() + ". No result found.");
+        }
+        return (RotatedRect) pipeline.getResult("result").model;
+    }
 
+    /**
+     * Get the offsets of the part from the nozzle from the result of the pipeline once it has
+     * been processed. roiX and roiY are the position of the pipeline's image in the camera frame,
+     * if it was cut out of a larger frame, and nozzleOffsets are the offsets of the nozzle from
+     * the center of the camera.
+     */
+    private Location getOffsets(Camera camera, CvPipeline pipeline, Part part, Nozzle nozzle,
+            int roiX, int roiY, Location nozzleOffsets) throws Exception {
         Result result = pipeline.getResult("result");
         if (!(result.model instanceof RotatedRect)) {
             throw new Exception("Bottom vision alignment failed for part " + part.getId()
@@ -174,7 +271,9 @@ public class ReferenceBottomVision implements PartAlignment {
 
         // Create the offsets object. This is the physical distance from
         // the center of the camera to the located part.
-        Location offsets = VisionUtils.getPixelCenterOffsets(camera, rect.center.x, rect.center.y);
+        Location offsets = VisionUtils
+                .getPixelCenterOffsets(camera, rect.center.x + roiX, rect.center.y + roiY)
+                .subtract(nozzleOffsets);
 
         // We assume that the part is never picked more than 45º rotated
         // so if OpenCV tells us it's rotated more than 45º we correct
@@ -197,22 +296,358 @@ public class ReferenceBottomVision implements PartAlignment {
         OpenCvUtils.saveDebugImage(ReferenceBottomVision.class, "findOffsets", "result",
                 pipeline.getWorkingImage());
 
-        offsets = offsets.derive(null, null, null, offsets.getRotation() + preRotateAngle);
+        return offsets;
+    }
 
+    /**
+     * Returns true if the part can be aligned with findOffsets(List). Parts that are rotated
+     * before vision are not, as they may need a second capture after the first has been
+     * processed, and neither are parts whose pipeline does not use an ImageCapture stage, since
+     * the image has to be captured before the pipeline runs.
+     */
+    public boolean canAlignTogether(Part part) {
+        if (!enabled || !parallelEnabled || preRotate) {
+            return false;
+        }
+        PartSettings partSettings = getPartSettings(part);
+        return partSettings.isEnabled() && getImageCapture(partSettings.getPipeline()) != null;
+    }
+
+    /**
+     * Align the parts on the nozzles of a head and return the offsets for each, in order. Each
+     * nozzle is moved over the camera and captured in turn and the pipeline for its part is then
+     * run on a compute pool, so that the next nozzle moves into view while the previous image is
+     * being processed. If multiNozzleCapture is set and the nozzles and their parts fit in the
+     * camera's view at once, all of them are captured in a single frame instead and each part is
+     * found in a region of the frame around its nozzle.
+     *
+     * All of the moves and captures are done by the time this returns, and the futures complete
+     * as the pipelines finish. The Vision.PartAlignment.After event for each part is fired as its
+     * pipeline finishes. Every part must pass canAlignTogether().
+     */
+    public List<Future<PartAlignmentOffset>> findOffsets(List<Alignment> alignments)
+            throws Exception {
+        for (Alignment alignment : alignments) {
+            if (!canAlignTogether(alignment.part)) {
+                throw new Exception("Part " + alignment.part.getId()
+                        + " can't be aligned together with other parts.");
+            }
+        }
+        Camera camera = VisionUtils.getBottomVisionCamera();
+        List<Future<PartAlignmentOffset>> futures = new ArrayList<>();
+        List<Alignment> started = new ArrayList<>();
         try {
-            CameraView cameraView = MainFrame.get()
-                                             .getCameraViews()
-                                             .getCameraView(camera);
-            String s = String.format("%s : %s", part.getId(), offsets.toString());
-            cameraView.showFilteredImage(OpenCvUtils.toBufferedImage(pipeline.getWorkingImage()), s,
-                    1500);
+            if (!multiNozzleCapture || !captureTogether(camera, alignments, futures, started)) {
+                Location nozzleOffsets = new Location(camera.getUnitsPerPixel().getUnits());
+                for (Alignment alignment : alignments) {
+                    VisionUtils.firePartAlignmentBefore(alignment.part, alignment.nozzle);
+                    started.add(alignment);
+                    MovableUtils.moveToLocationAtSafeZ(alignment.nozzle,
+                            getCaptureLocation(camera, alignment.part));
+                    BufferedImage image = capture(camera, alignment.part);
+                    started.remove(alignment);
+                    futures.add(submit(camera, alignment, image, 0, 0, nozzleOffsets));
+                }
+            }
+        }
+        finally {
+            // Parts that were started but never submitted, because a move or capture failed.
+            for (Alignment alignment : started) {
+                VisionUtils.firePartAlignmentAfter(alignment.part, alignment.nozzle);
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Capture all of the parts in one frame, if they fit, and submit a pipeline for each on the
+     * region of the frame around its nozzle. The nozzles are centered on the camera as a group
+     * and each region is a square around a nozzle, no larger than half the distance to the
+     * nearest other nozzle so that the regions don't overlap. Returns false, without moving, if
+     * the nozzles can't be lowered independently, a part has no footprint or a part doesn't fit
+     * in its region.
+     */
+    private boolean captureTogether(Camera camera, List<Alignment> alignments,
+            List<Future<PartAlignmentOffset>> futures, List<Alignment> started)
+            throws Exception {
+        int count = alignments.size();
+        if (count < 2) {
+            return false;
+        }
+        // Each nozzle is lowered to its own part's height over the camera. Nozzles that share a
+        // Z axis, or are driven from one motor by a cam, can't do that.
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < i; j++) {
+                if (!isIndependentZ(alignments.get(i).nozzle, alignments.get(j).nozzle)) {
+                    Logger.debug("Nozzles {} and {} can't move in Z independently, capturing "
+                            + "each nozzle on its own.", alignments.get(j).nozzle.getName(),
+                            alignments.get(i).nozzle.getName());
+                    return false;
+                }
+            }
+        }
+        LengthUnit units = camera.getUnitsPerPixel().getUnits();
+
+        // The offsets of each nozzle from the center of the camera, with the nozzles centered
+        // around it as a group. The nozzles are all on the same head, so where they are now
+        // says where they are from each other.
+        Location[] nozzleOffsets = new Location[count];
+        Location first = alignments.get(0).nozzle.getLocation();
+        Location center = new Location(units);
+        for (int i = 0; i < count; i++) {
+            nozzleOffsets[i] = alignments.get(i).nozzle.getLocation()
+                                                       .subtract(first)
+                                                       .convertToUnits(units)
+                                                       .derive(null, null, 0.0, 0.0);
+            center = center.add(nozzleOffsets[i].multiply(1.0 / count, 1.0 / count, 0, 0));
+        }
+        double half = Double.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            nozzleOffsets[i] = nozzleOffsets[i].subtract(center);
+            for (int j = 0; j < i; j++) {
+                half = Math.min(half, getPixelDistance(camera, nozzleOffsets[i],
+                        nozzleOffsets[j]) / 2);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            Part part = alignments.get(i).part;
+            Footprint footprint =
+                    part.getPackage() == null ? null : part.getPackage().getFootprint();
+            if (footprint == null) {
+                Logger.debug("Part {} has no footprint, capturing each nozzle on its own.",
+                        part.getId());
+                return false;
+            }
+            Rectangle2D bounds = footprint.getShape().getBounds2D();
+            double radius = VisionUtils.toPixels(new Length(Math.hypot(
+                    Math.max(Math.abs(bounds.getMinX()), Math.abs(bounds.getMaxX())),
+                    Math.max(Math.abs(bounds.getMinY()), Math.abs(bounds.getMaxY()))),
+                    footprint.getUnits()), camera);
+            if (getRoiSize(camera, getPixel(camera, nozzleOffsets[i]), half) < radius) {
+                Logger.debug("Part {} doesn't fit around nozzle {} in one frame, "
+                        + "capturing each nozzle on its own.", part.getId(),
+                        alignments.get(i).nozzle.getName());
+                return false;
+            }
+        }
 
+        for (Alignment alignment : alignments) {
+            VisionUtils.firePartAlignmentBefore(alignment.part, alignment.nozzle);
+            started.add(alignment);
+        }
+        // Turn the other nozzles first, since turning a calibrated nozzle moves the head to keep
+        // the tip in place, then move the first nozzle over the camera and lower the others to
+        // their parts' heights.
+        for (Alignment alignment : alignments.subList(1, count)) {
+            alignment.nozzle.moveTo(new Location(units, Double.NaN, Double.NaN, Double.NaN, 0));
+        }
+        MovableUtils.moveToLocationAtSafeZ(alignments.get(0).nozzle,
+                getCaptureLocation(camera, alignments.get(0).part).add(nozzleOffsets[0]));
+        for (Alignment alignment : alignments.subList(1, count)) {
+            Location location = getCaptureLocation(camera, alignment.part);
+            alignment.nozzle.moveTo(
+                    new Location(location.getUnits(), Double.NaN, Double.NaN, location.getZ(),
+                            Double.NaN));
+        }
+        BufferedImage frame = capture(camera, alignments.get(0).part);
+
+        Location cameraLocation = camera.getLocation();
+        for (Alignment alignment : alignments) {
+            // Where the nozzle actually is, which includes its nozzle tip calibration.
+            Location offsets = alignment.nozzle.getLocation()
+                                               .convertToUnits(units)
+                                               .subtract(cameraLocation)
+                                               .derive(null, null, 0.0, 0.0);
+            double[] pixel = getPixel(camera, offsets);
+            int size = (int) getRoiSize(camera, pixel, half);
+            Rectangle roi = new Rectangle((int) pixel[0] - size, (int) pixel[1] - size, size * 2,
+                    size * 2).intersection(new Rectangle(frame.getWidth(), frame.getHeight()));
+            BufferedImage image = new BufferedImage(roi.width, roi.height,
+                    BufferedImage.TYPE_3BYTE_BGR);
+            Graphics2D g = image.createGraphics();
+            g.drawImage(frame, -roi.x, -roi.y, null);
+            g.dispose();
+            started.remove(alignment);
+            futures.add(submit(camera, alignment, image, roi.x, roi.y, offsets));
+        }
+        return true;
+    }
+
+    private synchronized ExecutorService getComputePool(Machine machine) {
+        if (computePool == null) {
+            computePool =
+                    Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                        Thread thread = new Thread(r, "BottomVision");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        if (!computePoolListening) {
+            machine.addListener(new MachineListener.Adapter() {
+                @Override
+                public void machineDisabled(Machine machine, String reason) {
+                    shutdownComputePool();
+                }
+            });
+            computePoolListening = true;
+        }
+        return computePool;
+    }
+
+    /**
+     * Shut the compute pool down once the alignments already submitted to it are done. The next
+     * findOffsets(List) starts a new one.
+     */
+    private synchronized void shutdownComputePool() {
+        if (computePool != null) {
+            computePool.shutdown();
+            computePool = null;
+        }
+    }
+
+    private Future<PartAlignmentOffset> submit(Camera camera, Alignment alignment,
+            BufferedImage image, int roiX, int roiY, Location nozzleOffsets) {
+        CvPipeline pipeline = getPartSettings(alignment.part).getPipeline();
+        return getComputePool(alignment.nozzle.getHead().getMachine()).submit(() -> {
+            // Parts of the same kind share a pipeline, so they take turns with it.
+            synchronized (pipeline) {
+                pipeline.setProperty("camera", camera);
+                pipeline.setProperty("nozzle", alignment.nozzle);
+                pipeline.setProperty("image", image);
+                try {
+                    pipeline.process();
+                    Location offsets = getOffsets(camera, pipeline, alignment.part,
+                            alignment.nozzle, roiX, roiY, nozzleOffsets);
+                    showResult(camera, pipeline, alignment.part, offsets);
+                    return new PartAlignmentOffset(offsets, false);
+                }
+                finally {
+                    pipeline.setProperty("image", null);
+                    VisionUtils.firePartAlignmentAfter(alignment.part, alignment.nozzle);
+                }
+            }
+        });
+    }
+
+    private static boolean isIndependentZ(Nozzle nozzle1, Nozzle nozzle2) {
+        Machine machine = nozzle1.getHead().getMachine();
+        return machine instanceof ReferenceMachine
+                && nozzle1 instanceof ReferenceHeadMountable
+                && nozzle2 instanceof ReferenceHeadMountable
+                && ((ReferenceMachine) machine).getDriver().isIndependentZ(
+                        (ReferenceHeadMountable) nozzle1, (ReferenceHeadMountable) nozzle2);
+    }
+
+    /**
+     * The camera's location, at the bottom of the part and with no rotation, which is where
+     * bottom vision puts the nozzle to capture the part.
+     */
+    private static Location getCaptureLocation(Camera camera, Part part) {
+        Length partHeight = part.getHeight();
+        return camera.getLocation()
+                     .add(new Location(partHeight.getUnits(), 0, 0, partHeight.getValue(), 0))
+                     .derive(null, null, null, 0.0);
+    }
+
+    /**
+     * Capture the image the part's pipeline would have captured, settling first if its
+     * ImageCapture stage does.
+     */
+    private BufferedImage capture(Camera camera, Part part) {
+        ImageCapture imageCapture = getImageCapture(getPartSettings(part).getPipeline());
+        return imageCapture.isSettleFirst() ? camera.settleAndCapture() : camera.capture();
+    }
+
+    private static ImageCapture getImageCapture(CvPipeline pipeline) {
+        for (CvStage stage : pipeline.getStages()) {
+            if (stage instanceof ImageCapture && stage.isEnabled()) {
+                return (ImageCapture) stage;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The pixel in the camera's frame that is the given offsets from its center, the reverse of
+     * VisionUtils.getPixelCenterOffsets().
+     */
+    private static double[] getPixel(Camera camera, Location offsets) {
+        Location unitsPerPixel = camera.getUnitsPerPixel();
+        offsets = offsets.convertToUnits(unitsPerPixel.getUnits());
+        return new double[] {camera.getWidth() / 2. + offsets.getX() / unitsPerPixel.getX(),
+                camera.getHeight() / 2. - offsets.getY() / unitsPerPixel.getY()};
+    }
+
+    /**
+     * Half the size of the square region around the pixel, which is no more than half and must
+     * fit in the frame.
+     */
+    private static double getRoiSize(Camera camera, double[] pixel, double half) {
+        return Math.min(Math.min(half, Math.min(pixel[0], pixel[1])),
+                Math.min(camera.getWidth() - pixel[0], camera.getHeight() - pixel[1]));
+    }
+
+    private static double getPixelDistance(Camera camera, Location a, Location b) {
+        double[] pa = getPixel(camera, a);
+        double[] pb = getPixel(camera, b);
+        return Math.max(Math.abs(pa[0] - pb[0]), Math.abs(pa[1] - pb[1]));
+    }
+
+    private static void showResult(Camera camera, CvPipeline pipeline, Part part,
+            Location offsets) {
+        try {
+            String s = String.format("%s : %s", part.getId(), offsets.toString());
+            MainFrame.get()
+                     .getCameraViews()
+                     .getCameraView(camera)
+                     .showFilteredImage(OpenCvUtils.toBufferedImage(pipeline.getWorkingImage()),
+                             s, 1500);
         }
         catch (Exception e) {
             // Throw away, just means we're running outside of the UI.
         }
+    }
+
+    /**
+     * Score from 0 to 1 how far the RotatedRect found by the pipeline can be trusted. The score
+     * drops as the angle error nears 45º, where the rect could just as well be a quarter turn
+     * the other way, when the rect touches the edge of the image and so is probably cut off, and
+     * as the area of the rect strays from the area of the part's footprint, if it has one.
+     */
+    protected double getConfidence(Part part, Camera camera, RotatedRect rect,
+            double angleError) {
+        double confidence = Math.max(0, 1 - Math.abs(angleError) / 45.);
+
+        Rect bounds = rect.boundingRect();
+        if (bounds.x <= 0 || bounds.y <= 0 || bounds.x + bounds.width >= camera.getWidth()
+                || bounds.y + bounds.height >= camera.getHeight()) {
+            confidence *= 0.5;
+        }
 
-        return new PartAlignmentOffset(offsets, false);
+        Footprint footprint =
+                part.getPackage() == null ? null : part.getPackage().getFootprint();
+        double area = rect.size.width * rect.size.height;
+        if (footprint != null && area > 0) {
+            // The pipeline may find the body or the whole part including pads, so compare with
+            // both and take the better match.
+            Location unitsPerPixel =
+                    camera.getUnitsPerPixel().convertToUnits(footprint.getUnits());
+            double pixelArea = unitsPerPixel.getX() * unitsPerPixel.getY();
+            double sizeScore = 0;
+            for (Shape shape : new Shape[] {footprint.getShape(), footprint.getBodyShape()}) {
+                Rectangle2D footprintBounds = shape.getBounds2D();
+                double expected =
+                        footprintBounds.getWidth() * footprintBounds.getHeight() / pixelArea;
+                if (expected > 0) {
+                    sizeScore = Math.max(sizeScore,
+                            Math.min(expected, area) / Math.max(expected, area));
+                }
+            }
+            if (sizeScore > 0) {
+                confidence *= sizeScore;
+            }
+        }
+        return confidence;
     }
 
     @Override
@@ -278,6 +713,46 @@ public class ReferenceBottomVision implements PartAlignment {
         this.preRotate = preRotate;
     }
 
+    public boolean isPreRotateSingleCapture() {
+        return preRotateSingleCapture;
+    }
+
+    public void setPreRotateSingleCapture(boolean preRotateSingleCapture) {
+        this.preRotateSingleCapture = preRotateSingleCapture;
+    }
+
+    public double getMaxSingleCaptureAngleError() {
+        return maxSingleCaptureAngleError;
+    }
+
+    public void setMaxSingleCaptureAngleError(double maxSingleCaptureAngleError) {
+        this.maxSingleCaptureAngleError = maxSingleCaptureAngleError;
+    }
+
+    public double getMinSingleCaptureConfidence() {
+        return minSingleCaptureConfidence;
+    }
+
+    public void setMinSingleCaptureConfidence(double minSingleCaptureConfidence) {
+        this.minSingleCaptureConfidence = minSingleCaptureConfidence;
+    }
+
+    public boolean isParallelEnabled() {
+        return parallelEnabled;
+    }
+
+    public void setParallelEnabled(boolean parallelEnabled) {
+        this.parallelEnabled = parallelEnabled;
+    }
+
+    public boolean isMultiNozzleCapture() {
+        return multiNozzleCapture;
+    }
+
+    public void setMultiNozzleCapture(boolean multiNozzleCapture) {
+        this.multiNozzleCapture = multiNozzleCapture;
+    }
+
     @Override
     public String getPropertySheetHolderTitle() {
         return "Bottom Vision";
@@ -332,6 +807,44 @@ public class ReferenceBottomVision implements PartAlignment {
         return new ReferenceBottomVisionPartConfigurationWizard(this, part);
     }
 
+    /**
+     * A part on a nozzle to be aligned by findOffsets(List), with the same arguments as
+     * findOffsets(Part, BoardLocation, Location, Nozzle).
+     */
+    public static class Alignment {
+        private final Part part;
+
+        private final BoardLocation boardLocation;
+
+        private final Location placementLocation;
+
+        private final Nozzle nozzle;
+
+        public Alignment(Part part, BoardLocation boardLocation, Location placementLocation,
+                Nozzle nozzle) {
+            this.part = part;
+            this.boardLocation = boardLocation;
+            this.placementLocation = placementLocation;
+            this.nozzle = nozzle;
+        }
+
+        public Part getPart() {
+            return part;
+        }
+
+        public BoardLocation getBoardLocation() {
+            return boardLocation;
+        }
+
+        public Location getPlacementLocation() {
+            return placementLocation;
+        }
+
+        public Nozzle getNozzle() {
+            return nozzle;
+        }
+    }
+
     @Root
     public static class PartSettings {
         @Attribute
@@ -10,13 +10,17 @@ import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JTextField;
 import javax.swing.border.TitledBorder;
 
 import org.openpnp.gui.MainFrame;
+import org.openpnp.gui.components.ComponentDecorators;
 import org.openpnp.gui.support.AbstractConfigurationWizard;
+import org.openpnp.gui.support.DoubleConverter;
 import org.openpnp.gui.support.MessageBoxes;
 import org.openpnp.machine.reference.vision.ReferenceBottomVision;
 import org.openpnp.machine.reference.vision.ReferenceBottomVision.PartSettings;
+import org.openpnp.model.Configuration;
 import org.openpnp.util.UiUtils;
 import org.openpnp.util.VisionUtils;
 import org.openpnp.vision.pipeline.CvPipeline;
@@ -31,6 +35,11 @@ public class ReferenceBottomVisionConfigurationWizard extends AbstractConfigurat
     private final ReferenceBottomVision bottomVision;
     private JCheckBox enabledCheckbox;
     private JCheckBox preRotCheckbox;
+    private JCheckBox singleCaptureCheckbox;
+    private JTextField textFieldMaxAngleError;
+    private JTextField textFieldMinConfidence;
+    private JCheckBox parallelCheckbox;
+    private JCheckBox multiNozzleCaptureCheckbox;
 
     public ReferenceBottomVisionConfigurationWizard(ReferenceBottomVision bottomVision) {
         this.bottomVision = bottomVision;
@@ -45,6 +54,11 @@ public class ReferenceBottomVisionConfigurationWizard extends AbstractConfigurat
                         FormSpecs.RELATED_GAP_COLSPEC, FormSpecs.DEFAULT_COLSPEC,
                         FormSpecs.RELATED_GAP_COLSPEC, FormSpecs.DEFAULT_COLSPEC,},
                 new RowSpec[] {FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
                         FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
                         FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,}));
 
@@ -105,6 +119,44 @@ public class ReferenceBottomVisionConfigurationWizard extends AbstractConfigurat
 
         preRotCheckbox = new JCheckBox("");
         panel.add(preRotCheckbox, "4, 6");
+
+        JLabel lblSingleCapture = new JLabel("Single capture pre-rotate?");
+        lblSingleCapture.setToolTipText(
+                "Correct the rotation on the way to the board instead of capturing again.");
+        panel.add(lblSingleCapture, "2, 8");
+
+        singleCaptureCheckbox = new JCheckBox("");
+        panel.add(singleCaptureCheckbox, "4, 8");
+
+        JLabel lblMaxAngleError = new JLabel("Max. Single Capture Error (°)");
+        panel.add(lblMaxAngleError, "2, 10");
+
+        textFieldMaxAngleError = new JTextField();
+        textFieldMaxAngleError.setColumns(6);
+        panel.add(textFieldMaxAngleError, "4, 10");
+
+        JLabel lblMinConfidence = new JLabel("Min. Single Capture Confidence");
+        panel.add(lblMinConfidence, "2, 12");
+
+        textFieldMinConfidence = new JTextField();
+        textFieldMinConfidence.setColumns(6);
+        panel.add(textFieldMinConfidence, "4, 12");
+
+        JLabel lblParallel = new JLabel("Align nozzles in parallel?");
+        lblParallel.setToolTipText(
+                "Process each nozzle's image while the next nozzle moves over the camera.");
+        panel.add(lblParallel, "2, 14");
+
+        parallelCheckbox = new JCheckBox("");
+        panel.add(parallelCheckbox, "4, 14");
+
+        JLabel lblMultiNozzleCapture = new JLabel("Capture nozzles together?");
+        lblMultiNozzleCapture.setToolTipText(
+                "Capture all nozzles in one frame when their parts fit in the camera's view.");
+        panel.add(lblMultiNozzleCapture, "2, 16");
+
+        multiNozzleCaptureCheckbox = new JCheckBox("");
+        panel.add(multiNozzleCaptureCheckbox, "4, 16");
     }
 
     private void editPipeline() throws Exception {
@@ -130,5 +182,20 @@ public class ReferenceBottomVisionConfigurationWizard extends AbstractConfigurat
     public void createBindings() {
         addWrappedBinding(bottomVision, "enabled", enabledCheckbox, "selected");
         addWrappedBinding(bottomVision, "preRotate", preRotCheckbox, "selected");
+
+        DoubleConverter doubleConverter =
+                new DoubleConverter(Configuration.get().getLengthDisplayFormat());
+        addWrappedBinding(bottomVision, "preRotateSingleCapture", singleCaptureCheckbox,
+                "selected");
+        addWrappedBinding(bottomVision, "maxSingleCaptureAngleError", textFieldMaxAngleError,
+                "text", doubleConverter);
+        addWrappedBinding(bottomVision, "minSingleCaptureConfidence", textFieldMinConfidence,
+                "text", doubleConverter);
+        addWrappedBinding(bottomVision, "parallelEnabled", parallelCheckbox, "selected");
+        addWrappedBinding(bottomVision, "multiNozzleCapture", multiNozzleCaptureCheckbox,
+                "selected");
+
+        ComponentDecorators.decorateWithAutoSelect(textFieldMaxAngleError);
+        ComponentDecorators.decorateWithAutoSelect(textFieldMinConfidence);
     }
 }
@@ -146,8 +146,9 @@ public class ReferenceBottomVisionPartConfigurationWizard extends AbstractConfig
                                         .getLinearDistanceTo(0., 0.)) > 19.999) {
                 throw new Exception("Offset too big");
             }
+            // A single capture pre-rotate leaves the rotation correction to this move.
             nozzle.moveTo(nozzle.getLocation()
-                                .subtract(alignmentOffset.getLocation()),
+                                .subtractWithRotation(alignmentOffset.getLocation()),
                     nozzle.getPart()
                           .getSpeed());
             return;
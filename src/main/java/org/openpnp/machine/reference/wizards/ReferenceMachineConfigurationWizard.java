@@ -13,6 +13,7 @@ import org.openpnp.gui.components.LocationButtonsPanel;
 import org.openpnp.gui.support.AbstractConfigurationWizard;
 import org.openpnp.gui.support.DoubleConverter;
 import org.openpnp.gui.support.LengthConverter;
+import org.openpnp.gui.support.LongConverter;
 import org.openpnp.gui.support.MessageBoxes;
 import org.openpnp.gui.support.MutableLocationProxy;
 import org.openpnp.machine.openbuilds.OpenBuildsDriver;
@@ -21,6 +22,8 @@ import org.openpnp.machine.reference.ReferenceMachine;
 import org.openpnp.machine.reference.driver.GcodeDriver;
 import org.openpnp.machine.reference.driver.LinuxCNC;
 import org.openpnp.machine.reference.driver.NullDriver;
+import org.openpnp.machine.reference.driver.RecordingDriver;
+import org.openpnp.machine.reference.driver.SimulationDriver;
 import org.openpnp.model.Configuration;
 
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -37,6 +40,7 @@ public class ReferenceMachineConfigurationWizard extends AbstractConfigurationWi
     private JTextField discardYTf;
     private JTextField discardZTf;
     private JTextField discardCTf;
+    private JTextField headActivityIntervalTf;
 
     public ReferenceMachineConfigurationWizard(ReferenceMachine machine) {
         this.machine = machine;
@@ -48,7 +52,8 @@ public class ReferenceMachineConfigurationWizard extends AbstractConfigurationWi
         panelGeneral.setLayout(new FormLayout(
                 new ColumnSpec[] {FormSpecs.RELATED_GAP_COLSPEC, FormSpecs.DEFAULT_COLSPEC,
                         FormSpecs.RELATED_GAP_COLSPEC, FormSpecs.DEFAULT_COLSPEC,},
-                new RowSpec[] {FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,}));
+                new RowSpec[] {FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,}));
         JLabel lblDriver = new JLabel("Driver");
         panelGeneral.add(lblDriver, "2, 2");
 
@@ -56,9 +61,20 @@ public class ReferenceMachineConfigurationWizard extends AbstractConfigurationWi
         panelGeneral.add(comboBoxDriver, "4, 2");
 
         comboBoxDriver.addItem(NullDriver.class.getCanonicalName());
+        comboBoxDriver.addItem(SimulationDriver.class.getCanonicalName());
         comboBoxDriver.addItem(GcodeDriver.class.getCanonicalName());
         comboBoxDriver.addItem(LinuxCNC.class.getCanonicalName());
         comboBoxDriver.addItem(OpenBuildsDriver.class.getCanonicalName());
+        comboBoxDriver.addItem(RecordingDriver.class.getCanonicalName());
+
+        JLabel lblHeadActivityInterval = new JLabel("Position Update Interval (ms)");
+        lblHeadActivityInterval.setToolTipText(
+                "Shortest time between two position updates to the user interface.");
+        panelGeneral.add(lblHeadActivityInterval, "2, 4");
+
+        headActivityIntervalTf = new JTextField();
+        panelGeneral.add(headActivityIntervalTf, "4, 4");
+        headActivityIntervalTf.setColumns(5);
 
         JPanel panelLocations = new JPanel();
         panelLocations.setBorder(new TitledBorder(null, "Locations", TitledBorder.LEADING,
@@ -121,8 +137,11 @@ public class ReferenceMachineConfigurationWizard extends AbstractConfigurationWi
         DoubleConverter doubleConverter =
                 new DoubleConverter(Configuration.get().getLengthDisplayFormat());
         LengthConverter lengthConverter = new LengthConverter();
+        LongConverter longConverter = new LongConverter();
 
         addWrappedBinding(this, "driverClassName", comboBoxDriver, "selectedItem");
+        addWrappedBinding(machine, "headActivityIntervalMilliseconds", headActivityIntervalTf,
+                "text", longConverter);
 
         MutableLocationProxy discardLocation = new MutableLocationProxy();
         bind(UpdateStrategy.READ_WRITE, machine, "discardLocation", discardLocation, "location");
@@ -131,6 +150,7 @@ public class ReferenceMachineConfigurationWizard extends AbstractConfigurationWi
         addWrappedBinding(discardLocation, "lengthZ", discardZTf, "text", lengthConverter);
         addWrappedBinding(discardLocation, "rotation", discardCTf, "text", doubleConverter);
 
+        ComponentDecorators.decorateWithAutoSelect(headActivityIntervalTf);
         ComponentDecorators.decorateWithAutoSelectAndLengthConversion(discardXTf);
         ComponentDecorators.decorateWithAutoSelectAndLengthConversion(discardYTf);
         ComponentDecorators.decorateWithAutoSelectAndLengthConversion(discardZTf);
@@ -145,8 +165,20 @@ public class ReferenceMachineConfigurationWizard extends AbstractConfigurationWi
         if (machine.getDriver().getClass().getCanonicalName().equals(driverClassName)) {
             return;
         }
-        ReferenceDriver driver = (ReferenceDriver) Class.forName(driverClassName).newInstance();
-        driver.createDefaults();
+        ReferenceDriver driver;
+        if (driverClassName.equals(RecordingDriver.class.getCanonicalName())) {
+            // Record with the driver that is already configured.
+            driver = new RecordingDriver(machine.getDriver());
+        }
+        else if (machine.getDriver() instanceof RecordingDriver && ((RecordingDriver) machine
+                .getDriver()).getDriver().getClass().getCanonicalName().equals(driverClassName)) {
+            // Stop recording, keeping the driver's configuration.
+            driver = ((RecordingDriver) machine.getDriver()).getDriver();
+        }
+        else {
+            driver = (ReferenceDriver) Class.forName(driverClassName).newInstance();
+            driver.createDefaults();
+        }
         machine.setDriver(driver);
         this.driverClassName = driverClassName;
         MessageBoxes.infoBox("Restart Required",
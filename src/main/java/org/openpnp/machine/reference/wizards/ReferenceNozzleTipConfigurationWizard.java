@@ -94,6 +94,10 @@ public class ReferenceNozzleTipConfigurationWizard extends AbstractConfiguration
     private JButton btnReset;
     private JLabel lblEnabled;
     private JCheckBox calibrationEnabledCheckbox;
+    private JLabel lblMaxAge;
+    private JTextField textFieldMaxAge;
+    private JLabel lblMaxResidual;
+    private JTextField textFieldMaxResidual;
     private JLabel lblMiddleLocation_1;
     private JTextField textFieldMidX2;
     private JTextField textFieldMidY2;
@@ -342,6 +346,8 @@ public class ReferenceNozzleTipConfigurationWizard extends AbstractConfiguration
                 new RowSpec[] {FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
                         RowSpec.decode("23px"), FormSpecs.RELATED_GAP_ROWSPEC,
                         FormSpecs.DEFAULT_ROWSPEC, FormSpecs.RELATED_GAP_ROWSPEC,
+                        FormSpecs.DEFAULT_ROWSPEC, FormSpecs.RELATED_GAP_ROWSPEC,
+                        FormSpecs.DEFAULT_ROWSPEC, FormSpecs.RELATED_GAP_ROWSPEC,
                         FormSpecs.DEFAULT_ROWSPEC,}));
 
         lblEnabled = new JLabel("Enabled?");
@@ -375,6 +381,20 @@ public class ReferenceNozzleTipConfigurationWizard extends AbstractConfiguration
             }
         });
         panelCalibration.add(btnEditPipeline, "3, 7, left, top");
+
+        lblMaxAge = new JLabel("Max Age (hours)");
+        panelCalibration.add(lblMaxAge, "2, 9, right, default");
+
+        textFieldMaxAge = new JTextField();
+        panelCalibration.add(textFieldMaxAge, "3, 9");
+        textFieldMaxAge.setColumns(10);
+
+        lblMaxResidual = new JLabel("Max Residual (mm)");
+        panelCalibration.add(lblMaxResidual, "2, 11, right, default");
+
+        textFieldMaxResidual = new JTextField();
+        panelCalibration.add(textFieldMaxResidual, "3, 11");
+        textFieldMaxResidual.setColumns(10);
     }
 
     private void editCalibrationPipeline() throws Exception {
@@ -452,11 +472,17 @@ public class ReferenceNozzleTipConfigurationWizard extends AbstractConfiguration
                 lengthConverter);
         
         addWrappedBinding(nozzleTip.getCalibration(), "enabled", calibrationEnabledCheckbox, "selected");
+        addWrappedBinding(nozzleTip.getCalibration(), "maxAgeHours", textFieldMaxAge, "text",
+                doubleConverter);
+        addWrappedBinding(nozzleTip.getCalibration(), "maxResidual", textFieldMaxResidual, "text",
+                doubleConverter);
         
         addWrappedBinding(nozzleTip, "vacuumLevelPartOn", vacuumLevelPartOn, "text", doubleConverter);
         addWrappedBinding(nozzleTip, "vacuumLevelPartOff", vacuumLevelPartOff, "text", doubleConverter);
 
         ComponentDecorators.decorateWithAutoSelect(nameTf);
+        ComponentDecorators.decorateWithAutoSelect(textFieldMaxAge);
+        ComponentDecorators.decorateWithAutoSelect(textFieldMaxResidual);
         
         ComponentDecorators.decorateWithAutoSelectAndLengthConversion(textFieldChangerStartX);
         ComponentDecorators.decorateWithAutoSelectAndLengthConversion(textFieldChangerStartY);
@@ -21,11 +21,18 @@ package org.openpnp.machine.reference.wizards;
 
 import javax.swing.BoxLayout;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JTextField;
 import javax.swing.border.TitledBorder;
 
+import org.openpnp.gui.components.ComponentDecorators;
 import org.openpnp.gui.support.AbstractConfigurationWizard;
+import org.openpnp.gui.support.IntegerConverter;
+import org.openpnp.gui.support.LengthConverter;
+import org.openpnp.machine.reference.HeadInterlock;
+import org.openpnp.machine.reference.ReferenceFeederSelectionStrategy;
 import org.openpnp.machine.reference.ReferencePnpJobProcessor;
 
 import com.jgoodies.forms.layout.ColumnSpec;
@@ -37,6 +44,13 @@ import com.jgoodies.forms.layout.RowSpec;
 public class ReferencePnpJobProcessorConfigurationWizard extends AbstractConfigurationWizard {
     private final ReferencePnpJobProcessor jobProcessor;
     private JCheckBox parkWhenComplete;
+    private JComboBox feederSelectionMode;
+    private JCheckBox journalEnabled;
+    private JCheckBox prefeedEnabled;
+    private JCheckBox multiHeadEnabled;
+    private JTextField headClearance;
+    private JTextField headInterlockTimeout;
+    private JComboBox headSeparationAxes;
 
     public ReferencePnpJobProcessorConfigurationWizard(ReferencePnpJobProcessor jobProcessor) {
         this.jobProcessor = jobProcessor;
@@ -48,17 +62,98 @@ public class ReferencePnpJobProcessorConfigurationWizard extends AbstractConfigu
         contentPanel.add(panelGeneral);
         panelGeneral.setLayout(new FormLayout(
                 new ColumnSpec[] {FormSpecs.DEFAULT_COLSPEC, FormSpecs.DEFAULT_COLSPEC,},
-                new RowSpec[] {FormSpecs.RELATED_GAP_ROWSPEC, RowSpec.decode("16px"),}));
+                new RowSpec[] {FormSpecs.RELATED_GAP_ROWSPEC, RowSpec.decode("16px"),
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,
+                        FormSpecs.RELATED_GAP_ROWSPEC, FormSpecs.DEFAULT_ROWSPEC,}));
 
         JLabel lblParkWhenComplete = new JLabel("Park When Complete");
         panelGeneral.add(lblParkWhenComplete, "1, 2, right, top");
 
         parkWhenComplete = new JCheckBox("");
         panelGeneral.add(parkWhenComplete, "2, 2");
+
+        JLabel lblFeederSelection = new JLabel("Feeder Selection");
+        panelGeneral.add(lblFeederSelection, "1, 4, right, default");
+
+        feederSelectionMode = new JComboBox(ReferenceFeederSelectionStrategy.Mode.values());
+        panelGeneral.add(feederSelectionMode, "2, 4");
+
+        JLabel lblJournalEnabled = new JLabel("Resume Interrupted Jobs");
+        lblJournalEnabled.setToolTipText(
+                "Record job progress next to the job file so that a job interrupted by a crash or power loss continues where it stopped.");
+        panelGeneral.add(lblJournalEnabled, "1, 6, right, default");
+
+        journalEnabled = new JCheckBox("");
+        panelGeneral.add(journalEnabled, "2, 6");
+
+        JLabel lblPrefeedEnabled = new JLabel("Prefeed Next Cycle");
+        lblPrefeedEnabled.setToolTipText(
+                "Fire the feed actuators for the next cycle's parts while the current cycle is being aligned and placed.");
+        panelGeneral.add(lblPrefeedEnabled, "1, 8, right, default");
+
+        prefeedEnabled = new JCheckBox("");
+        panelGeneral.add(prefeedEnabled, "2, 8");
+
+        JLabel lblMultiHeadEnabled = new JLabel("Use All Heads");
+        lblMultiHeadEnabled.setToolTipText(
+                "Place with every head that has nozzles. The heads move at the same time if the driver supports it.");
+        panelGeneral.add(lblMultiHeadEnabled, "1, 10, right, default");
+
+        multiHeadEnabled = new JCheckBox("");
+        panelGeneral.add(multiHeadEnabled, "2, 10");
+
+        JLabel lblHeadClearance = new JLabel("Head Clearance");
+        lblHeadClearance.setToolTipText(
+                "How far apart heads that are moving at the same time must stay.");
+        panelGeneral.add(lblHeadClearance, "1, 12, right, default");
+
+        headClearance = new JTextField();
+        headClearance.setColumns(10);
+        panelGeneral.add(headClearance, "2, 12");
+
+        JLabel lblHeadInterlockTimeout = new JLabel("Head Interlock Timeout (ms)");
+        lblHeadInterlockTimeout.setToolTipText(
+                "How long a head waits for another head that is in its way and isn't moving before the job stops with an error. 0 waits forever.");
+        panelGeneral.add(lblHeadInterlockTimeout, "1, 14, right, default");
+
+        headInterlockTimeout = new JTextField();
+        headInterlockTimeout.setColumns(10);
+        panelGeneral.add(headInterlockTimeout, "2, 14");
+
+        JLabel lblHeadSeparationAxes = new JLabel("Head Separation Axes");
+        lblHeadSeparationAxes.setToolTipText(
+                "The axes along which heads are kept apart. Use Y for gantries that share the Y rails, X for gantries that share the X rails.");
+        panelGeneral.add(lblHeadSeparationAxes, "1, 16, right, default");
+
+        headSeparationAxes = new JComboBox(HeadInterlock.Axes.values());
+        panelGeneral.add(headSeparationAxes, "2, 16");
     }
 
     @Override
     public void createBindings() {
         addWrappedBinding(jobProcessor, "parkWhenComplete", parkWhenComplete, "selected");
+        addWrappedBinding(jobProcessor, "journalEnabled", journalEnabled, "selected");
+        addWrappedBinding(jobProcessor, "prefeedEnabled", prefeedEnabled, "selected");
+        addWrappedBinding(jobProcessor, "multiHeadEnabled", multiHeadEnabled, "selected");
+        addWrappedBinding(jobProcessor, "headClearance", headClearance, "text",
+                new LengthConverter());
+        ComponentDecorators.decorateWithAutoSelectAndLengthConversion(headClearance);
+        addWrappedBinding(jobProcessor, "headInterlockTimeout", headInterlockTimeout, "text",
+                new IntegerConverter());
+        ComponentDecorators.decorateWithAutoSelect(headInterlockTimeout);
+        addWrappedBinding(jobProcessor, "headSeparationAxes", headSeparationAxes,
+                "selectedItem");
+        if (jobProcessor.getFeederSelectionStrategy() instanceof ReferenceFeederSelectionStrategy) {
+            addWrappedBinding(jobProcessor.getFeederSelectionStrategy(), "mode",
+                    feederSelectionMode, "selectedItem");
+        }
+        else {
+            feederSelectionMode.setEnabled(false);
+        }
     }
 }
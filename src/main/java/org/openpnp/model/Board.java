@@ -24,6 +24,7 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -127,6 +128,24 @@ public class Board extends AbstractModelObject implements PropertyChangeListener
         }
     }
 
+    /**
+     * Add all of the placements with a single property change, rather than one for each.
+     */
+    public void addPlacements(Collection<Placement> placements) {
+        if (placements.isEmpty()) {
+            return;
+        }
+        Object oldValue = this.placements;
+        this.placements = new ArrayList<>(this.placements);
+        this.placements.addAll(placements);
+        firePropertyChange("placements", oldValue, this.placements);
+        for (Placement placement : placements) {
+            if (placement != null) {
+                placement.addPropertyChangeListener(this);
+            }
+        }
+    }
+
     public void removePlacement(Placement placement) {
         Object oldValue = placements;
         placements = new ArrayList<>(placements);
@@ -151,6 +170,24 @@ public class Board extends AbstractModelObject implements PropertyChangeListener
         }
     }
 
+    /**
+     * Add all of the pads with a single property change, rather than one for each.
+     */
+    public void addSolderPastePads(Collection<BoardPad> pads) {
+        if (pads.isEmpty()) {
+            return;
+        }
+        Object oldValue = solderPastePads;
+        solderPastePads = new ArrayList<>(solderPastePads);
+        solderPastePads.addAll(pads);
+        firePropertyChange("solderPastePads", oldValue, solderPastePads);
+        for (BoardPad pad : pads) {
+            if (pad != null) {
+                pad.addPropertyChangeListener(this);
+            }
+        }
+    }
+
     public void removeSolderPastePad(BoardPad pad) {
         Object oldValue = solderPastePads;
         solderPastePads = new ArrayList<>(solderPastePads);
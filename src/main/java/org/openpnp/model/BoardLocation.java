@@ -20,6 +20,7 @@
 package org.openpnp.model;
 
 import org.openpnp.model.Board.Side;
+import org.openpnp.util.BoardTransform;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.Element;
 import org.simpleframework.xml.core.Commit;
@@ -44,6 +45,12 @@ public class BoardLocation extends AbstractModelObject {
     @Attribute(required = false)
     private boolean enabled = true;
 
+    /**
+     * The board to machine transform for the units it was last asked for. Rebuilt when the
+     * location, side, board or board dimensions change.
+     */
+    private volatile BoardTransform transform;
+
     BoardLocation() {
         setLocation(new Location(LengthUnit.Millimeters));
     }
@@ -78,6 +85,7 @@ public class BoardLocation extends AbstractModelObject {
     public void setLocation(Location location) {
         Location oldValue = this.location;
         this.location = location;
+        this.transform = null;
         firePropertyChange("location", oldValue, location);
     }
 
@@ -88,6 +96,7 @@ public class BoardLocation extends AbstractModelObject {
     public void setSide(Side side) {
         Object oldValue = this.side;
         this.side = side;
+        this.transform = null;
         firePropertyChange("side", oldValue, side);
     }
 
@@ -98,9 +107,26 @@ public class BoardLocation extends AbstractModelObject {
     public void setBoard(Board board) {
         Board oldValue = this.board;
         this.board = board;
+        this.transform = null;
         firePropertyChange("board", oldValue, board);
     }
 
+    /**
+     * Get the transform from this board's coordinates to machine coordinates, in the given
+     * units. The transform is cached, so this is cheap to call for every placement.
+     */
+    public BoardTransform getTransform(LengthUnit units) {
+        BoardTransform transform = this.transform;
+        // The board's dimensions can change without this BoardLocation knowing, so they are
+        // checked on every call rather than invalidating on a change.
+        double offset = board.getDimensions().getX();
+        if (transform == null || !transform.isFor(location, side, offset, units)) {
+            transform = new BoardTransform(location, side, offset, units);
+            this.transform = transform;
+        }
+        return transform;
+    }
+
     String getBoardFile() {
         return boardFile;
     }
@@ -19,21 +19,37 @@
 
 package org.openpnp.model;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.prefs.Preferences;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
 import org.openpnp.ConfigurationListener;
 import org.openpnp.Scripting;
 import org.openpnp.spi.Machine;
+import org.openpnp.util.CoalescingWriter;
 import org.openpnp.util.ResourceUtils;
 import org.pmw.tinylog.Logger;
 import org.simpleframework.xml.Element;
@@ -47,6 +63,7 @@ import org.simpleframework.xml.stream.HyphenStyle;
 import org.simpleframework.xml.stream.Style;
 
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.FutureCallback;
 
 public class Configuration extends AbstractModelObject {
     private static Configuration instance;
@@ -77,6 +94,26 @@ public class Configuration extends AbstractModelObject {
     private Scripting scripting;
     private EventBus bus = new EventBus();
 
+    /**
+     * Shared by all reads. Persister is thread safe and caches the annotation scan of each class
+     * it sees, so reusing one instance avoids repeating that work for every file.
+     */
+    private final Serializer serializer = createSerializer();
+
+    /**
+     * Digest of each top level configuration file as it was last loaded or saved, used to skip
+     * writing files that haven't changed.
+     */
+    private final Map<String, String> savedDigests = new ConcurrentHashMap<>();
+
+    private final CoalescingWriter writer = new CoalescingWriter("Configuration Writer");
+
+    /**
+     * Boards serialized by saveJobInBackground() that have not been written yet, by file. Each
+     * queued job write takes all of them, so coalescing job writes never drops a board.
+     */
+    private final Map<File, PendingBoard> pendingBoards = new LinkedHashMap<>();
+
     public static Configuration get() {
         if (instance == null) {
             throw new Error("Configuration instance not yet initialized.");
@@ -210,102 +247,380 @@ public class Configuration extends AbstractModelObject {
     }
 
     public synchronized void load() throws Exception {
-        boolean forceSave = false;
         boolean overrideUserConfig = Boolean.getBoolean("overrideUserConfig");
+        long loadStartTime = System.nanoTime();
 
+        ExecutorService executor = Executors
+                .newFixedThreadPool(Math.max(3, Runtime.getRuntime().availableProcessors()));
         try {
-            File file = new File(configurationDirectory, "packages.xml");
-            if (overrideUserConfig || !file.exists()) {
-                Logger.info("No packages.xml found in configuration directory, loading defaults.");
-                file = File.createTempFile("packages", "xml");
-                FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/packages.xml"), file);
-                forceSave = true;
+            // The three files don't reference each other until the listeners run, so they are
+            // parsed concurrently and then applied in the original order on this thread.
+            Future<LoadedFile<PackagesConfigurationHolder>> packagesFuture =
+                    executor.submit(() -> readConfigurationFile("packages.xml",
+                            PackagesConfigurationHolder.class, overrideUserConfig));
+            Future<LoadedFile<PartsConfigurationHolder>> partsFuture =
+                    executor.submit(() -> readConfigurationFile("parts.xml",
+                            PartsConfigurationHolder.class, overrideUserConfig));
+            Future<LoadedFile<MachineConfigurationHolder>> machineFuture =
+                    executor.submit(() -> readConfigurationFile("machine.xml",
+                            MachineConfigurationHolder.class, overrideUserConfig));
+
+            LoadedFile<PackagesConfigurationHolder> packagesFile =
+                    awaitConfigurationFile(packagesFuture, "packages.xml");
+            LoadedFile<PartsConfigurationHolder> partsFile =
+                    awaitConfigurationFile(partsFuture, "parts.xml");
+            LoadedFile<MachineConfigurationHolder> machineFile =
+                    awaitConfigurationFile(machineFuture, "machine.xml");
+            long parseTime = System.nanoTime() - loadStartTime;
+
+            for (Package pkg : packagesFile.holder.packages) {
+                addPackage(pkg);
+            }
+            for (Part part : partsFile.holder.parts) {
+                addPart(part);
+            }
+            machine = machineFile.holder.machine;
+
+            boolean forceSave = packagesFile.defaults || partsFile.defaults || machineFile.defaults;
+
+            loaded = true;
+
+            List<ListenerTiming> loadedTimings = fireConfigurationPhase(executor,
+                    (listener) -> listener.configurationLoaded(this));
+
+            if (forceSave) {
+                Logger.info("Defaults were loaded. Saving to configuration directory.");
+                configurationDirectory.mkdirs();
+                save();
             }
-            loadPackages(file);
+
+            List<ListenerTiming> completeTimings = fireConfigurationPhase(executor,
+                    (listener) -> listener.configurationComplete(this));
+
+            long scriptingStartTime = System.nanoTime();
+            scripting = new Scripting();
+            long scriptingTime = System.nanoTime() - scriptingStartTime;
+
+            Logger.info(
+                    "Configuration loaded in {} ms: parse {} ms (packages.xml {} ms, parts.xml {} ms, machine.xml {} ms), configurationLoaded {} ms, configurationComplete {} ms, scripting {} ms.",
+                    toMillis(System.nanoTime() - loadStartTime), toMillis(parseTime),
+                    toMillis(packagesFile.time), toMillis(partsFile.time),
+                    toMillis(machineFile.time), toMillis(sumTimings(loadedTimings)),
+                    toMillis(sumTimings(completeTimings)), toMillis(scriptingTime));
+            logListenerTimings("configurationLoaded", loadedTimings);
+            logListenerTimings("configurationComplete", completeTimings);
         }
-        catch (Exception e) {
-            String message = e.getMessage();
-            if (e.getCause() != null && e.getCause().getMessage() != null) {
-                message = e.getCause().getMessage();
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private <T> LoadedFile<T> readConfigurationFile(String name, Class<T> holderClass,
+            boolean overrideUserConfig) throws Exception {
+        long startTime = System.nanoTime();
+        File file = new File(configurationDirectory, name);
+        boolean defaults = false;
+        if (overrideUserConfig || !file.exists()) {
+            Logger.info("No {} found in configuration directory, loading defaults.", name);
+            file = File.createTempFile(name.substring(0, name.indexOf('.')), "xml");
+            FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/" + name), file);
+            defaults = true;
+        }
+        boolean snapshots = !defaults && isSnapshotsEnabled();
+        T holder = null;
+        String digest = null;
+        if (snapshots) {
+            // A snapshot of a file that still has the size and modification time it was made
+            // from is used without reading the file.
+            digest = readSnapshotDigest(file);
+            if (digest != null) {
+                holder = readSnapshot(holderClass, file, digest);
+            }
+        }
+        if (holder == null) {
+            // Read the whole file up front so the digest used by save() to detect changes can be
+            // computed from the same bytes that are parsed.
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            digest = Hex.encodeHexString(MessageDigest.getInstance("SHA-1").digest(bytes));
+            if (snapshots) {
+                // The file may have been touched or copied without being changed, in which case
+                // the snapshot is still good and is rewritten with the new size and time.
+                holder = readSnapshot(holderClass, file, digest);
+            }
+            if (holder == null) {
+                holder = serializer.read(holderClass, new ByteArrayInputStream(bytes));
             }
-            throw new Exception("Error while reading packages.xml (" + message + ")", e);
+            if (snapshots) {
+                writeSnapshot(holder, file, digest);
+            }
+        }
+        if (!defaults) {
+            savedDigests.put(name, digest);
         }
+        return new LoadedFile<>(holder, defaults, System.nanoTime() - startTime);
+    }
 
+    /**
+     * Binary snapshots of packages.xml and parts.xml are used to speed up loading large libraries
+     * when the configurationSnapshots system property is set. See ConfigurationSnapshot.
+     */
+    private static boolean isSnapshotsEnabled() {
+        return Boolean.getBoolean("configurationSnapshots");
+    }
 
+    /**
+     * The digest recorded in the snapshot of the given file, if the file hasn't changed size or
+     * modification time since the snapshot was made.
+     * 
+     * @return The digest, or null if the file must be read and hashed.
+     */
+    private static String readSnapshotDigest(File file) {
         try {
-            File file = new File(configurationDirectory, "parts.xml");
-            if (overrideUserConfig || !file.exists()) {
-                Logger.info("No parts.xml found in configuration directory, loading defaults.");
-                file = File.createTempFile("parts", "xml");
-                FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/parts.xml"), file);
-                forceSave = true;
-            }
-            loadParts(file);
+            return ConfigurationSnapshot.readDigest(file);
         }
         catch (Exception e) {
-            String message = e.getMessage();
-            if (e.getCause() != null && e.getCause().getMessage() != null) {
-                message = e.getCause().getMessage();
-            }
-            throw new Exception("Error while reading parts.xml (" + message + ")", e);
+            Logger.warn(e, "Unable to read snapshot of {}, reading XML instead.", file);
+            return null;
         }
+    }
 
+    /**
+     * Load the holder from the snapshot of the given file, if there is a snapshot and it is
+     * current.
+     * 
+     * @return The holder, or null if the file must be parsed as XML.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T readSnapshot(Class<T> holderClass, File file, String digest) {
+        try {
+            if (holderClass == PackagesConfigurationHolder.class) {
+                List<Package> packages = ConfigurationSnapshot.readPackages(file, digest);
+                if (packages == null) {
+                    return null;
+                }
+                PackagesConfigurationHolder holder = new PackagesConfigurationHolder();
+                holder.packages = new ArrayList<>(packages);
+                Logger.debug("Loaded {} from snapshot.", file);
+                return (T) holder;
+            }
+            if (holderClass == PartsConfigurationHolder.class) {
+                List<Part> parts = ConfigurationSnapshot.readParts(file, digest);
+                if (parts == null) {
+                    return null;
+                }
+                PartsConfigurationHolder holder = new PartsConfigurationHolder();
+                holder.parts = new ArrayList<>(parts);
+                Logger.debug("Loaded {} from snapshot.", file);
+                return (T) holder;
+            }
+        }
+        catch (Exception e) {
+            Logger.warn(e, "Unable to read snapshot of {}, reading XML instead.", file);
+        }
+        return null;
+    }
 
+    /**
+     * Write a snapshot of the holder for the given file if it is one that supports snapshots.
+     * Failure is logged but is not an error since the XML is always the source of truth.
+     */
+    private void writeSnapshot(Object holder, File file, String digest) {
         try {
-            File file = new File(configurationDirectory, "machine.xml");
-            if (overrideUserConfig || !file.exists()) {
-                Logger.info("No machine.xml found in configuration directory, loading defaults.");
-                file = File.createTempFile("machine", "xml");
-                FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/machine.xml"), file);
-                forceSave = true;
+            if (holder instanceof PackagesConfigurationHolder) {
+                if (!ConfigurationSnapshot.writePackages(file, digest,
+                        ((PackagesConfigurationHolder) holder).packages)) {
+                    ConfigurationSnapshot.getSnapshotFile(file).delete();
+                }
+            }
+            else if (holder instanceof PartsConfigurationHolder) {
+                ConfigurationSnapshot.writeParts(file, digest,
+                        ((PartsConfigurationHolder) holder).parts);
             }
-            loadMachine(file);
         }
         catch (Exception e) {
+            Logger.warn(e, "Unable to write snapshot of {}.", file);
+        }
+    }
+
+    private static <T> LoadedFile<T> awaitConfigurationFile(Future<LoadedFile<T>> future,
+            String name) throws Exception {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException ee) {
+            Throwable e = ee.getCause();
             String message = e.getMessage();
             if (e.getCause() != null && e.getCause().getMessage() != null) {
                 message = e.getCause().getMessage();
             }
-            throw new Exception("Error while reading machine.xml (" + message + ")", e);
+            throw new Exception("Error while reading " + name + " (" + message + ")", e);
         }
+    }
 
-        loaded = true;
-
-        for (ConfigurationListener listener : listeners) {
-            listener.configurationLoaded(this);
+    /**
+     * Call every listener for one phase of the load. Listeners marked
+     * ConfigurationListener.Concurrent are run on the executor while the rest run in turn on the
+     * calling thread. The method returns only after all of them have finished, so phases never
+     * overlap. The phases are the only ordering between listeners: what one resolves in
+     * configurationLoaded is available to every other in configurationComplete, and no listener
+     * depends on another within a phase.
+     */
+    private List<ListenerTiming> fireConfigurationPhase(ExecutorService executor,
+            ListenerCall call) throws Exception {
+        List<ConfigurationListener> snapshot;
+        synchronized (listeners) {
+            snapshot = new ArrayList<>(listeners);
+        }
+        List<Future<ListenerTiming>> futures = new ArrayList<>();
+        List<ListenerTiming> timings = new ArrayList<>();
+        for (ConfigurationListener listener : snapshot) {
+            if (listener instanceof ConfigurationListener.Concurrent) {
+                futures.add(executor.submit(() -> callListener(listener, call)));
+            }
         }
+        for (ConfigurationListener listener : snapshot) {
+            if (!(listener instanceof ConfigurationListener.Concurrent)) {
+                timings.add(callListener(listener, call));
+            }
+        }
+        for (Future<ListenerTiming> future : futures) {
+            try {
+                timings.add(future.get());
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw new Error(e.getCause());
+            }
+        }
+        return timings;
+    }
 
-        if (forceSave) {
-            Logger.info("Defaults were loaded. Saving to configuration directory.");
-            configurationDirectory.mkdirs();
-            save();
+    private static ListenerTiming callListener(ConfigurationListener listener, ListenerCall call)
+            throws Exception {
+        long startTime = System.nanoTime();
+        call.call(listener);
+        return new ListenerTiming(listener, System.nanoTime() - startTime);
+    }
+
+    private static void logListenerTimings(String phase, List<ListenerTiming> timings) {
+        timings.sort((a, b) -> Long.compare(b.time, a.time));
+        for (ListenerTiming timing : timings) {
+            Logger.debug("{} {} took {} ms", phase, timing.listener.getClass().getName(),
+                    toMillis(timing.time));
         }
+    }
 
-        for (ConfigurationListener listener : listeners) {
-            listener.configurationComplete(this);
+    private static long sumTimings(List<ListenerTiming> timings) {
+        long total = 0;
+        for (ListenerTiming timing : timings) {
+            total += timing.time;
         }
-        
-        scripting = new Scripting();
+        return total;
     }
 
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    /**
+     * Save machine.xml, packages.xml and parts.xml. Each file is serialized once, in memory, and
+     * is only written if its contents differ from what was last loaded or saved. Changed files
+     * are written to a temporary file next to the real one which is then moved into place, so
+     * unchanged files are left untouched and a failed write leaves the old file intact. Jobs and
+     * Boards still queued on the background writer are written first.
+     */
     public synchronized void save() throws Exception {
-        try {
-            saveMachine(new File(configurationDirectory, "machine.xml"));
-        }
-        catch (Exception e) {
-            throw new Exception("Error while saving machine.xml (" + e.getMessage() + ")", e);
+        flush();
+        for (Map.Entry<String, Object> entry : createHolders().entrySet()) {
+            String name = entry.getKey();
+            try {
+                Object holder = entry.getValue();
+                saveConfigurationFile(name, serialize(holder), holder);
+            }
+            catch (Exception e) {
+                throw new Exception("Error while saving " + name + " (" + e.getMessage() + ")", e);
+            }
         }
-        try {
-            savePackages(new File(configurationDirectory, "packages.xml"));
+    }
+
+    /**
+     * Wait until every Job and Board save queued on the background writer has been written. Call
+     * this before exiting, since the writer thread does not keep the application alive.
+     */
+    public void flush() throws InterruptedException {
+        writer.flush();
+    }
+
+    private Map<String, Object> createHolders() {
+        Map<String, Object> holders = new LinkedHashMap<>();
+        MachineConfigurationHolder machineHolder = new MachineConfigurationHolder();
+        machineHolder.machine = machine;
+        holders.put("machine.xml", machineHolder);
+        PackagesConfigurationHolder packagesHolder = new PackagesConfigurationHolder();
+        packagesHolder.packages = new ArrayList<>(packages.values());
+        holders.put("packages.xml", packagesHolder);
+        PartsConfigurationHolder partsHolder = new PartsConfigurationHolder();
+        partsHolder.parts = new ArrayList<>(parts.values());
+        holders.put("parts.xml", partsHolder);
+        return holders;
+    }
+
+    /**
+     * Write the serialized configuration file if it changed, and its snapshot too if holder is
+     * given.
+     */
+    private void saveConfigurationFile(String name, byte[] bytes, Object holder)
+            throws Exception {
+        File file = new File(configurationDirectory, name);
+        String digest = writeAtomically(bytes, file, savedDigests.get(name));
+        if (holder != null && isSnapshotsEnabled() && !digest.equals(savedDigests.get(name))) {
+            writeSnapshot(holder, file, digest);
         }
-        catch (Exception e) {
-            throw new Exception("Error while saving packages.xml (" + e.getMessage() + ")", e);
+        savedDigests.put(name, digest);
+    }
+
+    private byte[] serialize(Object object) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(object, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Write the bytes to a temporary file in the destination directory and then rename it over
+     * the destination. A failed write leaves the existing file intact. If unchangedDigest
+     * matches the digest of the bytes and the destination exists nothing is written.
+     * 
+     * @return The hex SHA-1 digest of the bytes.
+     */
+    private static String writeAtomically(byte[] bytes, File file, String unchangedDigest)
+            throws Exception {
+        String digest = Hex.encodeHexString(MessageDigest.getInstance("SHA-1").digest(bytes));
+        if (digest.equals(unchangedDigest) && file.exists()) {
+            Logger.trace("{} unchanged, not saving.", file);
+            return digest;
         }
+        File directory = file.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        File temp = File.createTempFile(file.getName(), ".tmp", directory);
         try {
-            saveParts(new File(configurationDirectory, "parts.xml"));
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(bytes);
+                out.flush();
+                out.getFD().sync();
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return digest;
         }
-        catch (Exception e) {
-            throw new Exception("Error while saving parts.xml (" + e.getMessage() + ")", e);
+        finally {
+            temp.delete();
         }
     }
 
@@ -328,6 +643,24 @@ public class Configuration extends AbstractModelObject {
         firePropertyChange("packages", null, packages);
     }
 
+    /**
+     * Add all of the packages with a single property change, rather than one for each package.
+     */
+    public void addPackages(Collection<Package> pkgs) {
+        if (pkgs.isEmpty()) {
+            return;
+        }
+        for (Package pkg : pkgs) {
+            if (null == pkg.getId()) {
+                throw new Error("Package with null Id cannot be added to Configuration.");
+            }
+        }
+        for (Package pkg : pkgs) {
+            packages.put(pkg.getId().toUpperCase(), pkg);
+        }
+        firePropertyChange("packages", null, packages);
+    }
+
     public void removePackage(Package pkg) {
         packages.remove(pkg.getId().toUpperCase());
         firePropertyChange("packages", null, packages);
@@ -352,6 +685,24 @@ public class Configuration extends AbstractModelObject {
         firePropertyChange("parts", null, parts);
     }
 
+    /**
+     * Add all of the parts with a single property change, rather than one for each part.
+     */
+    public void addParts(Collection<Part> parts) {
+        if (parts.isEmpty()) {
+            return;
+        }
+        for (Part part : parts) {
+            if (null == part.getId()) {
+                throw new Error("Part with null Id cannot be added to Configuration.");
+            }
+        }
+        for (Part part : parts) {
+            this.parts.put(part.getId().toUpperCase(), part);
+        }
+        firePropertyChange("parts", null, this.parts);
+    }
+
     public void removePart(Part part) {
         parts.remove(part.getId().toUpperCase());
         firePropertyChange("parts", null, parts);
@@ -369,8 +720,7 @@ public class Configuration extends AbstractModelObject {
         if (!file.exists()) {
             Board board = new Board(file);
             board.setName(file.getName());
-            Serializer serializer = createSerializer();
-            serializer.write(board, file);
+            writeAtomically(serialize(board), file, null);
         }
         file = file.getCanonicalFile();
         if (boards.containsKey(file)) {
@@ -382,55 +732,7 @@ public class Configuration extends AbstractModelObject {
         return board;
     }
 
-    private void loadMachine(File file) throws Exception {
-        Serializer serializer = createSerializer();
-        MachineConfigurationHolder holder = serializer.read(MachineConfigurationHolder.class, file);
-        machine = holder.machine;
-    }
-
-    private void saveMachine(File file) throws Exception {
-        MachineConfigurationHolder holder = new MachineConfigurationHolder();
-        holder.machine = machine;
-        Serializer serializer = createSerializer();
-        serializer.write(holder, new ByteArrayOutputStream());
-        serializer.write(holder, file);
-    }
-
-    private void loadPackages(File file) throws Exception {
-        Serializer serializer = createSerializer();
-        PackagesConfigurationHolder holder =
-                serializer.read(PackagesConfigurationHolder.class, file);
-        for (Package pkg : holder.packages) {
-            addPackage(pkg);
-        }
-    }
-
-    private void savePackages(File file) throws Exception {
-        Serializer serializer = createSerializer();
-        PackagesConfigurationHolder holder = new PackagesConfigurationHolder();
-        holder.packages = new ArrayList<>(packages.values());
-        serializer.write(holder, new ByteArrayOutputStream());
-        serializer.write(holder, file);
-    }
-
-    private void loadParts(File file) throws Exception {
-        Serializer serializer = createSerializer();
-        PartsConfigurationHolder holder = serializer.read(PartsConfigurationHolder.class, file);
-        for (Part part : holder.parts) {
-            addPart(part);
-        }
-    }
-
-    private void saveParts(File file) throws Exception {
-        Serializer serializer = createSerializer();
-        PartsConfigurationHolder holder = new PartsConfigurationHolder();
-        holder.parts = new ArrayList<>(parts.values());
-        serializer.write(holder, new ByteArrayOutputStream());
-        serializer.write(holder, file);
-    }
-
     public Job loadJob(File file) throws Exception {
-        Serializer serializer = createSerializer();
         Job job = serializer.read(Job.class, file);
         job.setFile(file);
 
@@ -459,13 +761,85 @@ public class Configuration extends AbstractModelObject {
         return job;
     }
 
+    /**
+     * Save the Job, and any of its Boards that have unsaved changes, and wait for the write. The
+     * write goes through the background writer, so it replaces or follows any background save of
+     * the same file and an older snapshot can never overwrite it.
+     * 
+     * @param job
+     * @param file
+     * @throws Exception
+     */
     public void saveJob(Job job, File file) throws Exception {
-        Serializer serializer = createSerializer();
+        await(saveJobInBackground(job, file, null));
+    }
+
+    /**
+     * Save the Job, and any of its Boards that have unsaved changes, on the background writer.
+     * The Job and Boards are serialized on the calling thread, which should be the thread that
+     * edits them, and are marked clean before this returns, so an edit made while the write is
+     * pending marks them dirty again. Boards queued by an earlier save that has not been written
+     * yet are written along with this one. If the write fails the Job and the Boards it was
+     * writing are marked dirty again and the callback is responsible for telling the user.
+     * 
+     * @param job
+     * @param file
+     * @param callback Called on the writer thread when the save completes. May be null.
+     * @return
+     */
+    public Future<Void> saveJobInBackground(Job job, File file, FutureCallback<Void> callback)
+            throws Exception {
+        Set<Board> boards = prepareJobForSave(job, file);
+        byte[] jobBytes = serialize(job);
+        List<PendingBoard> snapshots = new ArrayList<>();
+        for (Board board : boards) {
+            snapshots.add(new PendingBoard(board, board.getFile(), serialize(board)));
+        }
+        synchronized (pendingBoards) {
+            for (PendingBoard pendingBoard : snapshots) {
+                pendingBoards.put(pendingBoard.file, pendingBoard);
+            }
+        }
+        job.setFile(file);
+        job.setDirty(false);
+        for (Board board : boards) {
+            board.setDirty(false);
+        }
+        Callable<Void> write = () -> {
+            List<PendingBoard> written;
+            synchronized (pendingBoards) {
+                written = new ArrayList<>(pendingBoards.values());
+                pendingBoards.clear();
+            }
+            try {
+                for (PendingBoard pendingBoard : written) {
+                    writeAtomically(pendingBoard.bytes, pendingBoard.file, null);
+                }
+                writeAtomically(jobBytes, file, null);
+            }
+            catch (Exception e) {
+                job.setDirty(true);
+                for (PendingBoard pendingBoard : written) {
+                    pendingBoard.board.setDirty(true);
+                }
+                throw e;
+            }
+            return null;
+        };
+        return writer.submit(file, write, callback);
+    }
+
+    /**
+     * Fix the paths to the Boards in the Job so they are relative to the Job file and return the
+     * Boards that need to be written: those with unsaved changes and those whose file is missing.
+     */
+    private Set<Board> prepareJobForSave(Job job, File file) {
         Set<Board> boards = new HashSet<>();
-        // Fix the paths to any boards in the Job
         for (BoardLocation boardLocation : job.getBoardLocations()) {
             Board board = boardLocation.getBoard();
-            boards.add(board);
+            if (board.isDirty() || !board.getFile().exists()) {
+                boards.add(board);
+            }
             try {
                 String relativePath = ResourceUtils.getRelativePath(
                         board.getFile().getAbsolutePath(), file.getAbsolutePath(), File.separator);
@@ -475,30 +849,52 @@ public class Configuration extends AbstractModelObject {
                 boardLocation.setBoardFile(board.getFile().getAbsolutePath());
             }
         }
-        // Save any boards in the job
-        for (Board board : boards) {
-            saveBoard(board);
-        }
-        // Save the job
-        serializer.write(job, new ByteArrayOutputStream());
-        serializer.write(job, file);
-        job.setFile(file);
-        job.setDirty(false);
+        return boards;
     }
-    
+
     public String getImgurClientId() {
         return imgurClientId;
     }
 
+    /**
+     * Save the Board and wait for the write. Like saveJob() this goes through the background
+     * writer, and drops any older copy of the Board still queued by a background Job save.
+     * 
+     * @param board
+     * @throws Exception
+     */
     public void saveBoard(Board board) throws Exception {
-        Serializer serializer = createSerializer();
-        serializer.write(board, new ByteArrayOutputStream());
-        serializer.write(board, board.getFile());
+        File file = board.getFile();
+        byte[] bytes = serialize(board);
+        synchronized (pendingBoards) {
+            pendingBoards.remove(file);
+        }
         board.setDirty(false);
+        try {
+            await(writer.submit(file, () -> {
+                writeAtomically(bytes, file, null);
+                return null;
+            }));
+        }
+        catch (Exception e) {
+            board.setDirty(true);
+            throw e;
+        }
+    }
+
+    private static void await(Future<Void> future) throws Exception {
+        try {
+            future.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
     }
 
     private Board loadBoard(File file) throws Exception {
-        Serializer serializer = createSerializer();
         Board board = serializer.read(Board.class, file);
         board.setFile(file);
         board.setDirty(false);
@@ -517,6 +913,44 @@ public class Configuration extends AbstractModelObject {
         return prefix + System.currentTimeMillis();
     }
 
+    private interface ListenerCall {
+        void call(ConfigurationListener listener) throws Exception;
+    }
+
+    private static class ListenerTiming {
+        final ConfigurationListener listener;
+        final long time;
+
+        ListenerTiming(ConfigurationListener listener, long time) {
+            this.listener = listener;
+            this.time = time;
+        }
+    }
+
+    private static class PendingBoard {
+        final Board board;
+        final File file;
+        final byte[] bytes;
+
+        PendingBoard(Board board, File file, byte[] bytes) {
+            this.board = board;
+            this.file = file;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class LoadedFile<T> {
+        final T holder;
+        final boolean defaults;
+        final long time;
+
+        LoadedFile(T holder, boolean defaults, long time) {
+            this.holder = holder;
+            this.defaults = defaults;
+            this.time = time;
+        }
+    }
+
     /**
      * Used to provide a fixed root for the Machine when serializing.
      */
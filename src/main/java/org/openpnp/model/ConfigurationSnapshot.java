@@ -0,0 +1,312 @@
+package org.openpnp.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openpnp.model.Footprint.Pad;
+
+/**
+ * A compact binary copy of the parts and packages libraries, kept next to the XML files they were
+ * read from so that startup can skip Simple XML's reflective parsing of what are usually the
+ * largest configuration files. The XML remains the source of truth: a snapshot records the size,
+ * modification time and SHA-1 of the XML it was made from. If the XML still has the same size and
+ * modification time the snapshot is used without reading the XML at all, see readDigest().
+ * Otherwise the XML is hashed and the snapshot is only used if the SHA-1 still matches, as when
+ * the file was touched or copied without being changed.
+ *
+ * machine.xml and boards are not snapshotted. Their object graphs are made of pluggable classes
+ * whose mapping only Simple XML knows about, so a hand written codec would have to duplicate it
+ * for every implementation.
+ */
+public class ConfigurationSnapshot {
+    private static final int MAGIC = 0x4f50534e; // "OPSN"
+
+    private static final int VERSION = 1;
+
+    private static final byte KIND_PACKAGES = 1;
+
+    private static final byte KIND_PARTS = 2;
+
+    public static File getSnapshotFile(File source) {
+        return new File(source.getPath() + ".snapshot");
+    }
+
+    /**
+     * Returns the SHA-1 recorded in the snapshot for the given source file if the source still has
+     * the size and modification time the snapshot was made from, so that an unchanged source
+     * doesn't have to be read and hashed to be checked. Like make, this trusts the file system:
+     * an edit that keeps both the size and the modification time goes unnoticed.
+     *
+     * @return The digest, or null if there is no snapshot or the source's size or modification
+     *         time has changed.
+     */
+    public static String readDigest(File source) throws IOException {
+        File file = getSnapshotFile(source);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(file), 512))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            in.readByte();
+            if (in.readLong() != source.length() || in.readLong() != source.lastModified()) {
+                return null;
+            }
+            return in.readUTF();
+        }
+    }
+
+    /**
+     * Read the Packages from the snapshot for the given source file.
+     *
+     * @return The Packages, or null if there is no snapshot or it does not match the source.
+     */
+    public static List<Package> readPackages(File source, String sourceDigest) throws IOException {
+        try (DataInputStream in = openValidated(source, sourceDigest, KIND_PACKAGES)) {
+            if (in == null) {
+                return null;
+            }
+            int count = in.readInt();
+            List<Package> packages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                packages.add(readPackage(in));
+            }
+            return packages;
+        }
+    }
+
+    /**
+     * Read the Parts from the snapshot for the given source file. Package references are left as
+     * ids to be resolved when the Configuration finishes loading, the same as when parsing XML.
+     *
+     * @return The Parts, or null if there is no snapshot or it does not match the source.
+     */
+    public static List<Part> readParts(File source, String sourceDigest) throws IOException {
+        try (DataInputStream in = openValidated(source, sourceDigest, KIND_PARTS)) {
+            if (in == null) {
+                return null;
+            }
+            int count = in.readInt();
+            List<Part> parts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                parts.add(readPart(in));
+            }
+            return parts;
+        }
+    }
+
+    /**
+     * Write a snapshot of the Packages for the given source file.
+     *
+     * @return false if the Packages contain something the snapshot format can't represent, in
+     *         which case no snapshot is written.
+     */
+    public static boolean writePackages(File source, String sourceDigest, List<Package> packages)
+            throws IOException {
+        for (Package pkg : packages) {
+            if (pkg.getOutline() != null && !pkg.getOutline().isEmpty()) {
+                return false;
+            }
+        }
+        File temp = createTemp(source);
+        try {
+            try (DataOutputStream out = openForWrite(temp, source, sourceDigest, KIND_PACKAGES)) {
+                out.writeInt(packages.size());
+                for (Package pkg : packages) {
+                    writePackage(out, pkg);
+                }
+            }
+            moveIntoPlace(temp, getSnapshotFile(source));
+        }
+        finally {
+            temp.delete();
+        }
+        return true;
+    }
+
+    public static boolean writeParts(File source, String sourceDigest, List<Part> parts)
+            throws IOException {
+        File temp = createTemp(source);
+        try {
+            try (DataOutputStream out = openForWrite(temp, source, sourceDigest, KIND_PARTS)) {
+                out.writeInt(parts.size());
+                for (Part part : parts) {
+                    writePart(out, part);
+                }
+            }
+            moveIntoPlace(temp, getSnapshotFile(source));
+        }
+        finally {
+            temp.delete();
+        }
+        return true;
+    }
+
+    private static DataInputStream openValidated(File source, String sourceDigest, byte kind)
+            throws IOException {
+        File file = getSnapshotFile(source);
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+        boolean valid = false;
+        try {
+            // The size and modification time are only a shortcut for readDigest(), the digest
+            // is what says whether the snapshot matches.
+            valid = in.readInt() == MAGIC && in.readInt() == VERSION && in.readByte() == kind;
+            if (valid) {
+                in.readLong();
+                in.readLong();
+                valid = in.readUTF().equals(sourceDigest);
+            }
+        }
+        finally {
+            if (!valid) {
+                in.close();
+            }
+        }
+        return valid ? in : null;
+    }
+
+    private static DataOutputStream openForWrite(File temp, File source, String sourceDigest,
+            byte kind) throws IOException {
+        DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeByte(kind);
+        out.writeLong(source.length());
+        out.writeLong(source.lastModified());
+        out.writeUTF(sourceDigest);
+        return out;
+    }
+
+    private static File createTemp(File source) throws IOException {
+        return File.createTempFile(source.getName(), ".tmp",
+                source.getAbsoluteFile().getParentFile());
+    }
+
+    private static void moveIntoPlace(File temp, File file) throws IOException {
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Package readPackage(DataInputStream in) throws IOException {
+        Package pkg = new Package(in.readUTF());
+        pkg.setDescription(readString(in));
+        if (in.readBoolean()) {
+            pkg.getOutline().setUnits(readUnits(in));
+        }
+        else {
+            pkg.setOutline(null);
+        }
+        if (in.readBoolean()) {
+            Footprint footprint = pkg.getFootprint();
+            footprint.setUnits(readUnits(in));
+            footprint.setBodyWidth(in.readDouble());
+            footprint.setBodyHeight(in.readDouble());
+            int padCount = in.readInt();
+            for (int i = 0; i < padCount; i++) {
+                Pad pad = new Pad();
+                pad.setName(readString(in));
+                pad.setX(in.readDouble());
+                pad.setY(in.readDouble());
+                pad.setWidth(in.readDouble());
+                pad.setHeight(in.readDouble());
+                pad.setRotation(in.readDouble());
+                pad.setRoundness(in.readDouble());
+                footprint.addPad(pad);
+            }
+        }
+        else {
+            pkg.setFootprint(null);
+        }
+        return pkg;
+    }
+
+    private static void writePackage(DataOutputStream out, Package pkg) throws IOException {
+        out.writeUTF(pkg.getId());
+        writeString(out, pkg.getDescription());
+        out.writeBoolean(pkg.getOutline() != null);
+        if (pkg.getOutline() != null) {
+            writeUnits(out, pkg.getOutline().getUnits());
+        }
+        Footprint footprint = pkg.getFootprint();
+        out.writeBoolean(footprint != null);
+        if (footprint != null) {
+            writeUnits(out, footprint.getUnits());
+            out.writeDouble(footprint.getBodyWidth());
+            out.writeDouble(footprint.getBodyHeight());
+            out.writeInt(footprint.getPads().size());
+            for (Pad pad : footprint.getPads()) {
+                writeString(out, pad.getName());
+                out.writeDouble(pad.getX());
+                out.writeDouble(pad.getY());
+                out.writeDouble(pad.getWidth());
+                out.writeDouble(pad.getHeight());
+                out.writeDouble(pad.getRotation());
+                out.writeDouble(pad.getRoundness());
+            }
+        }
+    }
+
+    private static Part readPart(DataInputStream in) throws IOException {
+        Part part = new Part(in.readUTF());
+        part.setName(readString(in));
+        LengthUnit heightUnits = readUnits(in);
+        double height = in.readDouble();
+        part.setHeight(heightUnits == null ? null : new Length(height, heightUnits));
+        part.setPackageId(readString(in));
+        part.setSpeed(in.readDouble());
+        return part;
+    }
+
+    private static void writePart(DataOutputStream out, Part part) throws IOException {
+        out.writeUTF(part.getId());
+        writeString(out, part.getName());
+        Length height = part.getHeight();
+        writeUnits(out, height.getUnits());
+        out.writeDouble(height.getValue());
+        writeString(out, part.getPackageId());
+        out.writeDouble(part.getSpeed());
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static LengthUnit readUnits(DataInputStream in) throws IOException {
+        byte ordinal = in.readByte();
+        return ordinal < 0 ? null : LengthUnit.values()[ordinal];
+    }
+
+    private static void writeUnits(DataOutputStream out, LengthUnit units) throws IOException {
+        out.writeByte(units == null ? -1 : units.ordinal());
+    }
+}
@@ -91,63 +91,69 @@ public class Length {
         if (this.units == units) {
             return this;
         }
+        return new Length(convertToUnits(value, this.units, units), units);
+    }
+
+    /**
+     * Convert a value between units without creating any Lengths. Returns the value unchanged
+     * when the units are the same.
+     */
+    public static double convertToUnits(double value, LengthUnit fromUnits, LengthUnit toUnits) {
+        if (fromUnits == toUnits) {
+            return value;
+        }
         // First convert the current value to millimeters, which we use as a base unit.
         double mm = 0;
-        if (this.units == LengthUnit.Millimeters) {
+        if (fromUnits == LengthUnit.Millimeters) {
             mm = value;
         }
-        else if (this.units == LengthUnit.Centimeters) {
+        else if (fromUnits == LengthUnit.Centimeters) {
             mm = value * 10;
         }
-        else if (this.units == LengthUnit.Meters) {
+        else if (fromUnits == LengthUnit.Meters) {
             mm = value * 1000;
         }
-        else if (this.units == LengthUnit.Inches) {
+        else if (fromUnits == LengthUnit.Inches) {
             mm = value * 25.4;
         }
-        else if (this.units == LengthUnit.Feet) {
+        else if (fromUnits == LengthUnit.Feet) {
             mm = value * 25.4 * 12;
         }
-        else if (this.units == LengthUnit.Mils) {
+        else if (fromUnits == LengthUnit.Mils) {
             mm = value / 1000 * 25.4;
         }
-        else if (this.units == LengthUnit.Microns) {
+        else if (fromUnits == LengthUnit.Microns) {
             mm = value / 1000.0;
         }
         else {
-            throw new Error("convertLength() unrecognized units " + this.units);
+            throw new Error("convertLength() unrecognized units " + fromUnits);
         }
 
         // Then convert the calculated millimeter value to the requested unit.
-        if (units == LengthUnit.Millimeters) {
-            return new Length(mm, units);
+        if (toUnits == LengthUnit.Millimeters) {
+            return mm;
         }
-        else if (units == LengthUnit.Centimeters) {
-            return new Length(mm / 10, units);
+        else if (toUnits == LengthUnit.Centimeters) {
+            return mm / 10;
         }
-        else if (units == LengthUnit.Meters) {
-            return new Length(mm / 1000, units);
+        else if (toUnits == LengthUnit.Meters) {
+            return mm / 1000;
         }
-        else if (units == LengthUnit.Inches) {
-            return new Length(mm * (1 / 25.4), units);
+        else if (toUnits == LengthUnit.Inches) {
+            return mm * (1 / 25.4);
         }
-        else if (units == LengthUnit.Feet) {
-            return new Length(mm * (1 / 25.4) * 12, units);
+        else if (toUnits == LengthUnit.Feet) {
+            return mm * (1 / 25.4) * 12;
         }
-        else if (units == LengthUnit.Mils) {
-            return new Length(mm * (1 / 25.4 * 1000), units);
+        else if (toUnits == LengthUnit.Mils) {
+            return mm * (1 / 25.4 * 1000);
         }
-        else if (units == LengthUnit.Microns) {
-            return new Length(mm * 1000, units);
+        else if (toUnits == LengthUnit.Microns) {
+            return mm * 1000;
         }
         else {
-            throw new Error("convertLength() unrecognized units " + units);
+            throw new Error("convertLength() unrecognized units " + toUnits);
         }
-
-    }
-
-    public static double convertToUnits(double value, LengthUnit fromUnits, LengthUnit toUnits) {
-        return new Length(value, fromUnits).convertToUnits(toUnits).getValue();
     }
 
     public static Length parse(String s) {
@@ -84,12 +84,17 @@ public class Location {
         return units;
     }
 
+    /**
+     * Returns this Location converted to the given units. Locations are immutable, so this
+     * Location itself is returned if it is already in those units.
+     */
     public Location convertToUnits(LengthUnit units) {
-        Location location =
-                new Location(units, new Length(x, this.units).convertToUnits(units).getValue(),
-                        new Length(y, this.units).convertToUnits(units).getValue(),
-                        new Length(z, this.units).convertToUnits(units).getValue(), rotation);
-        return location;
+        if (this.units == units) {
+            return this;
+        }
+        return new Location(units, Length.convertToUnits(x, this.units, units),
+                Length.convertToUnits(y, this.units, units),
+                Length.convertToUnits(z, this.units, units), rotation);
     }
 
     public Length getLinearLengthTo(Location location) {
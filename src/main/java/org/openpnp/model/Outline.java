@@ -35,6 +35,10 @@ public class Outline {
         return shape;
     }
 
+    boolean isEmpty() {
+        return elements.isEmpty();
+    }
+
     public LengthUnit getUnits() {
         return units;
     }
@@ -122,6 +122,21 @@ public class Part extends AbstractModelObject implements Identifiable {
         firePropertyChange("package", oldValue, packag);
     }
 
+    /**
+     * The id of the Package, which is available before the Package itself has been resolved.
+     */
+    String getPackageId() {
+        return packag == null ? packageId : packag.getId();
+    }
+
+    /**
+     * Set the id of the Package to be resolved when the Configuration is loaded. Used when a Part
+     * is created from a configuration snapshot rather than from XML.
+     */
+    void setPackageId(String packageId) {
+        this.packageId = packageId;
+    }
+
     @Override
     public String toString() {
         return String.format("id %s, name %s, heightUnits %s, height %f, packageId (%s)", id, name,
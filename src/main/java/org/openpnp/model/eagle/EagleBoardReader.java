@@ -0,0 +1,423 @@
+package org.openpnp.model.eagle;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads what is needed to import a board from an EAGLE .brd file in a single streaming pass,
+ * without building the whole document the way EagleLoader does. It keeps the layer numbers, the
+ * extent of the wires in the plain section of the board, the design rules, the SMD pads and
+ * polygons of each package in the board's libraries and the elements. Everything else, such as
+ * the signals, is passed over, and reading stops at the signals since nothing after them is
+ * needed, so memory use grows with the number of parts and packages rather than with the size of
+ * the file.
+ *
+ * Numbers are parsed once as they are read. Attributes that are missing get the defaults from
+ * eagle.dtd, since the DTD itself is not loaded.
+ */
+public class EagleBoardReader {
+    public static class Element {
+        private final String name;
+        private final String library;
+        private final String packageName;
+        private final String value;
+        private final double x;
+        private final double y;
+        private final String rot;
+
+        Element(String name, String library, String packageName, String value, double x,
+                double y, String rot) {
+            this.name = name;
+            this.library = library;
+            this.packageName = packageName;
+            this.value = value;
+            this.x = x;
+            this.y = y;
+            this.rot = rot;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getLibrary() {
+            return library;
+        }
+
+        public String getPackage() {
+            return packageName;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        /**
+         * The rotation as written in the file, such as R90 or MR180.
+         */
+        public String getRot() {
+            return rot;
+        }
+    }
+
+    public static class Smd {
+        private final String name;
+        private final double x;
+        private final double y;
+        private final double dx;
+        private final double dy;
+        private final String layer;
+        private final double roundness;
+        private final String rot;
+        private final boolean cream;
+
+        Smd(String name, double x, double y, double dx, double dy, String layer,
+                double roundness, String rot, boolean cream) {
+            this.name = name;
+            this.x = x;
+            this.y = y;
+            this.dx = dx;
+            this.dy = dy;
+            this.layer = layer;
+            this.roundness = roundness;
+            this.rot = rot;
+            this.cream = cream;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getX() {
+            return x;
+        }
+
+        public double getY() {
+            return y;
+        }
+
+        public double getDx() {
+            return dx;
+        }
+
+        public double getDy() {
+            return dy;
+        }
+
+        public String getLayer() {
+            return layer;
+        }
+
+        public double getRoundness() {
+            return roundness;
+        }
+
+        public String getRot() {
+            return rot;
+        }
+
+        /**
+         * False if the pad is marked cream="no" and should not be pasted.
+         */
+        public boolean isCream() {
+            return cream;
+        }
+    }
+
+    /**
+     * A polygon in a package, reduced to the bounds of its vertices. The bounds always include
+     * the package origin.
+     */
+    public static class Polygon {
+        private final String layer;
+        private double xMin;
+        private double xMax;
+        private double yMin;
+        private double yMax;
+
+        Polygon(String layer) {
+            this.layer = layer;
+        }
+
+        public String getLayer() {
+            return layer;
+        }
+
+        public double getXMin() {
+            return xMin;
+        }
+
+        public double getXMax() {
+            return xMax;
+        }
+
+        public double getYMin() {
+            return yMin;
+        }
+
+        public double getYMax() {
+            return yMax;
+        }
+    }
+
+    public static class Package {
+        private final String name;
+        private final List<Object> contents = new ArrayList<>();
+
+        Package(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The SMD pads and polygons of the package, in the order they are in the file.
+         */
+        public List<Object> getContents() {
+            return contents;
+        }
+
+        public List<Smd> getSmds() {
+            return getContents(Smd.class);
+        }
+
+        public List<Polygon> getPolygons() {
+            return getContents(Polygon.class);
+        }
+
+        private <T> List<T> getContents(Class<T> type) {
+            List<T> list = new ArrayList<>();
+            for (Object o : contents) {
+                if (type.isInstance(o)) {
+                    list.add(type.cast(o));
+                }
+            }
+            return list;
+        }
+    }
+
+    private final Map<String, String> layerNumbers = new HashMap<>();
+
+    private final Map<String, Double> plainMaxX = new HashMap<>();
+
+    private final Map<String, String> designRules = new HashMap<>();
+
+    private final Map<String, Package> packages = new HashMap<>();
+
+    private final List<Element> elements = new ArrayList<>();
+
+    private boolean board;
+
+    // State of the pass
+    private String[] path = new String[16];
+    private int depth;
+    private String library;
+    private Package pkg;
+    private Polygon polygon;
+
+    public EagleBoardReader(File file) throws Exception {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            read(in);
+        }
+    }
+
+    public EagleBoardReader(InputStream in) throws Exception {
+        read(in);
+    }
+
+    private void read(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (name.equals("signals")) {
+                        break;
+                    }
+                    startElement(reader, name, depth == 0 ? null : path[depth - 1]);
+                    if (depth == path.length) {
+                        path = Arrays.copyOf(path, depth * 2);
+                    }
+                    path[depth++] = name;
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT) {
+                    endElement(reader.getLocalName());
+                    depth--;
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    private void startElement(XMLStreamReader reader, String name, String parent) {
+        switch (name) {
+            case "layer":
+                if ("layers".equals(parent)) {
+                    layerNumbers.put(get(reader, "name", "").toLowerCase(Locale.ROOT),
+                            get(reader, "number", ""));
+                }
+                break;
+            case "board":
+                board = true;
+                break;
+            case "wire":
+                if (board && "plain".equals(parent)) {
+                    String layer = get(reader, "layer", "");
+                    // Like the extent of the board, this starts from 0.
+                    double maxX = Math.max(0,
+                            Math.max(getDouble(reader, "x1", 0), getDouble(reader, "x2", 0)));
+                    plainMaxX.merge(layer, maxX, Math::max);
+                }
+                break;
+            case "library":
+                if (board && "libraries".equals(parent)) {
+                    library = get(reader, "name", "");
+                }
+                break;
+            case "package":
+                if (library != null && "packages".equals(parent)) {
+                    pkg = new Package(get(reader, "name", ""));
+                    packages.putIfAbsent(key(library, pkg.getName()), pkg);
+                }
+                break;
+            case "smd":
+                if (pkg != null) {
+                    pkg.contents.add(new Smd(get(reader, "name", ""), getDouble(reader, "x", 0),
+                            getDouble(reader, "y", 0), getDouble(reader, "dx", 0),
+                            getDouble(reader, "dy", 0), get(reader, "layer", ""),
+                            getDouble(reader, "roundness", 0), get(reader, "rot", "R0"),
+                            !get(reader, "cream", "yes").equalsIgnoreCase("no")));
+                }
+                break;
+            case "polygon":
+                if (pkg != null) {
+                    polygon = new Polygon(get(reader, "layer", ""));
+                    pkg.contents.add(polygon);
+                }
+                break;
+            case "vertex":
+                if (polygon != null) {
+                    double x = getDouble(reader, "x", 0);
+                    double y = getDouble(reader, "y", 0);
+                    polygon.xMin = Math.min(polygon.xMin, x);
+                    polygon.xMax = Math.max(polygon.xMax, x);
+                    polygon.yMin = Math.min(polygon.yMin, y);
+                    polygon.yMax = Math.max(polygon.yMax, y);
+                }
+                break;
+            case "param":
+                if (board && "designrules".equals(parent)) {
+                    designRules.put(get(reader, "name", "").toLowerCase(Locale.ROOT),
+                            get(reader, "value", ""));
+                }
+                break;
+            case "element":
+                if (board && "elements".equals(parent)) {
+                    elements.add(new Element(get(reader, "name", ""),
+                            get(reader, "library", ""), get(reader, "package", ""),
+                            get(reader, "value", ""), getDouble(reader, "x", 0),
+                            getDouble(reader, "y", 0), get(reader, "rot", "R0")));
+                }
+                break;
+        }
+    }
+
+    private void endElement(String name) {
+        switch (name) {
+            case "library":
+                library = null;
+                break;
+            case "package":
+                pkg = null;
+                break;
+            case "polygon":
+                polygon = null;
+                break;
+        }
+    }
+
+    private static String get(XMLStreamReader reader, String name, String def) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? def : value;
+    }
+
+    private static double getDouble(XMLStreamReader reader, String name, double def) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? def : Double.parseDouble(value);
+    }
+
+    private static String key(String library, String packageName) {
+        return library.toLowerCase(Locale.ROOT) + '\n' + packageName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * True if the file contained a board, as opposed to only a schematic or a library.
+     */
+    public boolean hasBoard() {
+        return board;
+    }
+
+    /**
+     * The number of the layer with the given name, ignoring case, or an empty string if there is
+     * no such layer.
+     */
+    public String getLayerNumber(String name) {
+        return layerNumbers.getOrDefault(name.toLowerCase(Locale.ROOT), "");
+    }
+
+    /**
+     * The largest X of the wires on the given layer in the plain section of the board, or 0 if
+     * there are none.
+     */
+    public double getPlainMaxX(String layer) {
+        return plainMaxX.getOrDefault(layer, 0.0);
+    }
+
+    /**
+     * The value of the design rule with the given name, ignoring case, or null.
+     */
+    public String getDesignRule(String name) {
+        return designRules.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * The package with the given name from the library with the given name, ignoring case, or
+     * null.
+     */
+    public Package getPackage(String library, String packageName) {
+        return packages.get(key(library, packageName));
+    }
+
+    public List<Element> getElements() {
+        return elements;
+    }
+}
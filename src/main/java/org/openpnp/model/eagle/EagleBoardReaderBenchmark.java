@@ -0,0 +1,162 @@
+package org.openpnp.model.eagle;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares reading a board with EagleBoardReader against loading it with EagleLoader, which is
+ * how EagleBoardImporter used to read it. Without a file it generates a board with the given
+ * number of elements, each with a signal of a few wires, since on real boards the signals are
+ * most of the file.
+ *
+ * Where the JVM supports it, the bytes allocated by each pass are reported too.
+ *
+ * Usage: EagleBoardReaderBenchmark [brd file | element count] [iterations] [warmup iterations]
+ */
+public class EagleBoardReaderBenchmark {
+    public interface Pass {
+        void run(InputStream in) throws Exception;
+    }
+
+    public static final Pass READER = in -> new EagleBoardReader(in);
+
+    public static final Pass LOADER = in -> new EagleLoader(in);
+
+    private final byte[] brd;
+
+    public EagleBoardReaderBenchmark(byte[] brd) {
+        this.brd = brd;
+    }
+
+    /**
+     * Run the pass warmup times without timing it, then iterations times, and return the time
+     * each of the timed runs took in nanoseconds.
+     */
+    public long[] run(Pass pass, int iterations, int warmup) throws Exception {
+        for (int i = 0; i < warmup; i++) {
+            pass.run(new ByteArrayInputStream(brd));
+        }
+        long[] times = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long t = System.nanoTime();
+            pass.run(new ByteArrayInputStream(brd));
+            times[i] = System.nanoTime() - t;
+        }
+        return times;
+    }
+
+    /**
+     * Returns the bytes allocated by the current thread for one run of the pass, or -1 if the
+     * JVM can't tell.
+     */
+    public long allocated(Pass pass) throws Exception {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        pass.run(new ByteArrayInputStream(brd));
+        return threads.getThreadAllocatedBytes(id) - before;
+    }
+
+    /**
+     * Generate a board with the given number of R0805 resistors, half of them on the bottom.
+     */
+    public static byte[] generate(int elements) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        sb.append("<eagle version=\"7.2.0\">\n<drawing>\n<layers>\n");
+        sb.append("<layer number=\"1\" name=\"Top\" color=\"4\" fill=\"1\"/>\n");
+        sb.append("<layer number=\"16\" name=\"Bottom\" color=\"1\" fill=\"1\"/>\n");
+        sb.append("<layer number=\"20\" name=\"Dimension\" color=\"15\" fill=\"1\"/>\n");
+        sb.append("<layer number=\"31\" name=\"tCream\" color=\"7\" fill=\"1\"/>\n");
+        sb.append("<layer number=\"32\" name=\"bCream\" color=\"7\" fill=\"1\"/>\n");
+        sb.append("</layers>\n<board>\n<plain>\n");
+        sb.append("<wire x1=\"0\" y1=\"0\" x2=\"200\" y2=\"0\" width=\"0\" layer=\"20\"/>\n");
+        sb.append("<wire x1=\"200\" y1=\"0\" x2=\"200\" y2=\"200\" width=\"0\" layer=\"20\"/>\n");
+        sb.append("</plain>\n<libraries>\n<library name=\"rcl\">\n<packages>\n");
+        sb.append("<package name=\"R0805\">\n");
+        sb.append("<smd name=\"1\" x=\"-0.95\" y=\"0\" dx=\"1.3\" dy=\"1.5\" layer=\"1\"/>\n");
+        sb.append("<smd name=\"2\" x=\"0.95\" y=\"0\" dx=\"1.3\" dy=\"1.5\" layer=\"1\"/>\n");
+        sb.append("<wire x1=\"-0.41\" y1=\"0.635\" x2=\"0.41\" y2=\"0.635\" width=\"0.1524\" "
+                + "layer=\"51\"/>\n");
+        sb.append("</package>\n</packages>\n</library>\n</libraries>\n");
+        sb.append("<designrules name=\"default\">\n");
+        sb.append("<param name=\"mlMinCreamFrame\" value=\"0mil\"/>\n");
+        sb.append("<param name=\"mlMaxCreamFrame\" value=\"0mil\"/>\n");
+        sb.append("</designrules>\n<elements>\n");
+        Random random = new Random(0);
+        double[][] locations = new double[elements][2];
+        for (int i = 0; i < elements; i++) {
+            locations[i][0] = random.nextInt(19000) / 100.0 + 5;
+            locations[i][1] = random.nextInt(19000) / 100.0 + 5;
+            sb.append(String.format(Locale.US,
+                    "<element name=\"R%d\" library=\"rcl\" package=\"R0805\" value=\"10K\" "
+                            + "x=\"%.2f\" y=\"%.2f\" rot=\"%sR%d\"/>\n",
+                    i + 1, locations[i][0], locations[i][1], i % 2 == 0 ? "" : "M", i % 4 * 90));
+        }
+        sb.append("</elements>\n<signals>\n");
+        for (int i = 0; i < elements; i++) {
+            double[] from = locations[i];
+            double[] to = locations[(i + 1) % elements];
+            sb.append(String.format(Locale.US, "<signal name=\"N$%d\">\n", i + 1));
+            sb.append(String.format("<contactref element=\"R%d\" pad=\"2\"/>\n", i + 1));
+            sb.append(String.format("<contactref element=\"R%d\" pad=\"1\"/>\n",
+                    (i + 1) % elements + 1));
+            for (int j = 0; j < 4; j++) {
+                sb.append(String.format(Locale.US,
+                        "<wire x1=\"%.2f\" y1=\"%.2f\" x2=\"%.2f\" y2=\"%.2f\" width=\"0.254\" "
+                                + "layer=\"%d\"/>\n",
+                        from[0] + (to[0] - from[0]) * j / 4, from[1] + (to[1] - from[1]) * j / 4,
+                        from[0] + (to[0] - from[0]) * (j + 1) / 4,
+                        from[1] + (to[1] - from[1]) * (j + 1) / 4, i % 2 == 0 ? 1 : 16));
+            }
+            sb.append("</signal>\n");
+        }
+        sb.append("</signals>\n</board>\n</drawing>\n</eagle>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws Exception {
+        byte[] brd;
+        if (args.length > 0 && new File(args[0]).isFile()) {
+            brd = Files.readAllBytes(new File(args[0]).toPath());
+        }
+        else {
+            brd = generate(args.length > 0 ? Integer.parseInt(args[0]) : 20000);
+        }
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        EagleBoardReaderBenchmark benchmark = new EagleBoardReaderBenchmark(brd);
+        System.out.println(String.format(Locale.US, "%d bytes, %d iterations after %d warmup",
+                brd.length, iterations, warmup));
+        report("EagleLoader", benchmark, LOADER, iterations, warmup);
+        report("EagleBoardReader", benchmark, READER, iterations, warmup);
+        System.exit(0);
+    }
+
+    private static void report(String name, EagleBoardReaderBenchmark benchmark, Pass pass,
+            int iterations, int warmup) throws Exception {
+        long[] times = benchmark.run(pass, iterations, warmup);
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        for (long time : times) {
+            total += time;
+            min = Math.min(min, time);
+        }
+        double mean = total / (double) times.length;
+        System.out.println(String.format(Locale.US,
+                "%s: mean %.1f ms, min %.1f ms, %.1f MB/s, %.1f MB allocated", name, mean / 1e6,
+                min / 1e6, benchmark.brd.length / (mean / 1e9) / 1e6,
+                benchmark.allocated(pass) / 1e6));
+    }
+}
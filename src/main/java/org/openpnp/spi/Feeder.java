@@ -76,6 +76,38 @@ public interface Feeder extends Identifiable, Named, WizardConfigurable, Propert
     public void feed(Nozzle nozzle) throws Exception;
 
     public void postPick(Nozzle nozzle) throws Exception;
+
+    /**
+     * Called by the job processor when a pick from this Feeder failed, before the error is
+     * handled. Feeders that keep state about where the next part is, such as a vision offset,
+     * can stop trusting it here so the next feed() finds the part again. Feeders that don't need
+     * to recover ignore the call.
+     * 
+     * @param nozzle The Nozzle that failed to pick the part.
+     */
+    public void pickFailed(Nozzle nozzle);
+
+    /**
+     * Called by the job processor some time before feed() when it expects to pick from this
+     * Feeder soon, typically while the head is busy aligning or placing the previous cycle.
+     * Feeders that take time to advance a part can start doing so here and then skip the advance
+     * when feed() is called. Feeders that don't support this ignore the call.
+     * 
+     * If this throws, the Feeder must be left in a state where a normal feed() still works.
+     * 
+     * @param nozzle The Nozzle that is expected to pick the part.
+     * @return True if a part has been advanced and is waiting for feed(), false if the Feeder
+     *         doesn't prefeed.
+     * @throws Exception
+     */
+    public boolean prefeed(Nozzle nozzle) throws Exception;
+
+    /**
+     * Get the number of parts this Feeder can still supply before it is empty.
+     * 
+     * @return The remaining count, or -1 if the Feeder does not know how many parts it holds.
+     */
+    public int getRemainingCount();
     
     public int getRetryCount();
 }
@@ -0,0 +1,23 @@
+package org.openpnp.spi;
+
+import java.util.List;
+
+import org.openpnp.model.Part;
+
+/**
+ * Chooses which of several enabled Feeders serving the same Part should be used for the next
+ * feed. Job processors hold an instance of this so that the policy can be changed without
+ * changing the job processor itself.
+ */
+public interface FeederSelectionStrategy {
+    /**
+     * Select a Feeder from the given candidates.
+     * 
+     * @param part The Part being fed.
+     * @param feeders The enabled Feeders serving the Part, in Machine order. Never empty.
+     * @param nozzle The Nozzle that will pick the fed part.
+     * @return One of the candidate Feeders.
+     * @throws Exception
+     */
+    public Feeder select(Part part, List<Feeder> feeders, Nozzle nozzle) throws Exception;
+}
@@ -26,6 +26,7 @@ import java.util.concurrent.Future;
 import java.util.Collections;
 
 import org.openpnp.model.Location;
+import org.openpnp.model.Part;
 
 import com.google.common.util.concurrent.FutureCallback;
 
@@ -64,6 +65,15 @@ public interface Machine extends WizardConfigurable, PropertySheetHolder, Closea
 
     public Feeder getFeeder(String id);
 
+    /**
+     * Gets the enabled Feeders that are currently serving the given Part, in the same order as
+     * getFeeders(). Implementations should answer this from an index rather than a scan.
+     * 
+     * @param part
+     * @return
+     */
+    public List<Feeder> getFeeders(Part part);
+
     public Feeder getFeederByName(String name);
 
     /**
@@ -127,6 +137,19 @@ public interface Machine extends WizardConfigurable, PropertySheetHolder, Closea
      */
     public void setEnabled(boolean enabled) throws Exception;
 
+    /**
+     * Tell the Machine that a continuous jog is starting or has ended. A continuous jog is a
+     * stream of short moves made while the user holds a jog key or drags in a camera view. While
+     * jogging the Machine may return from a move as soon as the controller has accepted it,
+     * rather than when it is complete, and when jogging ends it may cancel any jog motion the
+     * controller still has queued. Must be called from a Machine task.
+     * 
+     * The default does nothing, so jog moves are ordinary blocking moves.
+     */
+    public default void setJogging(boolean jogging) throws Exception {
+
+    }
+
     public void addListener(MachineListener listener);
 
     public void removeListener(MachineListener listener);
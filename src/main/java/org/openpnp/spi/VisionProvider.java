@@ -60,6 +60,25 @@ public interface VisionProvider {
     public Point[] locateTemplateMatches(int roiX, int roiY, int roiWidth, int roiHeight, int coiX,
             int coiY, BufferedImage templateImage) throws Exception;
 
+    /**
+     * Find the single best match of the template within the region of interest of the current
+     * camera image. Unlike locateTemplateMatches the search is done coarse to fine and the result
+     * is interpolated to sub-pixel accuracy. Implementations may cache work done on the template
+     * for as long as the same template image is passed in, so callers should keep passing the
+     * same instance rather than a copy.
+     * 
+     * @param roiX
+     * @param roiY
+     * @param roiWidth
+     * @param roiHeight
+     * @param templateImage
+     * @return The match, with location being the center of the match in Camera coordinates, or
+     *         null if the region of interest is smaller than the template.
+     * @throws Exception
+     */
+    public TemplateMatch getBestTemplateMatch(int roiX, int roiY, int roiWidth, int roiHeight,
+            BufferedImage templateImage) throws Exception;
+
     public static class TemplateMatch {
         public Location location;
         public double score;
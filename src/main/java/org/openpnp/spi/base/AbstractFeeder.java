@@ -36,7 +36,9 @@ public abstract class AbstractFeeder extends AbstractModelObject implements Feed
         Configuration.get().addListener(new ConfigurationListener.Adapter() {
             @Override
             public void configurationLoaded(Configuration configuration) throws Exception {
+                Object oldValue = part;
                 part = configuration.getPart(partId);
+                firePropertyChange("part", oldValue, part);
             }
         });
     }
@@ -60,8 +62,10 @@ public abstract class AbstractFeeder extends AbstractModelObject implements Feed
 
     @Override
     public void setPart(Part part) {
+        Object oldValue = this.part;
         this.part = part;
         this.partId = part.getId();
+        firePropertyChange("part", oldValue, part);
     }
 
     @Override
@@ -84,6 +88,23 @@ public abstract class AbstractFeeder extends AbstractModelObject implements Feed
         return Icons.feeder;
     }
 
+    @Override
+    public boolean prefeed(Nozzle nozzle) throws Exception {
+        return false;
+    }
+
+    @Override
+    public void pickFailed(Nozzle nozzle) {
+    }
+
+    /**
+     * Feeders that don't track their contents report an unknown count.
+     */
+    @Override
+    public int getRemainingCount() {
+        return -1;
+    }
+
     public int getRetryCount() {
         return retryCount;
     }
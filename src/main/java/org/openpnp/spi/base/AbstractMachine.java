@@ -2,10 +2,10 @@ package org.openpnp.spi.base;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -17,6 +17,7 @@ import javax.swing.Icon;
 import org.openpnp.model.AbstractModelObject;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
+import org.openpnp.model.Part;
 import org.openpnp.spi.Actuator;
 import org.openpnp.spi.Camera;
 import org.openpnp.spi.Feeder;
@@ -76,7 +77,19 @@ public abstract class AbstractMachine extends AbstractModelObject implements Mac
     @ElementMap(required = false)
     protected HashMap<String, Object> properties = new HashMap<>();
 
-    protected Set<MachineListener> listeners = Collections.synchronizedSet(new HashSet<>());
+    /**
+     * The shortest time in milliseconds between two head activity notifications to listeners.
+     * Head activity is fired for every move and position report, far more often than a UI can
+     * show it, so it is coalesced per head down to this rate.
+     */
+    @Attribute(required = false)
+    protected long headActivityIntervalMilliseconds = 33;
+
+    protected Set<MachineListener> listeners = new CopyOnWriteArraySet<>();
+
+    private MachineEventDispatcher eventDispatcher;
+
+    protected FeederIndex feederIndex = new FeederIndex(feeders);
 
     protected ThreadPoolExecutor executor;
 
@@ -88,6 +101,8 @@ public abstract class AbstractMachine extends AbstractModelObject implements Mac
         for (Head head : heads) {
             head.setMachine(this);
         }
+        // The deserializer may have replaced the feeders list, so re-index the new one.
+        feederIndex = new FeederIndex(feeders);
     }
 
     @Override
@@ -165,6 +180,23 @@ public abstract class AbstractMachine extends AbstractModelObject implements Mac
         return null;
     }
 
+    @Override
+    public List<Feeder> getFeeders(Part part) {
+        return feederIndex.getEnabledFeeders(part);
+    }
+
+    /**
+     * Get the Feeder's pick location as last reported, for choosing between Feeders without
+     * asking each of them again. See FeederIndex for when it is refreshed.
+     * 
+     * @param feeder
+     * @return
+     * @throws Exception
+     */
+    public Location getCachedPickLocation(Feeder feeder) throws Exception {
+        return feederIndex.getPickLocation(feeder);
+    }
+
     @Override
     public Feeder getFeederByName(String name) {
         for (Feeder feeder : feeders) {
@@ -195,6 +227,7 @@ public abstract class AbstractMachine extends AbstractModelObject implements Mac
     @Override
     public void addFeeder(Feeder feeder) throws Exception {
         feeders.add(feeder);
+        feederIndex.invalidate();
         fireIndexedPropertyChange("feeders", feeders.size() - 1, null, feeder);
     }
 
@@ -202,6 +235,7 @@ public abstract class AbstractMachine extends AbstractModelObject implements Mac
     public void removeFeeder(Feeder feeder) {
         int index = feeders.indexOf(feeder);
         if (feeders.remove(feeder)) {
+            feederIndex.remove(feeder);
             fireIndexedPropertyChange("feeders", index, feeder, null);
         }
     }
@@ -236,40 +270,49 @@ public abstract class AbstractMachine extends AbstractModelObject implements Mac
         }
     }
 
-    public void fireMachineHeadActivity(Head head) {
-        for (MachineListener listener : listeners) {
-            listener.machineHeadActivity(this, head);
+    /**
+     * The dispatcher that delivers events to the listeners, so that firing one never waits on
+     * them.
+     */
+    protected synchronized MachineEventDispatcher getEventDispatcher() {
+        if (eventDispatcher == null) {
+            eventDispatcher =
+                    new MachineEventDispatcher(this, listeners, headActivityIntervalMilliseconds);
         }
+        return eventDispatcher;
+    }
+
+    public long getHeadActivityIntervalMilliseconds() {
+        return headActivityIntervalMilliseconds;
+    }
+
+    public void setHeadActivityIntervalMilliseconds(long headActivityIntervalMilliseconds) {
+        this.headActivityIntervalMilliseconds = headActivityIntervalMilliseconds;
+        getEventDispatcher().setHeadActivityIntervalMilliseconds(headActivityIntervalMilliseconds);
+    }
+
+    public void fireMachineHeadActivity(Head head) {
+        getEventDispatcher().postHeadActivity(head);
     }
 
     public void fireMachineEnabled() {
-        for (MachineListener listener : listeners) {
-            listener.machineEnabled(this);
-        }
+        getEventDispatcher().post(listener -> listener.machineEnabled(this));
     }
 
     public void fireMachineEnableFailed(String reason) {
-        for (MachineListener listener : listeners) {
-            listener.machineEnableFailed(this, reason);
-        }
+        getEventDispatcher().post(listener -> listener.machineEnableFailed(this, reason));
     }
 
     public void fireMachineDisabled(String reason) {
-        for (MachineListener listener : listeners) {
-            listener.machineDisabled(this, reason);
-        }
+        getEventDispatcher().post(listener -> listener.machineDisabled(this, reason));
     }
 
     public void fireMachineDisableFailed(String reason) {
-        for (MachineListener listener : listeners) {
-            listener.machineDisableFailed(this, reason);
-        }
+        getEventDispatcher().post(listener -> listener.machineDisableFailed(this, reason));
     }
 
     public void fireMachineBusy(boolean busy) {
-        for (MachineListener listener : listeners) {
-            listener.machineBusy(this, busy);
-        }
+        getEventDispatcher().post(listener -> listener.machineBusy(this, busy));
     }
 
     @Override
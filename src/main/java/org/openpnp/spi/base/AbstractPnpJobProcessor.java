@@ -1,8 +1,11 @@
 package org.openpnp.spi.base;
 
+import java.util.List;
+
 import org.openpnp.model.Configuration;
 import org.openpnp.model.Part;
 import org.openpnp.spi.Feeder;
+import org.openpnp.spi.FeederSelectionStrategy;
 import org.openpnp.spi.Head;
 import org.openpnp.spi.Machine;
 import org.openpnp.spi.Nozzle;
@@ -85,12 +88,32 @@ public abstract class AbstractPnpJobProcessor extends AbstractJobProcessor
      * @throws Exception If no Feeder is found that is both enabled and is serving the Part.
      */
     public static Feeder findFeeder(Machine machine, Part part) throws Exception {
-        for (Feeder feeder : machine.getFeeders()) {
-            if (feeder.getPart() == part && feeder.isEnabled()) {
-                return feeder;
-            }
+        return findFeeder(machine, part, null, null);
+    }
+
+    /**
+     * Find an enabled Feeder that is able to feed the given Part, using the given strategy to
+     * choose between multiple candidates. Candidates come from the Machine's Part to Feeder index
+     * so this does not scan every Feeder.
+     * 
+     * @param machine
+     * @param part
+     * @param nozzle The Nozzle that will pick the part. May be null.
+     * @param strategy The strategy to choose between multiple Feeders. If null, the first
+     *        candidate is used.
+     * @return
+     * @throws Exception If no Feeder is found that is both enabled and is serving the Part.
+     */
+    public static Feeder findFeeder(Machine machine, Part part, Nozzle nozzle,
+            FeederSelectionStrategy strategy) throws Exception {
+        List<Feeder> feeders = machine.getFeeders(part);
+        if (feeders.isEmpty()) {
+            throw new Exception("No compatible, enabled feeder found for part " + part.getId());
+        }
+        if (strategy == null) {
+            return feeders.get(0);
         }
-        throw new Exception("No compatible, enabled feeder found for part " + part.getId());
+        return strategy.select(part, feeders, nozzle);
     }
 
 
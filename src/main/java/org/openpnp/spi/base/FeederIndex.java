@@ -0,0 +1,164 @@
+package org.openpnp.spi.base;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openpnp.model.AbstractModelObject;
+import org.openpnp.model.Location;
+import org.openpnp.model.Part;
+import org.openpnp.spi.Feeder;
+
+/**
+ * Maintains a Part -> enabled Feeders index over a List of Feeders so that looking up the Feeders
+ * for a Part does not require a scan of every Feeder on the Machine.
+ *
+ * The index is built lazily and is invalidated whenever a Feeder's part or enabled property
+ * changes or when Feeders are added or removed. Feeders are listed for each Part in the same
+ * order they appear in the source List.
+ *
+ * The index also caches each Feeder's pick location for choosing between the Feeders of a Part,
+ * so that the choice doesn't ask every candidate to work out its location again. A Feeder's
+ * cached location is dropped whenever the Feeder fires a property change, which covers a moved
+ * Feeder and the feed count of strip and tray feeders. Changes a Feeder doesn't announce, such as
+ * a drag feeder's vision correction, are small enough not to matter for that choice.
+ */
+public class FeederIndex implements PropertyChangeListener {
+    private final List<Feeder> feeders;
+
+    private Map<Part, List<Feeder>> index;
+
+    private int indexedCount = -1;
+
+    /**
+     * The Feeders this is registered as a listener with, so it can unregister from those that
+     * have been removed.
+     */
+    private final Set<AbstractModelObject> listeningTo =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final Map<Feeder, Location> pickLocations = new IdentityHashMap<>();
+
+    /**
+     * Counts the changes that drop cached pick locations, so that a location that was being
+     * looked up while its Feeder changed isn't cached.
+     */
+    private long pickLocationsVersion;
+
+    public FeederIndex(List<Feeder> feeders) {
+        this.feeders = feeders;
+    }
+
+    /**
+     * Get the enabled Feeders that are serving the given Part, in Machine order.
+     *
+     * @param part
+     * @return An unmodifiable, possibly empty, List.
+     */
+    public synchronized List<Feeder> getEnabledFeeders(Part part) {
+        // The feeder list is populated directly by the deserializer, so a changed size is
+        // treated the same as an explicit invalidation.
+        if (index == null || indexedCount != feeders.size()) {
+            rebuild();
+        }
+        List<Feeder> list = index.get(part);
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        return list;
+    }
+
+    /**
+     * Get the Feeder's pick location, from the cache if it hasn't changed since it was last
+     * asked for.
+     *
+     * @param feeder
+     * @return
+     * @throws Exception If the Feeder can't report its pick location.
+     */
+    public Location getPickLocation(Feeder feeder) throws Exception {
+        long version;
+        synchronized (this) {
+            Location location = pickLocations.get(feeder);
+            if (location != null) {
+                return location;
+            }
+            version = pickLocationsVersion;
+        }
+        // Asked outside the lock since some Feeders do real work to find their location.
+        Location location = feeder.getPickLocation();
+        synchronized (this) {
+            // Only Feeders that are listened to are cached, since otherwise nothing would
+            // tell us when their location changes.
+            if (version == pickLocationsVersion && listeningTo.contains(feeder)
+                    && location != null) {
+                pickLocations.put(feeder, location);
+            }
+        }
+        return location;
+    }
+
+    public synchronized void invalidate() {
+        index = null;
+        pickLocations.clear();
+        pickLocationsVersion++;
+    }
+
+    /**
+     * Stop listening to a Feeder that has been removed from the List, and invalidate the index.
+     */
+    public synchronized void remove(Feeder feeder) {
+        if (listeningTo.remove(feeder)) {
+            ((AbstractModelObject) feeder).removePropertyChangeListener(this);
+        }
+        invalidate();
+    }
+
+    @Override
+    public synchronized void propertyChange(PropertyChangeEvent e) {
+        pickLocations.remove(e.getSource());
+        pickLocationsVersion++;
+        if ("part".equals(e.getPropertyName()) || "enabled".equals(e.getPropertyName())) {
+            invalidate();
+        }
+    }
+
+    private void rebuild() {
+        Map<Part, List<Feeder>> index = new IdentityHashMap<>();
+        Set<AbstractModelObject> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(listeningTo);
+        for (Feeder feeder : feeders) {
+            if (feeder instanceof AbstractModelObject) {
+                AbstractModelObject model = (AbstractModelObject) feeder;
+                removed.remove(model);
+                if (listeningTo.add(model)) {
+                    model.addPropertyChangeListener(this);
+                }
+            }
+            if (!feeder.isEnabled() || feeder.getPart() == null) {
+                continue;
+            }
+            List<Feeder> list = index.get(feeder.getPart());
+            if (list == null) {
+                list = new ArrayList<>();
+                index.put(feeder.getPart(), list);
+            }
+            list.add(feeder);
+        }
+        for (Map.Entry<Part, List<Feeder>> entry : index.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        // Feeders that were taken out of the List without remove(), such as by the deserializer.
+        for (AbstractModelObject model : removed) {
+            listeningTo.remove(model);
+            model.removePropertyChangeListener(this);
+        }
+        this.index = index;
+        this.indexedCount = feeders.size();
+    }
+}
@@ -0,0 +1,205 @@
+package org.openpnp.spi.base;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.openpnp.spi.Head;
+import org.openpnp.spi.Machine;
+import org.openpnp.spi.MachineListener;
+import org.pmw.tinylog.Logger;
+
+/**
+ * Delivers MachineListener events on a thread of its own, so that the machine thread never waits
+ * on a listener. Head activity, which is fired after every move and every position report, is
+ * coalesced per head: however many times a head is reported between deliveries, listeners hear
+ * about it once, and no more often than the head activity interval. All other events are
+ * delivered in the order they were fired, each one exactly once.
+ *
+ * Listeners are called on the dispatcher's thread, not the machine thread and not the event
+ * dispatch thread, so they must still use EventQueue.invokeLater for Swing work.
+ */
+public class MachineEventDispatcher {
+    private final Machine machine;
+
+    private final Collection<MachineListener> listeners;
+
+    private final Object lock = new Object();
+
+    private final ArrayDeque<Consumer<MachineListener>> events = new ArrayDeque<>();
+
+    private final Set<Head> pendingHeads = new LinkedHashSet<>();
+
+    private long headActivityIntervalNanos;
+
+    private long nextHeadActivity;
+
+    private Thread thread;
+
+    /**
+     * True while the dispatcher's thread is delivering events it has taken off the queues.
+     */
+    private boolean busy;
+
+    private long postedCount;
+
+    private long deliveredCount;
+
+    /**
+     * @param machine The machine passed to the listeners.
+     * @param listeners The listeners to deliver to. It is iterated on the dispatcher's thread, so
+     *        it must be safe to iterate while it is being changed.
+     * @param headActivityIntervalMilliseconds The shortest time between two deliveries of head
+     *        activity. 0 delivers it as fast as the listeners take it.
+     */
+    public MachineEventDispatcher(Machine machine, Collection<MachineListener> listeners,
+            long headActivityIntervalMilliseconds) {
+        this.machine = machine;
+        this.listeners = listeners;
+        setHeadActivityIntervalMilliseconds(headActivityIntervalMilliseconds);
+    }
+
+    public void setHeadActivityIntervalMilliseconds(long headActivityIntervalMilliseconds) {
+        synchronized (lock) {
+            headActivityIntervalNanos = Math.max(0, headActivityIntervalMilliseconds) * 1000000L;
+            lock.notifyAll();
+        }
+    }
+
+    public void postHeadActivity(Head head) {
+        synchronized (lock) {
+            postedCount++;
+            if (pendingHeads.add(head)) {
+                start();
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Queue an event for delivery to every listener.
+     */
+    public void post(Consumer<MachineListener> event) {
+        synchronized (lock) {
+            postedCount++;
+            events.add(event);
+            start();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * The number of events posted, counting every head activity.
+     */
+    public long getPostedCount() {
+        synchronized (lock) {
+            return postedCount;
+        }
+    }
+
+    /**
+     * The number of events delivered, counting one per event rather than one per listener.
+     */
+    public long getDeliveredCount() {
+        synchronized (lock) {
+            return deliveredCount;
+        }
+    }
+
+    /**
+     * Wait until everything that has been posted so far has been delivered, or the timeout
+     * expires. Returns true if it was delivered.
+     */
+    public boolean flush(long timeoutMilliseconds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMilliseconds;
+        synchronized (lock) {
+            while (!events.isEmpty() || !pendingHeads.isEmpty() || busy) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+            return true;
+        }
+    }
+
+    private void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "MachineEventDispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        List<Head> heads = new ArrayList<>();
+        while (true) {
+            Consumer<MachineListener> event = null;
+            heads.clear();
+            synchronized (lock) {
+                busy = false;
+                lock.notifyAll();
+                while (true) {
+                    if (!events.isEmpty()) {
+                        event = events.poll();
+                        break;
+                    }
+                    if (!pendingHeads.isEmpty()) {
+                        long wait = nextHeadActivity - System.nanoTime();
+                        if (wait <= 0) {
+                            heads.addAll(pendingHeads);
+                            pendingHeads.clear();
+                            nextHeadActivity = System.nanoTime() + headActivityIntervalNanos;
+                            break;
+                        }
+                        waitNanos(wait);
+                    }
+                    else {
+                        waitNanos(0);
+                    }
+                }
+                busy = true;
+            }
+            if (event != null) {
+                deliver(event);
+            }
+            for (Head head : heads) {
+                deliver(listener -> listener.machineHeadActivity(machine, head));
+            }
+        }
+    }
+
+    private void waitNanos(long nanos) {
+        try {
+            if (nanos == 0) {
+                lock.wait();
+            }
+            else {
+                lock.wait(nanos / 1000000L, (int) (nanos % 1000000L));
+            }
+        }
+        catch (InterruptedException e) {
+            // The dispatcher runs for the life of the machine, so there is nothing to stop.
+        }
+    }
+
+    private void deliver(Consumer<MachineListener> event) {
+        for (MachineListener listener : listeners) {
+            try {
+                event.accept(listener);
+            }
+            catch (Exception e) {
+                Logger.warn(e, "Machine listener {} failed", listener);
+            }
+        }
+        synchronized (lock) {
+            deliveredCount++;
+        }
+    }
+}
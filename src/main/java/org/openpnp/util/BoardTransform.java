@@ -0,0 +1,173 @@
+package org.openpnp.util;
+
+import java.util.List;
+
+import org.openpnp.model.Board.Side;
+import org.openpnp.model.Length;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.model.Placement;
+
+/**
+ * The transform from a board's coordinates to machine coordinates for a BoardLocation, kept as
+ * primitives so that transforming a placement doesn't allocate anything but the result. It gives
+ * the same results as the Location based chain that Utils2D used before: bottom side placements
+ * are mirrored in X about the board's width, then everything is rotated by the board's rotation
+ * and moved to the board's location.
+ *
+ * A BoardLocation keeps the transform for the units it was last asked for, see
+ * BoardLocation.getTransform(LengthUnit), so most code should use that or Utils2D rather than
+ * create these directly.
+ */
+public final class BoardTransform {
+    private final Location boardLocation;
+    private final Side side;
+    private final double offset;
+    private final LengthUnit units;
+
+    private final double x;
+    private final double y;
+    private final double z;
+    private final double rotation;
+    private final double sin;
+    private final double cos;
+    private final double inverseSin;
+    private final double inverseCos;
+
+    /**
+     * @param boardLocation The location of the board, in any units.
+     * @param side The side of the board that is placed.
+     * @param offset The width of the board, used to mirror bottom side placements. It is taken
+     *        to be in the given units.
+     * @param units The units of the placements that will be transformed, and of the results.
+     */
+    public BoardTransform(Location boardLocation, Side side, double offset, LengthUnit units) {
+        this.boardLocation = boardLocation;
+        this.side = side;
+        this.offset = offset;
+        this.units = units;
+
+        Location l = boardLocation.convertToUnits(units);
+        x = l.getX();
+        y = l.getY();
+        z = l.getZ();
+        rotation = l.getRotation();
+        double radians = Math.toRadians(normalize(rotation));
+        sin = Math.sin(radians);
+        cos = Math.cos(radians);
+        radians = Math.toRadians(normalize(-rotation));
+        inverseSin = Math.sin(radians);
+        inverseCos = Math.cos(radians);
+    }
+
+    /**
+     * The same normalization as Location.rotateXy, so the results match it exactly.
+     */
+    private static double normalize(double angle) {
+        if (angle == 0.0) {
+            return 0;
+        }
+        while (angle < 180.) {
+            angle += 360;
+        }
+        while (angle > 180.) {
+            angle -= 360;
+        }
+        return angle;
+    }
+
+    /**
+     * True if this transform was made from the given values and can be used in place of a new
+     * one. The board location is compared by identity since Locations are immutable.
+     */
+    public boolean isFor(Location boardLocation, Side side, double offset, LengthUnit units) {
+        return this.boardLocation == boardLocation && this.side == side && this.offset == offset
+                && this.units == units;
+    }
+
+    public LengthUnit getUnits() {
+        return units;
+    }
+
+    /**
+     * Transform a location on the board to machine coordinates. Z is the board's Z, as the
+     * placement's Z is always ignored. The result is in the units of the placement location.
+     */
+    public Location transform(Location placementLocation) {
+        LengthUnit placementUnits = placementLocation.getUnits();
+        double px = Length.convertToUnits(placementLocation.getX(), placementUnits, units);
+        double py = Length.convertToUnits(placementLocation.getY(), placementUnits, units);
+        if (side == Side.Bottom) {
+            px = -px + offset;
+        }
+        return new Location(units, transformX(px, py), transformY(px, py), z,
+                placementLocation.getRotation() + rotation)
+                        .convertToUnits(placementUnits);
+    }
+
+    /**
+     * Transform a location in machine coordinates back to the board. The inverse of transform,
+     * with Z set to 0.
+     */
+    public Location inverseTransform(Location location) {
+        LengthUnit locationUnits = location.getUnits();
+        double px = Length.convertToUnits(location.getX(), locationUnits, units) - x;
+        double py = Length.convertToUnits(location.getY(), locationUnits, units) - y;
+        double bx = px * inverseCos - py * inverseSin;
+        double by = px * inverseSin + py * inverseCos;
+        if (side == Side.Bottom) {
+            bx = -bx + offset;
+        }
+        return new Location(units, bx, by, 0, location.getRotation() - rotation)
+                .convertToUnits(locationUnits);
+    }
+
+    /**
+     * The machine X of a point on the board, in this transform's units. The point must already
+     * be mirrored if the board is placed bottom side.
+     */
+    private double transformX(double px, double py) {
+        return px * cos - py * sin + x;
+    }
+
+    private double transformY(double px, double py) {
+        return px * sin + py * cos + y;
+    }
+
+    /**
+     * Transform count points given as X, Y, rotation triples in this transform's units from src
+     * into dst, which may be the same array.
+     */
+    public void transform(double[] src, int srcOffset, double[] dst, int dstOffset, int count) {
+        boolean bottom = side == Side.Bottom;
+        for (int i = 0; i < count; i++) {
+            int s = srcOffset + i * 3;
+            int d = dstOffset + i * 3;
+            double px = src[s];
+            double py = src[s + 1];
+            double pr = src[s + 2];
+            if (bottom) {
+                px = -px + offset;
+            }
+            dst[d] = transformX(px, py);
+            dst[d + 1] = transformY(px, py);
+            dst[d + 2] = pr + rotation;
+        }
+    }
+
+    /**
+     * Transform the locations of the placements, returning X, Y, rotation triples in this
+     * transform's units in the order of the list.
+     */
+    public double[] transform(List<Placement> placements) {
+        double[] points = new double[placements.size() * 3];
+        for (int i = 0; i < placements.size(); i++) {
+            Location l = placements.get(i).getLocation();
+            points[i * 3] = Length.convertToUnits(l.getX(), l.getUnits(), units);
+            points[i * 3 + 1] = Length.convertToUnits(l.getY(), l.getUnits(), units);
+            points[i * 3 + 2] = l.getRotation();
+        }
+        transform(points, 0, points, 0, placements.size());
+        return points;
+    }
+}
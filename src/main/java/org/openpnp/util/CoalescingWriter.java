@@ -0,0 +1,123 @@
+package org.openpnp.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.google.common.util.concurrent.FutureCallback;
+
+/**
+ * Runs write tasks one at a time on a background thread. If a task is submitted for a key that
+ * already has a task waiting to run, the waiting task is replaced by the new one and both callers
+ * get the same Future. A burst of saves of the same document therefore results in a single write
+ * of the latest state, while a write that has already started is never interrupted.
+ *
+ * The thread is a daemon so it never keeps the application alive on its own. Call flush() before
+ * exiting so that queued writes are not lost.
+ */
+public class CoalescingWriter {
+    private final ExecutorService executor;
+
+    private final Map<Object, PendingWrite> pending = new HashMap<>();
+
+    public CoalescingWriter(String name) {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue a write for the given key, replacing any write for the same key that has not yet
+     * started.
+     *
+     * @param key Identifies the document being written, such as its File.
+     * @param write
+     * @return A Future that completes when the latest queued write for the key has run.
+     */
+    public Future<Void> submit(Object key, Callable<Void> write) {
+        return submit(key, write, null);
+    }
+
+    /**
+     * As submit(Object, Callable), and call the callback on the writer thread once the write has
+     * run. The callbacks of writes that are replaced are kept and called along with the new
+     * one's, since the write that replaced theirs also writes what they asked for.
+     *
+     * @param key
+     * @param write
+     * @param callback May be null.
+     * @return
+     */
+    public synchronized Future<Void> submit(Object key, Callable<Void> write,
+            FutureCallback<Void> callback) {
+        PendingWrite pendingWrite = pending.get(key);
+        if (pendingWrite == null) {
+            pendingWrite = new PendingWrite(key);
+            pending.put(key, pendingWrite);
+            executor.execute(pendingWrite.future);
+        }
+        pendingWrite.write = write;
+        if (callback != null) {
+            pendingWrite.callbacks.add(callback);
+        }
+        return pendingWrite.future;
+    }
+
+    /**
+     * Wait until every write queued before this call has run.
+     */
+    public void flush() throws InterruptedException {
+        try {
+            // Writes run one at a time in order, so once this has run so have they.
+            executor.submit(() -> null).get();
+        }
+        catch (ExecutionException e) {
+            // The task can't fail.
+        }
+    }
+
+    private Void run(PendingWrite pendingWrite) throws Exception {
+        Callable<Void> write;
+        List<FutureCallback<Void>> callbacks;
+        synchronized (this) {
+            // Once started the write can no longer be replaced, so later submits queue a new one.
+            pending.remove(pendingWrite.key);
+            write = pendingWrite.write;
+            callbacks = new ArrayList<>(pendingWrite.callbacks);
+        }
+        try {
+            write.call();
+        }
+        catch (Exception e) {
+            for (FutureCallback<Void> callback : callbacks) {
+                callback.onFailure(e);
+            }
+            throw e;
+        }
+        for (FutureCallback<Void> callback : callbacks) {
+            callback.onSuccess(null);
+        }
+        return null;
+    }
+
+    private class PendingWrite {
+        final Object key;
+        Callable<Void> write;
+        final List<FutureCallback<Void>> callbacks = new ArrayList<>();
+        final FutureTask<Void> future;
+
+        PendingWrite(Object key) {
+            this.key = key;
+            this.future = new FutureTask<>(() -> run(this));
+        }
+    }
+}
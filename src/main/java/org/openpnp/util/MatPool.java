@@ -0,0 +1,394 @@
+package org.openpnp.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.management.ObjectName;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.pmw.tinylog.Logger;
+
+/**
+ * A pool of OpenCV Mats, keyed by size and type, for the temporary images that vision code
+ * creates for every frame. Allocating a native Mat is expensive and its memory is only returned
+ * when release() is called or the garbage collector finalizes it, so hot paths that acquire their
+ * images here and hand them back with release(Mat) avoid both the allocation and the wait.
+ *
+ * Mats that were not acquired from the pool can be passed to release(Mat) as well, they are
+ * simply released, so code that doesn't know where an image came from can always use the pool.
+ * A Mat that has been handed back must not be used again, since it may already belong to someone
+ * else.
+ *
+ * The pool keeps track of how many native bytes are in use by the Mats it has handed out, and
+ * notices when one of them is garbage collected without being handed back. With leak tracking on
+ * the stack of every acquire is recorded, so the site of such a leak can be logged and the Mats
+ * that are still out can be listed. Leak tracking is off by default since recording the stack
+ * costs far more than the pool saves; turn it on with -Dopenpnp.matPool.trackLeaks=true or
+ * through the org.openpnp:type=MatPool MBean.
+ */
+public class MatPool implements MatPoolMBean {
+    private static MatPool instance;
+
+    /**
+     * A Mat that has been handed out. Weak, so that a Mat that is dropped without being handed
+     * back is still collected, and shows up on the queue.
+     */
+    private static class Allocation extends WeakReference<Mat> {
+        final long nativeObj;
+        final long bytes;
+        final Throwable site;
+
+        Allocation(Mat mat, long bytes, Throwable site, ReferenceQueue<Mat> queue) {
+            super(mat, queue);
+            this.nativeObj = mat.nativeObj;
+            this.bytes = bytes;
+            this.site = site;
+        }
+    }
+
+    /**
+     * Acquires and releases everything acquired through it when closed, unless it was kept. Use
+     * in a try-with-resources block for temporaries:
+     *
+     * <pre>
+     * try (MatPool.Scope scope = MatPool.get().scope()) {
+     *     Mat gray = scope.acquire(mat.rows(), mat.cols(), CvType.CV_8UC1);
+     *     ...
+     * }
+     * </pre>
+     */
+    public class Scope implements AutoCloseable {
+        private final List<Mat> mats = new ArrayList<>();
+
+        public Mat acquire(int rows, int cols, int type) {
+            Mat mat = MatPool.this.acquire(rows, cols, type);
+            mats.add(mat);
+            return mat;
+        }
+
+        public Mat copyOf(Mat mat) {
+            Mat copy = MatPool.this.copyOf(mat);
+            mats.add(copy);
+            return copy;
+        }
+
+        /**
+         * Take the Mat out of the scope, so that it outlives it. The caller is then responsible
+         * for releasing it.
+         */
+        public Mat keep(Mat mat) {
+            mats.remove(mat);
+            return mat;
+        }
+
+        @Override
+        public void close() {
+            for (Mat mat : mats) {
+                release(mat);
+            }
+            mats.clear();
+        }
+    }
+
+    private final Map<Long, ArrayDeque<Mat>> free = new HashMap<>();
+
+    private final Map<Long, Allocation> live = new HashMap<>();
+
+    private final ReferenceQueue<Mat> queue = new ReferenceQueue<>();
+
+    private boolean leakTracking = Boolean.getBoolean("openpnp.matPool.trackLeaks");
+
+    private int maxPooledPerSize = 4;
+
+    private long maxPooledBytes = 256L * 1024 * 1024;
+
+    private long liveBytes;
+
+    private long pooledBytes;
+
+    private int pooledCount;
+
+    private long allocatedCount;
+
+    private long reusedCount;
+
+    private long droppedCount;
+
+    private long droppedBytes;
+
+    public static synchronized MatPool get() {
+        if (instance == null) {
+            instance = new MatPool();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance,
+                        new ObjectName("org.openpnp:type=MatPool"));
+            }
+            catch (Exception e) {
+                Logger.warn("Unable to register Mat pool MBean: {}", e.getMessage());
+            }
+        }
+        return instance;
+    }
+
+    public Scope scope() {
+        return new Scope();
+    }
+
+    /**
+     * Return a Mat of the given size and type, reusing a pooled one if there is one. The contents
+     * are undefined.
+     */
+    public synchronized Mat acquire(int rows, int cols, int type) {
+        poll();
+        ArrayDeque<Mat> mats = free.get(key(rows, cols, type));
+        Mat mat = mats == null ? null : mats.pollFirst();
+        if (mat != null) {
+            pooledBytes -= bytes(rows, cols, type);
+            pooledCount--;
+            reusedCount++;
+            // A no-op unless the Mat was released behind the pool's back while it was pooled.
+            mat.create(rows, cols, type);
+        }
+        else {
+            mat = new Mat(rows, cols, type);
+            allocatedCount++;
+        }
+        long bytes = bytes(rows, cols, type);
+        live.put(mat.nativeObj, new Allocation(mat, bytes,
+                leakTracking ? new Throwable("Mat acquired") : null, queue));
+        liveBytes += bytes;
+        return mat;
+    }
+
+    /**
+     * Return a pooled copy of the given Mat.
+     */
+    public Mat copyOf(Mat mat) {
+        if (mat.dims() > 2 || mat.empty()) {
+            return mat.clone();
+        }
+        Mat copy = acquire(mat.rows(), mat.cols(), mat.type());
+        mat.copyTo(copy);
+        return copy;
+    }
+
+    /**
+     * Hand the Mat back to the pool. It is kept for reuse if it came from the pool and there is
+     * room for it, and released otherwise. Null is ignored.
+     */
+    public synchronized void release(Mat mat) {
+        if (mat == null) {
+            return;
+        }
+        poll();
+        Allocation allocation = live.get(mat.nativeObj);
+        if (allocation == null || allocation.get() != mat) {
+            mat.release();
+            return;
+        }
+        live.remove(mat.nativeObj);
+        allocation.clear();
+        liveBytes -= allocation.bytes;
+
+        // The Mat may have been reallocated to a different size by an OpenCV call that wrote to
+        // it, so it is pooled by what it is now rather than what was acquired.
+        int rows = mat.rows();
+        int cols = mat.cols();
+        int type = mat.type();
+        long bytes = bytes(rows, cols, type);
+        if (mat.empty() || mat.dims() > 2 || mat.isSubmatrix() || !mat.isContinuous()
+                || pooledBytes + bytes > maxPooledBytes) {
+            mat.release();
+            return;
+        }
+        ArrayDeque<Mat> mats = free.computeIfAbsent(key(rows, cols, type), k -> new ArrayDeque<>());
+        if (mats.size() >= maxPooledPerSize) {
+            mat.release();
+            return;
+        }
+        mats.addFirst(mat);
+        pooledBytes += bytes;
+        pooledCount++;
+    }
+
+    /**
+     * Collect the Mats that were garbage collected while handed out.
+     */
+    private void poll() {
+        Reference<? extends Mat> reference;
+        while ((reference = queue.poll()) != null) {
+            Allocation allocation = (Allocation) reference;
+            if (live.get(allocation.nativeObj) == allocation) {
+                live.remove(allocation.nativeObj);
+            }
+            liveBytes -= allocation.bytes;
+            droppedCount++;
+            droppedBytes += allocation.bytes;
+            if (allocation.site != null) {
+                Logger.warn(allocation.site, "Mat of {} bytes was not returned to the pool",
+                        allocation.bytes);
+            }
+        }
+    }
+
+    private static long key(int rows, int cols, int type) {
+        return ((long) rows << 40) | ((long) cols << 16) | type;
+    }
+
+    private static long bytes(int rows, int cols, int type) {
+        return (long) rows * cols * CvType.ELEM_SIZE(type);
+    }
+
+    /**
+     * Release every pooled Mat. Mats that are handed out are not affected.
+     */
+    @Override
+    public synchronized void clear() {
+        for (ArrayDeque<Mat> mats : free.values()) {
+            for (Mat mat : mats) {
+                mat.release();
+            }
+        }
+        free.clear();
+        pooledBytes = 0;
+        pooledCount = 0;
+    }
+
+    @Override
+    public synchronized long getLiveBytes() {
+        poll();
+        return liveBytes;
+    }
+
+    @Override
+    public synchronized int getLiveCount() {
+        poll();
+        return live.size();
+    }
+
+    @Override
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    @Override
+    public synchronized int getPooledCount() {
+        return pooledCount;
+    }
+
+    @Override
+    public synchronized long getAllocatedCount() {
+        return allocatedCount;
+    }
+
+    @Override
+    public synchronized long getReusedCount() {
+        return reusedCount;
+    }
+
+    @Override
+    public synchronized long getDroppedCount() {
+        poll();
+        return droppedCount;
+    }
+
+    @Override
+    public synchronized long getDroppedBytes() {
+        poll();
+        return droppedBytes;
+    }
+
+    @Override
+    public synchronized boolean isLeakTracking() {
+        return leakTracking;
+    }
+
+    @Override
+    public synchronized void setLeakTracking(boolean leakTracking) {
+        this.leakTracking = leakTracking;
+    }
+
+    @Override
+    public synchronized int getMaxPooledPerSize() {
+        return maxPooledPerSize;
+    }
+
+    @Override
+    public synchronized void setMaxPooledPerSize(int maxPooledPerSize) {
+        this.maxPooledPerSize = maxPooledPerSize;
+    }
+
+    @Override
+    public synchronized long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    @Override
+    public synchronized void setMaxPooledBytes(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * A summary of the pool followed by the Mats that are handed out, grouped by where they were
+     * acquired, largest first. Sites are only known for Mats acquired with leak tracking on.
+     */
+    @Override
+    public synchronized String getReport() {
+        poll();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Live: %d Mats, %.2f MB%n", live.size(), liveBytes / 1048576.0));
+        sb.append(String.format("Pooled: %d Mats, %.2f MB%n", pooledCount,
+                pooledBytes / 1048576.0));
+        sb.append(String.format("Allocated: %d, reused: %d%n", allocatedCount, reusedCount));
+        sb.append(String.format("Not returned: %d Mats, %.2f MB%n", droppedCount,
+                droppedBytes / 1048576.0));
+
+        Map<String, long[]> sites = new TreeMap<>();
+        for (Allocation allocation : live.values()) {
+            long[] totals = sites.computeIfAbsent(getSite(allocation), k -> new long[2]);
+            totals[0]++;
+            totals[1] += allocation.bytes;
+        }
+        List<Entry<String, long[]>> entries = new ArrayList<>(sites.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+        for (Entry<String, long[]> entry : entries) {
+            sb.append(String.format("%d Mats, %d bytes, acquired at %s%n", entry.getValue()[0],
+                    entry.getValue()[1], entry.getKey()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The first few frames of the allocation's stack outside of the pool.
+     */
+    private static String getSite(Allocation allocation) {
+        if (allocation.site == null) {
+            return "(unknown, leak tracking was off)";
+        }
+        StringBuilder sb = new StringBuilder();
+        int frames = 0;
+        for (StackTraceElement element : allocation.site.getStackTrace()) {
+            if (element.getClassName().startsWith(MatPool.class.getName())) {
+                continue;
+            }
+            if (frames > 0) {
+                sb.append(" < ");
+            }
+            sb.append(element);
+            if (++frames == 3) {
+                break;
+            }
+        }
+        return sb.toString();
+    }
+}
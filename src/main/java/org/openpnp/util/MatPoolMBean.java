@@ -0,0 +1,39 @@
+package org.openpnp.util;
+
+/**
+ * Management interface for MatPool, so that native image memory can be watched, and leaks
+ * tracked down, with any JMX console.
+ */
+public interface MatPoolMBean {
+    public long getLiveBytes();
+
+    public int getLiveCount();
+
+    public long getPooledBytes();
+
+    public int getPooledCount();
+
+    public long getAllocatedCount();
+
+    public long getReusedCount();
+
+    public long getDroppedCount();
+
+    public long getDroppedBytes();
+
+    public boolean isLeakTracking();
+
+    public void setLeakTracking(boolean leakTracking);
+
+    public int getMaxPooledPerSize();
+
+    public void setMaxPooledPerSize(int maxPooledPerSize);
+
+    public long getMaxPooledBytes();
+
+    public void setMaxPooledBytes(long maxPooledBytes);
+
+    public String getReport();
+
+    public void clear();
+}
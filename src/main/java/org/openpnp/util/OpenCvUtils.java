@@ -65,6 +65,13 @@ public class OpenCvUtils {
     }
 
     public static Mat toMat(BufferedImage img) {
+        return toMat(img, null);
+    }
+
+    /**
+     * Convert the image to a Mat acquired from the given pool, or a new Mat if the pool is null.
+     */
+    public static Mat toMat(BufferedImage img, MatPool pool) {
         Integer type = null;
         if (img.getType() == BufferedImage.TYPE_BYTE_GRAY) {
             type = CvType.CV_8UC1;
@@ -76,7 +83,8 @@ public class OpenCvUtils {
             img = ImageUtils.convertBufferedImage(img, BufferedImage.TYPE_3BYTE_BGR);
             type = CvType.CV_8UC3;
         }
-        Mat mat = new Mat(img.getHeight(), img.getWidth(), type);
+        Mat mat = pool == null ? new Mat(img.getHeight(), img.getWidth(), type)
+                : pool.acquire(img.getHeight(), img.getWidth(), type);
         mat.put(0, 0, ((DataBufferByte) img.getRaster().getDataBuffer()).getData());
         return mat;
     }
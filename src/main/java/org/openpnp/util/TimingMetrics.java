@@ -0,0 +1,282 @@
+package org.openpnp.util;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.ObjectName;
+
+import org.pmw.tinylog.Logger;
+
+import com.google.gson.GsonBuilder;
+
+/**
+ * Collects LatencyHistograms of how long the operations of a job take. Each histogram belongs to
+ * a category, which is the operation and what it is broken down by, such as "feed by feeder",
+ * and a key within the category, such as the feeder's id.
+ *
+ * Recording a sample for a category and key that have been seen before does not allocate, so
+ * recording can be left on all the time. The metrics are registered with the platform MBean
+ * server as org.openpnp:type=TimingMetrics and can be exported as CSV or JSON.
+ */
+public class TimingMetrics implements TimingMetricsMBean {
+    /**
+     * Job processor steps, by step name.
+     */
+    public static final String STEP = "step";
+    public static final String FIDUCIAL_CHECK_BY_BOARD = "fiducial check by board";
+    public static final String NOZZLE_CHANGE_BY_NOZZLE = "nozzle change by nozzle";
+    public static final String FEED_BY_FEEDER = "feed by feeder";
+    public static final String FEED_BY_PART = "feed by part";
+    public static final String PICK_BY_NOZZLE = "pick by nozzle";
+    public static final String PICK_BY_FEEDER = "pick by feeder";
+    public static final String PICK_BY_PART = "pick by part";
+    public static final String ALIGN_BY_NOZZLE = "align by nozzle";
+    public static final String ALIGN_BY_PART = "align by part";
+    public static final String PLACE_BY_NOZZLE = "place by nozzle";
+    public static final String PLACE_BY_PART = "place by part";
+    /**
+     * Whole jobs, with the key "total", and one sample per placed part, the time since the part
+     * before it was placed or the job started, with the key "per part".
+     */
+    public static final String JOB = "job";
+    /**
+     * Driver command round trips, by kind of command.
+     */
+    public static final String DRIVER_COMMAND = "driver command";
+    /**
+     * Driver command round trips sent while a job is running, by the job processor's phase and
+     * kind of command, such as "Pick move".
+     */
+    public static final String DRIVER_COMMAND_BY_PHASE = "driver command by phase";
+
+    /**
+     * The categories recorded for each job, which the job processor resets at the start of each
+     * job.
+     */
+    public static final String[] JOB_CATEGORIES = {STEP, FIDUCIAL_CHECK_BY_BOARD,
+            NOZZLE_CHANGE_BY_NOZZLE, FEED_BY_FEEDER, FEED_BY_PART, PICK_BY_NOZZLE, PICK_BY_FEEDER,
+            PICK_BY_PART, ALIGN_BY_NOZZLE, ALIGN_BY_PART, PLACE_BY_NOZZLE, PLACE_BY_PART, JOB,
+            DRIVER_COMMAND_BY_PHASE};
+
+    private static final ThreadLocal<String> phase = new ThreadLocal<>();
+
+    private static TimingMetrics instance;
+
+    private final Map<String, Map<String, LatencyHistogram>> histograms =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The DRIVER_COMMAND_BY_PHASE keys, by phase and kind, so they are only built once.
+     */
+    private final Map<String, Map<String, String>> phaseKeys = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled = true;
+
+    public static synchronized TimingMetrics get() {
+        if (instance == null) {
+            instance = new TimingMetrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance,
+                        new ObjectName("org.openpnp:type=TimingMetrics"));
+            }
+            catch (Exception e) {
+                Logger.warn("Unable to register timing metrics MBean: {}", e.getMessage());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Record one sample.
+     *
+     * @param category One of the category constants in this class, or any other constant
+     *        String.
+     * @param key What the sample is for within the category. Ids are best since they are
+     *        already Strings and don't need to be built for each sample.
+     * @param nanos How long the operation took.
+     */
+    public void record(String category, String key, long nanos) {
+        if (!enabled) {
+            return;
+        }
+        if (key == null) {
+            key = "";
+        }
+        histograms.computeIfAbsent(category, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> new LatencyHistogram())
+                .record(nanos);
+    }
+
+    /**
+     * Record the round trip of a driver command by its kind and, if the calling thread has a
+     * phase, by the phase and kind.
+     *
+     * @param kind Such as "move", see DRIVER_COMMAND.
+     * @param nanos
+     */
+    public void recordCommand(String kind, long nanos) {
+        record(DRIVER_COMMAND, kind, nanos);
+        String current = getPhase();
+        if (current == null || !enabled) {
+            return;
+        }
+        Map<String, String> kinds = phaseKeys.get(current);
+        if (kinds == null) {
+            kinds = phaseKeys.computeIfAbsent(current, k -> new ConcurrentHashMap<>());
+        }
+        String key = kinds.get(kind);
+        if (key == null) {
+            key = kinds.computeIfAbsent(kind, k -> current + " " + kind);
+        }
+        record(DRIVER_COMMAND_BY_PHASE, key, nanos);
+    }
+
+    /**
+     * Set what the calling thread is doing, so that the driver commands it sends are recorded
+     * against it as well, see recordCommand(). The job processor sets this to the step that is
+     * running.
+     *
+     * @param phase A constant String, or null for none.
+     */
+    public static void setPhase(String phase) {
+        TimingMetrics.phase.set(phase);
+    }
+
+    public static String getPhase() {
+        return phase.get();
+    }
+
+    /**
+     * Return the histogram for the category and key, or null if nothing has been recorded for
+     * them. The returned histogram is live, and continues to change as samples are recorded.
+     */
+    public LatencyHistogram getHistogram(String category, String key) {
+        Map<String, LatencyHistogram> keys = histograms.get(category);
+        return keys == null ? null : keys.get(key);
+    }
+
+    /**
+     * Return a copy of every histogram, sorted by category and key.
+     */
+    public Map<String, Map<String, LatencyHistogram>> getHistograms() {
+        Map<String, Map<String, LatencyHistogram>> copy = new TreeMap<>();
+        for (Entry<String, Map<String, LatencyHistogram>> category : histograms.entrySet()) {
+            Map<String, LatencyHistogram> keys = new TreeMap<>();
+            for (Entry<String, LatencyHistogram> key : category.getValue().entrySet()) {
+                keys.put(key.getKey(), key.getValue().copy());
+            }
+            copy.put(category.getKey(), keys);
+        }
+        return copy;
+    }
+
+    @Override
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * Forget the histograms of the given categories and keep the others, such as those recorded
+     * by drivers.
+     */
+    public void reset(String... categories) {
+        for (String category : categories) {
+            histograms.remove(category);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public String[] getCategories() {
+        return histograms.keySet().stream().sorted().toArray(String[]::new);
+    }
+
+    /**
+     * A CSV report with a line for each category and key. Times are in milliseconds.
+     */
+    @Override
+    public String getReportCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("category,key,count,total,mean,min,p50,p95,p99,max\n");
+        for (Entry<String, Map<String, LatencyHistogram>> category : getHistograms()
+                .entrySet()) {
+            for (Entry<String, LatencyHistogram> key : category.getValue().entrySet()) {
+                LatencyHistogram h = key.getValue();
+                sb.append(csv(category.getKey()));
+                sb.append(',');
+                sb.append(csv(key.getKey()));
+                sb.append(String.format(Locale.US, ",%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+                        h.getCount(), ms(h.getTotal()), h.getMean() / 1e6, ms(h.getMin()),
+                        ms(h.getPercentile(50)), ms(h.getPercentile(95)),
+                        ms(h.getPercentile(99)), ms(h.getMax())));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A JSON report with an object for each category, containing an object for each key. Times
+     * are in milliseconds.
+     */
+    @Override
+    public String getReportJson() {
+        Map<String, Map<String, Map<String, Object>>> report = new LinkedHashMap<>();
+        for (Entry<String, Map<String, LatencyHistogram>> category : getHistograms()
+                .entrySet()) {
+            Map<String, Map<String, Object>> keys = new LinkedHashMap<>();
+            for (Entry<String, LatencyHistogram> key : category.getValue().entrySet()) {
+                LatencyHistogram h = key.getValue();
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("count", h.getCount());
+                values.put("total", ms(h.getTotal()));
+                values.put("mean", h.getMean() / 1e6);
+                values.put("min", ms(h.getMin()));
+                values.put("p50", ms(h.getPercentile(50)));
+                values.put("p95", ms(h.getPercentile(95)));
+                values.put("p99", ms(h.getPercentile(99)));
+                values.put("max", ms(h.getMax()));
+                keys.put(key.getKey(), values);
+            }
+            report.put(category.getKey(), keys);
+        }
+        return new GsonBuilder().setPrettyPrinting().create().toJson(report);
+    }
+
+    /**
+     * Write the report to the given file, as JSON if the file name ends with .json and as CSV
+     * otherwise.
+     */
+    @Override
+    public void exportReport(String path) throws Exception {
+        String report = path.toLowerCase().endsWith(".json") ? getReportJson() : getReportCsv();
+        Files.write(new File(path).toPath(), report.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String csv(String s) {
+        if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
+            return "\"" + s.replace("\"", "\"\"") + "\"";
+        }
+        return s;
+    }
+}
@@ -0,0 +1,21 @@
+package org.openpnp.util;
+
+/**
+ * Management interface for TimingMetrics, so that the timings of a running job can be watched
+ * with any JMX console.
+ */
+public interface TimingMetricsMBean {
+    public boolean isEnabled();
+
+    public void setEnabled(boolean enabled);
+
+    public String[] getCategories();
+
+    public String getReportCsv();
+
+    public String getReportJson();
+
+    public void exportReport(String path) throws Exception;
+
+    public void reset();
+}
@@ -80,10 +80,13 @@ public class Utils2D {
         return new Point(point.getX() * scaleX, point.getY() * scaleY);
     }
 
+    /**
+     * Uses the BoardLocation's cached BoardTransform, which gives the same result as the Location
+     * based version below without the intermediate Locations.
+     */
     public static Location calculateBoardPlacementLocation(BoardLocation bl,
             Location placementLocation) {
-        return calculateBoardPlacementLocation(bl.getLocation(), bl.getSide(),
-                bl.getBoard().getDimensions().getX(), placementLocation);
+        return bl.getTransform(placementLocation.getUnits()).transform(placementLocation);
     }
 
     public static Location calculateBoardPlacementLocation(Location boardLocation, Side side,
@@ -113,9 +116,8 @@ public class Utils2D {
 
     public static Location calculateBoardPlacementLocationInverse(BoardLocation boardLocation,
             Location placementLocation) {
-        return calculateBoardPlacementLocationInverse(boardLocation.getLocation(),
-                boardLocation.getSide(), boardLocation.getBoard().getDimensions().getX(),
-                placementLocation);
+        return boardLocation.getTransform(placementLocation.getUnits())
+                .inverseTransform(placementLocation);
     }
 
     public static Location calculateBoardPlacementLocationInverse(Location boardLocation, Side side,
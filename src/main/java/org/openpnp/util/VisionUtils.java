@@ -138,28 +138,40 @@ public class VisionUtils {
     }
     
     public static PartAlignment.PartAlignmentOffset findPartAlignmentOffsets(PartAlignment p, Part part, BoardLocation boardLocation, Location placementLocation, Nozzle nozzle) throws Exception {
+        firePartAlignmentBefore(part, nozzle);
+        try {
+            return p.findOffsets(part, boardLocation, placementLocation, nozzle);
+        }
+        finally {
+            firePartAlignmentAfter(part, nozzle);
+        }
+    }
+
+    /**
+     * Run the Vision.PartAlignment.Before scripts for a part that is about to be aligned. A
+     * PartAlignment that aligns several parts at once calls this for each of them before its
+     * first capture.
+     */
+    public static void firePartAlignmentBefore(Part part, Nozzle nozzle) {
+        firePartAlignmentEvent("Vision.PartAlignment.Before", part, nozzle);
+    }
+
+    /**
+     * Run the Vision.PartAlignment.After scripts for a part that has been aligned.
+     */
+    public static void firePartAlignmentAfter(Part part, Nozzle nozzle) {
+        firePartAlignmentEvent("Vision.PartAlignment.After", part, nozzle);
+    }
+
+    private static void firePartAlignmentEvent(String event, Part part, Nozzle nozzle) {
         try {
             Map<String, Object> globals = new HashMap<>();
             globals.put("part", part);
             globals.put("nozzle", nozzle);
-            Configuration.get().getScripting().on("Vision.PartAlignment.Before", globals);
+            Configuration.get().getScripting().on(event, globals);
         }
         catch (Exception e) {
             Logger.warn(e);
         }
-        try {
-            return p.findOffsets(part, boardLocation, placementLocation, nozzle);
-        }
-        finally {
-            try {
-                Map<String, Object> globals = new HashMap<>();
-                globals.put("part", part);
-                globals.put("nozzle", nozzle);
-                Configuration.get().getScripting().on("Vision.PartAlignment.After", globals);
-            }
-            catch (Exception e) {
-                Logger.warn(e);
-            }
-        }
     }
 }
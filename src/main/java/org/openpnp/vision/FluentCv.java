@@ -74,6 +74,7 @@ import org.openpnp.model.Length;
 import org.openpnp.model.Location;
 import org.openpnp.spi.Camera;
 import org.openpnp.util.HslColor;
+import org.openpnp.util.MatPool;
 import org.openpnp.util.OpenCvUtils;
 import org.openpnp.util.VisionUtils;
 import org.pmw.tinylog.Logger;
@@ -309,6 +310,17 @@ public class FluentCv {
         return store(mat, tag);
     }
 
+    /**
+     * Release the stored images. The FluentCv can still be used afterwards, but recall will not
+     * find anything that was stored before.
+     */
+    public void release() {
+        for (Mat mat : stored.values()) {
+            mat.release();
+        }
+        stored.clear();
+    }
+
     public List<String> getStoredTags() {
         return new ArrayList<>(stored.keySet());
     }
@@ -488,17 +500,20 @@ public class FluentCv {
         // as Cri's version.
         Mat kernel = Mat.eye(new Size(2, 2), CvType.CV_32FC1);
         kernel.put(0, 0, 0, 1, -1, 0);
-        Mat roberts1 = new Mat();
-        Imgproc.filter2D(mat, roberts1, CvType.CV_32FC1, kernel);
-        Core.convertScaleAbs(roberts1, roberts1);
+        Mat roberts = new Mat();
+        try (MatPool.Scope scope = MatPool.get().scope()) {
+            Mat roberts1 = scope.acquire(mat.rows(), mat.cols(), CvType.CV_32FC1);
+            Imgproc.filter2D(mat, roberts1, CvType.CV_32FC1, kernel);
+            Core.convertScaleAbs(roberts1, roberts1);
 
-        kernel.put(0, 0, 1, 0, 0, -1);
-        Mat roberts2 = new Mat();
-        Imgproc.filter2D(mat, roberts2, CvType.CV_32FC1, kernel);
-        Core.convertScaleAbs(roberts2, roberts2);
+            kernel.put(0, 0, 1, 0, 0, -1);
+            Mat roberts2 = scope.acquire(mat.rows(), mat.cols(), CvType.CV_32FC1);
+            Imgproc.filter2D(mat, roberts2, CvType.CV_32FC1, kernel);
+            Core.convertScaleAbs(roberts2, roberts2);
 
-        Mat roberts = new Mat();
-        Core.add(roberts1, roberts2, roberts);
+            Core.add(roberts1, roberts2, roberts);
+        }
+        kernel.release();
 
         return store(roberts, tag);
 
@@ -621,12 +636,13 @@ public class FluentCv {
         this.mat = mat;
         if (tag != null && tag.length > 0) {
             // Clone so that future writes to the pipeline Mat
-            // don't overwrite our stored one.
-            mat = stored.get(tag[0]);
-            if (mat != null) {
-                mat.release();
+            // don't overwrite our stored one. Not from the MatPool, since most callers never
+            // call release() and would show up as leaks. A replaced image was never handed
+            // out, recall returns clones, so it can be released right away.
+            Mat replaced = stored.put(tag[0], this.mat.clone());
+            if (replaced != null) {
+                replaced.release();
             }
-            stored.put(tag[0], this.mat.clone());
         }
         return this;
     }
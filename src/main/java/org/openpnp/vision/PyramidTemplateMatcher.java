@@ -0,0 +1,218 @@
+package org.openpnp.vision;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.Core.MinMaxLocResult;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.openpnp.vision.pipeline.CvStage.Result.TemplateMatch;
+
+/**
+ * Coarse to fine template matcher. The image and template are reduced with an image pyramid,
+ * the template is matched over the whole image at the coarsest level, and the match is then
+ * refined in a small window at each finer level. The final match is interpolated to sub-pixel
+ * accuracy by fitting a parabola through the correlation peak.
+ *
+ * Since the cost of matchTemplate is proportional to the product of image and template area,
+ * each pyramid level cuts the cost of the full search by a factor of about 16, and the
+ * refinement steps are tiny in comparison.
+ *
+ * The template pyramid is built once when the matcher is created, so a matcher should be kept
+ * for as long as its template is in use. Matching is done on grayscale using
+ * TM_CCOEFF_NORMED, so scores are in the range [-1, 1].
+ */
+public class PyramidTemplateMatcher {
+    /**
+     * How far, in pixels, around the position predicted by the coarser level the match is
+     * searched for at each finer level. Downsampling can shift the peak by about a pixel so this
+     * leaves some margin.
+     */
+    private static final int REFINE_RADIUS = 2;
+
+    /**
+     * Template pyramid, index 0 is full resolution.
+     */
+    private final List<Mat> templates = new ArrayList<>();
+
+    /**
+     * @param template The template image, in color or grayscale. It is copied, so the caller
+     *        keeps ownership.
+     * @param minTemplateSize The smallest a template dimension may become at the coarsest level.
+     *        Smaller templates match faster but can lose the features that make them unique.
+     * @param maxLevels The maximum number of times the template is halved.
+     */
+    public PyramidTemplateMatcher(Mat template, int minTemplateSize, int maxLevels) {
+        Mat level = toGray(template);
+        templates.add(level);
+        while (templates.size() <= maxLevels
+                && Math.min(level.cols(), level.rows()) / 2 >= minTemplateSize) {
+            Mat next = new Mat();
+            Imgproc.pyrDown(level, next);
+            templates.add(next);
+            level = next;
+        }
+    }
+
+    public PyramidTemplateMatcher(Mat template) {
+        this(template, 16, 4);
+    }
+
+    public int getTemplateWidth() {
+        return templates.get(0).cols();
+    }
+
+    public int getTemplateHeight() {
+        return templates.get(0).rows();
+    }
+
+    /**
+     * Find the best match of the template in the whole image.
+     */
+    public TemplateMatch match(Mat image) {
+        return match(image, null);
+    }
+
+    /**
+     * Find the best match of the template within the region of interest of the image.
+     *
+     * @param image The image to search, in color or grayscale. It is not modified.
+     * @param roi The region to search, or null to search the whole image.
+     * @return The best match, with x and y being the sub-pixel position of the top left corner of
+     *         the template in image coordinates, or null if the region is smaller than the
+     *         template.
+     */
+    public TemplateMatch match(Mat image, Rect roi) {
+        Mat region = roi == null ? image : image.submat(roi);
+        int offsetX = roi == null ? 0 : roi.x;
+        int offsetY = roi == null ? 0 : roi.y;
+
+        List<Mat> images = new ArrayList<>();
+        try {
+            Mat level = toGray(region);
+            if (!fits(level, templates.get(0))) {
+                level.release();
+                return null;
+            }
+            images.add(level);
+            // Only go as deep as both the template pyramid and the image allow.
+            while (images.size() < templates.size()) {
+                Mat next = new Mat();
+                Imgproc.pyrDown(level, next);
+                if (!fits(next, templates.get(images.size()))) {
+                    next.release();
+                    break;
+                }
+                images.add(next);
+                level = next;
+            }
+
+            // Full search at the coarsest level.
+            int coarsest = images.size() - 1;
+            Mat result = new Mat();
+            Imgproc.matchTemplate(images.get(coarsest), templates.get(coarsest), result,
+                    Imgproc.TM_CCOEFF_NORMED);
+            MinMaxLocResult mmr = Core.minMaxLoc(result);
+            int x = (int) mmr.maxLoc.x;
+            int y = (int) mmr.maxLoc.y;
+            int windowX = 0;
+            int windowY = 0;
+
+            // Refine in a small window at each finer level.
+            for (int i = coarsest - 1; i >= 0; i--) {
+                Mat levelImage = images.get(i);
+                Mat template = templates.get(i);
+                int maxX = levelImage.cols() - template.cols();
+                int maxY = levelImage.rows() - template.rows();
+                x = Math.min(x * 2, maxX);
+                y = Math.min(y * 2, maxY);
+                windowX = Math.max(0, x - REFINE_RADIUS);
+                windowY = Math.max(0, y - REFINE_RADIUS);
+                int windowRight = Math.min(maxX, x + REFINE_RADIUS);
+                int windowBottom = Math.min(maxY, y + REFINE_RADIUS);
+                Mat window = levelImage.submat(new Rect(windowX, windowY,
+                        windowRight - windowX + template.cols(),
+                        windowBottom - windowY + template.rows()));
+                result.release();
+                result = new Mat();
+                Imgproc.matchTemplate(window, template, result, Imgproc.TM_CCOEFF_NORMED);
+                window.release();
+                mmr = Core.minMaxLoc(result);
+                x = windowX + (int) mmr.maxLoc.x;
+                y = windowY + (int) mmr.maxLoc.y;
+            }
+
+            // result now holds the full resolution scores around (x, y), with its origin at
+            // (windowX, windowY).
+            int peakX = x - windowX;
+            int peakY = y - windowY;
+            double subX = x + peakOffset(result, peakX, peakY, 1, 0);
+            double subY = y + peakOffset(result, peakX, peakY, 0, 1);
+            result.release();
+
+            return new TemplateMatch(offsetX + subX, offsetY + subY, getTemplateWidth(),
+                    getTemplateHeight(), mmr.maxVal);
+        }
+        finally {
+            for (Mat mat : images) {
+                mat.release();
+            }
+            if (region != image) {
+                region.release();
+            }
+        }
+    }
+
+    /**
+     * Release the template pyramid. The matcher can't be used afterwards.
+     */
+    public void release() {
+        for (Mat mat : templates) {
+            mat.release();
+        }
+        templates.clear();
+    }
+
+    /**
+     * Fit a parabola through the peak and its two neighbors along one axis and return the offset
+     * of the parabola's vertex from the peak, in the range [-0.5, 0.5]. Returns 0 if the peak is
+     * on the edge of the result or the neighbors are flat.
+     */
+    private static double peakOffset(Mat result, int x, int y, int dx, int dy) {
+        if (x - dx < 0 || y - dy < 0 || x + dx >= result.cols() || y + dy >= result.rows()) {
+            return 0;
+        }
+        double before = result.get(y - dy, x - dx)[0];
+        double center = result.get(y, x)[0];
+        double after = result.get(y + dy, x + dx)[0];
+        double denominator = before - 2 * center + after;
+        if (denominator >= 0) {
+            return 0;
+        }
+        double offset = (before - after) / (2 * denominator);
+        return Math.max(-0.5, Math.min(0.5, offset));
+    }
+
+    private static boolean fits(Mat image, Mat template) {
+        return image.cols() >= template.cols() && image.rows() >= template.rows();
+    }
+
+    /**
+     * Return a new grayscale copy of the given Mat.
+     */
+    private static Mat toGray(Mat mat) {
+        Mat gray = new Mat();
+        if (mat.channels() == 1) {
+            mat.copyTo(gray);
+        }
+        else if (mat.channels() == 4) {
+            Imgproc.cvtColor(mat, gray, Imgproc.COLOR_BGRA2GRAY);
+        }
+        else {
+            Imgproc.cvtColor(mat, gray, Imgproc.COLOR_BGR2GRAY);
+        }
+        return gray;
+    }
+}
@@ -5,6 +5,7 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -14,6 +15,8 @@ import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
 import org.opencv.core.Scalar;
+import org.openpnp.util.LatencyHistogram;
+import org.openpnp.util.MatPool;
 import org.openpnp.vision.pipeline.CvStage.Result;
 import org.openpnp.vision.pipeline.stages.BlurGaussian;
 import org.simpleframework.xml.ElementList;
@@ -62,6 +65,14 @@ public class CvPipeline {
     private Object workingModel;
     
     private long totalProcessingTimeNs;
+
+    /**
+     * Processing times of every run since the pipeline was created or the histograms were reset,
+     * by stage name. Guarded by itself, since it's read from other threads while it's recorded.
+     */
+    private final Map<String, LatencyHistogram> stageHistograms = new LinkedHashMap<>();
+
+    private LatencyHistogram totalHistogram = new LatencyHistogram();
     
     public CvPipeline() {
         
@@ -191,6 +202,40 @@ public class CvPipeline {
       this.totalProcessingTimeNs = totalProcessingTimeNs;
     }
 
+    /**
+     * Get the histograms of each stage's processing time across all runs since the pipeline was
+     * created or resetHistograms was called, by stage name in the order the stages were first
+     * run. The map and the histograms are a snapshot, so they are safe to read while the
+     * pipeline keeps running.
+     * 
+     * @return
+     */
+    public Map<String, LatencyHistogram> getStageHistograms() {
+        Map<String, LatencyHistogram> snapshot = new LinkedHashMap<>();
+        synchronized (stageHistograms) {
+            for (Map.Entry<String, LatencyHistogram> entry : stageHistograms.entrySet()) {
+                snapshot.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Get the histogram of the total processing time of each run.
+     * 
+     * @return
+     */
+    public LatencyHistogram getTotalHistogram() {
+        return totalHistogram;
+    }
+
+    public void resetHistograms() {
+        synchronized (stageHistograms) {
+            stageHistograms.clear();
+        }
+        totalHistogram.reset();
+    }
+
     public void process() {
 
         totalProcessingTimeNs = 0;
@@ -210,6 +255,12 @@ public class CvPipeline {
             }
             processingTimeNs = System.nanoTime() - processingTimeNs;
             totalProcessingTimeNs += processingTimeNs;
+            LatencyHistogram stageHistogram;
+            synchronized (stageHistograms) {
+                stageHistogram = stageHistograms.computeIfAbsent(stage.getName(),
+                        k -> new LatencyHistogram());
+            }
+            stageHistogram.record(processingTimeNs);
 
             Mat image = null;
             Object model = null;
@@ -232,15 +283,26 @@ public class CvPipeline {
             // Replace the working image with the result image.
             // Clone the result image for storage.
             else {
+                // A stage may return the stored image of an earlier result, which the pipeline
+                // still owns, so take a copy rather than releasing it with the working image.
+                for (Result stored : results.values()) {
+                    if (stored.image == image) {
+                        image = MatPool.get().copyOf(image);
+                        break;
+                    }
+                }
                 if (workingImage != null && workingImage != image) {
-                    workingImage.release();
+                    MatPool.get().release(workingImage);
                 }
                 workingImage = image;
+                // Result images are handed out, to the pipeline editor among others, and may be
+                // used after release(), so they are not taken from the pool.
                 image = image.clone();
             }
 
             results.put(stage, new Result(image, model, processingTimeNs));
         }
+        totalHistogram.record(totalProcessingTimeNs);
     }
 
     /**
@@ -249,9 +311,9 @@ public class CvPipeline {
      * resources from OpenCV.
      */
     public void release() {
-        if (workingImage != null) {
-            workingImage.release();
-        }
+        // Only the working image is the pipeline's alone, so only it goes back to the pool.
+        MatPool.get().release(workingImage);
+        workingImage = null;
         for (Result result : results.values()) {
             if (result.image != null) {
                 result.image.release();
@@ -0,0 +1,185 @@
+package org.openpnp.vision.pipeline;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+
+import org.opencv.core.Mat;
+import org.opencv.highgui.Highgui;
+import org.openpnp.util.LatencyHistogram;
+import org.openpnp.vision.pipeline.stages.ImageCapture;
+
+/**
+ * Runs a saved pipeline headless against a directory of captured images and reports how long
+ * each stage takes. Every ImageCapture stage in the pipeline is replaced with one that returns
+ * the next image from the directory, so pipelines can be tuned without a machine or camera.
+ * Stages that need the camera or other pipeline properties will fail, and are reported as such.
+ *
+ * Usage: PipelineBenchmark &lt;pipeline xml&gt; &lt;image directory&gt; [iterations]
+ * [warmup iterations]
+ */
+public class PipelineBenchmark {
+    /**
+     * Stands in for ImageCapture, returning a copy of the current image of the benchmark.
+     */
+    private static class FileImageCapture extends CvStage {
+        private Mat image;
+
+        @Override
+        public Result process(CvPipeline pipeline) throws Exception {
+            return new Result(image.clone());
+        }
+    }
+
+    private final CvPipeline pipeline;
+
+    private final List<Mat> images = new ArrayList<>();
+
+    private final List<FileImageCapture> captures = new ArrayList<>();
+
+    private final List<String> failedStages = new ArrayList<>();
+
+    /**
+     * @param pipeline The pipeline to benchmark. Its ImageCapture stages are replaced, so pass a
+     *        copy if the pipeline is still in use.
+     * @param images The images to cycle through, one per run.
+     */
+    public PipelineBenchmark(CvPipeline pipeline, List<Mat> images) {
+        if (images.isEmpty()) {
+            throw new IllegalArgumentException("At least one image is required.");
+        }
+        this.pipeline = pipeline;
+        this.images.addAll(images);
+        List<CvStage> stages = new ArrayList<>(pipeline.getStages());
+        for (int i = 0; i < stages.size(); i++) {
+            CvStage stage = stages.get(i);
+            if (stage instanceof ImageCapture) {
+                FileImageCapture capture = new FileImageCapture();
+                capture.setEnabled(stage.isEnabled());
+                pipeline.remove(stage);
+                pipeline.insert(stage.getName(), capture, i);
+                captures.add(capture);
+            }
+        }
+    }
+
+    /**
+     * Run the pipeline warmup times without recording, then iterations times recording the
+     * processing times, cycling through the images.
+     */
+    public void run(int iterations, int warmup) {
+        for (int i = 0; i < warmup; i++) {
+            process(i);
+        }
+        pipeline.resetHistograms();
+        failedStages.clear();
+        for (int i = 0; i < iterations; i++) {
+            process(i);
+            if (i == iterations - 1) {
+                for (CvStage stage : pipeline.getStages()) {
+                    CvStage.Result result = pipeline.getResult(stage);
+                    if (stage.isEnabled() && result != null
+                            && result.model instanceof Exception) {
+                        failedStages.add(stage.getName() + ": "
+                                + ((Exception) result.model).getMessage());
+                    }
+                }
+            }
+        }
+        pipeline.release();
+    }
+
+    private void process(int i) {
+        Mat image = images.get(i % images.size());
+        for (FileImageCapture capture : captures) {
+            capture.image = image;
+        }
+        pipeline.process();
+    }
+
+    public CvPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Stages that returned an Exception in the last recorded run, with the message.
+     */
+    public List<String> getFailedStages() {
+        return failedStages;
+    }
+
+    /**
+     * A table with a line per stage and a line for the total, giving count, p50, p95, p99 and max
+     * in milliseconds.
+     */
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "%-24s %-24s %8s %10s %10s %10s %10s%n", "Stage",
+                "Type", "Count", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Entry<String, LatencyHistogram> entry : pipeline.getStageHistograms().entrySet()) {
+            CvStage stage = pipeline.getStage(entry.getKey());
+            String type = stage == null ? ""
+                    : stage instanceof FileImageCapture ? "ImageCapture (file)"
+                            : stage.getClass().getSimpleName();
+            appendLine(sb, entry.getKey(), type, entry.getValue());
+        }
+        appendLine(sb, "Total", "", pipeline.getTotalHistogram());
+        for (String failure : failedStages) {
+            sb.append(String.format("Failed %s%n", failure));
+        }
+        return sb.toString();
+    }
+
+    private static void appendLine(StringBuilder sb, String name, String type,
+            LatencyHistogram h) {
+        sb.append(String.format(Locale.US, "%-24s %-24s %8d %10.3f %10.3f %10.3f %10.3f%n", name,
+                type, h.getCount(), h.getPercentile(50) / 1e6, h.getPercentile(95) / 1e6,
+                h.getPercentile(99) / 1e6, h.getMax() / 1e6));
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: PipelineBenchmark <pipeline xml> <image directory> "
+                    + "[iterations] [warmup]");
+            System.exit(1);
+        }
+        String xml = new String(Files.readAllBytes(new File(args[0]).toPath()),
+                StandardCharsets.UTF_8);
+        CvPipeline pipeline = new CvPipeline(xml);
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        File[] files = new File(args[1]).listFiles();
+        if (files == null) {
+            System.err.println("Not a directory: " + args[1]);
+            System.exit(1);
+        }
+        Arrays.sort(files);
+        List<Mat> images = new ArrayList<>();
+        for (File file : files) {
+            Mat image = Highgui.imread(file.getAbsolutePath());
+            if (!image.empty()) {
+                images.add(image);
+            }
+        }
+        if (images.isEmpty()) {
+            System.err.println("No images found in " + args[1]);
+            System.exit(1);
+        }
+
+        PipelineBenchmark benchmark = new PipelineBenchmark(pipeline, images);
+        benchmark.run(iterations, warmup);
+        System.out.println(String.format("%d images, %d iterations after %d warmup", images.size(),
+                iterations, warmup));
+        System.out.print(benchmark.getReport());
+        for (Mat image : images) {
+            image.release();
+        }
+        System.exit(0);
+    }
+}
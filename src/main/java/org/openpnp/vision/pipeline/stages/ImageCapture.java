@@ -12,7 +12,7 @@ import org.openpnp.vision.pipeline.Property;
 
 @Stage(
   category   ="Image Processing", 
-  description="Capture an image from the pipeline camera.")
+  description="Capture an image from the pipeline camera, or use the image already captured for the pipeline, if there is one.")
 
 public class ImageCapture extends CvStage {
     @Attribute
@@ -27,8 +27,17 @@ public class ImageCapture extends CvStage {
         this.settleFirst = settleFirst;
     }
 
+    /**
+     * If the pipeline has an "image" property, that image was captured for the pipeline ahead of
+     * time, so it is used rather than capturing another. ReferenceBottomVision does this when it
+     * captures on one thread and processes on another.
+     */
     @Override
     public Result process(CvPipeline pipeline) throws Exception {
+        Object captured = pipeline.getProperty("image");
+        if (captured instanceof BufferedImage) {
+            return new Result(OpenCvUtils.toMat((BufferedImage) captured));
+        }
         Camera camera = (Camera) pipeline.getProperty("camera");
         if (camera == null) {
             throw new Exception("No Camera set on pipeline.");
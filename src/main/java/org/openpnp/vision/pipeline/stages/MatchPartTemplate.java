@@ -27,11 +27,13 @@ import java.util.List;
 
 import org.opencv.core.Core;
 import org.opencv.core.Core.MinMaxLocResult;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Rect;
 import org.opencv.core.RotatedRect;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
+import org.openpnp.util.MatPool;
 import org.openpnp.util.OpenCvUtils;
 import org.openpnp.vision.pipeline.CvPipeline;
 import org.openpnp.vision.pipeline.CvStage;
@@ -124,8 +126,7 @@ public class MatchPartTemplate extends CvStage {
 
             model = (List<?>) pipeline.getResult(modelStageName.toString()).model;
         }
-        Mat originalImage = pipeline.getWorkingImage()
-                                    .clone();
+        Mat originalImage = pipeline.getWorkingImage();
 
         if (model == null || originalImage == null) {
             if (log) {
@@ -145,8 +146,14 @@ public class MatchPartTemplate extends CvStage {
             return null;
         }
 
-        Mat timage = template.image.clone();
-        Result result = new Result(originalImage);
+        // The temporary images all go back to the pool when the scope closes.
+        try (MatPool.Scope scope = MatPool.get().scope()) {
+            return match(scope, model, originalImage, template);
+        }
+    }
+
+    private Result match(MatPool.Scope scope, Object model, Mat originalImage, Result template) {
+        Mat timage = scope.copyOf(template.image);
         RotatedRect rrect = null;
 
         if (model instanceof RotatedRect) {
@@ -186,7 +193,7 @@ public class MatchPartTemplate extends CvStage {
         // cropped image will be square
         Size sz = new Size(msz, msz);
         // create the new image matrix
-        Mat image = new Mat(sz, originalImage.type());
+        Mat image = scope.acquire((int) sz.height, (int) sz.width, originalImage.type());
         // crop the image
         Imgproc.getRectSubPix(originalImage, sz, rrect.center, image);
         // adjust rrect to the new center
@@ -220,7 +227,9 @@ public class MatchPartTemplate extends CvStage {
             // first rotation already done
             if (i > 1) {
                 // fast rotate/flip the template 90deg
-                Core.flip(timage.t(), timage, 1);
+                Mat transposed = timage.t();
+                Core.flip(transposed, timage, 1);
+                transposed.release();
                 // reset rect center to the center of the image
                 trect.center.x = timage.size().width / 2.0;
                 trect.center.y = timage.size().height / 2.0;
@@ -232,6 +241,7 @@ public class MatchPartTemplate extends CvStage {
                  */
             }
             Result mresult = matchTemplate(image, timage);
+            MatPool.get().release(mresult.image);
             List<TemplateMatch> matches = (List<TemplateMatch>) mresult.model;
             double rotScore = 0;
             // get the best of local matches
@@ -271,7 +281,8 @@ public class MatchPartTemplate extends CvStage {
             Logger.info("NO MATCH FOUND!!!!!!!");
             return null;
         }
-        result = new Result(originalImage, new ArrayList<RotatedRect>());
+        // The working image is unchanged, so the pipeline keeps using it.
+        Result result = new Result(null, new ArrayList<RotatedRect>());
 
         ((List<RotatedRect>) result.model).add(orect);
         if (log) {
@@ -282,7 +293,8 @@ public class MatchPartTemplate extends CvStage {
 
     Result matchTemplate(Mat mat, Mat template) {
 
-        Mat result = new Mat();
+        Mat result = MatPool.get().acquire(Math.max(1, mat.rows() - template.rows() + 1),
+                Math.max(1, mat.cols() - template.cols() + 1), CvType.CV_32FC1);
 
         // TODO: externalize type
         Imgproc.matchTemplate(mat, template, result, Imgproc.TM_CCOEFF_NORMED);
@@ -0,0 +1,134 @@
+package org.openpnp.vision.pipeline.stages;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.openpnp.vision.PyramidTemplateMatcher;
+import org.openpnp.vision.pipeline.CvPipeline;
+import org.openpnp.vision.pipeline.CvStage;
+import org.openpnp.vision.pipeline.CvStage.Result.TemplateMatch;
+import org.openpnp.vision.pipeline.Property;
+import org.openpnp.vision.pipeline.Stage;
+import org.simpleframework.xml.Attribute;
+
+/**
+ * Finds the single best match of a template image using coarse to fine pyramid matching with
+ * sub-pixel refinement. Much faster than MatchTemplate on large images but only reports one
+ * match. The template's pyramid is kept between runs for as long as the template image is
+ * unchanged.
+ */
+@Stage(category = "Image Processing",
+        description = "Fast single best template match using an image pyramid, with sub-pixel accuracy.")
+
+public class MatchTemplatePyramid extends CvStage {
+    /**
+     * Name of a prior stage to load the template image from.
+     */
+    @Attribute
+    @Property(description = "Name of a prior stage to load the template image from.")
+    private String templateStageName;
+
+    /**
+     * If the best match scores below this then no match is reported.
+     */
+    @Attribute(required = false)
+    @Property(description = "If the best match scores below this, in the interval [-1,1], no match is reported. Default is 0.7.")
+    private double threshold = 0.7;
+
+    @Attribute(required = false)
+    @Property(description = "Maximum number of times the images are halved before the full search. Default is 4.")
+    private int maxLevels = 4;
+
+    @Attribute(required = false)
+    @Property(description = "Smallest size, in pixels, the template may be reduced to. Default is 16.")
+    private int minTemplateSize = 16;
+
+    private PyramidTemplateMatcher matcher;
+
+    private byte[] matcherTemplateData;
+
+    private int[] matcherSettings;
+
+    public String getTemplateStageName() {
+        return templateStageName;
+    }
+
+    public void setTemplateStageName(String templateStageName) {
+        this.templateStageName = templateStageName;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getMaxLevels() {
+        return maxLevels;
+    }
+
+    public void setMaxLevels(int maxLevels) {
+        this.maxLevels = maxLevels;
+    }
+
+    public int getMinTemplateSize() {
+        return minTemplateSize;
+    }
+
+    public void setMinTemplateSize(int minTemplateSize) {
+        this.minTemplateSize = minTemplateSize;
+    }
+
+    @Override
+    public Result process(CvPipeline pipeline) throws Exception {
+        if (templateStageName == null) {
+            return null;
+        }
+
+        Mat mat = pipeline.getWorkingImage();
+        Mat template = pipeline.getResult(templateStageName).image;
+
+        TemplateMatch match = getMatcher(template).match(mat);
+
+        List<TemplateMatch> matches = new ArrayList<>();
+        if (match != null && match.score >= threshold) {
+            matches.add(match);
+        }
+        return new Result(null, matches);
+    }
+
+    /**
+     * Templates usually come from a stage that loads or creates a new Mat on every run, so the
+     * cached matcher is reused by comparing the template's contents rather than its identity.
+     * This is cheap compared to rebuilding the pyramid.
+     */
+    private PyramidTemplateMatcher getMatcher(Mat template) {
+        int[] settings = new int[] {template.cols(), template.rows(), template.type(), maxLevels,
+                minTemplateSize};
+        byte[] data = null;
+        // Only 8 bit images can be read into a byte array, anything else is never cached.
+        if (template.depth() == CvType.CV_8U) {
+            data = new byte[(int) (template.total() * template.elemSize())];
+            Mat continuous = template.isContinuous() ? template : template.clone();
+            continuous.get(0, 0, data);
+            if (continuous != template) {
+                continuous.release();
+            }
+        }
+        if (matcher == null || data == null || !Arrays.equals(settings, matcherSettings)
+                || !Arrays.equals(data, matcherTemplateData)) {
+            if (matcher != null) {
+                matcher.release();
+            }
+            matcher = new PyramidTemplateMatcher(template, minTemplateSize, maxLevels);
+            matcherTemplateData = data;
+            matcherSettings = settings;
+        }
+        return matcher;
+    }
+}
@@ -49,6 +49,7 @@ import org.openpnp.vision.pipeline.stages.MaskPolygon;
 import org.openpnp.vision.pipeline.stages.MaskRectangle;
 import org.openpnp.vision.pipeline.stages.MatchPartTemplate;
 import org.openpnp.vision.pipeline.stages.MatchTemplate;
+import org.openpnp.vision.pipeline.stages.MatchTemplatePyramid;
 import org.openpnp.vision.pipeline.stages.MinAreaRect;
 import org.openpnp.vision.pipeline.stages.MinAreaRectContours;
 import org.openpnp.vision.pipeline.stages.Normalize;
@@ -113,6 +114,7 @@ public class CvPipelineEditor extends JPanel {
         registerStageClass(MaskPolygon.class);
         registerStageClass(MaskRectangle.class);
         registerStageClass(MatchTemplate.class);
+        registerStageClass(MatchTemplatePyramid.class);
         registerStageClass(MatchPartTemplate.class);
         registerStageClass(MinAreaRect.class);
         registerStageClass(MinAreaRectContours.class);
@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.model.Board;
+import org.openpnp.model.Board.Side;
+import org.openpnp.model.BoardLocation;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.model.Placement;
+import org.openpnp.util.BoardTransform;
+import org.openpnp.util.Utils2D;
+
+public class BoardTransformTest {
+    /**
+     * Checks the cached transform against the Location based chain for random boards and
+     * placements on both sides, including placements in other units than the board.
+     */
+    @Test
+    public void testMatchesLocationChain() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            BoardLocation boardLocation = randomBoardLocation(random);
+            Location placement = randomLocation(random,
+                    random.nextBoolean() ? LengthUnit.Millimeters : LengthUnit.Inches);
+            Location expected = Utils2D.calculateBoardPlacementLocation(
+                    boardLocation.getLocation(), boardLocation.getSide(),
+                    boardLocation.getBoard().getDimensions().getX(), placement);
+            Location actual = Utils2D.calculateBoardPlacementLocation(boardLocation, placement);
+            assertEquals(expected, actual);
+
+            Location expectedInverse = Utils2D.calculateBoardPlacementLocationInverse(
+                    boardLocation.getLocation(), boardLocation.getSide(),
+                    boardLocation.getBoard().getDimensions().getX(), actual);
+            Location actualInverse =
+                    Utils2D.calculateBoardPlacementLocationInverse(boardLocation, actual);
+            assertEquals(expectedInverse, actualInverse);
+        }
+    }
+
+    @Test
+    public void testBatch() {
+        Random random = new Random(2);
+        BoardLocation boardLocation = randomBoardLocation(random);
+        List<Placement> placements = randomPlacements(random, 100);
+        double[] points = boardLocation.getTransform(LengthUnit.Millimeters).transform(placements);
+        for (int i = 0; i < placements.size(); i++) {
+            Location expected = Utils2D.calculateBoardPlacementLocation(boardLocation,
+                    placements.get(i).getLocation());
+            Assert.assertEquals(expected.getX(), points[i * 3], 1e-9);
+            Assert.assertEquals(expected.getY(), points[i * 3 + 1], 1e-9);
+            Assert.assertEquals(expected.getRotation(), points[i * 3 + 2], 1e-9);
+        }
+    }
+
+    @Test
+    public void testInvalidation() {
+        Random random = new Random(3);
+        BoardLocation boardLocation = randomBoardLocation(random);
+        BoardTransform transform = boardLocation.getTransform(LengthUnit.Millimeters);
+        Assert.assertSame(transform, boardLocation.getTransform(LengthUnit.Millimeters));
+
+        boardLocation.setLocation(randomLocation(random, LengthUnit.Millimeters));
+        Assert.assertNotSame(transform, boardLocation.getTransform(LengthUnit.Millimeters));
+
+        transform = boardLocation.getTransform(LengthUnit.Millimeters);
+        boardLocation.setSide(boardLocation.getSide() == Side.Top ? Side.Bottom : Side.Top);
+        Assert.assertNotSame(transform, boardLocation.getTransform(LengthUnit.Millimeters));
+
+        transform = boardLocation.getTransform(LengthUnit.Millimeters);
+        boardLocation.getBoard()
+                .setDimensions(new Location(LengthUnit.Millimeters, 123, 45, 0, 0));
+        Assert.assertNotSame(transform, boardLocation.getTransform(LengthUnit.Millimeters));
+    }
+
+    /**
+     * Times the Location chain, the cached transform and the batch transform over the same
+     * placements and prints the results. Not an assertion, since timings vary by machine.
+     */
+    @Test
+    public void testTimings() {
+        Random random = new Random(4);
+        BoardLocation boardLocation = randomBoardLocation(random);
+        List<Placement> placements = randomPlacements(random, 1000);
+        int rounds = 200;
+        double sink = 0;
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            long t = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (Placement placement : placements) {
+                    sink += Utils2D.calculateBoardPlacementLocation(boardLocation.getLocation(),
+                            boardLocation.getSide(),
+                            boardLocation.getBoard().getDimensions().getX(),
+                            placement.getLocation()).getX();
+                }
+            }
+            long chain = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (Placement placement : placements) {
+                    sink += Utils2D.calculateBoardPlacementLocation(boardLocation,
+                            placement.getLocation()).getX();
+                }
+            }
+            long cached = System.nanoTime() - t;
+
+            t = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                sink += boardLocation.getTransform(LengthUnit.Millimeters)
+                        .transform(placements)[0];
+            }
+            long batch = System.nanoTime() - t;
+
+            if (warmup == 1) {
+                double n = rounds * placements.size();
+                System.out.println(String.format(
+                        "Location chain %.1f ns, cached transform %.1f ns, batch %.1f ns per placement (%f)",
+                        chain / n, cached / n, batch / n, sink));
+            }
+        }
+    }
+
+    private static void assertEquals(Location expected, Location actual) {
+        Assert.assertEquals(expected.getUnits(), actual.getUnits());
+        Assert.assertEquals(expected.getX(), actual.getX(), 1e-9);
+        Assert.assertEquals(expected.getY(), actual.getY(), 1e-9);
+        Assert.assertEquals(expected.getZ(), actual.getZ(), 1e-9);
+        Assert.assertEquals(expected.getRotation(), actual.getRotation(), 1e-9);
+    }
+
+    private static List<Placement> randomPlacements(Random random, int count) {
+        List<Placement> placements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Placement placement = new Placement("R" + i);
+            placement.setLocation(randomLocation(random, LengthUnit.Millimeters));
+            placements.add(placement);
+        }
+        return placements;
+    }
+
+    private static BoardLocation randomBoardLocation(Random random) {
+        Board board = new Board();
+        board.setDimensions(new Location(LengthUnit.Millimeters, random.nextDouble() * 200,
+                random.nextDouble() * 200, 0, 0));
+        BoardLocation bl = new BoardLocation(board);
+        bl.setLocation(randomLocation(random, LengthUnit.Millimeters));
+        bl.setSide(random.nextBoolean() ? Side.Bottom : Side.Top);
+        return bl;
+    }
+
+    private static Location randomLocation(Random random, LengthUnit units) {
+        return new Location(units, random.nextDouble() * 100, random.nextDouble() * 100,
+                random.nextDouble() * 10, random.nextDouble() * 720 - 360);
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.util.CoalescingWriter;
+
+import com.google.common.util.concurrent.FutureCallback;
+
+public class CoalescingWriterTest {
+    @Test
+    public void testCoalesceAndFlush() throws Exception {
+        CoalescingWriter writer = new CoalescingWriter("Test Writer");
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        List<String> notified = Collections.synchronizedList(new ArrayList<>());
+
+        // Hold the writer thread so the following writes queue up behind this one.
+        CountDownLatch release = new CountDownLatch(1);
+        writer.submit("block", () -> {
+            release.await();
+            return null;
+        });
+
+        Future<Void> first = writer.submit("a", () -> {
+            written.add("a1");
+            return null;
+        }, callback(notified, "first"));
+        Future<Void> second = writer.submit("a", () -> {
+            written.add("a2");
+            return null;
+        }, callback(notified, "second"));
+        writer.submit("b", () -> {
+            written.add("b1");
+            return null;
+        });
+        Assert.assertSame(first, second);
+
+        release.countDown();
+        writer.flush();
+
+        // Only the latest write for "a" ran, but both callers were told it completed.
+        Assert.assertEquals(2, written.size());
+        Assert.assertTrue(written.contains("a2"));
+        Assert.assertTrue(written.contains("b1"));
+        Assert.assertEquals(2, notified.size());
+        Assert.assertTrue(notified.contains("first"));
+        Assert.assertTrue(notified.contains("second"));
+        Assert.assertTrue(first.isDone());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        CoalescingWriter writer = new CoalescingWriter("Test Writer");
+        List<String> notified = Collections.synchronizedList(new ArrayList<>());
+        writer.submit("a", () -> {
+            throw new Exception("disk full");
+        }, callback(notified, "a"));
+        writer.flush();
+        Assert.assertEquals(Collections.singletonList("a failed: disk full"), notified);
+    }
+
+    private static FutureCallback<Void> callback(List<String> notified, String name) {
+        return new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                notified.add(name);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                notified.add(name + " failed: " + t.getMessage());
+            }
+        };
+    }
+}
@@ -0,0 +1,194 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Configuration.PackagesConfigurationHolder;
+import org.openpnp.model.Configuration.PartsConfigurationHolder;
+import org.openpnp.model.ConfigurationSnapshot;
+import org.openpnp.model.Footprint;
+import org.openpnp.model.Footprint.Pad;
+import org.openpnp.model.Length;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Package;
+import org.openpnp.model.Part;
+import org.simpleframework.xml.Serializer;
+
+public class ConfigurationSnapshotTest {
+    private static final int COUNT = 5000;
+
+    /**
+     * Builds a large parts and packages library, saves it, and checks that reading it back from a
+     * snapshot gives the same result as reading the XML. Timings for both are printed.
+     */
+    @Test
+    public void testSnapshotMatchesXml() throws Exception {
+        File workingDirectory = com.google.common.io.Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+
+        for (int i = 0; i < COUNT; i++) {
+            Package pkg = new Package("PKG-" + i);
+            pkg.setDescription(i % 2 == 0 ? null : "Package " + i);
+            Footprint footprint = pkg.getFootprint();
+            footprint.setBodyWidth(i * 0.1);
+            footprint.setBodyHeight(i * 0.2);
+            for (int j = 0; j < 4; j++) {
+                Pad pad = new Pad();
+                pad.setName("" + j);
+                pad.setX(j);
+                pad.setY(-j);
+                pad.setWidth(0.5);
+                pad.setHeight(0.6);
+                pad.setRotation(90 * j);
+                pad.setRoundness(j * 10);
+                footprint.addPad(pad);
+            }
+            Configuration.get().addPackage(pkg);
+
+            Part part = new Part("PART-" + i);
+            part.setName("Part " + i);
+            part.setHeight(new Length(i * 0.01, LengthUnit.Millimeters));
+            part.setSpeed(0.5);
+            part.setPackage(pkg);
+            Configuration.get().addPart(part);
+        }
+        Configuration.get().save();
+
+        File packagesFile = new File(workingDirectory, "packages.xml");
+        File partsFile = new File(workingDirectory, "parts.xml");
+        String packagesDigest = digest(packagesFile);
+        String partsDigest = digest(partsFile);
+
+        Assert.assertTrue(ConfigurationSnapshot.writePackages(packagesFile, packagesDigest,
+                Configuration.get().getPackages()));
+        Assert.assertTrue(ConfigurationSnapshot.writeParts(partsFile, partsDigest,
+                Configuration.get().getParts()));
+
+        Serializer serializer = Configuration.createSerializer();
+        long t = System.nanoTime();
+        serializer.read(PackagesConfigurationHolder.class, packagesFile);
+        serializer.read(PartsConfigurationHolder.class, partsFile);
+        long xmlTime = System.nanoTime() - t;
+
+        t = System.nanoTime();
+        List<Package> packages = ConfigurationSnapshot.readPackages(packagesFile, packagesDigest);
+        List<Part> parts = ConfigurationSnapshot.readParts(partsFile, partsDigest);
+        long snapshotTime = System.nanoTime() - t;
+
+        System.out.println(String.format("%d parts and packages: XML %d ms, snapshot %d ms", COUNT,
+                xmlTime / 1000000, snapshotTime / 1000000));
+
+        for (Package pkg : packages) {
+            Package expected = Configuration.get().getPackage(pkg.getId());
+            Assert.assertNotNull(expected);
+            Assert.assertEquals(expected.getDescription(), pkg.getDescription());
+            Assert.assertEquals(expected.getFootprint().getBodyWidth(),
+                    pkg.getFootprint().getBodyWidth(), 0);
+            Assert.assertEquals(expected.getFootprint().getPads().size(),
+                    pkg.getFootprint().getPads().size());
+            for (int j = 0; j < pkg.getFootprint().getPads().size(); j++) {
+                Pad expectedPad = expected.getFootprint().getPads().get(j);
+                Pad pad = pkg.getFootprint().getPads().get(j);
+                Assert.assertEquals(expectedPad.getName(), pad.getName());
+                Assert.assertEquals(expectedPad.getX(), pad.getX(), 0);
+                Assert.assertEquals(expectedPad.getRotation(), pad.getRotation(), 0);
+                Assert.assertEquals(expectedPad.getRoundness(), pad.getRoundness(), 0);
+            }
+        }
+        Assert.assertEquals(Configuration.get().getPackages().size(), packages.size());
+        for (Part part : parts) {
+            Part expected = Configuration.get().getPart(part.getId());
+            Assert.assertNotNull(expected);
+            Assert.assertEquals(expected.getName(), part.getName());
+            Assert.assertEquals(expected.getHeight(), part.getHeight());
+            Assert.assertEquals(expected.getSpeed(), part.getSpeed(), 0);
+        }
+        Assert.assertEquals(Configuration.get().getParts().size(), parts.size());
+
+        // A modified source invalidates the snapshot.
+        Files.write(partsFile.toPath(), "changed".getBytes(), StandardOpenOption.APPEND);
+        Assert.assertNull(ConfigurationSnapshot.readParts(partsFile, digest(partsFile)));
+    }
+
+    /**
+     * Loads the configuration with snapshots on and checks each way load() can go: from the
+     * snapshot without reading the XML while the XML's size and modification time are unchanged,
+     * from the snapshot after hashing when the XML was only touched, and from the XML when it is
+     * newer and its hash no longer matches.
+     */
+    @Test
+    public void testLoad() throws Exception {
+        String enabled = System.getProperty("configurationSnapshots");
+        System.setProperty("configurationSnapshots", "true");
+        try {
+            File workingDirectory = com.google.common.io.Files.createTempDir();
+            workingDirectory = new File(workingDirectory, ".openpnp");
+            Configuration.initialize(workingDirectory);
+            Configuration.get().load();
+            for (int i = 0; i < 10; i++) {
+                Part part = new Part("PART-" + i);
+                part.setName("Part " + i);
+                part.setHeight(new Length(i * 0.01, LengthUnit.Millimeters));
+                part.setPackage(Configuration.get().getPackages().get(0));
+                Configuration.get().addPart(part);
+            }
+            Configuration.get().save();
+            File partsFile = new File(workingDirectory, "parts.xml");
+            Assert.assertEquals(digest(partsFile), ConfigurationSnapshot.readDigest(partsFile));
+            byte[] xml = Files.readAllBytes(partsFile.toPath());
+            long lastModified = partsFile.lastModified();
+
+            // Unchanged size and modification time: the XML is not read, so it doesn't even have
+            // to be XML.
+            byte[] garbage = new byte[xml.length];
+            Arrays.fill(garbage, (byte) 'x');
+            Files.write(partsFile.toPath(), garbage);
+            Assert.assertTrue(partsFile.setLastModified(lastModified));
+            Configuration.initialize(workingDirectory);
+            Configuration.get().load();
+            Assert.assertEquals("Part 3", Configuration.get().getPart("PART-3").getName());
+
+            // Touched but unchanged: the hash still matches, so the snapshot is used and gets the
+            // new modification time.
+            Files.write(partsFile.toPath(), xml);
+            Assert.assertTrue(partsFile.setLastModified(lastModified + 10000));
+            Assert.assertNull(ConfigurationSnapshot.readDigest(partsFile));
+            Configuration.initialize(workingDirectory);
+            Configuration.get().load();
+            Assert.assertEquals("Part 3", Configuration.get().getPart("PART-3").getName());
+            Assert.assertEquals(digest(partsFile), ConfigurationSnapshot.readDigest(partsFile));
+
+            // Edited, and newer: the hash doesn't match, so the XML is parsed and the snapshot is
+            // replaced.
+            String edited = new String(xml, StandardCharsets.UTF_8).replace("Part 3", "Edited");
+            Files.write(partsFile.toPath(), edited.getBytes(StandardCharsets.UTF_8));
+            Assert.assertTrue(partsFile.setLastModified(lastModified + 20000));
+            Configuration.initialize(workingDirectory);
+            Configuration.get().load();
+            Assert.assertEquals("Edited", Configuration.get().getPart("PART-3").getName());
+            Assert.assertEquals(digest(partsFile), ConfigurationSnapshot.readDigest(partsFile));
+        }
+        finally {
+            if (enabled == null) {
+                System.clearProperty("configurationSnapshots");
+            }
+            else {
+                System.setProperty("configurationSnapshots", enabled);
+            }
+        }
+    }
+
+    private static String digest(File file) throws Exception {
+        return Hex.encodeHexString(
+                MessageDigest.getInstance("SHA-1").digest(Files.readAllBytes(file.toPath())));
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.gui.support.ContinuousJog;
+import org.openpnp.machine.reference.ReferenceHeadMountable;
+import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.machine.reference.driver.NullDriver;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.spi.Nozzle;
+
+import com.google.common.io.Files;
+
+public class ContinuousJogTest {
+    /**
+     * Jogs a nozzle in X at half of the driver's maximum feed rate and checks that every move is
+     * sent at speed 0.5 and covers one segment's worth of travel.
+     */
+    @Test
+    public void testJogSpeed() throws Exception {
+        JogDriver driver = jog(50);
+        List<Location> locations = driver.getLocations();
+        Assert.assertTrue(locations.size() > 2);
+        for (double speed : driver.getSpeeds()) {
+            Assert.assertEquals(0.5, speed, 1e-9);
+        }
+        for (int i = 1; i < locations.size(); i++) {
+            Location from = locations.get(i - 1);
+            Location to = locations.get(i);
+            // 50 mm per second for 50 ms.
+            Assert.assertEquals(2.5, to.getX() - from.getX(), 1e-6);
+            Assert.assertEquals(0, to.getY() - from.getY(), 1e-6);
+        }
+    }
+
+    /**
+     * Jogs a nozzle at twice the driver's maximum feed rate and checks that the jog is limited
+     * to the maximum feed rate, so each move only covers what the machine can do in a segment.
+     */
+    @Test
+    public void testJogLimit() throws Exception {
+        JogDriver driver = jog(200);
+        List<Location> locations = driver.getLocations();
+        Assert.assertTrue(locations.size() > 2);
+        for (double speed : driver.getSpeeds()) {
+            Assert.assertEquals(1, speed, 1e-9);
+        }
+        for (int i = 1; i < locations.size(); i++) {
+            // 100 mm per second for 50 ms.
+            Assert.assertEquals(5, locations.get(i).getX() - locations.get(i - 1).getX(), 1e-6);
+        }
+    }
+
+    /**
+     * Jogs the default nozzle in X at the given mm per second for half a second, with the driver's
+     * maximum feed rate at 100 mm per second, and returns the driver with the moves it got.
+     */
+    private static JogDriver jog(double velocity) throws Exception {
+        File workingDirectory = Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/machine.xml"),
+                new File(workingDirectory, "machine.xml"));
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/packages.xml"),
+                new File(workingDirectory, "packages.xml"));
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/parts.xml"),
+                new File(workingDirectory, "parts.xml"));
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+
+        ReferenceMachine machine = (ReferenceMachine) Configuration.get().getMachine();
+        JogDriver driver = new JogDriver();
+        // 6000 mm per minute is 100 mm per second.
+        driver.setFeedRateMmPerMinute(6000);
+        machine.setDriver(driver);
+        machine.setEnabled(true);
+        Nozzle nozzle = machine.getDefaultHead().getDefaultNozzle();
+
+        ContinuousJog jog = new ContinuousJog();
+        jog.setSegmentMilliseconds(50);
+        jog.start(nozzle, new Location(LengthUnit.Millimeters, velocity, 0, 0, 0), 0);
+        Thread.sleep(500);
+        jog.stop();
+        // Wait for the moves already sent to finish.
+        machine.submit(() -> null).get();
+        return driver;
+    }
+
+    public static class JogDriver extends NullDriver {
+        private final List<Location> locations = new ArrayList<>();
+
+        private final List<Double> speeds = new ArrayList<>();
+
+        @Override
+        public void moveTo(ReferenceHeadMountable hm, Location location, double speed)
+                throws Exception {
+            super.moveTo(hm, location, speed);
+            synchronized (this) {
+                locations.add(location.convertToUnits(LengthUnit.Millimeters));
+                speeds.add(speed);
+            }
+        }
+
+        public synchronized List<Location> getLocations() {
+            return new ArrayList<>(locations);
+        }
+
+        public synchronized List<Double> getSpeeds() {
+            return new ArrayList<>(speeds);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.ArrayList;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.util.LatencyHistogram;
+import org.openpnp.vision.pipeline.CvPipeline;
+import org.openpnp.vision.pipeline.CvStage;
+
+public class CvPipelineTest {
+    static {
+        nu.pattern.OpenCV.loadShared();
+        System.loadLibrary(org.opencv.core.Core.NATIVE_LIBRARY_NAME);
+    }
+
+    /**
+     * Runs a pipeline a few times and checks that each stage's time is recorded under its name,
+     * in stage order, and that the histograms handed out don't change with later runs.
+     */
+    @Test
+    public void testStageHistograms() throws Exception {
+        CvPipeline pipeline = new CvPipeline();
+        pipeline.add("slow", new SleepStage(20));
+        pipeline.add("fast", new SleepStage(0));
+        for (int i = 0; i < 3; i++) {
+            pipeline.process();
+        }
+
+        Map<String, LatencyHistogram> histograms = pipeline.getStageHistograms();
+        Assert.assertEquals("[slow, fast]", new ArrayList<>(histograms.keySet()).toString());
+        Assert.assertEquals(3, histograms.get("slow").getCount());
+        Assert.assertEquals(3, histograms.get("fast").getCount());
+        Assert.assertTrue(histograms.get("slow").getMin() >= 20000000L);
+        Assert.assertTrue(histograms.get("fast").getMax() < histograms.get("slow").getMin());
+        Assert.assertEquals(3, pipeline.getTotalHistogram().getCount());
+
+        pipeline.process();
+        Assert.assertEquals(3, histograms.get("slow").getCount());
+        Assert.assertEquals(4, pipeline.getStageHistograms().get("slow").getCount());
+
+        pipeline.resetHistograms();
+        Assert.assertTrue(pipeline.getStageHistograms().isEmpty());
+    }
+
+    public static class SleepStage extends CvStage {
+        private final long millis;
+
+        public SleepStage(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public Result process(CvPipeline pipeline) throws Exception {
+            Thread.sleep(millis);
+            return null;
+        }
+    }
+}
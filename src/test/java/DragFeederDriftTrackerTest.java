@@ -0,0 +1,85 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.machine.reference.feeder.DragFeederDriftTracker;
+import org.openpnp.machine.reference.feeder.ReferenceDragFeeder;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+
+import com.google.common.io.Files;
+
+public class DragFeederDriftTrackerTest {
+    /**
+     * Feeds a tape that drifts a steady amount each feed, with some measurement noise, and
+     * checks the tracker learns the drift and predicts the offsets of unchecked feeds.
+     */
+    @Test
+    public void testDrift() {
+        DragFeederDriftTracker tracker = new DragFeederDriftTracker();
+        Assert.assertNull(tracker.getEstimate());
+        Assert.assertTrue(Double.isInfinite(tracker.getUncertainty()));
+
+        for (int i = 0; i < 10; i++) {
+            tracker.measured(offset(i));
+        }
+        // Drift alternates 0.04 and 0.06 mm/feed in X because of the noise.
+        double uncertainty = tracker.getUncertainty();
+        Assert.assertTrue("Uncertainty " + uncertainty, uncertainty > 0.001);
+        Assert.assertTrue("Uncertainty " + uncertainty, uncertainty < 0.05);
+
+        Location first = tracker.estimated();
+        Location second = tracker.estimated();
+        Assert.assertEquals(2, tracker.getFeedsSinceMeasured());
+        Assert.assertEquals(0.05 * 10, first.getX(), 0.02);
+        Assert.assertEquals(-0.02 * 10, first.getY(), 0.001);
+        Assert.assertEquals(0.05 * 11, second.getX(), 0.02);
+        Assert.assertEquals(-0.02 * 11, second.getY(), 0.001);
+        // The further from the last measurement, the less certain the prediction.
+        Assert.assertTrue(tracker.getUncertainty() > uncertainty);
+
+        // A measurement after unchecked feeds is spread over all of them.
+        tracker.measured(offset(12));
+        Assert.assertEquals(0, tracker.getFeedsSinceMeasured());
+        Assert.assertEquals(0.05 * 13, tracker.estimated().getX(), 0.02);
+        Assert.assertEquals(13, tracker.getHistory().size());
+    }
+
+    /**
+     * Checks that a failed pick on the feeder throws the estimate away, so the next feeds are
+     * checked until the drift has been measured again.
+     */
+    @Test
+    public void testPickFailed() throws Exception {
+        Configuration.initialize(Files.createTempDir());
+        ReferenceDragFeeder feeder = new ReferenceDragFeeder();
+        DragFeederDriftTracker tracker = feeder.getDriftTracker();
+        for (int i = 0; i < 5; i++) {
+            tracker.measured(offset(i));
+        }
+        tracker.estimated();
+        Assert.assertNotNull(tracker.getEstimate());
+        Assert.assertFalse(Double.isInfinite(tracker.getUncertainty()));
+
+        feeder.pickFailed(null);
+        Assert.assertNull(tracker.getEstimate());
+        Assert.assertTrue(Double.isInfinite(tracker.getUncertainty()));
+        Assert.assertEquals(0, tracker.getFeedsSinceMeasured());
+
+        // It takes fresh measurements to trust the estimate again.
+        for (int i = 0; i < 3; i++) {
+            tracker.measured(offset(i));
+            Assert.assertTrue(Double.isInfinite(tracker.getUncertainty()));
+        }
+        tracker.measured(offset(3));
+        Assert.assertFalse(Double.isInfinite(tracker.getUncertainty()));
+    }
+
+    /**
+     * The offset after the given feed: 0.05 mm/feed in X with 0.005 mm of alternating noise and
+     * -0.02 mm/feed in Y.
+     */
+    private static Location offset(int feed) {
+        double noise = feed % 2 == 0 ? 0.005 : -0.005;
+        return new Location(LengthUnit.Millimeters, 0.05 * feed + noise, -0.02 * feed, 0, 0);
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.gui.importer.EagleBoardImporter;
+import org.openpnp.gui.importer.PartResolver;
+import org.openpnp.model.Board;
+import org.openpnp.model.Board.Side;
+import org.openpnp.model.BoardPad;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Location;
+import org.openpnp.model.Pad;
+import org.openpnp.model.Placement;
+
+import com.google.common.io.Files;
+
+public class EagleBoardImporterTest {
+    /**
+     * Imports the sample board, which has a single R0805 on the top, and checks its placement,
+     * its part and its two solder paste pads.
+     */
+    @Test
+    public void testImportSample() throws Exception {
+        File workingDirectory = Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+
+        PartResolver parts = new PartResolver();
+        Board board;
+        try (InputStream in = ClassLoader.getSystemResourceAsStream("samples/eagle/eagle.brd")) {
+            board = EagleBoardImporter.parseFile(in, new File("eagle.brd"), null, parts);
+        }
+        parts.apply(Configuration.get());
+
+        List<Placement> placements = board.getPlacements();
+        Assert.assertEquals(1, placements.size());
+        Placement placement = placements.get(0);
+        Assert.assertEquals("R1", placement.getId());
+        Assert.assertEquals(Side.Top, placement.getSide());
+        assertLocation(7.62, 7.62, 0, placement.getLocation());
+        Assert.assertEquals("rcl-R0805", placement.getPart().getId());
+        Assert.assertEquals("rcl-R0805", placement.getPart().getPackage().getId());
+
+        List<BoardPad> pads = board.getSolderPastePads();
+        Assert.assertEquals(2, pads.size());
+        assertPad("R1-1", 6.67, 7.62, pads.get(0));
+        assertPad("R1-2", 8.57, 7.62, pads.get(1));
+    }
+
+    private static void assertPad(String name, double x, double y, BoardPad boardPad) {
+        Assert.assertEquals(name, boardPad.getName());
+        Assert.assertEquals(Side.Top, boardPad.getSide());
+        assertLocation(x, y, 0, boardPad.getLocation());
+        // The pad's dx and dy, with no cream frame since the design rules give 0mil.
+        Pad.RoundRectangle pad = (Pad.RoundRectangle) boardPad.getPad();
+        Assert.assertEquals(1.3, pad.getHeight(), 1e-9);
+        Assert.assertEquals(1.5, pad.getWidth(), 1e-9);
+    }
+
+    private static void assertLocation(double x, double y, double rotation, Location location) {
+        Assert.assertEquals(x, location.getX(), 1e-6);
+        Assert.assertEquals(y, location.getY(), 1e-6);
+        Assert.assertEquals(rotation, location.getRotation(), 1e-6);
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.model.eagle.EagleBoardReader;
+import org.openpnp.model.eagle.EagleBoardReaderBenchmark;
+import org.openpnp.model.eagle.EagleLoader;
+import org.openpnp.model.eagle.xml.Element;
+
+public class EagleBoardReaderTest {
+    /**
+     * Reads the sample board and checks it against what EagleLoader makes of it.
+     */
+    @Test
+    public void testReadBoard() throws Exception {
+        EagleBoardReader reader = new EagleBoardReader(
+                ClassLoader.getSystemResourceAsStream("samples/eagle/eagle.brd"));
+        EagleLoader loader =
+                new EagleLoader(ClassLoader.getSystemResourceAsStream("samples/eagle/eagle.brd"));
+
+        Assert.assertTrue(reader.hasBoard());
+        Assert.assertEquals("20", reader.getLayerNumber("dimension"));
+        Assert.assertEquals("1", reader.getLayerNumber("Top"));
+        Assert.assertEquals("0mil", reader.getDesignRule("MLMINCREAMFRAME"));
+
+        List<Element> elements = loader.board.getElements().getElement();
+        Assert.assertEquals(elements.size(), reader.getElements().size());
+        for (int i = 0; i < elements.size(); i++) {
+            Element expected = elements.get(i);
+            EagleBoardReader.Element element = reader.getElements().get(i);
+            Assert.assertEquals(expected.getName(), element.getName());
+            Assert.assertEquals(expected.getLibrary(), element.getLibrary());
+            Assert.assertEquals(expected.getPackage(), element.getPackage());
+            Assert.assertEquals(expected.getRot(), element.getRot());
+            Assert.assertEquals(Double.parseDouble(expected.getX()), element.getX(), 1e-9);
+            Assert.assertEquals(Double.parseDouble(expected.getY()), element.getY(), 1e-9);
+        }
+
+        EagleBoardReader.Package pkg = reader.getPackage("RCL", "r0805");
+        Assert.assertEquals(2, pkg.getSmds().size());
+        EagleBoardReader.Smd smd = pkg.getSmds().get(0);
+        Assert.assertEquals("1", smd.getName());
+        Assert.assertEquals(-0.95, smd.getX(), 1e-9);
+        Assert.assertEquals(1.3, smd.getDx(), 1e-9);
+        Assert.assertEquals(1.5, smd.getDy(), 1e-9);
+        Assert.assertEquals("R0", smd.getRot());
+        Assert.assertTrue(smd.isCream());
+    }
+
+    /**
+     * Checks that the pads and polygons of a package are kept in the order they are in the file,
+     * and that the extent of the plain wires starts from 0 like the board does.
+     */
+    @Test
+    public void testPackageContents() throws Exception {
+        String brd = "<eagle><drawing><board>"
+                + "<plain><wire x1=\"-20\" y1=\"0\" x2=\"-5\" y2=\"0\" layer=\"20\"/></plain>"
+                + "<libraries><library name=\"L\"><packages><package name=\"P\">"
+                + "<smd name=\"1\" x=\"-1\" y=\"0\" dx=\"1\" dy=\"1\" layer=\"1\"/>"
+                + "<polygon layer=\"31\"><vertex x=\"1\" y=\"2\"/><vertex x=\"3\" y=\"-1\"/>"
+                + "</polygon>"
+                + "<smd name=\"2\" x=\"1\" y=\"0\" dx=\"1\" dy=\"1\" layer=\"1\" cream=\"no\"/>"
+                + "</package></packages></library></libraries>"
+                + "</board></drawing></eagle>";
+        EagleBoardReader reader = new EagleBoardReader(
+                new ByteArrayInputStream(brd.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(0, reader.getPlainMaxX("20"), 0);
+
+        List<Object> contents = reader.getPackage("l", "p").getContents();
+        Assert.assertEquals(3, contents.size());
+        Assert.assertEquals("1", ((EagleBoardReader.Smd) contents.get(0)).getName());
+        EagleBoardReader.Polygon polygon = (EagleBoardReader.Polygon) contents.get(1);
+        Assert.assertEquals("31", polygon.getLayer());
+        Assert.assertEquals(0, polygon.getXMin(), 0);
+        Assert.assertEquals(3, polygon.getXMax(), 0);
+        Assert.assertEquals(-1, polygon.getYMin(), 0);
+        Assert.assertEquals(2, polygon.getYMax(), 0);
+        Assert.assertEquals("2", ((EagleBoardReader.Smd) contents.get(2)).getName());
+        Assert.assertFalse(((EagleBoardReader.Smd) contents.get(2)).isCream());
+        Assert.assertEquals(2, reader.getPackage("L", "P").getSmds().size());
+        Assert.assertEquals(1, reader.getPackage("L", "P").getPolygons().size());
+    }
+
+    /**
+     * Reads the generated benchmark board, which has elements on both sides and signals after
+     * them.
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        byte[] brd = EagleBoardReaderBenchmark.generate(100);
+        EagleBoardReader reader = new EagleBoardReader(new ByteArrayInputStream(brd));
+        Assert.assertEquals(100, reader.getElements().size());
+        Assert.assertEquals("MR90", reader.getElements().get(1).getRot());
+        Assert.assertEquals(200, reader.getPlainMaxX(reader.getLayerNumber("Dimension")), 1e-9);
+
+        EagleBoardReaderBenchmark benchmark = new EagleBoardReaderBenchmark(brd);
+        Assert.assertEquals(2, benchmark.run(EagleBoardReaderBenchmark.READER, 2, 1).length);
+        Assert.assertEquals(2, benchmark.run(EagleBoardReaderBenchmark.LOADER, 2, 1).length);
+    }
+}
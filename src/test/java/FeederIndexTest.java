@@ -0,0 +1,114 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openpnp.machine.reference.feeder.ReferenceTubeFeeder;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.model.Part;
+import org.openpnp.spi.Feeder;
+import org.openpnp.spi.base.FeederIndex;
+
+import com.google.common.io.Files;
+
+public class FeederIndexTest {
+    private Part part;
+
+    private CountingFeeder f1;
+
+    private CountingFeeder f2;
+
+    private List<Feeder> feeders;
+
+    private FeederIndex index;
+
+    @Before
+    public void before() {
+        Configuration.initialize(Files.createTempDir());
+        part = new Part("P1");
+        f1 = new CountingFeeder(part, 10);
+        f2 = new CountingFeeder(part, 20);
+        feeders = new ArrayList<>(Arrays.asList(f1, f2));
+        index = new FeederIndex(feeders);
+    }
+
+    @Test
+    public void testEnabledFeeders() {
+        Assert.assertEquals(Arrays.asList(f1, f2), index.getEnabledFeeders(part));
+        f1.setEnabled(false);
+        Assert.assertEquals(Arrays.asList(f2), index.getEnabledFeeders(part));
+        f2.setPart(null);
+        Assert.assertTrue(index.getEnabledFeeders(part).isEmpty());
+    }
+
+    /**
+     * Checks that pick locations are only asked of the Feeder once, until it changes.
+     */
+    @Test
+    public void testPickLocationCache() throws Exception {
+        index.getEnabledFeeders(part);
+        Assert.assertEquals(10, index.getPickLocation(f1).getX(), 0);
+        Assert.assertEquals(10, index.getPickLocation(f1).getX(), 0);
+        Assert.assertEquals(20, index.getPickLocation(f2).getX(), 0);
+        Assert.assertEquals(1, f1.pickLocationCount);
+        Assert.assertEquals(1, f2.pickLocationCount);
+
+        f1.setLocation(new Location(LengthUnit.Millimeters, 30, 0, 0, 0));
+        Assert.assertEquals(30, index.getPickLocation(f1).getX(), 0);
+        Assert.assertEquals(2, f1.pickLocationCount);
+        Assert.assertEquals(20, index.getPickLocation(f2).getX(), 0);
+        Assert.assertEquals(1, f2.pickLocationCount);
+    }
+
+    /**
+     * Checks that the index stops listening to Feeders once they are removed, whether it's told
+     * or finds out when it rebuilds.
+     */
+    @Test
+    public void testRemove() {
+        index.getEnabledFeeders(part);
+        Assert.assertEquals(1, f1.getListenerCount());
+        Assert.assertEquals(1, f2.getListenerCount());
+
+        feeders.remove(f1);
+        index.remove(f1);
+        Assert.assertEquals(0, f1.getListenerCount());
+        Assert.assertEquals(Arrays.asList(f2), index.getEnabledFeeders(part));
+
+        feeders.remove(f2);
+        Assert.assertTrue(index.getEnabledFeeders(part).isEmpty());
+        Assert.assertEquals(0, f2.getListenerCount());
+
+        // Rebuilding never registers twice.
+        feeders.add(f1);
+        index.invalidate();
+        index.getEnabledFeeders(part);
+        index.invalidate();
+        index.getEnabledFeeders(part);
+        Assert.assertEquals(1, f1.getListenerCount());
+    }
+
+    public static class CountingFeeder extends ReferenceTubeFeeder {
+        int pickLocationCount;
+
+        public CountingFeeder(Part part, double x) {
+            setPart(part);
+            setEnabled(true);
+            setLocation(new Location(LengthUnit.Millimeters, x, 0, 0, 0));
+        }
+
+        @Override
+        public Location getPickLocation() throws Exception {
+            pickLocationCount++;
+            return super.getPickLocation();
+        }
+
+        int getListenerCount() {
+            return propertyChangeSupport.getPropertyChangeListeners().length;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.gui.importer.ImportTask;
+import org.openpnp.gui.importer.PartResolver;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Part;
+import org.openpnp.model.Placement;
+
+import com.google.common.io.Files;
+
+public class ImportTaskTest {
+    /**
+     * Parses two files at once, resolving the same parts from both, and checks that the parts
+     * are created once each, in a single change to the configuration.
+     */
+    @Test
+    public void testResolveParts() throws Exception {
+        File workingDirectory = Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+        Configuration cfg = Configuration.get();
+        int partCount = cfg.getParts().size();
+        AtomicInteger partChanges = new AtomicInteger();
+        cfg.addPropertyChangeListener("parts", e -> partChanges.incrementAndGet());
+
+        File top = createFile(workingDirectory, "top.txt", "T", 500);
+        File bottom = createFile(workingDirectory, "bottom.txt", "B", 500);
+
+        PartResolver parts = new PartResolver();
+        ImportTask task = new ImportTask();
+        Future<List<Placement>> topPlacements = task.add(top, in -> parse(in, parts));
+        Future<List<Placement>> bottomPlacements = task.add(bottom, in -> parse(in, parts));
+        task.start();
+        Assert.assertTrue(task.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, task.getProgress(), 1e-9);
+        parts.apply(cfg);
+
+        Assert.assertEquals(1, partChanges.get());
+        Assert.assertEquals(partCount + 10, cfg.getParts().size());
+        List<Placement> placements = new ArrayList<>(topPlacements.get());
+        placements.addAll(bottomPlacements.get());
+        Assert.assertEquals(1000, placements.size());
+        for (Placement placement : placements) {
+            Part part = placement.getPart();
+            Assert.assertNotNull(part);
+            Assert.assertSame(cfg.getPart(part.getId()), part);
+            Assert.assertSame(cfg.getPackage(part.getId().substring(0, 4)), part.getPackage());
+        }
+    }
+
+    /**
+     * Cancels a parser that is in the middle of its file and checks that its next read fails.
+     */
+    @Test
+    public void testCancel() throws Exception {
+        File file = createFile(Files.createTempDir(), "slow.txt", "R", 1000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        AtomicReference<Exception> error = new AtomicReference<>();
+
+        ImportTask task = new ImportTask();
+        Future<Integer> result = task.add(file, in -> {
+            try {
+                in.read();
+                started.countDown();
+                while (true) {
+                    Thread.sleep(10);
+                    in.read();
+                }
+            }
+            catch (Exception e) {
+                error.set(e);
+                throw e;
+            }
+            finally {
+                finished.countDown();
+            }
+        });
+        task.start();
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        task.cancel();
+        Assert.assertTrue(task.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(finished.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(task.isCancelled());
+        Assert.assertTrue(result.isCancelled());
+        Assert.assertTrue(error.get() instanceof InterruptedIOException
+                || error.get() instanceof InterruptedException);
+    }
+
+    /**
+     * Writes lines of a placement name, a package and a value, with ten parts in all over five
+     * packages.
+     */
+    private static File createFile(File directory, String name, String prefix, int lines)
+            throws Exception {
+        directory.mkdirs();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            sb.append(prefix).append(i).append(" PKG").append(i % 5).append(' ')
+              .append(i % 10 < 5 ? "1K" : "10K").append('\n');
+        }
+        File file = new File(directory, name);
+        Files.write(sb.toString().getBytes(StandardCharsets.UTF_8), file);
+        return file;
+    }
+
+    private static List<Placement> parse(InputStream in, PartResolver parts) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        List<Placement> placements = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(" ");
+            Placement placement = new Placement(fields[0]);
+            parts.resolve(placement, fields[1] + "-" + fields[2], fields[1]);
+            placements.add(placement);
+        }
+        return placements;
+    }
+}
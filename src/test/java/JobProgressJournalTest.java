@@ -0,0 +1,208 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.machine.reference.JobProgressJournal;
+import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.machine.reference.ReferenceNozzle;
+import org.openpnp.machine.reference.ReferencePnpJobProcessor;
+import org.openpnp.machine.reference.driver.NullDriver;
+import org.openpnp.model.Board;
+import org.openpnp.model.Board.Side;
+import org.openpnp.model.BoardLocation;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Job;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.model.Placement;
+import org.openpnp.spi.PnpJobProcessor.JobPlacement;
+import org.openpnp.spi.PnpJobProcessor.JobPlacement.Status;
+
+import com.google.common.io.Files;
+
+public class JobProgressJournalTest {
+    /**
+     * Records placements and a fiducial override and checks they are all restored by a replay.
+     */
+    @Test
+    public void testAppendAndReplay() throws Exception {
+        Configuration.initialize(Files.createTempDir());
+        Job job = createJob(4);
+        List<JobPlacement> jobPlacements = createJobPlacements(job);
+        BoardLocation boardLocation = job.getBoardLocations().get(0);
+        Location fiducials = new Location(LengthUnit.Millimeters, 1.5, 2.5, 0, 90);
+
+        File file = new File(Files.createTempDir(), "test.job.xml.journal");
+        JobProgressJournal journal = new JobProgressJournal(file, 16, 1000);
+        journal.open(false);
+        journal.fiducialOverride(job, boardLocation, fiducials);
+        journal.placementCompleted(job, jobPlacements.get(0));
+        journal.placementSkipped(job, jobPlacements.get(1));
+        journal.placementCompleted(job, jobPlacements.get(2));
+        journal.close();
+
+        List<JobPlacement> replayed = createJobPlacements(job);
+        Map<BoardLocation, Location> overrides = new HashMap<>();
+        Assert.assertEquals(3, new JobProgressJournal(file, 16, 1000).replay(job, replayed,
+                overrides));
+        Assert.assertEquals(Status.Complete, replayed.get(0).status);
+        Assert.assertEquals(Status.Skipped, replayed.get(1).status);
+        Assert.assertEquals(Status.Complete, replayed.get(2).status);
+        Assert.assertEquals(Status.Pending, replayed.get(3).status);
+        Assert.assertEquals(fiducials, overrides.get(boardLocation));
+
+        // Appending to the journal keeps what is already there.
+        journal.open(true);
+        journal.placementCompleted(job, jobPlacements.get(3));
+        journal.close();
+        replayed = createJobPlacements(job);
+        Assert.assertEquals(4, new JobProgressJournal(file, 16, 1000).replay(job, replayed,
+                new HashMap<>()));
+    }
+
+    /**
+     * Checks that an entry cut off part way through by a crash is not replayed, even if what
+     * was written of it happens to look like a whole entry.
+     */
+    @Test
+    public void testTruncatedRecord() throws Exception {
+        Configuration.initialize(Files.createTempDir());
+        Job job = createJob(12);
+        List<JobPlacement> jobPlacements = createJobPlacements(job);
+
+        File file = new File(Files.createTempDir(), "test.job.xml.journal");
+        JobProgressJournal journal = new JobProgressJournal(file, 16, 1000);
+        journal.open(false);
+        journal.placementCompleted(job, jobPlacements.get(0));
+        journal.close();
+        // R12 was being written when the power went, so only "R1" of it made it to disk.
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write("C 0 - R1".getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<JobPlacement> replayed = createJobPlacements(job);
+        Assert.assertEquals(1, new JobProgressJournal(file, 16, 1000).replay(job, replayed,
+                new HashMap<>()));
+        Assert.assertEquals(Status.Complete, replayed.get(0).status);
+        Assert.assertEquals(Status.Pending, replayed.get(11).status);
+    }
+
+    /**
+     * Checks that an entry that doesn't fill a batch still reaches the disk once the sync
+     * interval has passed, without any more being appended.
+     */
+    @Test
+    public void testIdleSync() throws Exception {
+        Configuration.initialize(Files.createTempDir());
+        Job job = createJob(1);
+        List<JobPlacement> jobPlacements = createJobPlacements(job);
+
+        File file = new File(Files.createTempDir(), "test.job.xml.journal");
+        JobProgressJournal journal = new JobProgressJournal(file, 16, 100);
+        journal.open(false);
+        journal.placementCompleted(job, jobPlacements.get(0));
+        try {
+            for (int i = 0; i < 50 && !readJournal(file).contains("R1"); i++) {
+                Thread.sleep(100);
+            }
+            Assert.assertTrue(readJournal(file).contains("C 0 - R1\n"));
+        }
+        finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * Runs a job whose journal says the first placement was already made and checks that only
+     * the rest are placed, and that the journal is removed once the job is done.
+     */
+    @Test
+    public void testResume() throws Exception {
+        File workingDirectory = Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/machine.xml"),
+                new File(workingDirectory, "machine.xml"));
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/packages.xml"),
+                new File(workingDirectory, "packages.xml"));
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/parts.xml"),
+                new File(workingDirectory, "parts.xml"));
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+
+        ReferenceMachine machine = (ReferenceMachine) Configuration.get().getMachine();
+        AtomicInteger placed = new AtomicInteger();
+        machine.setDriver(new NullDriver() {
+            @Override
+            public void place(ReferenceNozzle nozzle) throws Exception {
+                super.place(nozzle);
+                placed.incrementAndGet();
+            }
+        });
+        machine.setEnabled(true);
+
+        Job job = new Job();
+        Board board = new Board();
+        board.setName("test");
+        for (int i = 0; i < 4; i++) {
+            board.addPlacement(BasicJobTest.createPlacement("R" + (i + 1), "R-0805-10K",
+                    10 * (i + 1), 10, 0, 0, Side.Top));
+        }
+        BoardLocation boardLocation = new BoardLocation(board);
+        boardLocation.setLocation(new Location(LengthUnit.Millimeters, 0, 0, 0, 0));
+        boardLocation.setSide(Side.Top);
+        job.addBoardLocation(boardLocation);
+        job.setFile(new File(workingDirectory, "test.job.xml"));
+
+        File file = JobProgressJournal.getJournalFile(job);
+        JobProgressJournal journal = new JobProgressJournal(file, 16, 1000);
+        journal.open(false);
+        journal.placementCompleted(job, new JobPlacement(boardLocation,
+                board.getPlacements().get(0)));
+        journal.close();
+
+        ReferencePnpJobProcessor jobProcessor =
+                (ReferencePnpJobProcessor) machine.getPnpJobProcessor();
+        jobProcessor.setJournalEnabled(true);
+        jobProcessor.initialize(job);
+        while (jobProcessor.next());
+
+        Assert.assertEquals(3, placed.get());
+        Assert.assertFalse(file.exists());
+    }
+
+    private static Job createJob(int placements) {
+        Job job = new Job();
+        Board board = new Board();
+        board.setName("test");
+        for (int i = 0; i < placements; i++) {
+            Placement placement = new Placement("R" + (i + 1));
+            placement.setLocation(new Location(LengthUnit.Millimeters, 10 * i, 10, 0, 0));
+            board.addPlacement(placement);
+        }
+        job.addBoardLocation(new BoardLocation(board));
+        return job;
+    }
+
+    private static List<JobPlacement> createJobPlacements(Job job) {
+        List<JobPlacement> jobPlacements = new ArrayList<>();
+        for (BoardLocation boardLocation : job.getBoardLocations()) {
+            for (Placement placement : boardLocation.getBoard().getPlacements()) {
+                jobPlacements.add(new JobPlacement(boardLocation, placement));
+            }
+        }
+        return jobPlacements;
+    }
+
+    private static String readJournal(File file) throws Exception {
+        return new String(java.nio.file.Files.readAllBytes(file.toPath()),
+                StandardCharsets.UTF_8);
+    }
+}
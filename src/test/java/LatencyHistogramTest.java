@@ -0,0 +1,43 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.util.LatencyHistogram;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            h.record(i * 1000000);
+        }
+        Assert.assertEquals(1000, h.getCount());
+        Assert.assertEquals(1000000, h.getMin());
+        Assert.assertEquals(1000000000, h.getMax());
+        Assert.assertEquals(500500000.0, h.getMean(), 1);
+        // Buckets are within about 6% of the true value.
+        Assert.assertEquals(500e6, h.getPercentile(50), 500e6 * 0.07);
+        Assert.assertEquals(950e6, h.getPercentile(95), 950e6 * 0.07);
+        Assert.assertEquals(990e6, h.getPercentile(99), 990e6 * 0.07);
+        Assert.assertEquals(h.getMax(), h.getPercentile(100));
+
+        // Small values are exact.
+        h.reset();
+        h.record(3);
+        h.record(7);
+        Assert.assertEquals(3, h.getPercentile(50));
+        Assert.assertEquals(7, h.getPercentile(100));
+
+        // The longest values that still get a bucket are not mistaken for overflow.
+        h.reset();
+        long longest = (1L << 41) - 1;
+        h.record(1);
+        h.record(longest);
+        h.record(longest + 1);
+        h.record(longest + 1);
+        Assert.assertEquals(longest, h.getPercentile(50));
+
+        // Very long values are clamped to the last bucket but kept exactly in the max.
+        h.record(Long.MAX_VALUE / 2);
+        Assert.assertEquals(Long.MAX_VALUE / 2, h.getMax());
+        Assert.assertEquals(Long.MAX_VALUE / 2, h.getPercentile(100));
+    }
+}
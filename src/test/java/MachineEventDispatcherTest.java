@@ -0,0 +1,102 @@
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.spi.Head;
+import org.openpnp.spi.Machine;
+import org.openpnp.spi.MachineListener;
+import org.openpnp.spi.base.MachineEventDispatcher;
+
+public class MachineEventDispatcherTest {
+    @Test
+    public void testOrder() throws Exception {
+        List<MachineListener> listeners = new CopyOnWriteArrayList<>();
+        List<String> received = new ArrayList<>();
+        listeners.add(new MachineListener.Adapter() {
+            @Override
+            public void machineBusy(Machine machine, boolean busy) {
+                received.add("busy " + busy);
+            }
+
+            @Override
+            public void machineDisabled(Machine machine, String reason) {
+                received.add("disabled " + reason);
+            }
+        });
+        MachineEventDispatcher dispatcher = new MachineEventDispatcher(null, listeners, 0);
+        for (int i = 0; i < 1000; i++) {
+            boolean busy = i % 2 == 0;
+            dispatcher.post(listener -> listener.machineBusy(null, busy));
+        }
+        dispatcher.post(listener -> listener.machineDisabled(null, "stop"));
+        Assert.assertTrue(dispatcher.flush(5000));
+
+        Assert.assertEquals(1001, received.size());
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("busy " + (i % 2 == 0), received.get(i));
+        }
+        Assert.assertEquals("disabled stop", received.get(1000));
+    }
+
+    /**
+     * Fires head activity for two heads as fast as possible at a listener that takes 5ms per
+     * event, and prints how many events per second the firing thread sustained and how many
+     * reached the listener. Firing must not slow down to the listener's pace.
+     */
+    @Test
+    public void testCoalescing() throws Exception {
+        Head a = head();
+        Head b = head();
+        AtomicInteger delivered = new AtomicInteger();
+        List<MachineListener> listeners = new CopyOnWriteArrayList<>();
+        listeners.add(new MachineListener.Adapter() {
+            @Override
+            public void machineHeadActivity(Machine machine, Head head) {
+                delivered.incrementAndGet();
+                try {
+                    Thread.sleep(5);
+                }
+                catch (InterruptedException e) {
+                }
+            }
+        });
+        MachineEventDispatcher dispatcher = new MachineEventDispatcher(null, listeners, 33);
+
+        int count = 1000000;
+        long t = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            dispatcher.postHeadActivity(i % 2 == 0 ? a : b);
+        }
+        long elapsed = System.nanoTime() - t;
+        Assert.assertTrue(dispatcher.flush(5000));
+
+        System.out.println(String.format(
+                "Fired %d head activity events in %.1f ms, %.0f events/s, %d delivered", count,
+                elapsed / 1e6, count / (elapsed / 1e9), delivered.get()));
+        // At 5ms per event the listener could only have taken a tiny fraction of them, so if
+        // firing had waited on it this would have taken well over an hour.
+        Assert.assertTrue(delivered.get() >= 2);
+        Assert.assertTrue(delivered.get() < count / 100);
+        Assert.assertEquals(count, dispatcher.getPostedCount());
+    }
+
+    private static Head head() {
+        return (Head) Proxy.newProxyInstance(Head.class.getClassLoader(),
+                new Class[] {Head.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "Head@" + System.identityHashCode(proxy);
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
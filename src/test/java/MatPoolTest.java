@@ -0,0 +1,62 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.openpnp.util.MatPool;
+
+public class MatPoolTest {
+    static {
+        nu.pattern.OpenCV.loadShared();
+        System.loadLibrary(org.opencv.core.Core.NATIVE_LIBRARY_NAME);
+    }
+
+    @Test
+    public void testReuse() {
+        MatPool pool = new MatPool();
+        Mat mat = pool.acquire(480, 640, CvType.CV_8UC3);
+        Assert.assertEquals(480 * 640 * 3, pool.getLiveBytes());
+        pool.release(mat);
+        Assert.assertEquals(0, pool.getLiveBytes());
+        Assert.assertEquals(1, pool.getPooledCount());
+
+        // Same size and type gets the same Mat back, anything else gets a new one.
+        Assert.assertSame(mat, pool.acquire(480, 640, CvType.CV_8UC3));
+        Mat gray = pool.acquire(480, 640, CvType.CV_8UC1);
+        Assert.assertNotSame(mat, gray);
+        Assert.assertEquals(2, pool.getAllocatedCount());
+        Assert.assertEquals(1, pool.getReusedCount());
+    }
+
+    @Test
+    public void testScope() {
+        MatPool pool = new MatPool();
+        Mat kept;
+        try (MatPool.Scope scope = pool.scope()) {
+            scope.acquire(100, 100, CvType.CV_8UC1);
+            scope.acquire(100, 100, CvType.CV_8UC1);
+            kept = scope.keep(scope.acquire(10, 10, CvType.CV_8UC1));
+        }
+        Assert.assertEquals(1, pool.getLiveCount());
+        Assert.assertEquals(2, pool.getPooledCount());
+        pool.release(kept);
+        Assert.assertEquals(0, pool.getLiveCount());
+    }
+
+    @Test
+    public void testLimits() {
+        MatPool pool = new MatPool();
+        pool.setMaxPooledPerSize(1);
+        Mat a = pool.acquire(10, 10, CvType.CV_8UC1);
+        Mat b = pool.acquire(10, 10, CvType.CV_8UC1);
+        pool.release(a);
+        pool.release(b);
+        Assert.assertEquals(1, pool.getPooledCount());
+        Assert.assertTrue(b.empty());
+
+        // Mats from elsewhere are released rather than pooled.
+        Mat other = new Mat(10, 10, CvType.CV_8UC1);
+        pool.release(other);
+        Assert.assertTrue(other.empty());
+        Assert.assertEquals(1, pool.getPooledCount());
+    }
+}
@@ -0,0 +1,222 @@
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.machine.reference.HeadInterlock;
+import org.openpnp.machine.reference.ReferenceFeederSelectionStrategy;
+import org.openpnp.machine.reference.ReferenceHeadMountable;
+import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.machine.reference.ReferenceNozzle;
+import org.openpnp.machine.reference.ReferencePnpJobProcessor;
+import org.openpnp.machine.reference.driver.NullDriver;
+import org.openpnp.model.Board;
+import org.openpnp.model.Board.Side;
+import org.openpnp.model.BoardLocation;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Job;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.spi.Head;
+import org.openpnp.util.TimingMetrics;
+
+import com.google.common.io.Files;
+
+public class MultiHeadJobTest {
+    /**
+     * Runs a job across a board on a machine with two heads, one on each side, and checks that
+     * both heads place parts, that they place at the same time and that they always stay the
+     * head clearance apart.
+     */
+    @Test
+    public void testConcurrentHeads() throws Exception {
+        MultiHeadDriver driver = runJob("machine.xml", true, HeadInterlock.Axes.XY, createJob());
+
+        Assert.assertEquals(8, driver.placed.get());
+        Assert.assertEquals(2, driver.placedBy.size());
+        Assert.assertEquals(2, driver.maxPlacing.get());
+        Assert.assertTrue("Heads came within " + driver.minSeparation + " mm",
+                driver.minSeparation >= 50 - 1e-6);
+    }
+
+    /**
+     * Runs the same job with a driver that can't move the heads concurrently, and checks that
+     * the heads take turns and still stay the head clearance apart.
+     */
+    @Test
+    public void testTakeTurns() throws Exception {
+        MultiHeadDriver driver = runJob("machine.xml", false, HeadInterlock.Axes.XY, createJob());
+
+        Assert.assertEquals(8, driver.placed.get());
+        Assert.assertEquals(2, driver.placedBy.size());
+        Assert.assertEquals(1, driver.maxPlacing.get());
+        Assert.assertTrue("Heads came within " + driver.minSeparation + " mm",
+                driver.minSeparation >= 50 - 1e-6);
+    }
+
+    /**
+     * Runs a job on two gantries that share the Y rails, so their beams span the machine in X and
+     * they must stay the head clearance apart in Y wherever they are in X. The placements either
+     * side of the split between the heads' regions are close in Y but far apart in X, which would
+     * let the heads get too close in Y if they were only kept apart as squares.
+     */
+    @Test
+    public void testGantries() throws Exception {
+        Job job = new Job();
+        Board board = new Board();
+        board.setName("test");
+        double[][] xys = {{0, 10}, {0, 40}, {0, 70}, {250, 140}, {0, 160}, {0, 230}, {0, 260},
+                {0, 290}};
+        for (int i = 0; i < xys.length; i++) {
+            board.addPlacement(BasicJobTest.createPlacement("R" + (i + 1), "R-0805-10K",
+                    xys[i][0], xys[i][1], 0, 0, Side.Top));
+        }
+        BoardLocation boardLocation = new BoardLocation(board);
+        boardLocation.setLocation(new Location(LengthUnit.Millimeters, 0, 0, 0, 0));
+        boardLocation.setSide(Side.Top);
+        job.addBoardLocation(boardLocation);
+
+        MultiHeadDriver driver = runJob("gantries.xml", true, HeadInterlock.Axes.Y, job);
+
+        Assert.assertEquals(8, driver.placed.get());
+        Assert.assertEquals(2, driver.placedBy.size());
+        Assert.assertEquals(2, driver.maxPlacing.get());
+        Assert.assertTrue("Gantries came within " + driver.minSeparation + " mm in Y",
+                driver.minSeparation >= 50 - 1e-6);
+    }
+
+    private static MultiHeadDriver runJob(String machineXml, boolean concurrent,
+            HeadInterlock.Axes axes, Job job) throws Exception {
+        File workingDirectory = Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+
+        FileUtils.copyURLToFile(
+                ClassLoader.getSystemResource("config/MultiHeadJobTest/" + machineXml),
+                new File(workingDirectory, "machine.xml"));
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/packages.xml"),
+                new File(workingDirectory, "packages.xml"));
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/parts.xml"),
+                new File(workingDirectory, "parts.xml"));
+
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+
+        ReferenceMachine machine = (ReferenceMachine) Configuration.get().getMachine();
+        MultiHeadDriver driver = new MultiHeadDriver(machine, concurrent, axes);
+        machine.setDriver(driver);
+        machine.setEnabled(true);
+
+        // Both heads start at the origin, so move the second one over to its own side first.
+        Head h2 = machine.getHead("H2");
+        h2.getDefaultNozzle().moveTo(h2.getParkLocation());
+
+        ReferencePnpJobProcessor jobProcessor =
+                (ReferencePnpJobProcessor) machine.getPnpJobProcessor();
+        jobProcessor.setMultiHeadEnabled(true);
+        jobProcessor.setHeadSeparationAxes(axes);
+        ((ReferenceFeederSelectionStrategy) jobProcessor.getFeederSelectionStrategy())
+                .setMode(ReferenceFeederSelectionStrategy.Mode.Nearest);
+
+        jobProcessor.initialize(job);
+        while (jobProcessor.next());
+
+        Assert.assertEquals(8, jobProcessor.getTotalPartsPlaced());
+        // One sample per placed part.
+        Assert.assertEquals(8, TimingMetrics.get().getHistogram(TimingMetrics.JOB, "per part")
+                .getCount());
+        Assert.assertFalse(machine.getHeadInterlock().isEnabled());
+        return driver;
+    }
+
+    private static Job createJob() {
+        Job job = new Job();
+
+        Board board = new Board();
+        board.setName("test");
+        double[] xs = {10, 40, 70, 100, 200, 230, 260, 290};
+        for (int i = 0; i < xs.length; i++) {
+            board.addPlacement(BasicJobTest.createPlacement("R" + (i + 1), "R-0805-10K", xs[i],
+                    50, 0, 0, Side.Top));
+        }
+
+        BoardLocation boardLocation = new BoardLocation(board);
+        boardLocation.setLocation(new Location(LengthUnit.Millimeters, 0, 0, 0, 0));
+        boardLocation.setSide(Side.Top);
+
+        job.addBoardLocation(boardLocation);
+
+        return job;
+    }
+
+    /**
+     * Counts how many nozzles are placing at once and measures how close the heads get while
+     * the HeadInterlock is armed.
+     */
+    public static class MultiHeadDriver extends NullDriver {
+        private final ReferenceMachine machine;
+
+        final AtomicInteger placing = new AtomicInteger();
+
+        final AtomicInteger maxPlacing = new AtomicInteger();
+
+        final AtomicInteger placed = new AtomicInteger();
+
+        final Set<Head> placedBy = new HashSet<>();
+
+        double minSeparation = Double.MAX_VALUE;
+
+        private final boolean concurrent;
+
+        private final HeadInterlock.Axes axes;
+
+        public MultiHeadDriver(ReferenceMachine machine, boolean concurrent,
+                HeadInterlock.Axes axes) {
+            this.machine = machine;
+            this.concurrent = concurrent;
+            this.axes = axes;
+        }
+
+        @Override
+        public boolean supportsConcurrentHeads() {
+            return concurrent;
+        }
+
+        @Override
+        public void moveTo(ReferenceHeadMountable hm, Location location, double speed)
+                throws Exception {
+            super.moveTo(hm, location, speed);
+            if (!machine.getHeadInterlock().isEnabled()) {
+                return;
+            }
+            Location l1 = getHeadLocation(machine.getHead("H1"));
+            Location l2 = getHeadLocation(machine.getHead("H2"));
+            double dx = Math.abs(l1.getX() - l2.getX());
+            double dy = Math.abs(l1.getY() - l2.getY());
+            double separation = axes == HeadInterlock.Axes.XY ? Math.max(dx, dy)
+                    : axes == HeadInterlock.Axes.Y ? dy : dx;
+            synchronized (this) {
+                minSeparation = Math.min(minSeparation, separation);
+            }
+        }
+
+        @Override
+        public void place(ReferenceNozzle nozzle) throws Exception {
+            maxPlacing.accumulateAndGet(placing.incrementAndGet(), Math::max);
+            try {
+                // Long enough for the other head to get to its own placement.
+                Thread.sleep(200);
+            }
+            finally {
+                placing.decrementAndGet();
+            }
+            super.place(nozzle);
+            placed.incrementAndGet();
+            synchronized (this) {
+                placedBy.add(nozzle.getHead());
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.machine.reference.PastePathPlanner;
+import org.openpnp.machine.reference.PastePathPlanner.Plan;
+import org.openpnp.machine.reference.driver.SimulationDriver;
+
+public class PastePathPlannerTest {
+    /**
+     * Plans random pads on two boards in their original order, with the optimizer and with low
+     * hop, and prints the travel and estimated time of each.
+     */
+    @Test
+    public void testPlans() {
+        double[] pads = randomPads(new Random(1), 500);
+
+        Plan unoptimized = planner(false, false).plan(0, 0, pads);
+        Plan optimized = planner(true, false).plan(0, 0, pads);
+        Plan lowHop = planner(true, true).plan(0, 0, pads);
+        System.out.println("Unoptimized: " + unoptimized);
+        System.out.println("Optimized:   " + optimized);
+        System.out.println("Low hop:     " + lowHop);
+
+        assertPermutation(optimized.getOrder());
+        assertPermutation(lowHop.getOrder());
+        Assert.assertTrue(optimized.getXyTravel() < unoptimized.getXyTravel() / 5);
+        Assert.assertTrue(optimized.getEstimatedTime() < unoptimized.getEstimatedTime());
+        Assert.assertEquals(0, optimized.getLowHopCount());
+
+        // Low hop doesn't change the order, only how the pads are reached.
+        Assert.assertArrayEquals(optimized.getOrder(), lowHop.getOrder());
+        Assert.assertTrue(lowHop.getLowHopCount() > 0);
+        Assert.assertTrue(lowHop.getZTravel() < optimized.getZTravel());
+        Assert.assertTrue(lowHop.getEstimatedTime() < optimized.getEstimatedTime());
+    }
+
+    @Test
+    public void testSmall() {
+        // Three pads on a line, given out of order.
+        double[] pads = new double[] {20, 0, -10, 10, 0, -10, 30, 0, -10};
+        Plan plan = planner(true, true).plan(0, 0, pads);
+        Assert.assertArrayEquals(new int[] {1, 0, 2}, plan.getOrder());
+        Assert.assertEquals(30, plan.getXyTravel(), 1e-9);
+        Assert.assertEquals(0, plan.getLowHopCount());
+
+        Assert.assertEquals(0, planner(true, true).plan(0, 0, new double[0]).getOrder().length);
+    }
+
+    private static PastePathPlanner planner(boolean optimize, boolean lowHop) {
+        SimulationDriver limits = new SimulationDriver();
+        PastePathPlanner planner =
+                new PastePathPlanner(limits.getX(), limits.getY(), limits.getZ());
+        planner.setOptimize(optimize);
+        planner.setLowHopEnabled(lowHop);
+        planner.setLowHopDistance(5);
+        planner.setLowHopClearance(1);
+        planner.setSafeZ(0);
+        return planner;
+    }
+
+    /**
+     * Pads spread over two 50mm boards 100mm apart, in random order.
+     */
+    private static double[] randomPads(Random random, int count) {
+        double[] pads = new double[count * 3];
+        for (int i = 0; i < count; i++) {
+            double offset = random.nextBoolean() ? 0 : 100;
+            pads[i * 3] = offset + random.nextDouble() * 50;
+            pads[i * 3 + 1] = random.nextDouble() * 50;
+            pads[i * 3 + 2] = -10;
+        }
+        return pads;
+    }
+
+    private static void assertPermutation(int[] order) {
+        boolean[] seen = new boolean[order.length];
+        for (int i : order) {
+            Assert.assertFalse(seen[i]);
+            seen[i] = true;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openpnp.machine.reference.ReferenceActuator;
+import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.machine.reference.ReferenceNozzle;
+import org.openpnp.machine.reference.ReferencePnpJobProcessor;
+import org.openpnp.machine.reference.driver.NullDriver;
+import org.openpnp.machine.reference.feeder.ReferenceAutoFeeder;
+import org.openpnp.machine.reference.feeder.ReferenceSlotAutoFeeder;
+import org.openpnp.model.Board;
+import org.openpnp.model.Board.Side;
+import org.openpnp.model.BoardLocation;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Job;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.spi.Feeder;
+import org.openpnp.spi.Head;
+import org.openpnp.spi.Nozzle;
+
+import com.google.common.io.Files;
+
+public class PrefeedTest {
+    private ReferenceMachine machine;
+
+    private PrefeedDriver driver;
+
+    private ReferenceAutoFeeder feeder;
+
+    private Nozzle nozzle;
+
+    @Before
+    public void before() throws Exception {
+        File workingDirectory = Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/machine.xml"),
+                new File(workingDirectory, "machine.xml"));
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/packages.xml"),
+                new File(workingDirectory, "packages.xml"));
+        FileUtils.copyURLToFile(ClassLoader.getSystemResource("config/BasicJobTest/parts.xml"),
+                new File(workingDirectory, "parts.xml"));
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+
+        machine = (ReferenceMachine) Configuration.get().getMachine();
+        driver = new PrefeedDriver();
+        machine.setDriver(driver);
+        machine.setEnabled(true);
+
+        Head head = machine.getHead("H1");
+        nozzle = head.getNozzle("N1");
+
+        // Swap the tube feeder for an auto feeder driven by the head's actuator.
+        Feeder tubeFeeder = machine.getFeeder("F1");
+        machine.removeFeeder(tubeFeeder);
+        feeder = new ReferenceAutoFeeder();
+        feeder.setPart(tubeFeeder.getPart());
+        feeder.setLocation(tubeFeeder.getPickLocation());
+        feeder.setActuatorName(head.getActuators().get(0).getName());
+        feeder.setEnabled(true);
+        machine.addFeeder(feeder);
+    }
+
+    /**
+     * Runs the same job with and without prefeeding and checks that every part advanced is
+     * picked, and that with prefeeding some picks use a part advanced during the previous cycle.
+     */
+    @Test
+    public void testJob() throws Exception {
+        List<String> plain = runJob(false);
+        Assert.assertEquals(6, Collections.frequency(plain, "pick"));
+        Assert.assertEquals(6, Collections.frequency(plain, "actuate"));
+        Assert.assertEquals(0, countPicksWithoutActuate(plain));
+
+        driver.ops.clear();
+        List<String> prefed = runJob(true);
+        Assert.assertEquals(6, Collections.frequency(prefed, "pick"));
+        Assert.assertEquals(6, Collections.frequency(prefed, "actuate"));
+        // The first pick of the second and third cycles was prefed while the first and second
+        // cycles placed.
+        Assert.assertEquals(2, countPicksWithoutActuate(prefed));
+        Assert.assertFalse(feeder.isPrefed());
+    }
+
+    /**
+     * Checks that a prefeed whose actuator fails leaves the feeder to actuate normally on feed().
+     */
+    @Test
+    public void testPrefeedFailed() throws Exception {
+        driver.failActuate = true;
+        try {
+            feeder.prefeed(nozzle);
+            Assert.fail("Prefeed should have thrown.");
+        }
+        catch (Exception e) {
+        }
+        Assert.assertFalse(feeder.isPrefed());
+        driver.failActuate = false;
+
+        feeder.feed(nozzle);
+        Assert.assertEquals(Collections.singletonList("actuate"), driver.ops);
+    }
+
+    /**
+     * Checks that a prefed part is used by the next feed(), and that repeated prefeeds don't
+     * advance more than one part.
+     */
+    @Test
+    public void testPrefeed() throws Exception {
+        Assert.assertTrue(feeder.prefeed(nozzle));
+        Assert.assertTrue(feeder.prefeed(nozzle));
+        Assert.assertEquals(1, driver.ops.size());
+        feeder.feed(nozzle);
+        Assert.assertEquals(1, driver.ops.size());
+        Assert.assertFalse(feeder.isPrefed());
+        feeder.feed(nozzle);
+        Assert.assertEquals(2, driver.ops.size());
+    }
+
+    /**
+     * Checks the feeders that can't prefeed say so, so the job processor doesn't count on them.
+     */
+    @Test
+    public void testNoPrefeed() throws Exception {
+        feeder.setActuatorName(null);
+        Assert.assertFalse(feeder.prefeed(nozzle));
+
+        // An empty slot.
+        ReferenceSlotAutoFeeder slot = new ReferenceSlotAutoFeeder();
+        slot.setActuatorName(machine.getHead("H1").getActuators().get(0).getName());
+        Assert.assertFalse(slot.prefeed(nozzle));
+        Assert.assertTrue(driver.ops.isEmpty());
+    }
+
+    /**
+     * Checks that swapping the feeder in a slot forgets a part prefed for the one that was there.
+     */
+    @Test
+    public void testSlotFeederChanged() throws Exception {
+        ReferenceSlotAutoFeeder slot = new ReferenceSlotAutoFeeder();
+        slot.setActuatorName(machine.getHead("H1").getActuators().get(0).getName());
+        ReferenceSlotAutoFeeder.Feeder slotFeeder = new ReferenceSlotAutoFeeder.Feeder();
+        slot.getBank().getFeeders().add(slotFeeder);
+        slot.setFeeder(slotFeeder);
+
+        Assert.assertTrue(slot.prefeed(nozzle));
+        slot.setFeeder(null);
+        Assert.assertFalse(slot.isPrefed());
+    }
+
+    private List<String> runJob(boolean prefeed) throws Exception {
+        Job job = new Job();
+        Board board = new Board();
+        board.setName("test");
+        for (int i = 0; i < 6; i++) {
+            board.addPlacement(BasicJobTest.createPlacement("R" + (i + 1), "R-0805-10K",
+                    10 * (i + 1), 10, 0, 0, Side.Top));
+        }
+        BoardLocation boardLocation = new BoardLocation(board);
+        boardLocation.setLocation(new Location(LengthUnit.Millimeters, 0, 0, 0, 0));
+        boardLocation.setSide(Side.Top);
+        job.addBoardLocation(boardLocation);
+
+        ReferencePnpJobProcessor jobProcessor =
+                (ReferencePnpJobProcessor) machine.getPnpJobProcessor();
+        jobProcessor.setPrefeedEnabled(prefeed);
+        jobProcessor.initialize(job);
+        while (jobProcessor.next());
+        return new ArrayList<>(driver.ops);
+    }
+
+    private static int countPicksWithoutActuate(List<String> ops) {
+        int count = 0;
+        for (int i = 0; i < ops.size(); i++) {
+            if (ops.get(i).equals("pick") && (i == 0 || !ops.get(i - 1).equals("actuate"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Records the picks, places and actuations, and can fail the actuations.
+     */
+    public static class PrefeedDriver extends NullDriver {
+        final List<String> ops = Collections.synchronizedList(new ArrayList<>());
+
+        boolean failActuate;
+
+        @Override
+        public void pick(ReferenceNozzle nozzle) throws Exception {
+            super.pick(nozzle);
+            ops.add("pick");
+        }
+
+        @Override
+        public void place(ReferenceNozzle nozzle) throws Exception {
+            super.place(nozzle);
+            ops.add("place");
+        }
+
+        @Override
+        public void actuate(ReferenceActuator actuator, double value) throws Exception {
+            if (failActuate) {
+                throw new Exception("Actuator jammed.");
+            }
+            super.actuate(actuator, value);
+            ops.add("actuate");
+        }
+    }
+}
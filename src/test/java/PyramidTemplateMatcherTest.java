@@ -0,0 +1,90 @@
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.Core.MinMaxLocResult;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.openpnp.vision.PyramidTemplateMatcher;
+import org.openpnp.vision.pipeline.CvStage.Result.TemplateMatch;
+
+public class PyramidTemplateMatcherTest {
+    static {
+        nu.pattern.OpenCV.loadShared();
+        System.loadLibrary(org.opencv.core.Core.NATIVE_LIBRARY_NAME);
+    }
+
+    /**
+     * Matches a template cut from a random, blurred camera sized image and checks that the
+     * pyramid matcher finds it at the same place as a full resolution search. Timings for both
+     * are printed.
+     */
+    @Test
+    public void testMatchesFullSearch() throws Exception {
+        Random random = new Random(1);
+        Mat image = new Mat(960, 1280, CvType.CV_8UC3);
+        byte[] data = new byte[(int) (image.total() * image.elemSize())];
+        random.nextBytes(data);
+        image.put(0, 0, data);
+        Imgproc.GaussianBlur(image, image, new org.opencv.core.Size(9, 9), 0);
+
+        int templateX = 731;
+        int templateY = 413;
+        Mat template = new Mat(image, new Rect(templateX, templateY, 96, 64)).clone();
+
+        PyramidTemplateMatcher matcher = new PyramidTemplateMatcher(template);
+
+        // Warm up both paths so the timings don't include one time setup.
+        fullSearch(image, template);
+        matcher.match(image);
+
+        int iterations = 10;
+        long t = System.nanoTime();
+        MinMaxLocResult full = null;
+        for (int i = 0; i < iterations; i++) {
+            full = fullSearch(image, template);
+        }
+        long fullTime = (System.nanoTime() - t) / iterations;
+
+        t = System.nanoTime();
+        TemplateMatch match = null;
+        for (int i = 0; i < iterations; i++) {
+            match = matcher.match(image);
+        }
+        long pyramidTime = (System.nanoTime() - t) / iterations;
+
+        System.out.println(String.format("Full search %d us, pyramid %d us, speedup %.1fx",
+                fullTime / 1000, pyramidTime / 1000, (double) fullTime / pyramidTime));
+
+        Assert.assertEquals(templateX, full.maxLoc.x, 0);
+        Assert.assertEquals(templateY, full.maxLoc.y, 0);
+        Assert.assertEquals(templateX, match.x, 0.5);
+        Assert.assertEquals(templateY, match.y, 0.5);
+        Assert.assertTrue(match.score > 0.99);
+
+        // And within a region of interest.
+        match = matcher.match(image, new Rect(600, 300, 300, 300));
+        Assert.assertEquals(templateX, match.x, 0.5);
+        Assert.assertEquals(templateY, match.y, 0.5);
+
+        // A region smaller than the template can't match.
+        Assert.assertNull(matcher.match(image, new Rect(0, 0, 50, 50)));
+
+        matcher.release();
+    }
+
+    /**
+     * The path OpenCvVisionProvider.locateTemplateMatches takes, minus the BufferedImage
+     * conversions.
+     */
+    private static MinMaxLocResult fullSearch(Mat image, Mat template) {
+        Mat result = new Mat();
+        Imgproc.matchTemplate(image, template, result, Imgproc.TM_CCOEFF_NORMED);
+        MinMaxLocResult mmr = Core.minMaxLoc(result);
+        result.release();
+        return mmr;
+    }
+}
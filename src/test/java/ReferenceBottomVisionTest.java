@@ -1,10 +1,22 @@
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
+import org.junit.Assert;
 import org.junit.Test;
+import org.openpnp.machine.reference.ReferenceHeadMountable;
 import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.machine.reference.ReferenceNozzle;
+import org.openpnp.machine.reference.ReferenceNozzleTip;
 import org.openpnp.machine.reference.camera.SimulatedUpCamera;
 import org.openpnp.machine.reference.driver.NullDriver;
 import org.openpnp.machine.reference.vision.ReferenceBottomVision;
+import org.openpnp.machine.reference.vision.ReferenceBottomVision.Alignment;
 import org.openpnp.model.Configuration;
 import org.openpnp.model.LengthUnit;
 import org.openpnp.model.Location;
@@ -27,7 +39,87 @@ public class ReferenceBottomVisionTest {
         testError(new Location(LengthUnit.Millimeters, 1, 2, 0, -13));
     }
     
+    /**
+     * Aligns through the compute pool, which should find the same error as aligning on the
+     * calling thread.
+     */
+    @Test
+    public void testParallel() throws Exception {
+        testError(new Location(LengthUnit.Millimeters, -1, 1, 0, 7), true);
+    }
+
+    /**
+     * Aligns the parts on two nozzles that can be lowered independently, which should capture
+     * both in one frame, with the second nozzle never centered over the camera, and find the
+     * error of each in its own region of the frame.
+     */
+    @Test
+    public void testMultiNozzleCapture() throws Exception {
+        testMultiNozzle(true);
+    }
+
+    /**
+     * Aligns the parts on two nozzles that share a Z axis, which must fall back to capturing
+     * each nozzle on its own.
+     */
+    @Test
+    public void testMultiNozzleSharedZ() throws Exception {
+        testMultiNozzle(false);
+    }
+
+    public static void testMultiNozzle(boolean independentZ) throws Exception {
+        Location error = new Location(LengthUnit.Millimeters, 0.5, -0.5, 0, 5);
+        Location maxError = new Location(LengthUnit.Millimeters, 0.1, 0.1, 0, 0.01);
+
+        File workingDirectory = Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+
+        ReferenceMachine machine = (ReferenceMachine) Configuration.get().getMachine();
+        IndependentZDriver driver = new IndependentZDriver(independentZ);
+        driver.setFeedRateMmPerMinute(0);
+        machine.setDriver(driver);
+        Nozzle nozzle1 = machine.getDefaultHead().getDefaultNozzle();
+        ReferenceNozzle nozzle2 = new ReferenceNozzle();
+        nozzle2.setName("N2");
+        // Far enough apart that the other part is outside the pipeline's mask when each nozzle is
+        // centered on its own.
+        nozzle2.setHeadOffsets(new Location(LengthUnit.Millimeters, 14, 0, 0, 0));
+        ReferenceNozzleTip nozzleTip = new ReferenceNozzleTip();
+        nozzle2.addNozzleTip(nozzleTip);
+        machine.getDefaultHead().addNozzle(nozzle2);
+        nozzle2.loadNozzleTip(nozzleTip);
+        SimulatedUpCamera camera = (SimulatedUpCamera) VisionUtils.getBottomVisionCamera();
+        Part part = Configuration.get().getPart("R0805-1K");
+        ReferenceBottomVision bottomVision =
+                (ReferenceBottomVision) machine.getPartAlignments().get(0);
+        bottomVision.setParallelEnabled(true);
+        bottomVision.setMultiNozzleCapture(true);
+
+        camera.setErrorOffsets(error);
+        machine.setEnabled(true);
+        nozzle1.pick(part);
+        nozzle2.pick(part);
+        driver.getMovedInXy().clear();
+        List<Future<PartAlignmentOffset>> futures = bottomVision.findOffsets(
+                Arrays.asList(new Alignment(part, null, null, nozzle1),
+                        new Alignment(part, null, null, nozzle2)));
+        Assert.assertEquals(2, futures.size());
+        for (Future<PartAlignmentOffset> future : futures) {
+            Location offsets = future.get().getLocation();
+            assertMaxDelta(offsets.getX(), error.getX(), maxError.getX());
+            assertMaxDelta(offsets.getY(), error.getY(), maxError.getY());
+            assertMaxDelta(offsets.getRotation(), error.getRotation(), maxError.getRotation());
+        }
+        Assert.assertEquals(!independentZ, driver.getMovedInXy().contains(nozzle2));
+    }
+
     public static void testError(Location error) throws Exception {
+        testError(error, false);
+    }
+
+    public static void testError(Location error, boolean parallel) throws Exception {
         Location maxError = new Location(LengthUnit.Millimeters, 0.1, 0.1, 0, 0.01);
 
         File workingDirectory = Files.createTempDir();
@@ -48,13 +140,72 @@ public class ReferenceBottomVisionTest {
         camera.setErrorOffsets(error);
         machine.setEnabled(true);
         nozzle.pick(part);
-        PartAlignmentOffset offset = bottomVision.findOffsets(part, null, null, nozzle);
+        PartAlignmentOffset offset;
+        if (parallel) {
+            bottomVision.setParallelEnabled(true);
+            Assert.assertTrue(bottomVision.canAlignTogether(part));
+            offset = bottomVision
+                    .findOffsets(Collections.singletonList(new Alignment(part, null, null, nozzle)))
+                    .get(0)
+                    .get();
+        }
+        else {
+            offset = bottomVision.findOffsets(part, null, null, nozzle);
+        }
         Location offsets = offset.getLocation();
         assertMaxDelta(offsets.getX(), error.getX(), maxError.getX());
         assertMaxDelta(offsets.getY(), error.getY(), maxError.getY());
         assertMaxDelta(offsets.getRotation(), error.getRotation(), maxError.getRotation());
     }
     
+    /**
+     * Keeps a Z coordinate for each head mountable, as a head with a motor per nozzle would,
+     * when independentZ is set, and remembers which head mountables were moved in X or Y.
+     */
+    public static class IndependentZDriver extends NullDriver {
+        private final boolean independentZ;
+
+        private final Map<ReferenceHeadMountable, Double> z = new ConcurrentHashMap<>();
+
+        private final Set<ReferenceHeadMountable> movedInXy = ConcurrentHashMap.newKeySet();
+
+        public IndependentZDriver(boolean independentZ) {
+            this.independentZ = independentZ;
+        }
+
+        @Override
+        public boolean isIndependentZ(ReferenceHeadMountable hm1, ReferenceHeadMountable hm2) {
+            return independentZ;
+        }
+
+        @Override
+        public Location getLocation(ReferenceHeadMountable hm) {
+            Location location = super.getLocation(hm);
+            if (!independentZ || !z.containsKey(hm)) {
+                return location;
+            }
+            return location.derive(null, null, z.get(hm), null);
+        }
+
+        @Override
+        public void moveTo(ReferenceHeadMountable hm, Location location, double speed)
+                throws Exception {
+            location = location.convertToUnits(LengthUnit.Millimeters);
+            if (!Double.isNaN(location.getX()) || !Double.isNaN(location.getY())) {
+                movedInXy.add(hm);
+            }
+            if (independentZ && !Double.isNaN(location.getZ())) {
+                z.put(hm, location.getZ());
+                location = location.derive(null, null, Double.NaN, null);
+            }
+            super.moveTo(hm, location, speed);
+        }
+
+        public Set<ReferenceHeadMountable> getMovedInXy() {
+            return movedInXy;
+        }
+    }
+
     public static void assertMaxDelta(double a, double b, double maxDelta) throws Exception {
         if (Math.abs(a - b) > maxDelta) {
             throw new Exception(String.format("abs(%f - %f) > %f", a, b, maxDelta));
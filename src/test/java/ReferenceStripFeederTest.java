@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openpnp.machine.reference.feeder.ReferenceStripFeeder;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.spi.Nozzle;
+
+import com.google.common.io.Files;
+
+public class ReferenceStripFeederTest {
+    @Before
+    public void before() {
+        Configuration.initialize(Files.createTempDir());
+    }
+
+    /**
+     * Feeds a strip whose holes are all a little off from where the feeder expects them, and
+     * checks that a feeder using predicted hole locations picks from the same places as one that
+     * looks at every hole, while only looking at one hole in every getPredictedFeedsMax() + 1.
+     */
+    @Test
+    public void testPredictedHoles() throws Exception {
+        TestStripFeeder predicting = new TestStripFeeder(3, 0);
+        TestStripFeeder looking = new TestStripFeeder(0, 0);
+        for (int i = 0; i < 9; i++) {
+            predicting.feed(null);
+            looking.feed(null);
+            Location expected = looking.getPickLocation();
+            Location actual = predicting.getPickLocation();
+            Assert.assertEquals(expected.getX(), actual.getX(), 1e-6);
+            Assert.assertEquals(expected.getY(), actual.getY(), 1e-6);
+        }
+        Assert.assertEquals(9, looking.captures);
+        // Feeds 1, 5 and 9.
+        Assert.assertEquals(3, predicting.captures);
+    }
+
+    /**
+     * Checks that a failed pick throws the predictions away, so the next feed looks again.
+     */
+    @Test
+    public void testPickFailed() throws Exception {
+        TestStripFeeder feeder = new TestStripFeeder(3, 0);
+        feeder.feed(null);
+        feeder.feed(null);
+        Assert.assertEquals(1, feeder.captures);
+        feeder.pickFailed(null);
+        feeder.feed(null);
+        Assert.assertEquals(2, feeder.captures);
+        feeder.feed(null);
+        Assert.assertEquals(2, feeder.captures);
+    }
+
+    /**
+     * Checks that holes that don't lie on a line aren't used to predict, so every feed looks.
+     */
+    @Test
+    public void testHolesOffLine() throws Exception {
+        TestStripFeeder feeder = new TestStripFeeder(3, 0.3);
+        for (int i = 0; i < 4; i++) {
+            feeder.feed(null);
+        }
+        Assert.assertEquals(4, feeder.captures);
+    }
+
+    @Test
+    public void testFitLine() {
+        // Points either side of the line y = 1 + 0.5 * x, x = d.
+        List<Double> distances = Arrays.asList(0d, 4d, 8d, 12d);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < distances.size(); i++) {
+            double d = distances.get(i);
+            double noise = i % 2 == 0 ? 0.01 : -0.01;
+            locations.add(new Location(LengthUnit.Millimeters, d, 1 + 0.5 * d + noise, 0, 0));
+        }
+        List<Location> fitted = ReferenceStripFeeder.fitLine(distances, locations);
+        Assert.assertEquals(4, fitted.size());
+        for (int i = 0; i < fitted.size(); i++) {
+            double d = distances.get(i);
+            Assert.assertEquals(d, fitted.get(i).getX(), 1e-9);
+            Assert.assertEquals(1 + 0.5 * d, fitted.get(i).getY(), 0.01);
+        }
+        // The slope between the ends is close to that of the line.
+        Location first = fitted.get(0);
+        Location last = fitted.get(fitted.size() - 1);
+        Assert.assertEquals(0.5, (last.getY() - first.getY()) / (last.getX() - first.getX()),
+                0.002);
+    }
+
+    /**
+     * A strip feeder along X from 0 to 40 mm whose holes are really 0.2 mm further along and
+     * 0.1 mm to the side, with alternate holes moved back and forth along the strip by noise.
+     * Instead of using a camera it returns the holes within 25 mm of where it is asked to look.
+     */
+    public static class TestStripFeeder extends ReferenceStripFeeder {
+        private final int predictedFeedsMax;
+
+        private final double noise;
+
+        int captures;
+
+        public TestStripFeeder(int predictedFeedsMax, double noise) {
+            this.predictedFeedsMax = predictedFeedsMax;
+            this.noise = noise;
+            setReferenceHoleLocation(new Location(LengthUnit.Millimeters, 0, 0, 0, 0));
+            setLastHoleLocation(new Location(LengthUnit.Millimeters, 40, 0, 0, 0));
+        }
+
+        @Override
+        public int getPredictedFeedsMax() {
+            return predictedFeedsMax;
+        }
+
+        @Override
+        protected List<Location> findHoles(Nozzle nozzle, Location location) {
+            captures++;
+            List<Location> holes = new ArrayList<>();
+            for (int i = 0; i <= 10; i++) {
+                double x = 4 * i + 0.2 + (i % 2 == 0 ? noise : -noise);
+                if (Math.abs(x - location.getX()) <= 25) {
+                    holes.add(new Location(LengthUnit.Millimeters, x, 0.1, 0, 0));
+                }
+            }
+            return holes;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.gui.importer.rs274x.Rs274xParser;
+import org.openpnp.gui.importer.rs274x.Rs274xParserBenchmark;
+import org.openpnp.model.BoardPad;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.model.Pad;
+
+public class Rs274xParserTest {
+    /**
+     * Parses flashes of two apertures, with line breaks in the middle of a coordinate, and checks
+     * the pads, their names and locations.
+     */
+    @Test
+    public void testFlashes() throws Exception {
+        String gerber = "G04 test*\r\n%FSLAX24Y24*%\r\n%MOMM*%\r\n%ADD10R,1.200X0.600*%\r\n"
+                + "%ADD11C,0.5*%\r\nG01*\r\nD10*\r\nX123456Y-5D03*\r\nX1\r\n00000Y20000D03*\n"
+                + "D11*X-23456Y7D03*M02*\r\n";
+        List<BoardPad> pads = new Rs274xParser().parseSolderPastePads(new StringReader(gerber));
+        Assert.assertEquals(3, pads.size());
+
+        Assert.assertEquals("D10-000", pads.get(0).getName());
+        Assert.assertEquals("D10-001", pads.get(1).getName());
+        Assert.assertEquals("D11-000", pads.get(2).getName());
+
+        assertLocation(pads.get(0).getLocation(), 12.3456, -0.0005);
+        assertLocation(pads.get(1).getLocation(), 10, 2);
+        assertLocation(pads.get(2).getLocation(), -2.3456, 0.0007);
+
+        Pad.RoundRectangle rectangle = (Pad.RoundRectangle) pads.get(0).getPad();
+        Assert.assertEquals(1.2, rectangle.getWidth(), 1e-9);
+        Assert.assertEquals(0.6, rectangle.getHeight(), 1e-9);
+        Assert.assertSame(rectangle, pads.get(1).getPad());
+        Assert.assertEquals(0.25, ((Pad.Circle) pads.get(2).getPad()).getRadius(), 1e-9);
+    }
+
+    /**
+     * Parses the generated benchmark layer, mostly to make sure it stays parseable.
+     */
+    @Test
+    public void testBenchmark() throws Exception {
+        Rs274xParserBenchmark benchmark =
+                new Rs274xParserBenchmark(Rs274xParserBenchmark.generate(1000));
+        Assert.assertEquals(1000, benchmark.parse().size());
+        Assert.assertEquals(2, benchmark.run(2, 1).length);
+    }
+
+    private static void assertLocation(Location location, double x, double y) {
+        Assert.assertEquals(LengthUnit.Millimeters, location.getUnits());
+        Assert.assertEquals(x, location.getX(), 1e-9);
+        Assert.assertEquals(y, location.getY(), 1e-9);
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.machine.reference.ReferenceNozzleTip.Calibration.CalibrationOffset;
+import org.openpnp.machine.reference.ReferenceNozzleTip.Calibration.RunoutModel;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+
+public class RunoutModelTest {
+    /**
+     * Fits offsets measured around an eccentric tip, with a little measurement noise, and checks
+     * the model recovers the circle the tip traces.
+     */
+    @Test
+    public void testFit() {
+        double centerX = 0.1;
+        double centerY = -0.05;
+        double radius = 0.2;
+        double phase = 30;
+        List<CalibrationOffset> offsets = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            double angle = i * 15;
+            double noise = i % 2 == 0 ? 0.002 : -0.002;
+            offsets.add(new CalibrationOffset(
+                    circle(centerX, centerY, radius, phase, angle, noise), angle));
+        }
+
+        RunoutModel model = RunoutModel.fit("N1", offsets);
+        Assert.assertEquals("N1", model.getNozzleId());
+        Assert.assertEquals(radius, model.getRunout(), 0.001);
+        Assert.assertTrue(model.getResidual() < 0.003);
+        // The model is smooth between the samples too.
+        for (double angle = 0; angle < 360; angle += 7.5) {
+            Location expected = circle(centerX, centerY, radius, phase, angle, 0);
+            Location actual = model.getOffset(angle);
+            Assert.assertEquals(expected.getX(), actual.getX(), 0.002);
+            Assert.assertEquals(expected.getY(), actual.getY(), 0.002);
+        }
+    }
+
+    /**
+     * Checks that offsets that are exactly on a circle fit with no residual, even with only the
+     * minimum number of samples.
+     */
+    @Test
+    public void testExactFit() {
+        List<CalibrationOffset> offsets = new ArrayList<>();
+        for (double angle : Arrays.asList(0d, 90d, 180d, 270d)) {
+            offsets.add(new CalibrationOffset(circle(0, 0, 0.5, 0, angle, 0), angle));
+        }
+        RunoutModel model = RunoutModel.fit("N1", offsets);
+        Assert.assertEquals(0.5, model.getRunout(), 1e-9);
+        Assert.assertEquals(0, model.getResidual(), 1e-9);
+        Assert.assertEquals(0.5 * Math.cos(Math.toRadians(45)), model.getOffset(45).getX(), 1e-9);
+    }
+
+    /**
+     * Angles that don't cover the circle can't separate the center from the runout.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFewAngles() {
+        List<CalibrationOffset> offsets = new ArrayList<>();
+        for (double angle : Arrays.asList(0d, 180d, 0d, 180d)) {
+            offsets.add(new CalibrationOffset(circle(0, 0, 0.5, 0, angle, 0), angle));
+        }
+        RunoutModel.fit("N1", offsets);
+    }
+
+    private static Location circle(double centerX, double centerY, double radius, double phase,
+            double angle, double noise) {
+        double radians = Math.toRadians(angle + phase);
+        return new Location(LengthUnit.Millimeters, centerX + radius * Math.cos(radians) + noise,
+                centerY + radius * Math.sin(radians) - noise, 0, 0);
+    }
+}
@@ -0,0 +1,99 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.machine.reference.driver.NullDriver;
+import org.openpnp.machine.reference.driver.RecordingDriver;
+import org.openpnp.machine.reference.driver.Session;
+import org.openpnp.machine.reference.driver.Session.Event;
+import org.openpnp.machine.reference.driver.SessionRecorder;
+import org.openpnp.machine.reference.driver.SimulationDriver;
+import org.openpnp.machine.reference.driver.ThroughputSimulator.Report;
+import org.openpnp.model.Identifiable;
+import org.openpnp.model.LengthUnit;
+import org.openpnp.model.Location;
+import org.openpnp.spi.Camera;
+
+public class SessionTest {
+    /**
+     * A driver wrapped for recording is still found as what it is.
+     */
+    @Test
+    public void testUnwrap() {
+        SimulationDriver simulation = new SimulationDriver();
+        RecordingDriver recording = new RecordingDriver(simulation);
+        Assert.assertSame(simulation, recording.unwrap(SimulationDriver.class));
+        Assert.assertSame(simulation, recording.unwrap(NullDriver.class));
+        Assert.assertSame(recording, recording.unwrap(RecordingDriver.class));
+        Assert.assertNull(new RecordingDriver(new NullDriver()).unwrap(SimulationDriver.class));
+    }
+
+    /**
+     * Records calls, phases and frames and checks that they are replayed as they were recorded.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        File directory = Files.createTempDirectory("session").toFile();
+        Identifiable nozzle = () -> "N1";
+        Identifiable actuator = () -> "A1";
+        Camera camera = camera("CAM1");
+        BufferedImage frame = new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB);
+        frame.setRGB(3, 4, 0x123456);
+
+        Location from = new Location(LengthUnit.Millimeters, 0, 0, 0, 0);
+        Location to = new Location(LengthUnit.Inches, 1, 2, Double.NaN, 90);
+        long t = System.nanoTime();
+        SessionRecorder recorder = new SessionRecorder(directory);
+        recorder.recordPhase("PreFlight");
+        recorder.record(t, 1000, SessionRecorder.key("moveTo", nozzle, from, to, 1.0), null);
+        recorder.record(t, 2000, SessionRecorder.key("moveTo", nozzle, from, to, 1.0), null);
+        recorder.record(t, 50, SessionRecorder.key("actuatorRead", actuator), "a\tb\\n\nc");
+        recorder.recordPhase("Place");
+        recorder.recordFrame(camera, frame, t, 30000000);
+        recorder.recordPhase("Uninitialized");
+        recorder.close();
+
+        Session session = new Session(directory);
+        Assert.assertEquals(7, session.getEvents().size());
+
+        // The same move computed in other units is the same call.
+        Location sameTo = to.convertToUnits(LengthUnit.Millimeters);
+        String move = SessionRecorder.key("moveTo", nozzle, from, sameTo, 1.0);
+        Assert.assertEquals(1000, session.take(move).getDurationNanos());
+        Assert.assertEquals(2000, session.take(move).getDurationNanos());
+        Assert.assertNull(session.take(move));
+        Assert.assertNull(session.take(SessionRecorder.key("moveTo", nozzle, to, from, 1.0)));
+
+        Assert.assertEquals("a\tb\\n\nc",
+                session.take(SessionRecorder.key("actuatorRead", actuator)).getResult());
+
+        Event event = session.take(SessionRecorder.key("frame", camera));
+        Assert.assertEquals(30000000, event.getDurationNanos());
+        BufferedImage replayed = session.readFrame(event);
+        Assert.assertEquals(16, replayed.getWidth());
+        Assert.assertEquals(8, replayed.getHeight());
+        Assert.assertEquals(0x123456, replayed.getRGB(3, 4) & 0xffffff);
+        Assert.assertEquals(0, replayed.getRGB(4, 4) & 0xffffff);
+
+        session.rewind();
+        Assert.assertNotNull(session.take(move));
+
+        Report report = session.getReport();
+        Assert.assertEquals(1, report.getParts());
+        Assert.assertEquals(2, report.getMoveCount());
+        Assert.assertEquals(2, report.getPhaseTimes().size());
+        Assert.assertTrue(report.getPhaseTimes().containsKey("PreFlight"));
+        Assert.assertTrue(report.getPhaseTimes().containsKey("Place"));
+        System.out.print(report.compare(report));
+    }
+
+    private static Camera camera(String id) {
+        return (Camera) Proxy.newProxyInstance(Camera.class.getClassLoader(),
+                new Class[] {Camera.class}, (proxy, method, args) -> {
+                    return method.getName().equals("getId") ? id : null;
+                });
+    }
+}
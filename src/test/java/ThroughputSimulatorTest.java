@@ -0,0 +1,104 @@
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.machine.reference.ReferenceMachine;
+import org.openpnp.machine.reference.driver.SimulationDriver;
+import org.openpnp.machine.reference.driver.SimulationDriver.AxisLimits;
+import org.openpnp.machine.reference.driver.ThroughputSimulator;
+import org.openpnp.machine.reference.driver.ThroughputSimulator.Report;
+import org.openpnp.model.BoardLocation;
+import org.openpnp.model.Configuration;
+import org.openpnp.model.Job;
+import org.openpnp.model.Placement;
+
+import com.google.common.io.Files;
+
+public class ThroughputSimulatorTest {
+    /**
+     * Runs the pnp-test sample job on the simulation driver and checks the predicted timings
+     * account for every part and add up to the cycle time.
+     */
+    @Test
+    public void testSampleJob() throws Exception {
+        File workingDirectory = Files.createTempDir();
+        workingDirectory = new File(workingDirectory, ".openpnp");
+
+        Configuration.initialize(workingDirectory);
+        Configuration.get().load();
+
+        ReferenceMachine machine = (ReferenceMachine) Configuration.get().getMachine();
+        machine.getDefaultHead().getDefaultCamera().setSettleTimeMs(0);
+        machine.setDriver(new SimulationDriver());
+
+        File jobFile = new File("samples");
+        jobFile = new File(jobFile, "pnp-test");
+        jobFile = new File(jobFile, "pnp-test.job.xml");
+        Job job = Configuration.get().loadJob(jobFile);
+
+        int parts = 0;
+        for (BoardLocation boardLocation : job.getBoardLocations()) {
+            for (Placement placement : boardLocation.getBoard().getPlacements()) {
+                if (boardLocation.isEnabled() && placement.getType() == Placement.Type.Place
+                        && placement.getSide() == boardLocation.getSide()) {
+                    parts++;
+                }
+            }
+        }
+
+        Report report = ThroughputSimulator.run(machine, job);
+
+        Assert.assertTrue(parts > 0);
+        Assert.assertEquals(parts, report.getParts());
+        Assert.assertTrue(report.getMoveCount() > 0);
+        Assert.assertTrue(report.getMoveTime() > 0);
+        Assert.assertTrue(report.getCycleTime() >= report.getMoveTime());
+        Assert.assertEquals(parts / (report.getCycleTime() / 3600), report.getPartsPerHour(),
+                1e-6);
+
+        // Every step of the job is accounted for, and together they make up the cycle time.
+        Assert.assertTrue(report.getPhaseTimes().containsKey("Feed"));
+        Assert.assertTrue(report.getPhaseTimes().containsKey("Place"));
+        double phaseTotal = 0;
+        for (double time : report.getPhaseTimes().values()) {
+            Assert.assertTrue(time >= 0);
+            phaseTotal += time;
+        }
+        Assert.assertEquals(report.getCycleTime(), phaseTotal, 1e-6);
+        Assert.assertTrue(report.toString().contains(parts + " parts"));
+    }
+
+    /**
+     * Dwelling advances the clock by the dwell time without waiting for it.
+     */
+    @Test
+    public void testDwell() throws Exception {
+        SimulationDriver driver = new SimulationDriver();
+        driver.resetClock();
+        long t = System.nanoTime();
+        driver.dwell(60000);
+        Assert.assertTrue(System.nanoTime() - t < 1000000000L);
+        Assert.assertEquals(60000000000L, driver.getClockNanos());
+        Thread.sleep(10);
+        Assert.assertEquals(60000000000L, driver.getClockNanos());
+    }
+
+    @Test
+    public void testMoveTime() {
+        // Without acceleration a move is distance over feed rate.
+        AxisLimits limits = new AxisLimits(6000, 0, 0);
+        Assert.assertEquals(1.0, limits.getMoveTime(100, 1.0), 1e-9);
+        Assert.assertEquals(2.0, limits.getMoveTime(-100, 0.5), 1e-9);
+
+        // Trapezoid: 100mm/s, 1000mm/s^2 takes 0.1s and 5mm to reach full speed.
+        limits = new AxisLimits(6000, 1000, 0);
+        Assert.assertEquals(0.2 + 0.9, limits.getMoveTime(100, 1.0), 1e-9);
+        // Too short to reach full speed: triangle with peak sqrt(a * d).
+        Assert.assertEquals(2 * Math.sqrt(4.0 / 1000), limits.getMoveTime(4, 1.0), 1e-6);
+
+        // Jerk limits only ever make a move slower.
+        AxisLimits jerkLimited = new AxisLimits(6000, 1000, 10000);
+        Assert.assertTrue(jerkLimited.getMoveTime(100, 1.0) > limits.getMoveTime(100, 1.0));
+        Assert.assertTrue(jerkLimited.getMoveTime(4, 1.0) > limits.getMoveTime(4, 1.0));
+    }
+}
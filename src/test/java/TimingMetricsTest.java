@@ -0,0 +1,36 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.openpnp.util.TimingMetrics;
+
+public class TimingMetricsTest {
+    /**
+     * Checks that driver commands are recorded by kind, and also by phase and kind when the
+     * thread has a phase.
+     */
+    @Test
+    public void testRecordCommandByPhase() {
+        TimingMetrics metrics = TimingMetrics.get();
+        metrics.reset();
+
+        metrics.recordCommand("move", 1000);
+        TimingMetrics.setPhase("Pick");
+        try {
+            metrics.recordCommand("move", 2000);
+            metrics.recordCommand("move", 3000);
+            metrics.recordCommand("actuate", 4000);
+        }
+        finally {
+            TimingMetrics.setPhase(null);
+        }
+
+        Assert.assertEquals(3,
+                metrics.getHistogram(TimingMetrics.DRIVER_COMMAND, "move").getCount());
+        Assert.assertEquals(2, metrics
+                .getHistogram(TimingMetrics.DRIVER_COMMAND_BY_PHASE, "Pick move").getCount());
+        Assert.assertEquals(5000, metrics
+                .getHistogram(TimingMetrics.DRIVER_COMMAND_BY_PHASE, "Pick move").getTotal());
+        Assert.assertEquals(1, metrics
+                .getHistogram(TimingMetrics.DRIVER_COMMAND_BY_PHASE, "Pick actuate").getCount());
+        Assert.assertNull(TimingMetrics.getPhase());
+    }
+}